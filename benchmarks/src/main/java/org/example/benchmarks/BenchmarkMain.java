@@ -0,0 +1,38 @@
+package org.example.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * @file BenchmarkMain.java
+ * @brief Punto de entrada de benchmarks.jar: acepta las mismas opciones que
+ *        el lanzador de JMH y añade siempre el perfilador de asignaciones
+ *        ({@code -prof gc}).
+ *
+ * Las rutas medidas se ejecutan por cada fila, así que la métrica que hay que
+ * vigilar, además del tiempo, es {@code gc.alloc.rate.norm} (bytes asignados
+ * por operación).
+ *
+ * Ejemplos:
+ * <pre>
+ *   java -jar target/benchmarks.jar                       (todas)
+ *   java -jar target/benchmarks.jar PgDecode -p rows=1000  (filtro y parámetros)
+ * </pre>
+ */
+public final class BenchmarkMain {
+    private BenchmarkMain() {
+        throw new UnsupportedOperationException("Utility class - do not instantiate");
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        Options options = new OptionsBuilder()
+                .parent(cmd)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
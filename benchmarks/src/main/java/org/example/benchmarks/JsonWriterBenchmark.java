@@ -0,0 +1,75 @@
+package org.example.benchmarks;
+
+import org.example.web.encoding.JsonResultEncoder;
+import org.example.web.json.JsonWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @file JsonWriterBenchmark.java
+ * @brief Serialización JSON de las respuestas de /query: el codificador en
+ *        streaming que usa QueryHandler en ambos servidores, y
+ *        {@link JsonWriter#toJson} (String intermedio, usado en los errores),
+ *        ambos con textos que necesitan escape.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonWriterBenchmark {
+    /** Sumidero que descarta los bytes, para medir sólo la serialización. */
+    private static final class NullOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    @Param({"100", "10000"})
+    public int rows;
+
+    private List<Map<String, Object>> data;
+    private final JsonResultEncoder encoder = new JsonResultEncoder();
+    private final NullOutputStream sink = new NullOutputStream();
+
+    @Setup(Level.Trial)
+    public void createRows() {
+        data = SyntheticRows.rows(rows);
+    }
+
+    @Benchmark
+    public long encodeRows() throws IOException {
+        encoder.encode(data, sink);
+        return sink.count;
+    }
+
+    @Benchmark
+    public String toJson() {
+        return JsonWriter.toJson(data);
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.benchmarks;
+
+import org.example.db.utilities.ResultSetConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @file ResultSetConverterBenchmark.java
+ * @brief Conversión de un ResultSet JDBC a filas (ruta de la conexión JDBC de
+ *        respaldo) con {@link ResultSetConverter#convertToList}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResultSetConverterBenchmark {
+    @Param({"100", "10000"})
+    public int rows;
+
+    private List<Map<String, Object>> source;
+    private ResultSet resultSet;
+
+    @Setup(Level.Trial)
+    public void createRows() {
+        source = SyntheticRows.rows(rows);
+    }
+
+    @Setup(Level.Invocation)
+    public void rewind() {
+        resultSet = SyntheticRows.resultSet(source);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> convertToList() throws SQLException {
+        return ResultSetConverter.convertToList(resultSet);
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.benchmarks;
+
+import org.example.db.utilities.SQLCleaner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @file SQLCleanerBenchmark.java
+ * @brief Limpieza y clasificación de SQL, que se hacen en cada petición
+ *        (clasificación para el enrutado a réplicas, huella para el registro
+ *        de consultas lentas).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SQLCleanerBenchmark {
+    @Param({"short", "multiline"})
+    public String shape;
+
+    private String sql;
+
+    @Setup
+    public void createSql() {
+        sql = "short".equals(shape)
+                ? "SELECT id, name FROM customers WHERE id = 42"
+                : "  WITH recent AS (\r\n    SELECT id, total\n      FROM orders\n     WHERE created_at > '2024-01-01'\n)\n"
+                + "SELECT c.id,   c.name, r.total\n  FROM customers c\n  JOIN recent r ON r.id = c.id\n"
+                + " WHERE c.name LIKE 'A%'   AND r.total > 100.50\n ORDER BY r.total DESC\n LIMIT 50  ";
+    }
+
+    @Benchmark
+    public String cleanSql() {
+        return SQLCleaner.cleanSql(sql);
+    }
+
+    @Benchmark
+    public boolean isSelectQuery() {
+        return SQLCleaner.isSelectQuery(sql);
+    }
+
+    @Benchmark
+    public String fingerprint() {
+        return SQLCleaner.fingerprint(sql, false);
+    }
+}
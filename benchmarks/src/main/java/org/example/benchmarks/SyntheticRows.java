@@ -0,0 +1,78 @@
+package org.example.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @file SyntheticRows.java
+ * @brief Datos sintéticos compartidos por los benchmarks: filas con tipos
+ *        mezclados (enteros, texto con caracteres a escapar, decimales,
+ *        booleanos, fechas y nulos) y un ResultSet en memoria sobre ellas.
+ */
+final class SyntheticRows {
+    static final String[] COLUMNS = {"id", "name", "price", "active", "created_at", "note"};
+
+    private SyntheticRows() {
+        throw new UnsupportedOperationException("Utility class - do not instantiate");
+    }
+
+    /**
+     * @param count número de filas
+     * @return filas deterministas (misma entrada en cada ejecución)
+     */
+    static List<Map<String, Object>> rows(int count) {
+        List<Map<String, Object>> rows = new ArrayList<>(count);
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", (long) i);
+            row.put("name", "customer-" + i);
+            row.put("price", BigDecimal.valueOf(i * 137L % 100_000, 2));
+            row.put("active", i % 3 != 0);
+            row.put("created_at", base.plusMinutes(i));
+            row.put("note", i % 5 == 0 ? null : "line \"" + i + "\"\twith\\escapes\nñ");
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * ResultSet de sólo avance sobre las filas, con getMetaData/next/getObject.
+     * Se crea con un Proxy para no depender de un driver; el coste del
+     * despacho es constante por llamada y común a todas las variantes medidas.
+     *
+     * @param rows filas de {@link #rows(int)}
+     * @return ResultSet posicionado antes de la primera fila
+     */
+    static ResultSet resultSet(List<Map<String, Object>> rows) {
+        Object[][] values = new Object[rows.size()][];
+        for (int r = 0; r < values.length; r++) values[r] = rows.get(r).values().toArray();
+        ResultSetMetaData meta = (ResultSetMetaData) Proxy.newProxyInstance(
+                SyntheticRows.class.getClassLoader(), new Class<?>[]{ResultSetMetaData.class}, (p, m, a) -> {
+                    switch (m.getName()) {
+                        case "getColumnCount": return COLUMNS.length;
+                        case "getColumnName":
+                        case "getColumnLabel": return COLUMNS[(Integer) a[0] - 1];
+                        default: throw new UnsupportedOperationException(m.getName());
+                    }
+                });
+        int[] cursor = {-1};
+        return (ResultSet) Proxy.newProxyInstance(
+                SyntheticRows.class.getClassLoader(), new Class<?>[]{ResultSet.class}, (p, m, a) -> {
+                    switch (m.getName()) {
+                        case "getMetaData": return meta;
+                        case "next": return ++cursor[0] < values.length;
+                        case "getObject": return values[cursor[0]][(Integer) a[0] - 1];
+                        case "close": return null;
+                        default: throw new UnsupportedOperationException(m.getName());
+                    }
+                });
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.db.mysql;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @file MySQLRowDecodeBenchmark.java
+ * @brief Decodificación de un result set del protocolo de texto de MySQL:
+ *        definiciones de columna y N paquetes de fila.
+ *
+ * Los paquetes se generan una vez con {@link MySQLProtocolHelper#writePacket}
+ * y se leen como en {@code MySQLConnection}: {@link MySQLProtocolHelper#readPacket}
+ * (cabecera y reensamblado), {@link MySQLRowDecoder#parseColumnDefinition} y
+ * {@link MySQLRowDecoder#decodeRow}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MySQLRowDecodeBenchmark {
+    private static final String[] NAMES = {"id", "name", "price", "active", "created_at", "note"};
+    private static final int[] TYPES = {MySQLRowDecoder.TYPE_LONGLONG, MySQLRowDecoder.TYPE_VAR_STRING,
+            MySQLRowDecoder.TYPE_NEWDECIMAL, MySQLRowDecoder.TYPE_TINY, MySQLRowDecoder.TYPE_DATETIME,
+            MySQLRowDecoder.TYPE_BLOB};
+    private static final int UTF8MB4 = 45;
+
+    @Param({"100", "10000"})
+    public int rows;
+
+    private byte[] stream;
+
+    @Setup
+    public void capture() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream p = new ByteArrayOutputStream();
+        int seq = 1;
+        MySQLProtocolHelper.writeLengthEncodedInt(p, NAMES.length);
+        seq = MySQLProtocolHelper.writePacket(out, p.toByteArray(), seq);
+        for (int i = 0; i < NAMES.length; i++) {
+            p.reset();
+            MySQLProtocolHelper.writeLengthEncodedString(p, "def");
+            MySQLProtocolHelper.writeLengthEncodedString(p, "shop");
+            MySQLProtocolHelper.writeLengthEncodedString(p, "customers");
+            MySQLProtocolHelper.writeLengthEncodedString(p, "customers");
+            MySQLProtocolHelper.writeLengthEncodedString(p, NAMES[i]);
+            MySQLProtocolHelper.writeLengthEncodedString(p, NAMES[i]);
+            p.write(0x0C);
+            p.write(UTF8MB4);
+            p.write(0);
+            p.writeBytes(new byte[]{(byte) 0xFF, 0, 0, 0}); // column_length
+            p.write(TYPES[i]);
+            p.writeBytes(new byte[]{0, 0, 0, 0, 0}); // flags, decimals, filler
+            seq = MySQLProtocolHelper.writePacket(out, p.toByteArray(), seq);
+        }
+        for (int r = 0; r < rows; r++) {
+            p.reset();
+            MySQLProtocolHelper.writeLengthEncodedString(p, Integer.toString(r));
+            MySQLProtocolHelper.writeLengthEncodedString(p, "customer-" + r);
+            MySQLProtocolHelper.writeLengthEncodedString(p,
+                    (r * 137L % 100_000) / 100 + "." + String.format("%02d", r * 137L % 100));
+            MySQLProtocolHelper.writeLengthEncodedString(p, r % 3 != 0 ? "1" : "0");
+            MySQLProtocolHelper.writeLengthEncodedString(p,
+                    String.format("2024-01-%02d %02d:%02d:00", 1 + r / 1440 % 28, r / 60 % 24, r % 60));
+            if (r % 5 == 0) {
+                p.write(0xFB); // NULL
+            } else {
+                MySQLProtocolHelper.writeLengthEncodedString(p, "line \"" + r + "\"\twith\\escapes ñ");
+            }
+            seq = MySQLProtocolHelper.writePacket(out, p.toByteArray(), seq);
+        }
+        stream = out.toByteArray();
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> decodeResult() throws Exception {
+        ByteArrayInputStream in = new ByteArrayInputStream(stream);
+        int count = MySQLProtocolHelper.getLengthEncodedInt(MySQLProtocolHelper.readPacket(in), 0);
+        MySQLRowDecoder.Column[] columns = new MySQLRowDecoder.Column[count];
+        for (int i = 0; i < count; i++) {
+            columns[i] = MySQLRowDecoder.parseColumnDefinition(MySQLProtocolHelper.readPacket(in));
+        }
+        List<Map<String, Object>> result = new ArrayList<>();
+        while (in.available() > 0) {
+            result.add(MySQLRowDecoder.decodeRow(MySQLProtocolHelper.readPacket(in), columns));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,130 @@
+package org.example.db.postgres;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @file PgDecodeBenchmark.java
+ * @brief Decodificación de la respuesta a una consulta simple del cliente
+ *        nativo de Postgres: RowDescription seguido de N DataRow en texto.
+ *
+ * El flujo de mensajes se genera una vez con el mismo formato que envía el
+ * servidor y se recorre como lo hace {@code PostgressConnection}, llamando a
+ * {@link PostgressConnection#parseRowDescription} y
+ * {@link PostgressConnection#parseDataRow} (por eso la clase vive en el mismo
+ * paquete).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PgDecodeBenchmark {
+    private static final String[] NAMES = {"id", "name", "price", "active", "created_at", "note"};
+    private static final int[] TYPES = {PgValueDecoder.INT8, 25, PgValueDecoder.NUMERIC, PgValueDecoder.BOOL,
+            PgValueDecoder.TIMESTAMP, 25};
+
+    @Param({"100", "10000"})
+    public int rows;
+
+    private byte[] stream;
+
+    @Setup
+    public void capture() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(0);
+        body.write(NAMES.length);
+        for (int i = 0; i < NAMES.length; i++) {
+            body.writeBytes(NAMES[i].getBytes(StandardCharsets.UTF_8));
+            body.write(0);
+            writeInt(body, 16384); // table oid
+            writeShort(body, i + 1);
+            writeInt(body, TYPES[i]);
+            writeShort(body, -1);
+            writeInt(body, -1);
+            writeShort(body, 0); // formato texto
+        }
+        message(out, 'T', body);
+        for (int r = 0; r < rows; r++) {
+            body.reset();
+            writeShort(body, NAMES.length);
+            value(body, Integer.toString(r));
+            value(body, "customer-" + r);
+            value(body, (r * 137L % 100_000) / 100 + "." + String.format("%02d", r * 137L % 100));
+            value(body, r % 3 != 0 ? "t" : "f");
+            value(body, String.format("2024-01-%02d %02d:%02d:00", 1 + r / 1440 % 28, r / 60 % 24, r % 60));
+            value(body, r % 5 == 0 ? null : "line \"" + r + "\"\twith\\escapes ñ");
+            message(out, 'D', body);
+        }
+        message(out, 'C', new ByteArrayOutputStream());
+        stream = out.toByteArray();
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> decodeResult() {
+        ByteBuffer bb = ByteBuffer.wrap(stream);
+        List<Map<String, Object>> result = new ArrayList<>();
+        List<String> columnNames = null;
+        int[] columnTypes = null;
+        while (bb.hasRemaining()) {
+            byte type = bb.get();
+            int len = bb.getInt() - 4;
+            byte[] payload = new byte[len]; // como readBytes() sobre el socket
+            bb.get(payload);
+            if (type == 'T') {
+                columnNames = new ArrayList<>();
+                columnTypes = PostgressConnection.parseRowDescription(payload, columnNames);
+            } else if (type == 'D') {
+                result.add(PostgressConnection.parseDataRow(payload, columnNames, columnTypes));
+            }
+        }
+        return result;
+    }
+
+    private static void message(ByteArrayOutputStream out, char type, ByteArrayOutputStream body) {
+        out.write(type);
+        writeInt(out, body.size() + 4);
+        out.writeBytes(body.toByteArray());
+    }
+
+    private static void value(ByteArrayOutputStream out, String v) {
+        if (v == null) {
+            writeInt(out, -1);
+            return;
+        }
+        byte[] b = v.getBytes(StandardCharsets.UTF_8);
+        writeInt(out, b.length);
+        out.writeBytes(b);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int v) {
+        out.write(v >>> 24);
+        out.write(v >>> 16);
+        out.write(v >>> 8);
+        out.write(v);
+    }
+
+    private static void writeShort(ByteArrayOutputStream out, int v) {
+        out.write(v >>> 8);
+        out.write(v);
+    }
+}
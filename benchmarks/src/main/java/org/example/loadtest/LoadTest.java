@@ -0,0 +1,321 @@
+package org.example.loadtest;
+
+import org.example.db.utilities.ConnectionConfig;
+import org.example.web.impl.SimpleWebServer;
+import org.example.web.json.JsonWriter;
+import org.example.web.servlet.ServletWebServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @file LoadTest.java
+ * @brief Banco de carga de extremo a extremo: arranca los servidores de
+ *        imitación de PostgreSQL y MySQL, apunta el middleware a ellos y lanza
+ *        clientes HTTP concurrentes contra /query (o /batch) de los dos
+ *        servidores web, informando de rendimiento y percentiles de latencia.
+ *
+ * La configuración del middleware (PGHOST, MYSQL_PORT, ...) se fija con
+ * propiedades de sistema antes de crear la primera conexión; cualquier otra
+ * clave de db.properties se puede pasar igual con {@code -DCLAVE=valor}
+ * (p. ej. {@code -DADMISSION_CONTROL=true}). Como las variables de entorno
+ * tienen prioridad sobre las propiedades de sistema, el banco se niega a
+ * arrancar si alguna de esas claves de conexión (o réplicas, o canales
+ * LISTEN) está definida: sus escrituras irían a una base de datos real.
+ *
+ * Opciones ({@code --clave valor}):
+ * <pre>
+ *   --clients 32        clientes concurrentes
+ *   --duration 10       segundos medidos por escenario
+ *   --warmup 3          segundos de calentamiento (no medidos)
+ *   --rows 100          filas por consulta
+ *   --width 8           columnas por fila
+ *   --bytes 16          caracteres por columna de texto
+ *   --latency 0         latencia simulada de la base de datos (ms)
+ *   --auth md5          autenticación de PostgreSQL (md5|trust)
+ *   --servers simple,servlet
+ *   --dbs postgres,mysql
+ *   --batch 0           sentencias por lote; &gt; 0 usa /batch en lugar de /query
+ *   --sql "SELECT ..."  consulta de /query (admite las marcas de {@link SyntheticResult})
+ * </pre>
+ *
+ * Ejemplo:
+ * <pre>
+ *   java -cp target/benchmarks.jar org.example.loadtest.LoadTest --clients 64 --rows 1000
+ * </pre>
+ */
+public final class LoadTest {
+    private static final String DB_USER = "loadtest";
+    private static final String DB_PASSWORD = "loadtest";
+    /** Claves que el banco fija como propiedades de sistema; el entorno las taparía. */
+    private static final List<String> CONNECTION_KEYS = Arrays.asList(
+            "PGHOST", "PGPORT", "PGDATABASE", "PGUSER", "PGPASSWORD",
+            "MYSQL_HOST", "MYSQL_PORT", "MYSQL_DATABASE", "MYSQL_USER", "MYSQL_PASSWORD");
+    /** Claves que abren conexiones a otros servidores, vengan de donde vengan. */
+    private static final List<String> REMOTE_KEYS = Arrays.asList(
+            "POSTGRES_REPLICAS", "MYSQL_REPLICAS", "PG_LISTEN_CHANNELS");
+
+    private LoadTest() {
+        throw new UnsupportedOperationException("Utility class - do not instantiate");
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = parseArgs(args);
+        checkIsolated();
+        int clients = Integer.parseInt(opts.getOrDefault("clients", "32"));
+        int duration = Integer.parseInt(opts.getOrDefault("duration", "10"));
+        int warmup = Integer.parseInt(opts.getOrDefault("warmup", "3"));
+        int batch = Integer.parseInt(opts.getOrDefault("batch", "0"));
+        String sql = opts.getOrDefault("sql", "SELECT * FROM synthetic");
+        SyntheticResult shape = new SyntheticResult(
+                Integer.parseInt(opts.getOrDefault("rows", "100")),
+                Integer.parseInt(opts.getOrDefault("width", "8")),
+                Integer.parseInt(opts.getOrDefault("bytes", "16")),
+                Long.parseLong(opts.getOrDefault("latency", "0")));
+        PgStandInServer.Auth auth = PgStandInServer.Auth.valueOf(opts.getOrDefault("auth", "md5").toUpperCase(Locale.ROOT));
+        List<String> servers = Arrays.asList(opts.getOrDefault("servers", "simple,servlet").split(","));
+        List<String> dbs = Arrays.asList(opts.getOrDefault("dbs", "postgres,mysql").split(","));
+
+        try (PgStandInServer pg = new PgStandInServer(0, auth, DB_USER, DB_PASSWORD, shape);
+             MySQLStandInServer mysql = new MySQLStandInServer(0, DB_USER, DB_PASSWORD, shape)) {
+            System.setProperty("PGHOST", "127.0.0.1");
+            System.setProperty("PGPORT", Integer.toString(pg.getPort()));
+            System.setProperty("PGDATABASE", "loadtest");
+            System.setProperty("PGUSER", DB_USER);
+            System.setProperty("PGPASSWORD", DB_PASSWORD);
+            System.setProperty("MYSQL_HOST", "127.0.0.1");
+            System.setProperty("MYSQL_PORT", Integer.toString(mysql.getPort()));
+            System.setProperty("MYSQL_DATABASE", "loadtest");
+            System.setProperty("MYSQL_USER", DB_USER);
+            System.setProperty("MYSQL_PASSWORD", DB_PASSWORD);
+            System.setProperty("LOG_LEVEL", System.getProperty("LOG_LEVEL", "WARN"));
+
+            SimpleWebServer simple = null;
+            ServletWebServer servlet = null;
+            Map<String, Integer> ports = new HashMap<>();
+            try {
+                if (servers.contains("simple")) {
+                    int port = freePort();
+                    simple = new SimpleWebServer();
+                    simple.start(port);
+                    ports.put("simple", port);
+                }
+                if (servers.contains("servlet")) {
+                    int port = freePort();
+                    servlet = new ServletWebServer(port);
+                    servlet.start();
+                    ports.put("servlet", port);
+                }
+
+                System.out.printf("clients=%d duration=%ds rows=%d width=%d latency=%sms endpoint=%s%n",
+                        clients, duration, shape.getRows(), shape.getWidth(), opts.getOrDefault("latency", "0"),
+                        batch > 0 ? "/batch (" + batch + " statements)" : "/query");
+                System.out.printf("%-8s %-9s %10s %8s %9s %9s %9s %9s%n",
+                        "server", "db", "ok/s", "errors", "p50(ms)", "p90(ms)", "p99(ms)", "max(ms)");
+                for (String server : servers) {
+                    Integer port = ports.get(server);
+                    if (port == null) throw new IllegalArgumentException("unknown server: " + server);
+                    for (String db : dbs) {
+                        Scenario scenario = new Scenario(port, db.trim(), batch, sql);
+                        scenario.run(clients, warmup);
+                        Report report = scenario.run(clients, duration);
+                        System.out.printf("%-8s %-9s %10.1f %8d %9.2f %9.2f %9.2f %9.2f%n",
+                                server, db, report.throughput(), report.errors,
+                                report.percentile(50), report.percentile(90), report.percentile(99), report.percentile(100));
+                        if (report.firstError != null) System.out.println("  first error: " + report.firstError);
+                    }
+                }
+                System.out.printf("stand-in statements: postgres=%d mysql=%d%n", pg.getQueries(), mysql.getQueries());
+            } finally {
+                if (simple != null) simple.stop();
+                if (servlet != null) servlet.stop();
+            }
+        }
+        System.exit(0);
+    }
+
+    /** Un servidor web y una base de datos. */
+    private static final class Scenario {
+        private final HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        private final HttpRequest request;
+
+        Scenario(int port, String db, int batch, String sql) {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("db", db);
+            String path;
+            if (batch > 0) {
+                List<Object> statements = new ArrayList<>();
+                for (int i = 0; i < batch; i++) {
+                    if (i % 2 == 0) {
+                        Map<String, Object> insert = new LinkedHashMap<>();
+                        insert.put("sql", "INSERT INTO t VALUES (?, ?)");
+                        insert.put("params", Arrays.asList(i, "v" + i));
+                        statements.add(insert);
+                    } else {
+                        statements.add("SELECT id FROM t -- rows=1");
+                    }
+                }
+                json.put("statements", statements);
+                path = "/batch";
+            } else {
+                json.put("sql", sql);
+                path = "/query";
+            }
+            String body = JsonWriter.toJson(json);
+            request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + path))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        }
+
+        Report run(int clients, int seconds) throws InterruptedException {
+            long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+            Report report = new Report(seconds);
+            CountDownLatch done = new CountDownLatch(clients);
+            AtomicLong errors = new AtomicLong();
+            List<long[]> samples = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                long[][] mine = {new long[1024]};
+                int[] count = {0};
+                Thread t = new Thread(() -> {
+                    try {
+                        while (System.nanoTime() < deadline) {
+                            long start = System.nanoTime();
+                            String error = send();
+                            long elapsed = System.nanoTime() - start;
+                            if (error != null) {
+                                errors.incrementAndGet();
+                                report.recordError(error);
+                                continue;
+                            }
+                            if (count[0] == mine[0].length) mine[0] = Arrays.copyOf(mine[0], count[0] * 2);
+                            mine[0][count[0]++] = elapsed;
+                        }
+                    } finally {
+                        synchronized (samples) {
+                            samples.add(Arrays.copyOf(mine[0], count[0]));
+                        }
+                        done.countDown();
+                    }
+                }, "load-client-" + c);
+                t.setDaemon(true);
+                t.start();
+            }
+            done.await();
+            report.errors = errors.get();
+            report.setSamples(samples);
+            return report;
+        }
+
+        /** @return null si la respuesta fue 200, o una descripción del fallo */
+        private String send() {
+            try {
+                HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() == 200) return null;
+                String body = response.body();
+                return response.statusCode() + " " + (body.length() > 200 ? body.substring(0, 200) : body);
+            } catch (IOException e) {
+                return e.toString();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return e.toString();
+            }
+        }
+    }
+
+    /** Resultado de un escenario. */
+    private static final class Report {
+        private final int seconds;
+        private long[] latencies = new long[0];
+        private long errors;
+        private volatile String firstError;
+
+        Report(int seconds) {
+            this.seconds = seconds;
+        }
+
+        void recordError(String error) {
+            if (firstError == null) firstError = error;
+        }
+
+        void setSamples(List<long[]> samples) {
+            int total = 0;
+            for (long[] s : samples) total += s.length;
+            long[] all = new long[total];
+            int pos = 0;
+            for (long[] s : samples) {
+                System.arraycopy(s, 0, all, pos, s.length);
+                pos += s.length;
+            }
+            Arrays.sort(all);
+            latencies = all;
+        }
+
+        double throughput() {
+            return latencies.length / (double) seconds;
+        }
+
+        /** @return percentil en milisegundos (100 = máximo) */
+        double percentile(double p) {
+            if (latencies.length == 0) return 0;
+            int idx = (int) Math.ceil(p / 100.0 * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(latencies.length - 1, idx))] / 1_000_000.0;
+        }
+    }
+
+    /**
+     * Comprueba que la configuración no saca al middleware de los servidores
+     * de imitación.
+     *
+     * @throws IllegalStateException si alguna clave apuntaría a otro servidor
+     */
+    private static void checkIsolated() {
+        List<String> conflicts = new ArrayList<>();
+        for (String key : CONNECTION_KEYS) {
+            String value = System.getenv(key);
+            if (value != null && !value.isEmpty()) conflicts.add(key);
+        }
+        for (String key : REMOTE_KEYS) {
+            if (!ConnectionConfig.getConfigValueAsList(key, key).isEmpty()) conflicts.add(key);
+        }
+        if (!conflicts.isEmpty()) {
+            throw new IllegalStateException("refusing to run: " + conflicts
+                    + " would point the load test at a real database; unset them first");
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket s = new ServerSocket(0)) {
+            return s.getLocalPort();
+        }
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> opts = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("expected --option value, got: " + args[i]);
+            }
+            opts.put(args[i].substring(2), args[++i]);
+        }
+        return opts;
+    }
+}
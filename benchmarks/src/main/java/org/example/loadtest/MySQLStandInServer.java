@@ -0,0 +1,452 @@
+package org.example.loadtest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @file MySQLStandInServer.java
+ * @brief Servidor de imitación que habla lo justo del protocolo cliente/servidor
+ *        de MySQL para ejercitar el cliente nativo sin una base de datos.
+ *
+ * Soporta:
+ * - Handshake v10 con mysql_native_password (se verifica el scramble).
+ * - COM_QUERY con CLIENT_MULTI_STATEMENTS: un resultado por sentencia, con
+ *   SERVER_MORE_RESULTS_EXISTS en todos salvo el último, como lo usa /batch.
+ *   Las sentencias que devuelven filas producen un result set sintético
+ *   ({@link SyntheticResult}) con paquetes EOF (sin CLIENT_DEPRECATE_EOF).
+ * - COM_PING, COM_INIT_DB y COM_QUIT.
+ *
+ * Cada conexión se atiende en su propio hilo; el puerto 0 elige uno libre.
+ */
+public final class MySQLStandInServer implements Closeable {
+    private static final String AUTH_PLUGIN = "mysql_native_password";
+
+    private static final int CLIENT_LONG_PASSWORD = 0x0000_0001;
+    private static final int CLIENT_FOUND_ROWS = 0x0000_0002;
+    private static final int CLIENT_LONG_FLAG = 0x0000_0004;
+    private static final int CLIENT_CONNECT_WITH_DB = 0x0000_0008;
+    private static final int CLIENT_PROTOCOL_41 = 0x0000_0200;
+    private static final int CLIENT_TRANSACTIONS = 0x0000_2000;
+    private static final int CLIENT_SECURE_CONNECTION = 0x0000_8000;
+    private static final int CLIENT_MULTI_STATEMENTS = 0x0001_0000;
+    private static final int CLIENT_MULTI_RESULTS = 0x0002_0000;
+    private static final int CLIENT_PS_MULTI_RESULTS = 0x0004_0000;
+    private static final int CLIENT_PLUGIN_AUTH = 0x0008_0000;
+    private static final int CLIENT_PLUGIN_AUTH_LENENC_DATA = 0x0020_0000;
+    private static final int SERVER_CAPABILITIES = CLIENT_LONG_PASSWORD | CLIENT_FOUND_ROWS | CLIENT_LONG_FLAG
+            | CLIENT_CONNECT_WITH_DB | CLIENT_PROTOCOL_41 | CLIENT_TRANSACTIONS | CLIENT_SECURE_CONNECTION
+            | CLIENT_MULTI_STATEMENTS | CLIENT_MULTI_RESULTS | CLIENT_PS_MULTI_RESULTS | CLIENT_PLUGIN_AUTH;
+
+    private static final int SERVER_STATUS_IN_TRANS = 0x0001;
+    private static final int SERVER_STATUS_AUTOCOMMIT = 0x0002;
+    private static final int SERVER_MORE_RESULTS_EXISTS = 0x0008;
+
+    private static final int COM_QUIT = 0x01;
+    private static final int COM_INIT_DB = 0x02;
+    private static final int COM_QUERY = 0x03;
+    private static final int COM_PING = 0x0e;
+
+    private static final int TYPE_LONGLONG = 0x08;
+    private static final int TYPE_VAR_STRING = 0xfd;
+    private static final int CHARSET_BINARY = 63;
+    private static final int CHARSET_UTF8MB4 = 45;
+
+    private final ServerSocket server;
+    private final String user;
+    private final String password;
+    private final SyntheticResult defaults;
+    private final ExecutorService pool = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "mysql-stand-in");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicInteger nextConnectionId = new AtomicInteger(1);
+    private final AtomicLong queries = new AtomicLong();
+    private final SecureRandom random = new SecureRandom();
+    private volatile boolean closed;
+
+    /**
+     * @param port puerto de escucha (0 = efímero)
+     * @param user usuario aceptado
+     * @param password contraseña (vacía = sin contraseña)
+     * @param defaults forma de los resultados
+     */
+    public MySQLStandInServer(int port, String user, String password, SyntheticResult defaults) throws IOException {
+        this.server = new ServerSocket(port, 512, InetAddress.getLoopbackAddress());
+        this.user = user;
+        this.password = password;
+        this.defaults = defaults;
+        pool.execute(this::acceptLoop);
+    }
+
+    /** @return puerto en el que escucha */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /** @return sentencias atendidas (cada sentencia de un multi-statement cuenta) */
+    public long getQueries() {
+        return queries.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        server.close();
+        pool.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket s = server.accept();
+                s.setTcpNoDelay(true);
+                pool.execute(() -> serve(s));
+            } catch (IOException e) {
+                if (!closed) System.err.println("mysql-stand-in: accept failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket s = socket) {
+            Session session = new Session(new BufferedInputStream(s.getInputStream(), 16 * 1024),
+                    new BufferedOutputStream(s.getOutputStream(), 64 * 1024));
+            if (session.handshake()) session.run();
+        } catch (EOFException | java.net.SocketException e) {
+            // cliente desconectado
+        } catch (Exception e) {
+            if (!closed) System.err.println("mysql-stand-in: " + e);
+        }
+    }
+
+    /** Estado de una conexión. */
+    private final class Session {
+        private final InputStream in;
+        private final OutputStream out;
+        private int seq;
+        private boolean inTransaction;
+
+        Session(InputStream in, OutputStream out) {
+            this.in = in;
+            this.out = out;
+        }
+
+        boolean handshake() throws IOException {
+            byte[] salt = new byte[20];
+            for (int i = 0; i < salt.length; i++) salt[i] = (byte) (33 + random.nextInt(94)); // imprimibles, sin 0
+
+            ByteArrayOutputStream p = new ByteArrayOutputStream();
+            p.write(10);
+            cstring(p, "8.0.36-stand-in");
+            int4(p, nextConnectionId.getAndIncrement());
+            p.write(salt, 0, 8);
+            p.write(0);
+            int2(p, SERVER_CAPABILITIES & 0xFFFF);
+            p.write(CHARSET_UTF8MB4);
+            int2(p, SERVER_STATUS_AUTOCOMMIT);
+            int2(p, SERVER_CAPABILITIES >>> 16);
+            p.write(salt.length + 1);
+            p.write(new byte[10], 0, 10);
+            p.write(salt, 8, 12);
+            p.write(0);
+            cstring(p, AUTH_PLUGIN);
+            seq = 0;
+            send(p.toByteArray());
+            out.flush();
+
+            byte[] r = readPacket();
+            int caps = (r[0] & 0xFF) | (r[1] & 0xFF) << 8 | (r[2] & 0xFF) << 16 | (r[3] & 0xFF) << 24;
+            int pos = 4 + 4 + 1 + 23;
+            int end = pos;
+            while (r[end] != 0) end++;
+            String clientUser = new String(r, pos, end - pos, StandardCharsets.UTF_8);
+            pos = end + 1;
+            int authLen;
+            if ((caps & CLIENT_PLUGIN_AUTH_LENENC_DATA) != 0 || (caps & CLIENT_SECURE_CONNECTION) != 0) {
+                authLen = r[pos++] & 0xFF; // respuestas de 20 bytes: lenenc de un byte
+            } else {
+                authLen = 0;
+                while (r[pos + authLen] != 0) authLen++;
+            }
+            byte[] authResponse = Arrays.copyOfRange(r, pos, pos + authLen);
+
+            if (!user.equals(clientUser) || !MessageDigest.isEqual(authResponse, scramble(password, salt))) {
+                error(1045, "28000", "Access denied for user '" + clientUser + "'");
+                out.flush();
+                return false;
+            }
+            ok(0, statusFlags(false));
+            out.flush();
+            return true;
+        }
+
+        void run() throws Exception {
+            while (true) {
+                byte[] packet;
+                try {
+                    packet = readPacket();
+                } catch (EOFException e) {
+                    return;
+                }
+                int command = packet.length == 0 ? -1 : packet[0] & 0xFF;
+                switch (command) {
+                    case COM_QUERY:
+                        query(new String(packet, 1, packet.length - 1, StandardCharsets.UTF_8));
+                        break;
+                    case COM_PING:
+                    case COM_INIT_DB:
+                        ok(0, statusFlags(false));
+                        break;
+                    case COM_QUIT:
+                        return;
+                    default:
+                        error(1047, "08S01", "Unknown command " + command);
+                        break;
+                }
+                out.flush();
+            }
+        }
+
+        private void query(String sql) throws Exception {
+            List<String> statements = splitStatements(sql);
+            for (int i = 0; i < statements.size(); i++) {
+                String stmt = statements.get(i);
+                boolean more = i < statements.size() - 1;
+                queries.incrementAndGet();
+                SyntheticResult shape = defaults.forQuery(stmt);
+                shape.simulateLatency();
+                if (shape.isFail()) {
+                    // Un error corta el multi-statement: las sentencias siguientes no se ejecutan
+                    error(1105, "HY000", "synthetic failure requested by fail=1");
+                    return;
+                }
+                if (SyntheticResult.returnsRows(stmt)) {
+                    resultSet(shape, statusFlags(more));
+                    continue;
+                }
+                switch (SyntheticResult.verb(stmt)) {
+                    case "BEGIN":
+                    case "START":
+                        inTransaction = true;
+                        ok(0, statusFlags(more));
+                        break;
+                    case "COMMIT":
+                    case "ROLLBACK":
+                        inTransaction = false;
+                        ok(0, statusFlags(more));
+                        break;
+                    case "INSERT":
+                    case "UPDATE":
+                    case "DELETE":
+                    case "REPLACE":
+                        ok(1, statusFlags(more));
+                        break;
+                    default:
+                        ok(0, statusFlags(more));
+                        break;
+                }
+            }
+        }
+
+        private int statusFlags(boolean more) {
+            return (inTransaction ? SERVER_STATUS_IN_TRANS : SERVER_STATUS_AUTOCOMMIT)
+                    | (more ? SERVER_MORE_RESULTS_EXISTS : 0);
+        }
+
+        private void resultSet(SyntheticResult shape, int status) throws IOException {
+            ByteArrayOutputStream p = new ByteArrayOutputStream();
+            lenenc(p, shape.getWidth());
+            send(p.toByteArray());
+            for (int c = 0; c < shape.getWidth(); c++) {
+                p.reset();
+                lenencString(p, "def");
+                lenencString(p, "");
+                lenencString(p, "synthetic");
+                lenencString(p, "synthetic");
+                lenencString(p, shape.columnName(c));
+                lenencString(p, shape.columnName(c));
+                p.write(0x0c);
+                int2(p, c == 0 ? CHARSET_BINARY : CHARSET_UTF8MB4);
+                int4(p, c == 0 ? 20 : 1024);
+                p.write(c == 0 ? TYPE_LONGLONG : TYPE_VAR_STRING);
+                int2(p, c == 0 ? 0x0001 | 0x0080 : 0); // NOT_NULL | BINARY
+                p.write(0);
+                int2(p, 0);
+                send(p.toByteArray());
+            }
+            eof(status & ~SERVER_MORE_RESULTS_EXISTS);
+            for (int r = 0; r < shape.getRows(); r++) {
+                p.reset();
+                for (int c = 0; c < shape.getWidth(); c++) {
+                    byte[] v = shape.value(r, c);
+                    lenenc(p, v.length);
+                    p.write(v, 0, v.length);
+                }
+                send(p.toByteArray());
+            }
+            eof(status);
+        }
+
+        private void ok(long affected, int status) throws IOException {
+            ByteArrayOutputStream p = new ByteArrayOutputStream();
+            p.write(0x00);
+            lenenc(p, affected);
+            lenenc(p, 0);
+            int2(p, status);
+            int2(p, 0);
+            send(p.toByteArray());
+        }
+
+        private void eof(int status) throws IOException {
+            ByteArrayOutputStream p = new ByteArrayOutputStream();
+            p.write(0xFE);
+            int2(p, 0);
+            int2(p, status);
+            send(p.toByteArray());
+        }
+
+        private void error(int code, String sqlState, String msg) throws IOException {
+            ByteArrayOutputStream p = new ByteArrayOutputStream();
+            p.write(0xFF);
+            int2(p, code);
+            p.write('#');
+            byte[] state = sqlState.getBytes(StandardCharsets.US_ASCII);
+            p.write(state, 0, state.length);
+            byte[] m = msg.getBytes(StandardCharsets.UTF_8);
+            p.write(m, 0, m.length);
+            send(p.toByteArray());
+        }
+
+        /** Escribe un paquete con el siguiente número de secuencia. */
+        private void send(byte[] payload) throws IOException {
+            out.write(payload.length);
+            out.write(payload.length >>> 8);
+            out.write(payload.length >>> 16);
+            out.write(seq++);
+            out.write(payload);
+        }
+
+        /** Lee un paquete; el número de secuencia de la respuesta continúa el suyo. */
+        private byte[] readPacket() throws IOException {
+            byte[] header = readFully(4);
+            int len = (header[0] & 0xFF) | (header[1] & 0xFF) << 8 | (header[2] & 0xFF) << 16;
+            seq = (header[3] & 0xFF) + 1;
+            return readFully(len);
+        }
+
+        private byte[] readFully(int n) throws IOException {
+            byte[] b = new byte[n];
+            int off = 0;
+            while (off < n) {
+                int r = in.read(b, off, n - off);
+                if (r < 0) throw new EOFException();
+                off += r;
+            }
+            return b;
+        }
+    }
+
+    /**
+     * Separa un COM_QUERY en sentencias por ';' fuera de comillas y comentarios.
+     */
+    static List<String> splitStatements(String sql) {
+        List<String> out = new ArrayList<>();
+        int start = 0;
+        char quote = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote != 0) {
+                if (c == '\\') i++;
+                else if (c == quote) quote = 0;
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            } else if (c == '-' && i + 1 < sql.length() && sql.charAt(i + 1) == '-') {
+                while (i < sql.length() && sql.charAt(i) != '\n') i++;
+            } else if (c == ';') {
+                if (!sql.substring(start, i).trim().isEmpty()) out.add(sql.substring(start, i));
+                start = i + 1;
+            }
+        }
+        if (!sql.substring(start).trim().isEmpty() || out.isEmpty()) out.add(sql.substring(start));
+        return out;
+    }
+
+    /** SHA1(password) XOR SHA1(salt + SHA1(SHA1(password))); vacío sin contraseña. */
+    private static byte[] scramble(String password, byte[] salt) {
+        if (password == null || password.isEmpty()) return new byte[0];
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            byte[] stage1 = sha1.digest(password.getBytes(StandardCharsets.UTF_8));
+            byte[] stage2 = sha1.digest(stage1);
+            sha1.update(salt);
+            sha1.update(stage2);
+            byte[] mix = sha1.digest();
+            for (int i = 0; i < mix.length; i++) mix[i] ^= stage1[i];
+            return mix;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // ----------------- Codificación -----------------
+
+    private static void int2(ByteArrayOutputStream p, int v) {
+        p.write(v);
+        p.write(v >>> 8);
+    }
+
+    private static void int4(ByteArrayOutputStream p, int v) {
+        int2(p, v);
+        int2(p, v >>> 16);
+    }
+
+    private static void cstring(ByteArrayOutputStream p, String s) {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        p.write(b, 0, b.length);
+        p.write(0);
+    }
+
+    private static void lenenc(ByteArrayOutputStream p, long v) {
+        if (v < 251) {
+            p.write((int) v);
+        } else if (v < 1 << 16) {
+            p.write(0xFC);
+            int2(p, (int) v);
+        } else if (v < 1 << 24) {
+            p.write(0xFD);
+            int2(p, (int) v);
+            p.write((int) (v >>> 16));
+        } else {
+            p.write(0xFE);
+            int4(p, (int) v);
+            int4(p, (int) (v >>> 32));
+        }
+    }
+
+    private static void lenencString(ByteArrayOutputStream p, String s) {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        lenenc(p, b.length);
+        p.write(b, 0, b.length);
+    }
+}
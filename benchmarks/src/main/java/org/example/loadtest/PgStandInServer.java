@@ -0,0 +1,444 @@
+package org.example.loadtest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @file PgStandInServer.java
+ * @brief Servidor de imitación que habla lo justo del protocolo v3 de
+ *        PostgreSQL para ejercitar el cliente nativo sin una base de datos.
+ *
+ * Soporta:
+ * - Arranque: rechaza SSLRequest ('N'), autenticación trust o md5,
+ *   ParameterStatus, BackendKeyData y ReadyForQuery.
+ * - CancelRequest (se cuenta en {@link #getCancelRequests()}).
+ * - Consulta simple ('Q'): las sentencias que devuelven filas producen un
+ *   resultado sintético ({@link SyntheticResult}); el resto, su etiqueta.
+ * - Protocolo extendido en pipeline (Parse/Bind/Describe/Execute/Sync/Flush)
+ *   tal como lo usa /batch, incluido el descarte hasta Sync tras un error.
+ *
+ * Cada conexión se atiende en su propio hilo; el puerto 0 elige uno libre.
+ */
+public final class PgStandInServer implements Closeable {
+    /** Método de autenticación pedido al cliente. */
+    public enum Auth { TRUST, MD5 }
+
+    private static final int SSL_REQUEST_CODE = 80877103;
+    private static final int CANCEL_REQUEST_CODE = 80877102;
+    private static final int OID_INT8 = 20;
+    private static final int OID_TEXT = 25;
+    private static final int MAX_MESSAGE_BYTES = 64 * 1024 * 1024;
+
+    private final ServerSocket server;
+    private final Auth auth;
+    private final String user;
+    private final String password;
+    private final SyntheticResult defaults;
+    private final ExecutorService pool = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "pg-stand-in");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicInteger nextPid = new AtomicInteger(1000);
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong cancelRequests = new AtomicLong();
+    private final SecureRandom random = new SecureRandom();
+    private volatile boolean closed;
+
+    /**
+     * @param port puerto de escucha (0 = efímero)
+     * @param auth autenticación exigida
+     * @param user usuario aceptado
+     * @param password contraseña (sólo con {@link Auth#MD5})
+     * @param defaults forma de los resultados
+     */
+    public PgStandInServer(int port, Auth auth, String user, String password, SyntheticResult defaults) throws IOException {
+        this.server = new ServerSocket(port, 512, InetAddress.getLoopbackAddress());
+        this.auth = auth;
+        this.user = user;
+        this.password = password;
+        this.defaults = defaults;
+        pool.execute(this::acceptLoop);
+    }
+
+    /** @return puerto en el que escucha */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /** @return sentencias atendidas (simples y del pipeline) */
+    public long getQueries() {
+        return queries.get();
+    }
+
+    /** @return CancelRequest recibidos */
+    public long getCancelRequests() {
+        return cancelRequests.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        server.close();
+        pool.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket s = server.accept();
+                s.setTcpNoDelay(true);
+                pool.execute(() -> serve(s));
+            } catch (IOException e) {
+                if (!closed) System.err.println("pg-stand-in: accept failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket s = socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream(), 16 * 1024));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream(), 64 * 1024));
+            if (startup(in, out)) new Session(in, out).run();
+        } catch (EOFException | java.net.SocketException e) {
+            // cliente desconectado
+        } catch (Exception e) {
+            if (!closed) System.err.println("pg-stand-in: " + e);
+        }
+    }
+
+    /** @return true si el cliente quedó autenticado y listo para consultas */
+    private boolean startup(DataInputStream in, DataOutputStream out) throws IOException {
+        Map<String, String> params;
+        while (true) {
+            int len = in.readInt();
+            int code = in.readInt();
+            byte[] rest = new byte[len - 8];
+            in.readFully(rest);
+            if (code == SSL_REQUEST_CODE) {
+                out.write('N');
+                out.flush();
+                continue;
+            }
+            if (code == CANCEL_REQUEST_CODE) {
+                cancelRequests.incrementAndGet();
+                return false;
+            }
+            params = parseStartup(rest);
+            break;
+        }
+        String clientUser = params.getOrDefault("user", "");
+        if (!user.equals(clientUser)) {
+            error(out, "28000", "role \"" + clientUser + "\" does not exist");
+            out.flush();
+            return false;
+        }
+        if (auth == Auth.MD5) {
+            byte[] salt = new byte[4];
+            random.nextBytes(salt);
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            writeInt(body, 5);
+            body.write(salt, 0, 4);
+            message(out, 'R', body.toByteArray());
+            out.flush();
+            int type = in.read();
+            byte[] reply = new byte[in.readInt() - 4];
+            in.readFully(reply);
+            String expected = "md5" + md5Hex(concat(md5Hex((password + user).getBytes(StandardCharsets.UTF_8))
+                    .getBytes(StandardCharsets.US_ASCII), salt));
+            if (type != 'p' || !expected.equals(cstring(reply, 0))) {
+                error(out, "28P01", "password authentication failed for user \"" + user + "\"");
+                out.flush();
+                return false;
+            }
+        }
+        message(out, 'R', new byte[]{0, 0, 0, 0});
+        parameterStatus(out, "server_version", "15.0 (stand-in)");
+        parameterStatus(out, "client_encoding", "UTF8");
+        parameterStatus(out, "DateStyle", "ISO, MDY");
+        ByteArrayOutputStream key = new ByteArrayOutputStream();
+        writeInt(key, nextPid.incrementAndGet());
+        writeInt(key, random.nextInt());
+        message(out, 'K', key.toByteArray());
+        message(out, 'Z', new byte[]{'I'});
+        out.flush();
+        return true;
+    }
+
+    /** Estado de una conexión autenticada. */
+    private final class Session {
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private byte txStatus = 'I';
+        private String prepared = "";
+        private String portal = "";
+        private boolean discarding;
+
+        Session(DataInputStream in, DataOutputStream out) {
+            this.in = in;
+            this.out = out;
+        }
+
+        void run() throws Exception {
+            while (true) {
+                int type = in.read();
+                if (type == -1) return;
+                int len = in.readInt();
+                if (len < 4 || len > MAX_MESSAGE_BYTES) {
+                    // Un byte de más o de menos en el cliente desalinea el flujo: mejor cortar que reservar basura
+                    throw new IOException("invalid length " + len + " for message type 0x" + Integer.toHexString(type));
+                }
+                byte[] body = new byte[len - 4];
+                in.readFully(body);
+                if (discarding && type != 'S' && type != 'X') continue;
+                switch (type) {
+                    case 'Q':
+                        simpleQuery(cstring(body, 0));
+                        break;
+                    case 'P': { // Parse: nombre, consulta, tipos
+                        int nameEnd = indexOfZero(body, 0);
+                        prepared = cstring(body, nameEnd + 1);
+                        message(out, '1', new byte[0]);
+                        break;
+                    }
+                    case 'B':
+                        portal = prepared;
+                        message(out, '2', new byte[0]);
+                        break;
+                    case 'D':
+                        if (SyntheticResult.returnsRows(portal)) {
+                            SyntheticResult shape = defaults.forQuery(portal);
+                            if (!shape.isFail()) rowDescription(shape);
+                        } else {
+                            message(out, 'n', new byte[0]);
+                        }
+                        break;
+                    case 'E':
+                        if (!execute(portal)) {
+                            discarding = true;
+                            txStatus = 'I';
+                        }
+                        break;
+                    case 'S':
+                        discarding = false;
+                        message(out, 'Z', new byte[]{txStatus});
+                        out.flush();
+                        break;
+                    case 'H':
+                        out.flush();
+                        break;
+                    case 'C':
+                        message(out, '3', new byte[0]);
+                        break;
+                    case 'X':
+                        return;
+                    default:
+                        error(out, "08P01", "unsupported message type '" + (char) type + "'");
+                        message(out, 'Z', new byte[]{txStatus});
+                        out.flush();
+                        break;
+                }
+            }
+        }
+
+        private void simpleQuery(String sql) throws Exception {
+            if (sql.trim().isEmpty()) {
+                message(out, 'I', new byte[0]);
+            } else {
+                if (SyntheticResult.returnsRows(sql)) {
+                    SyntheticResult shape = defaults.forQuery(sql);
+                    if (!shape.isFail()) rowDescription(shape);
+                }
+                if (!execute(sql) && txStatus == 'T') txStatus = 'E';
+            }
+            message(out, 'Z', new byte[]{txStatus});
+            out.flush();
+        }
+
+        /** Ejecuta una sentencia (sin RowDescription); false si respondió con error. */
+        private boolean execute(String sql) throws Exception {
+            queries.incrementAndGet();
+            SyntheticResult shape = defaults.forQuery(sql);
+            shape.simulateLatency();
+            if (shape.isFail()) {
+                error(out, "XX000", "synthetic failure requested by fail=1");
+                return false;
+            }
+            String verb = SyntheticResult.verb(sql);
+            if (SyntheticResult.returnsRows(sql)) {
+                for (int r = 0; r < shape.getRows(); r++) dataRow(shape, r);
+                commandComplete("SELECT " + shape.getRows());
+                return true;
+            }
+            switch (verb) {
+                case "BEGIN":
+                case "START":
+                    txStatus = 'T';
+                    commandComplete("BEGIN");
+                    break;
+                case "COMMIT":
+                case "END":
+                case "ROLLBACK":
+                case "ABORT":
+                    txStatus = 'I';
+                    commandComplete(verb.equals("ROLLBACK") || verb.equals("ABORT") ? "ROLLBACK" : "COMMIT");
+                    break;
+                case "INSERT":
+                    commandComplete("INSERT 0 1");
+                    break;
+                case "UPDATE":
+                case "DELETE":
+                    commandComplete(verb + " 1");
+                    break;
+                default:
+                    commandComplete(verb.isEmpty() ? "OK" : verb);
+                    break;
+            }
+            return true;
+        }
+
+        private void rowDescription(SyntheticResult shape) throws IOException {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            writeShort(body, shape.getWidth());
+            for (int c = 0; c < shape.getWidth(); c++) {
+                byte[] name = shape.columnName(c).getBytes(StandardCharsets.UTF_8);
+                body.write(name, 0, name.length);
+                body.write(0);
+                writeInt(body, 0);                          // tabla
+                writeShort(body, 0);                        // columna
+                writeInt(body, c == 0 ? OID_INT8 : OID_TEXT);
+                writeShort(body, c == 0 ? 8 : -1);          // tamaño
+                writeInt(body, -1);                         // modificador
+                writeShort(body, 0);                        // formato texto
+            }
+            message(out, 'T', body.toByteArray());
+        }
+
+        private void dataRow(SyntheticResult shape, int row) throws IOException {
+            int width = shape.getWidth();
+            byte[][] values = new byte[width][];
+            int len = 4 + 2;
+            for (int c = 0; c < width; c++) {
+                values[c] = shape.value(row, c);
+                len += 4 + values[c].length;
+            }
+            out.write('D');
+            out.writeInt(len);
+            out.writeShort(width);
+            for (byte[] v : values) {
+                out.writeInt(v.length);
+                out.write(v);
+            }
+        }
+
+        private void commandComplete(String tag) throws IOException {
+            byte[] b = tag.getBytes(StandardCharsets.US_ASCII);
+            byte[] body = new byte[b.length + 1];
+            System.arraycopy(b, 0, body, 0, b.length);
+            message(out, 'C', body);
+        }
+    }
+
+    // ----------------- Codificación -----------------
+
+    private static void message(DataOutputStream out, char type, byte[] body) throws IOException {
+        out.write(type);
+        out.writeInt(body.length + 4);
+        out.write(body);
+    }
+
+    private static void parameterStatus(DataOutputStream out, String name, String value) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] n = name.getBytes(StandardCharsets.UTF_8);
+        byte[] v = value.getBytes(StandardCharsets.UTF_8);
+        body.write(n, 0, n.length);
+        body.write(0);
+        body.write(v, 0, v.length);
+        body.write(0);
+        message(out, 'S', body.toByteArray());
+    }
+
+    private static void error(DataOutputStream out, String sqlState, String msg) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (String[] field : new String[][]{{"S", "ERROR"}, {"V", "ERROR"}, {"C", sqlState}, {"M", msg}}) {
+            byte[] v = field[1].getBytes(StandardCharsets.UTF_8);
+            body.write(field[0].charAt(0));
+            body.write(v, 0, v.length);
+            body.write(0);
+        }
+        body.write(0);
+        message(out, 'E', body.toByteArray());
+    }
+
+    private static Map<String, String> parseStartup(byte[] rest) {
+        Map<String, String> params = new HashMap<>();
+        int pos = 0;
+        while (pos < rest.length && rest[pos] != 0) {
+            String key = cstring(rest, pos);
+            pos += key.getBytes(StandardCharsets.UTF_8).length + 1;
+            String value = cstring(rest, pos);
+            pos += value.getBytes(StandardCharsets.UTF_8).length + 1;
+            params.put(key, value);
+        }
+        return params;
+    }
+
+    private static int indexOfZero(byte[] b, int from) {
+        int i = from;
+        while (i < b.length && b[i] != 0) i++;
+        return i;
+    }
+
+    private static String cstring(byte[] b, int from) {
+        return new String(b, from, indexOfZero(b, from) - from, StandardCharsets.UTF_8);
+    }
+
+    private static void writeInt(ByteArrayOutputStream b, int v) {
+        b.write(v >>> 24);
+        b.write(v >>> 16);
+        b.write(v >>> 8);
+        b.write(v);
+    }
+
+    private static void writeShort(ByteArrayOutputStream b, int v) {
+        b.write(v >>> 8);
+        b.write(v);
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] r = new byte[a.length + b.length];
+        System.arraycopy(a, 0, r, 0, a.length);
+        System.arraycopy(b, 0, r, a.length, b.length);
+        return r;
+    }
+
+    private static String md5Hex(byte[] data) {
+        try {
+            byte[] d = MessageDigest.getInstance("MD5").digest(data);
+            StringBuilder sb = new StringBuilder(32);
+            for (byte x : d) sb.append(String.format("%02x", x));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
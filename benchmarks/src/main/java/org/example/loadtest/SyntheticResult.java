@@ -0,0 +1,133 @@
+package org.example.loadtest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @file SyntheticResult.java
+ * @brief Forma de los resultados que devuelven los servidores de imitación
+ *        ({@link PgStandInServer}, {@link MySQLStandInServer}): número de
+ *        filas, columnas, tamaño de cada valor y latencia simulada.
+ *
+ * Los valores por defecto se fijan al arrancar el servidor y cada consulta
+ * puede cambiarlos con marcas en el propio SQL, que el middleware reenvía tal
+ * cual:
+ * <pre>
+ *   SELECT * FROM t -- rows=500 width=4 bytes=32 latency=20
+ *   SELECT 1 -- fail=1          (el servidor responde con un error)
+ * </pre>
+ *
+ * La columna 0 ("id") es el número de fila; el resto son cadenas de
+ * {@code bytes} caracteres.
+ */
+public final class SyntheticResult {
+    private static final Pattern OPTION = Pattern.compile("\\b(rows|width|bytes|latency|fail)=(\\d+)\\b");
+
+    private final int rows;
+    private final int width;
+    private final int valueBytes;
+    private final long latencyMs;
+    private final boolean fail;
+    private final byte[] filler;
+
+    /**
+     * @param rows filas por consulta
+     * @param width columnas (mínimo 1)
+     * @param valueBytes caracteres de cada columna de texto
+     * @param latencyMs espera antes de responder, en milisegundos
+     */
+    public SyntheticResult(int rows, int width, int valueBytes, long latencyMs) {
+        this(rows, width, valueBytes, latencyMs, false);
+    }
+
+    private SyntheticResult(int rows, int width, int valueBytes, long latencyMs, boolean fail) {
+        if (rows < 0 || width < 1 || valueBytes < 0 || latencyMs < 0) {
+            throw new IllegalArgumentException("rows, width, bytes and latency must be non-negative (width >= 1)");
+        }
+        this.rows = rows;
+        this.width = width;
+        this.valueBytes = valueBytes;
+        this.latencyMs = latencyMs;
+        this.fail = fail;
+        byte[] f = new byte[valueBytes];
+        Arrays.fill(f, (byte) 'x');
+        this.filler = f;
+    }
+
+    /**
+     * Aplica las marcas {@code clave=valor} presentes en el SQL.
+     *
+     * @param sql sentencia recibida
+     * @return forma del resultado para esa sentencia
+     */
+    public SyntheticResult forQuery(String sql) {
+        Matcher m = OPTION.matcher(sql);
+        if (!m.find()) return this;
+        int r = rows, w = width, b = valueBytes;
+        long l = latencyMs;
+        boolean f = fail;
+        do {
+            int v = Integer.parseInt(m.group(2));
+            switch (m.group(1)) {
+                case "rows": r = v; break;
+                case "width": w = Math.max(1, v); break;
+                case "bytes": b = v; break;
+                case "latency": l = v; break;
+                default: f = v != 0; break;
+            }
+        } while (m.find());
+        return new SyntheticResult(r, w, b, l, f);
+    }
+
+    /**
+     * @param sql sentencia recibida
+     * @return true si la sentencia devuelve filas (SELECT, SHOW, WITH, VALUES)
+     */
+    public static boolean returnsRows(String sql) {
+        String verb = verb(sql);
+        return verb.equals("SELECT") || verb.equals("SHOW") || verb.equals("WITH") || verb.equals("VALUES");
+    }
+
+    /**
+     * @param sql sentencia recibida
+     * @return primera palabra en mayúsculas, ignorando espacios y paréntesis iniciales
+     */
+    public static String verb(String sql) {
+        int i = 0, n = sql.length();
+        while (i < n && (Character.isWhitespace(sql.charAt(i)) || sql.charAt(i) == '(')) i++;
+        int start = i;
+        while (i < n && Character.isLetter(sql.charAt(i))) i++;
+        return sql.substring(start, i).toUpperCase(Locale.ROOT);
+    }
+
+    /** Espera la latencia configurada (interrumpible). */
+    public void simulateLatency() throws InterruptedException {
+        if (latencyMs > 0) Thread.sleep(latencyMs);
+    }
+
+    /** @return filas por consulta */
+    public int getRows() { return rows; }
+
+    /** @return columnas */
+    public int getWidth() { return width; }
+
+    /** @return true si la consulta debe fallar */
+    public boolean isFail() { return fail; }
+
+    /** @return nombre de la columna {@code col} */
+    public String columnName(int col) {
+        return col == 0 ? "id" : "c" + col;
+    }
+
+    /**
+     * @param row número de fila
+     * @param col columna
+     * @return valor en texto (UTF-8) de la celda
+     */
+    public byte[] value(int row, int col) {
+        return col == 0 ? Integer.toString(row).getBytes(StandardCharsets.US_ASCII) : filler;
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.db;
+
+/**
+ * @file AdmissionRejectedException.java
+ * @brief La sentencia no se ejecutó porque el backend está saturado: la cola
+ *        de espera de {@link ConcurrencyLimiter} estaba llena o no hubo hueco
+ *        a tiempo.
+ *
+ * La capa web la traduce a 503 con la cabecera Retry-After.
+ */
+public class AdmissionRejectedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * @return segundos que el cliente debería esperar antes de reintentar
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.db;
+
+import java.util.Locale;
+
+/**
+ * @file BatchErrorMode.java
+ * @brief Comportamiento de {@link DBClient#executeBatch} cuando falla una sentencia.
+ *
+ * - ROLLBACK: se deshace todo el lote (por defecto). Las sentencias que
+ *   llegaron a ejecutarse se marcan {@link BatchResult.Status#ROLLED_BACK} y
+ *   las posteriores al fallo {@link BatchResult.Status#SKIPPED}.
+ * - STOP: se confirman las sentencias anteriores al fallo y no se ejecutan
+ *   las siguientes.
+ * - CONTINUE: se descarta sólo la sentencia que falla y se confirma el resto.
+ */
+public enum BatchErrorMode {
+    ROLLBACK,
+    STOP,
+    CONTINUE;
+
+    /**
+     * Interpreta el valor recibido en la API ("rollback", "stop", "continue").
+     *
+     * @param value texto (puede ser null)
+     * @return el modo, o ROLLBACK si el valor es null o vacío
+     * @throws IllegalArgumentException si el valor no es un modo válido
+     */
+    public static BatchErrorMode parse(String value) {
+        if (value == null || value.trim().isEmpty()) return ROLLBACK;
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("invalid on_error mode: " + value);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.db;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @file BatchResult.java
+ * @brief Resultado de una sentencia dentro de un lote.
+ *
+ * Según el estado:
+ * - OK: la sentencia se ejecutó y el lote se confirmó. {@link #getRows()}
+ *   contiene las filas si la sentencia devolvió un result set; si no,
+ *   {@link #getUpdateCount()} contiene las filas afectadas (-1 si se desconoce).
+ * - ROLLED_BACK: se ejecutó pero el lote se deshizo por un fallo posterior.
+ * - ERROR: la sentencia falló; {@link #getError()} contiene el mensaje.
+ * - SKIPPED: no llegó a ejecutarse.
+ */
+public final class BatchResult {
+    public enum Status { OK, ROLLED_BACK, ERROR, SKIPPED }
+
+    private final int index;
+    private final Status status;
+    private final long updateCount;
+    private final List<Map<String, Object>> rows;
+    private final String error;
+
+    private BatchResult(int index, Status status, long updateCount, List<Map<String, Object>> rows, String error) {
+        this.index = index;
+        this.status = status;
+        this.updateCount = updateCount;
+        this.rows = rows;
+        this.error = error;
+    }
+
+    public static BatchResult updated(int index, long updateCount) {
+        return new BatchResult(index, Status.OK, updateCount, null, null);
+    }
+
+    public static BatchResult rows(int index, List<Map<String, Object>> rows) {
+        return new BatchResult(index, Status.OK, -1, rows, null);
+    }
+
+    public static BatchResult error(int index, String error) {
+        return new BatchResult(index, Status.ERROR, -1, null, error);
+    }
+
+    public static BatchResult skipped(int index) {
+        return new BatchResult(index, Status.SKIPPED, -1, null, null);
+    }
+
+    /**
+     * @return copia de este resultado marcada como deshecha (si estaba OK)
+     */
+    public BatchResult rolledBack() {
+        return status == Status.OK ? new BatchResult(index, Status.ROLLED_BACK, updateCount, rows, null) : this;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public long getUpdateCount() {
+        return updateCount;
+    }
+
+    public List<Map<String, Object>> getRows() {
+        return rows;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
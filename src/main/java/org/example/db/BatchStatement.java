@@ -0,0 +1,45 @@
+package org.example.db;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @file BatchStatement.java
+ * @brief Sentencia de un lote: SQL con marcadores {@code ?} y sus parámetros.
+ *
+ * Los parámetros se asignan por posición a los {@code ?} que aparecen fuera de
+ * literales y comentarios. Tipos admitidos: null, String, números, Boolean,
+ * {@code byte[]} y fechas (java.sql / java.time).
+ */
+public final class BatchStatement {
+    private final String sql;
+    private final List<Object> params;
+
+    /**
+     * @param sql sentencia SQL
+     * @param params parámetros posicionales (puede ser null o vacío)
+     */
+    public BatchStatement(String sql, List<?> params) {
+        if (sql == null) throw new IllegalArgumentException("sql is required");
+        this.sql = sql;
+        this.params = params == null || params.isEmpty()
+                ? Collections.emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(params));
+    }
+
+    /**
+     * @param sql sentencia SQL sin parámetros
+     */
+    public BatchStatement(String sql) {
+        this(sql, null);
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public List<Object> getParams() {
+        return params;
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.db;
+
+import java.io.OutputStream;
+
+/**
+ * @file BulkExporter.java
+ * @brief Capacidad opcional de una {@link DBConnection}: exportación masiva
+ *        de una tabla o consulta a un flujo, en el formato de texto del servidor.
+ *
+ * Las filas se copian al flujo según llegan del servidor, sin convertirlas a
+ * {@code Map} ni acumularlas en memoria (COPY TO STDOUT en Postgres).
+ */
+public interface BulkExporter {
+    /**
+     * Exporta una tabla o el resultado de una consulta.
+     *
+     * @param table tabla a exportar (admite "esquema.tabla"); se ignora si {@code query} no es null
+     * @param query consulta SELECT a exportar, o null para exportar la tabla completa
+     * @param format formato de salida
+     * @param header true para incluir una primera línea con los nombres de columna
+     * @param out flujo de destino (no se cierra)
+     * @return número de filas exportadas (-1 si el servidor no lo informa)
+     * @throws IllegalStateException si la conexión no está abierta
+     * @throws RuntimeException si la exportación falla; puede haberse escrito ya parte de la salida
+     */
+    long bulkExport(String table, String query, BulkFormat format, boolean header, OutputStream out);
+}
@@ -0,0 +1,29 @@
+package org.example.db;
+
+import java.util.Locale;
+
+/**
+ * @file BulkFormat.java
+ * @brief Formato de los datos de una carga masiva ({@link BulkLoader}).
+ *
+ * - CSV: valores separados por comas, comillas dobles según RFC 4180.
+ * - TSV: valores separados por tabuladores, una fila por línea, sin comillas.
+ */
+public enum BulkFormat {
+    CSV,
+    TSV;
+
+    /**
+     * @param value "csv" o "tsv" (puede ser null)
+     * @return el formato, o CSV si el valor es null o vacío
+     * @throws IllegalArgumentException si el formato no es válido
+     */
+    public static BulkFormat parse(String value) {
+        if (value == null || value.trim().isEmpty()) return CSV;
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("invalid format: " + value + " (expected csv or tsv)");
+        }
+    }
+}
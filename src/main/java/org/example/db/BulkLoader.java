@@ -0,0 +1,29 @@
+package org.example.db;
+
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * @file BulkLoader.java
+ * @brief Capacidad opcional de una {@link DBConnection}: carga masiva de
+ *        datos en una tabla desde un flujo, sin una sentencia por fila.
+ *
+ * Los datos se envían al servidor a medida que se leen del flujo, sin
+ * cargarlos completos en memoria. Cada proveedor usa su mecanismo nativo
+ * (COPY FROM STDIN en Postgres, LOAD DATA LOCAL INFILE en MySQL).
+ */
+public interface BulkLoader {
+    /**
+     * Carga filas en una tabla.
+     *
+     * @param table tabla de destino (admite "esquema.tabla")
+     * @param columns columnas en el orden de los datos; null o vacío = todas
+     * @param format formato de los datos
+     * @param header true si la primera línea es una cabecera a ignorar
+     * @param data flujo con los datos (no se cierra)
+     * @return número de filas cargadas (-1 si el servidor no lo informa)
+     * @throws IllegalStateException si la conexión no está abierta
+     * @throws RuntimeException si la carga falla (la tabla queda sin cambios)
+     */
+    long bulkLoad(String table, List<String> columns, BulkFormat format, boolean header, InputStream data);
+}
@@ -0,0 +1,366 @@
+package org.example.db;
+
+import org.example.db.utilities.ConnectionConfig;
+import org.example.db.utilities.Log;
+import org.example.db.utilities.LogLevel;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @file ConcurrencyLimiter.java
+ * @brief Control de admisión por proveedor: límite adaptativo de sentencias
+ *        en curso, cola de espera acotada y rechazo rápido.
+ *
+ * {@link DBClient} pide permiso ({@link #acquire}) antes de cada
+ * sentencia y lo devuelve al terminar ({@link #release}).
+ * Mientras haya menos sentencias en curso que el límite, pasan sin esperar; si
+ * no, esperan en la cola de su {@link Tenant} (ADMISSION_QUEUE_SIZE como
+ * máximo por tenant). Con la cola llena, o si no hay hueco en
+ * ADMISSION_QUEUE_TIMEOUT_MS, se lanza
+ * {@link AdmissionRejectedException} (503 + Retry-After en la capa web) en
+ * lugar de amontonar más trabajo sobre la base de datos.
+ *
+ * El límite se ajusta con un gradiente de latencia en ventanas de al menos
+ * {@link #WINDOW_SAMPLES} sentencias y 100 ms:
+ * <pre>
+ *   gradiente = clamp(TOLERANCIA * rttBase / rtt, 0.5, 1)
+ *   nuevo     = límite * gradiente + sqrt(límite)
+ * </pre>
+ * rtt es la latencia media de la ventana y rttBase la mínima observada (sin
+ * carga), que deriva lentamente al alza para adaptarse si el servidor se
+ * vuelve más lento de forma permanente. Mientras la latencia se mantiene, el límite crece (sqrt(límite) de
+ * margen para encolar en el servidor); cuando sube por encima de la tolerancia,
+ * el límite baja en proporción, lo que mantiene la base de datos cerca de su
+ * punto de máximo rendimiento en lugar de dejar que colapse. Una sentencia
+ * cancelada por plazo vencido reduce el límite de forma multiplicativa.
+ * Si la ventana no llegó a usar la mitad del límite no se crece, para que un
+ * periodo tranquilo no deje un límite inflado.
+ *
+ * Reparto entre tenants: al liberarse un hueco se atiende la cabeza de la
+ * cola del tenant con menor tiempo virtual (encolado justo ponderado por
+ * start time: cada hueco avanza el tiempo del tenant en 1/peso). Los tenants
+ * por debajo de su cuota van antes; por encima, sólo toman capacidad ociosa.
+ * El trabajo {@link Tenant.Priority#BATCH} no usa los últimos
+ * ADMISSION_RESERVED_INTERACTIVE huecos, que quedan para consultas
+ * interactivas.
+ *
+ * Como {@link ReplicaRouter}, hay una instancia por proveedor
+ * (clave: {@link DBFactory#getName()}).
+ *
+ * Configuración (ENV > db.properties > defecto):
+ * - ADMISSION_CONTROL: "true" para activarlo (defecto false)
+ * - CONCURRENCY_INITIAL_LIMIT: límite inicial (defecto 20)
+ * - CONCURRENCY_MIN_LIMIT / CONCURRENCY_MAX_LIMIT: cotas del límite (defecto 2 / 200)
+ * - ADMISSION_QUEUE_SIZE: peticiones en espera por tenant como máximo (defecto 100)
+ * - ADMISSION_RESERVED_INTERACTIVE: huecos reservados a trabajo interactivo (defecto 2)
+ * - ADMISSION_QUEUE_TIMEOUT_MS: espera máxima en la cola (defecto 1000)
+ *
+ * @author Equipo
+ */
+public final class ConcurrencyLimiter {
+    private static final Map<String, ConcurrencyLimiter> LIMITERS = new ConcurrentHashMap<>();
+    static final boolean ENABLED =
+            Boolean.parseBoolean(ConnectionConfig.getConfigValue("ADMISSION_CONTROL", "ADMISSION_CONTROL", "false"));
+    private static final int INITIAL_LIMIT =
+            ConnectionConfig.getConfigValueAsInt("CONCURRENCY_INITIAL_LIMIT", "CONCURRENCY_INITIAL_LIMIT", 20);
+    private static final int MIN_LIMIT =
+            Math.max(1, ConnectionConfig.getConfigValueAsInt("CONCURRENCY_MIN_LIMIT", "CONCURRENCY_MIN_LIMIT", 2));
+    private static final int MAX_LIMIT =
+            ConnectionConfig.getConfigValueAsInt("CONCURRENCY_MAX_LIMIT", "CONCURRENCY_MAX_LIMIT", 200);
+    private static final int QUEUE_SIZE =
+            ConnectionConfig.getConfigValueAsInt("ADMISSION_QUEUE_SIZE", "ADMISSION_QUEUE_SIZE", 100);
+    private static final long QUEUE_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(
+            ConnectionConfig.getConfigValueAsInt("ADMISSION_QUEUE_TIMEOUT_MS", "ADMISSION_QUEUE_TIMEOUT_MS", 1000));
+    private static final int RESERVED_SLOTS =
+            ConnectionConfig.getConfigValueAsInt("ADMISSION_RESERVED_INTERACTIVE", "ADMISSION_RESERVED_INTERACTIVE", 2);
+    /** Sentencias y duración mínimas de una ventana de ajuste del límite. */
+    static final int WINDOW_SAMPLES = 16;
+    private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    /** Aumento de latencia tolerado antes de reducir el límite. */
+    private static final double TOLERANCE = 1.5;
+    /** Peso del nuevo valor al suavizar el límite. */
+    private static final double SMOOTHING = 0.2;
+    /** Deriva por ventana de la latencia base (+0.1%, ~1% por segundo como mucho). */
+    private static final double BASELINE_DRIFT = 1.001;
+    /** Factor aplicado al límite cuando vence el plazo de una sentencia. */
+    private static final double BACKOFF = 0.9;
+
+    /** Petición esperando hueco en la cola. */
+    private static final class Waiter {
+        final Condition signal;
+        final Tenant.Priority priority;
+        boolean granted;
+
+        Waiter(Condition signal, Tenant.Priority priority) {
+            this.signal = signal;
+            this.priority = priority;
+        }
+    }
+
+    /** Cola y contadores de un tenant (protegidos por lock). */
+    private static final class TenantState {
+        final Tenant tenant;
+        final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+        int inFlight;
+        /** Tiempo virtual de inicio del próximo hueco (encolado justo ponderado). */
+        double virtualTime;
+
+        TenantState(Tenant tenant) {
+            this.tenant = tenant;
+        }
+    }
+
+    private final String name;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, TenantState> tenants = new HashMap<>();
+    private int queued;
+    private double virtualClock;
+    private volatile double limit = Math.max(MIN_LIMIT, Math.min(MAX_LIMIT, INITIAL_LIMIT));
+    private int inFlight;
+
+    // Ventana de ajuste (protegida por lock)
+    private long windowStart = System.nanoTime();
+    private long windowRttSum;
+    private int windowSamples;
+    private int windowMaxInFlight;
+    private boolean windowDropped;
+    private double noLoadRtt;
+    private double lastRtt;
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    private ConcurrencyLimiter(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Obtiene (o crea) el limitador del proveedor de la fábrica.
+     *
+     * @param factory fábrica del proveedor
+     * @return limitador compartido para ese proveedor
+     */
+    public static ConcurrencyLimiter forFactory(DBFactory factory) {
+        return LIMITERS.computeIfAbsent(factory.getName(), ConcurrencyLimiter::new);
+    }
+
+    /**
+     * Espera hueco para ejecutar una sentencia.
+     *
+     * @param tenant tenant de la petición
+     * @param priority clase de trabajo; {@link Tenant.Priority#BATCH} no usa los huecos reservados
+     * @param deadlineNanos plazo de la petición ({@link System#nanoTime()}); 0 = sin plazo
+     * @return instante de admisión, a pasar a {@link #release(Tenant, long, Throwable)}
+     * @throws AdmissionRejectedException si la cola del tenant está llena o no hubo hueco a tiempo
+     * @throws QueryCancelledException si el plazo de la petición vence en la cola
+     */
+    public long acquire(Tenant tenant, Tenant.Priority priority, long deadlineNanos) {
+        lock.lock();
+        try {
+            TenantState t = tenants.computeIfAbsent(tenant.getName(), k -> new TenantState(tenant));
+            if (queued == 0 && fits(priority)) {
+                admit(t);
+                return System.nanoTime();
+            }
+            if (t.queue.size() >= QUEUE_SIZE) {
+                throw reject(t, "admission queue full");
+            }
+            Waiter w = new Waiter(lock.newCondition(), priority);
+            t.queue.add(w);
+            queued++;
+            // Puede caber aunque haya cola (p. ej. interactiva detrás de trabajo BATCH sin hueco)
+            dispatch();
+            long waitUntil = System.nanoTime() + QUEUE_TIMEOUT_NANOS;
+            boolean deadlineFirst = deadlineNanos != 0 && deadlineNanos - waitUntil < 0;
+            if (deadlineFirst) waitUntil = deadlineNanos;
+            try {
+                long left;
+                while (!w.granted && (left = waitUntil - System.nanoTime()) > 0) {
+                    w.signal.awaitNanos(left);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (w.granted) return System.nanoTime();
+            t.queue.remove(w);
+            queued--;
+            if (deadlineFirst) throw new QueryCancelledException(QueryCancelledException.Reason.TIMEOUT);
+            throw reject(t, "timed out waiting for admission");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Devuelve el hueco de una sentencia y anota su latencia.
+     *
+     * @param tenant tenant pasado a {@link #acquire}
+     * @param admittedAt valor devuelto por {@link #acquire}
+     * @param failure excepción de la sentencia, o null si terminó bien
+     */
+    public void release(Tenant tenant, long admittedAt, Throwable failure) {
+        long rtt = System.nanoTime() - admittedAt;
+        lock.lock();
+        try {
+            inFlight--;
+            tenants.get(tenant.getName()).inFlight--;
+            if (failure instanceof QueryCancelledException) {
+                if (((QueryCancelledException) failure).getReason() == QueryCancelledException.Reason.TIMEOUT) {
+                    windowDropped = true;
+                    windowSamples++;
+                }
+            } else if (failure == null || !ReplicaRouter.isConnectionFailure(failure)) {
+                // Los errores de la sentencia también dicen cuánto tarda el servidor; los de conexión no
+                windowRttSum += rtt;
+                windowSamples++;
+            }
+            long now = System.nanoTime();
+            if (windowSamples >= WINDOW_SAMPLES && now - windowStart >= WINDOW_NANOS) updateLimit(now);
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Da hueco a los que esperan mientras quepan, en orden justo. */
+    private void dispatch() {
+        TenantState next;
+        while (queued > 0 && (next = pickNext()) != null) {
+            Waiter w = next.queue.poll();
+            queued--;
+            w.granted = true;
+            admit(next);
+            w.signal.signal();
+        }
+    }
+
+    /** Hay hueco para la clase de trabajo (BATCH no usa los reservados). */
+    private boolean fits(Tenant.Priority priority) {
+        int available = (int) limit;
+        if (priority == Tenant.Priority.BATCH) available = Math.max(1, available - RESERVED_SLOTS);
+        return inFlight < available;
+    }
+
+    /**
+     * Siguiente tenant al que dar hueco: el de menor tiempo virtual entre los
+     * que están por debajo de su cuota y, si no hay ninguno, entre todos
+     * (capacidad prestada).
+     */
+    private TenantState pickNext() {
+        TenantState best = null;
+        boolean bestUnderQuota = false;
+        for (TenantState t : tenants.values()) {
+            Waiter head = t.queue.peek();
+            if (head == null || !fits(head.priority)) continue;
+            boolean underQuota = t.inFlight < t.tenant.getQuota();
+            if (best == null || (underQuota && !bestUnderQuota)
+                    || (underQuota == bestUnderQuota && t.virtualTime < best.virtualTime)) {
+                best = t;
+                bestUnderQuota = underQuota;
+            }
+        }
+        return best;
+    }
+
+    private void admit(TenantState t) {
+        inFlight++;
+        t.inFlight++;
+        if (inFlight > windowMaxInFlight) windowMaxInFlight = inFlight;
+        // Un tenant que vuelve tras estar inactivo no acumula crédito
+        double start = Math.max(t.virtualTime, virtualClock);
+        virtualClock = start;
+        t.virtualTime = start + 1.0 / t.tenant.getWeight();
+    }
+
+    private AdmissionRejectedException reject(TenantState t, String reason) {
+        rejected.incrementAndGet();
+        // Tiempo estimado para vaciar la cola actual con el límite actual
+        double drainNanos = (queued + 1) * lastRtt / limit;
+        long retryAfter = Math.max(1, (long) Math.ceil(drainNanos / 1e9));
+        final int tenantQueued = t.queue.size();
+        Log.sampled(LogLevel.WARN, "admission", () -> name + ": rejected " + t.tenant + " (" + reason + "), limit="
+                + (int) limit + " inFlight=" + inFlight + " queued=" + tenantQueued);
+        return new AdmissionRejectedException(name + " overloaded: " + reason, retryAfter);
+    }
+
+    private void updateLimit(long now) {
+        double previous = limit;
+        double next;
+        if (windowDropped) {
+            next = limit * BACKOFF;
+        } else if (windowRttSum == 0) {
+            next = limit;
+        } else {
+            double shortRtt = (double) windowRttSum / windowSamples;
+            // Mínimo con deriva lenta al alza, para reaprender si el servidor se vuelve más lento
+            noLoadRtt = noLoadRtt == 0 ? shortRtt : Math.min(shortRtt, noLoadRtt * BASELINE_DRIFT);
+            lastRtt = shortRtt;
+            double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * noLoadRtt / shortRtt));
+            double headroom = windowMaxInFlight * 2 < limit ? 0 : Math.sqrt(limit);
+            next = limit * (1 - SMOOTHING) + (limit * gradient + headroom) * SMOOTHING;
+        }
+        limit = Math.max(MIN_LIMIT, Math.min(MAX_LIMIT, next));
+        windowRttSum = 0;
+        windowSamples = 0;
+        windowDropped = false;
+        windowMaxInFlight = inFlight;
+        windowStart = now;
+        if ((int) limit != (int) previous) {
+            final int from = (int) previous;
+            final int to = (int) limit;
+            final double rttMs = lastRtt / 1e6;
+            Log.sampled(LogLevel.DEBUG, "admission", () -> name + ": limit " + from + " -> " + to
+                    + String.format(" (rtt %.1f ms)", rttMs));
+        }
+    }
+
+    /** @return límite actual de sentencias en curso */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /** @return sentencias en curso */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** @return peticiones esperando en las colas */
+    public int getQueued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param tenant nombre del tenant
+     * @return sentencias en curso del tenant
+     */
+    public int getInFlight(String tenant) {
+        lock.lock();
+        try {
+            TenantState t = tenants.get(tenant);
+            return t == null ? 0 : t.inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** @return peticiones rechazadas desde el arranque */
+    public long getRejected() {
+        return rejected.get();
+    }
+}
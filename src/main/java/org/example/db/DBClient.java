@@ -1,7 +1,23 @@
 package org.example.db;
 
+import org.example.db.memory.TableMirror;
+import org.example.db.utilities.ConnectionConfig;
+import org.example.db.utilities.Log;
+import org.example.db.utilities.LogLevel;
+import org.example.db.utilities.SQLCleaner;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 /**
  * @file DBClient.java
@@ -18,7 +34,51 @@ import java.util.Map;
  * - connect(): crea la conexión con factory.createConnection(connName) y la abre
  * - executeText(sql): crea una {@link DBQuery} con factory.createQuery(conn)
  *   y delega la ejecución. Lanza IllegalStateException si no se llamó a connect()
+ * - executeBatch(statements, mode): ejecuta un lote en una transacción
+ *   delegando en {@link DBConnection#executeBatch}
  * - disconnect(): cierra la conexión si está abierta
+ * - Cada ejecución se cronometra y se notifica a {@link SlowQueryLog}
+ *
+ * Réplicas de lectura (si la fábrica las anuncia, ver {@link ReplicaRouter}):
+ * - Las sentencias que {@link SQLCleaner#isSelectQuery(String)} clasifica como
+ *   lecturas van a la réplica sana con menos consultas en curso; el resto, y
+ *   los lotes, al primario. La conexión al primario se abre sólo al necesitarla.
+ * - Tras la primera escritura, este cliente lee siempre del primario, y la
+ *   sesión ({@link #setSession(String)}) también durante READ_YOUR_WRITES_MS.
+ * - Si la réplica falla por conexión, se marca como caída y la lectura se
+ *   repite en el primario.
+ * - Con HEDGE_READS=true, una lectura que tarda más que el percentil
+ *   configurado se duplica en otra réplica; gana la primera respuesta y la
+ *   conexión perdedora se cancela y se cierra (ver {@link ReplicaRouter}).
+ *
+ * Plazos y cancelación:
+ * - {@link #setTimeout(long)} fija un plazo para todas las sentencias del
+ *   cliente (por defecto QUERY_TIMEOUT_MS; 0 = sin plazo). Cada sentencia
+ *   lleva el tiempo restante como statement_timeout/max_execution_time
+ *   ({@link DBConnection#setStatementTimeout}) y, si vence, se cancela
+ *   ({@link DBConnection#cancel()}) y se lanza {@link QueryCancelledException}.
+ * - Si la sentencia sigue bloqueada QUERY_CANCEL_GRACE_MS después de
+ *   cancelarla, se cierra la conexión para liberar el hilo.
+ * - {@link #cancel(QueryCancelledException.Reason)} cancela desde otro hilo
+ *   (por ejemplo al desconectarse el cliente HTTP).
+ *
+ * Control de admisión (ADMISSION_CONTROL=true):
+ * - {@link #executeText(String)} y {@link #executeBatch} esperan turno en el
+ *   {@link ConcurrencyLimiter} del proveedor, que limita las sentencias en
+ *   curso según la latencia observada y rechaza con
+ *   {@link AdmissionRejectedException} cuando su cola está llena.
+ * - Los huecos se reparten entre tenants ({@link #setTenant}) por peso y
+ *   cuota, reservando algunos a las consultas interactivas.
+ *
+ * Copia de tablas de referencia (MIRROR_TABLES, ver {@link TableMirror}):
+ * - Las lecturas sobre tablas replicadas que la copia puede responder no
+ *   llegan a la base de datos ni pasan por el control de admisión.
+ * - Tras una escritura a través de este cliente no se usa la copia, y las
+ *   tablas replicadas que menciona se invalidan al ejecutarla y otra vez en
+ *   disconnect() (por si formaba parte de una transacción).
+ *
+ * Las escrituras se avisan a {@link WriteEvents} en disconnect() (y los
+ * lotes al terminar), para quien necesite saber qué tablas cambiaron.
  *
  * Errores y excepciones:
  * - Si la fábrica/implementación subyacente falla al conectar, se propaga una
@@ -35,9 +95,38 @@ import java.util.Map;
  * @author Equipo
  */
 public class DBClient {
+    private static final long DEFAULT_TIMEOUT_MS =
+            ConnectionConfig.getConfigValueAsInt("QUERY_TIMEOUT_MS", "QUERY_TIMEOUT_MS", 0);
+    private static final long CANCEL_GRACE_NANOS = TimeUnit.MILLISECONDS.toNanos(
+            ConnectionConfig.getConfigValueAsInt("QUERY_CANCEL_GRACE_MS", "QUERY_CANCEL_GRACE_MS", 2000));
+    private static final ScheduledThreadPoolExecutor DEADLINES = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread t = new Thread(r, "query-deadline");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        DEADLINES.setRemoveOnCancelPolicy(true);
+    }
+
     private final DBFactory factory;
     private DBConnection conn;
     private final String connName;
+    private final ReplicaRouter router; // null si el proveedor no tiene réplicas
+    private final ConcurrencyLimiter limiter; // null sin control de admisión
+    private final TableMirror mirror; // null sin tablas replicadas
+    private final Set<String> mirroredWrites = new LinkedHashSet<>();
+    private final List<String> writes = new ArrayList<>(); // para WriteEvents, avisadas en disconnect()
+    private Tenant tenant = Tenant.DEFAULT;
+    private Tenant.Priority priority = Tenant.Priority.INTERACTIVE;
+    private boolean connected = false;
+    private String session;
+    private boolean wrote = false;
+    private DBConnection replicaConn;
+    private ReplicaRouter.Replica replica;
+    private long deadlineNanos = 0; // 0: sin plazo
+    private volatile DBConnection active;
+    private volatile QueryCancelledException.Reason cancelReason;
 
     /**
      * Constructor.
@@ -49,23 +138,92 @@ public class DBClient {
     public DBClient(DBFactory factory, String connName) {
         this.factory = factory;
         this.connName = connName;
+        ReplicaRouter r = ReplicaRouter.forFactory(factory);
+        this.router = r.hasReplicas() ? r : null;
+        this.limiter = ConcurrencyLimiter.ENABLED ? ConcurrencyLimiter.forFactory(factory) : null;
+        this.mirror = TableMirror.forFactory(factory);
+        setTimeout(DEFAULT_TIMEOUT_MS);
+    }
+
+    /**
+     * Fija el plazo de las sentencias de este cliente, contado desde ahora.
+     *
+     * @param millis milisegundos disponibles; 0 o negativo = sin plazo
+     */
+    public void setTimeout(long millis) {
+        this.deadlineNanos = millis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis) : 0;
+    }
+
+    /**
+     * Fija el tenant y la clase de trabajo de las sentencias de este cliente,
+     * usados por el control de admisión para el reparto justo.
+     *
+     * @param tenant tenant de la petición (ver {@link Tenant#resolve})
+     * @param priority clase de trabajo
+     */
+    public void setTenant(Tenant tenant, Tenant.Priority priority) {
+        this.tenant = tenant;
+        this.priority = priority;
     }
 
     /**
-     * Crea la conexión a través de la fábrica y la abre.
+     * Cancela la sentencia en curso (si la hay) y hace fallar las siguientes.
+     * Puede llamarse desde cualquier hilo.
+     *
+     * @param reason motivo, que se propaga en la {@link QueryCancelledException}
+     */
+    public void cancel(QueryCancelledException.Reason reason) {
+        cancelReason = reason;
+        DBConnection c = active;
+        if (c != null) c.cancel();
+    }
+
+    /**
+     * Asocia el cliente a una sesión (por ejemplo el usuario o la IP del
+     * cliente HTTP) para la consistencia read-your-writes entre peticiones.
+     *
+     * @param session clave de sesión (null: sólo se garantiza dentro de este cliente)
+     */
+    public void setSession(String session) {
+        this.session = session;
+    }
+
+    /**
+     * Crea la conexión a través de la fábrica y la abre. Con réplicas
+     * configuradas la apertura se aplaza hasta la primera sentencia.
      *
      * Lanza RuntimeException si la creación o apertura falla.
      */
     public void connect() {
-        this.conn = factory.createConnection(connName);
-        this.conn.connect();
+        connected = true;
+        if (router == null) primary();
     }
 
     /**
-     * Cierra la conexión si existe. Seguro de llamar varias veces.
+     * Cierra las conexiones abiertas. Seguro de llamar varias veces.
      */
     public void disconnect() {
+        connected = false;
+        if (mirror != null) {
+            for (String table : mirroredWrites) mirror.invalidate(table);
+            mirroredWrites.clear();
+        }
         if (this.conn != null) this.conn.disconnect();
+        conn = null; // el siguiente connect() abre una nueva
+        if (this.replicaConn != null) this.replicaConn.disconnect();
+        replicaConn = null;
+        replica = null;
+        for (String sql : writes) WriteEvents.fire(factory.getName(), sql);
+        writes.clear();
+    }
+
+    private DBConnection primary() {
+        if (conn == null) {
+            DBConnection c = factory.createConnection(connName);
+            c.connect();
+            conn = c;
+        }
+        return conn;
     }
 
     /**
@@ -77,18 +235,326 @@ public class DBClient {
      * @param sql sentencia SQL en texto
      * @return lista de filas (cada fila: Map nombreColumna->valor)
      * @throws IllegalStateException si no se ha llamado a connect() previamente
+     * @throws AdmissionRejectedException si el control de admisión rechaza la sentencia
      */
     public List<Map<String,Object>> executeText(String sql) {
-        if (conn == null) throw new IllegalStateException("No connection. Call connect() first.");
-        DBQuery q = factory.createQuery(conn);
+        if (!connected) throw new IllegalStateException("No connection. Call connect() first.");
+        boolean read = SQLCleaner.isSelectQuery(sql);
+        if (!read && WriteEvents.hasListeners()) writes.add(sql);
+        if (mirror == null) return admitted(() -> route(sql));
+        if (read && mirroredWrites.isEmpty()) {
+            List<Map<String,Object>> rows = mirror.query(sql);
+            if (rows != null) return rows;
+        }
+        if (read) return admitted(() -> route(sql));
+        try {
+            return admitted(() -> route(sql));
+        } finally {
+            for (String table : mirror.tablesIn(sql)) {
+                mirror.invalidate(table);
+                mirroredWrites.add(table);
+            }
+        }
+    }
+
+    /**
+     * Ejecuta una lectura dentro de una transacción READ ONLY que se deshace
+     * al terminar, de modo que el servidor rechaza cualquier escritura que
+     * se cuele en la sentencia. Va siempre al primario (o a la copia en
+     * memoria, si la tabla está replicada), con el control de admisión y el
+     * plazo del cliente. Lo usan los recálculos de las consultas en vivo.
+     *
+     * @param sql SELECT
+     * @return filas
+     * @throws IllegalStateException si no se ha llamado a connect() previamente
+     * @throws AdmissionRejectedException si el control de admisión rechaza la sentencia
+     */
+    public List<Map<String,Object>> executeReadOnly(String sql) {
+        if (!connected) throw new IllegalStateException("No connection. Call connect() first.");
+        if (mirror != null && mirroredWrites.isEmpty()) {
+            List<Map<String,Object>> rows = mirror.query(sql);
+            if (rows != null) return rows;
+        }
+        return admitted(() -> {
+            DBConnection target = primary();
+            return withDeadline(target, () -> {
+                // START TRANSACTION READ ONLY lo entienden Postgres, MySQL y el motor en memoria
+                target.execute("START TRANSACTION READ ONLY");
+                List<Map<String,Object>> rows;
+                try {
+                    rows = run(target, sql);
+                } catch (RuntimeException e) {
+                    if (target.isConnected()) {
+                        try { target.execute("ROLLBACK"); } catch (RuntimeException ignored) {}
+                    }
+                    throw e;
+                }
+                target.execute("ROLLBACK");
+                return rows;
+            });
+        });
+    }
+
+    private List<Map<String,Object>> route(String sql) {
+        boolean read = router != null && SQLCleaner.isSelectQuery(sql);
+        if (read && !wrote && !router.isSticky(session)) {
+            List<Map<String,Object>> rows = executeOnReplica(sql);
+            if (rows != null) return rows;
+        }
+        List<Map<String,Object>> rows = execute(primary(), sql);
+        if (!read) markWrite();
+        return rows;
+    }
+
+    private List<Map<String,Object>> execute(DBConnection target, String sql) {
+        return withDeadline(target, () -> run(target, sql));
+    }
+
+    private List<Map<String,Object>> run(DBConnection target, String sql) {
+        DBQuery q = factory.createQuery(target);
         q.setSql(sql);
-        return q.execute();
+        long start = System.nanoTime();
+        List<Map<String,Object>> rows = q.execute();
+        SlowQueryLog.getInstance().record(factory, sql, System.nanoTime() - start);
+        return rows;
+    }
+
+    /**
+     * Ejecuta una lectura en una réplica (la misma durante toda la vida del
+     * cliente mientras siga sana).
+     *
+     * @return filas, o null si no hay réplica disponible y hay que usar el primario
+     */
+    private List<Map<String,Object>> executeOnReplica(String sql) {
+        if (replica == null || !replica.isHealthy()) {
+            if (replicaConn != null) {
+                replicaConn.disconnect();
+                replicaConn = null;
+            }
+            replica = router.pick(null);
+            if (replica == null) return null;
+        }
+        router.begin(replica);
+        router.countRead();
+        Throwable failure = null;
+        try {
+            if (replicaConn == null) replicaConn = router.connect(replica, connName);
+            if (ReplicaRouter.HEDGE_READS && router.getReplicas().size() > 1) {
+                List<Map<String,Object>> rows = executeHedged(replica, replicaConn, sql);
+                if (!replicaConn.isConnected()) replicaConn = null; // ganó la copia: la original se cerró
+                return rows;
+            }
+            long start = System.nanoTime();
+            List<Map<String,Object>> rows = execute(replicaConn, sql);
+            router.recordReadLatency(System.nanoTime() - start);
+            return rows;
+        } catch (RuntimeException e) {
+            // Un error de la sentencia se propaga; uno de conexión deja la réplica fuera y se usa el primario
+            if (e instanceof QueryCancelledException) throw e;
+            if (replicaConn != null && !ReplicaRouter.isConnectionFailure(e)) throw e;
+            failure = e;
+            final String address = replica.getAddress();
+            Log.sampled(LogLevel.WARN, "replicas", () -> "Read on " + address + " failed, retrying on primary: " + e.getMessage());
+            return null;
+        } finally {
+            router.end(replica, failure);
+            if (failure != null) {
+                if (replicaConn != null) replicaConn.disconnect();
+                replicaConn = null;
+                replica = null;
+            }
+        }
+    }
+
+    /**
+     * Lectura con hedging. Si la réplica no ha respondido tras
+     * {@link ReplicaRouter#hedgeDelayNanos()} y el presupuesto lo permite, la
+     * misma lectura se lanza en otra réplica. Gana la primera respuesta; la
+     * consulta de la perdedora se cancela y su conexión se cierra.
+     *
+     * @return filas de la respuesta ganadora
+     */
+    private List<Map<String,Object>> executeHedged(ReplicaRouter.Replica first, DBConnection firstConn, String sql) {
+        AtomicInteger winner = new AtomicInteger(); // 0: nadie, 1: original, 2: copia
+        AtomicReference<DBConnection> hedgeConn = new AtomicReference<>();
+        CompletableFuture<List<Map<String,Object>>> hedged = new CompletableFuture<>();
+        long delay = router.hedgeDelayNanos();
+        ScheduledFuture<?> timer = delay == Long.MAX_VALUE ? null : router.scheduleHedge(() -> {
+            ReplicaRouter.Replica second;
+            if (winner.get() != 0 || (second = router.pick(first)) == null || !router.tryHedge()) return;
+            router.begin(second);
+            Throwable failure = null;
+            try {
+                DBConnection c = router.connect(second, connName + "-hedge");
+                hedgeConn.set(c);
+                if (winner.get() != 0) return;
+                if (deadlineNanos != 0) c.setStatementTimeout(remainingMillis());
+                List<Map<String,Object>> rows = run(c, sql);
+                if (winner.compareAndSet(0, 2)) {
+                    hedged.complete(rows);
+                    router.hedgeWon();
+                    abort(firstConn); // la lectura original pierde
+                }
+            } catch (RuntimeException e) {
+                // Si la original ya ganó, el error es el cierre de esta conexión
+                if (winner.get() == 0 && ReplicaRouter.isConnectionFailure(e)) failure = e;
+            } finally {
+                router.end(second, failure);
+                DBConnection c = hedgeConn.getAndSet(null);
+                if (c != null) c.disconnect();
+            }
+        }, delay);
+
+        long start = System.nanoTime();
+        try {
+            List<Map<String,Object>> rows = execute(firstConn, sql);
+            if (winner.compareAndSet(0, 1)) {
+                router.recordReadLatency(System.nanoTime() - start);
+                return rows;
+            }
+        } catch (RuntimeException e) {
+            if (winner.compareAndSet(0, 1)) throw e;
+        } finally {
+            if (winner.get() == 1) {
+                if (timer != null) timer.cancel(false);
+                DBConnection c = hedgeConn.getAndSet(null);
+                if (c != null) abort(c); // la copia en curso pierde
+            }
+        }
+        return hedged.join();
+    }
+
+    /** Cancela la sentencia en curso de la conexión en el servidor y la cierra. */
+    private static void abort(DBConnection c) {
+        try {
+            c.cancel();
+        } finally {
+            c.disconnect();
+        }
+    }
+
+    /** Ejecuta la acción con un hueco del {@link ConcurrencyLimiter}, si está activo. */
+    private <T> T admitted(Supplier<T> action) {
+        if (limiter == null) return action.get();
+        long admittedAt = limiter.acquire(tenant, priority, deadlineNanos);
+        Throwable failure = null;
+        try {
+            return action.get();
+        } catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            limiter.release(tenant, admittedAt, failure);
+        }
+    }
+
+    private long remainingMillis() {
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+
+    /**
+     * Ejecuta una acción sobre la conexión aplicando el plazo del cliente:
+     * statement_timeout con el tiempo restante, cancelación al vencer y
+     * cierre de la conexión si tras QUERY_CANCEL_GRACE_MS sigue bloqueada.
+     */
+    private <T> T withDeadline(DBConnection target, Supplier<T> action) {
+        if (cancelReason != null) throw new QueryCancelledException(cancelReason);
+        ScheduledFuture<?> cancelTimer = null;
+        ScheduledFuture<?> abortTimer = null;
+        if (deadlineNanos != 0) {
+            long remaining = deadlineNanos - System.nanoTime();
+            if (remaining <= 0) throw new QueryCancelledException(QueryCancelledException.Reason.TIMEOUT);
+            target.setStatementTimeout(remainingMillis());
+            cancelTimer = DEADLINES.schedule(() -> cancel(QueryCancelledException.Reason.TIMEOUT), remaining, TimeUnit.NANOSECONDS);
+            abortTimer = DEADLINES.schedule(() -> {
+                if (active == target) {
+                    Log.warn("deadline", "Statement still running " + TimeUnit.NANOSECONDS.toMillis(CANCEL_GRACE_NANOS)
+                            + " ms after cancel; closing connection " + target.getName());
+                    target.disconnect();
+                }
+            }, remaining + CANCEL_GRACE_NANOS, TimeUnit.NANOSECONDS);
+        }
+        active = target;
+        try {
+            return action.get();
+        } catch (RuntimeException e) {
+            QueryCancelledException.Reason reason = cancelReason;
+            // statement_timeout/max_execution_time del servidor vence a la vez que el plazo
+            if (reason == null && deadlineNanos != 0 && System.nanoTime() >= deadlineNanos) {
+                reason = QueryCancelledException.Reason.TIMEOUT;
+            }
+            if (reason != null && !(e instanceof QueryCancelledException)) throw new QueryCancelledException(reason, e);
+            throw e;
+        } finally {
+            active = null;
+            if (cancelTimer != null) cancelTimer.cancel(false);
+            if (abortTimer != null) abortTimer.cancel(false);
+        }
+    }
+
+    /**
+     * Ejecuta un lote de sentencias (con parámetros opcionales) en una única
+     * transacción. Cada proveedor lo envía de la forma más eficiente que
+     * soporta su protocolo (ver {@link DBConnection#executeBatch}).
+     *
+     * @param statements sentencias en orden
+     * @param mode comportamiento si una sentencia falla
+     * @return un resultado por sentencia
+     * @throws IllegalStateException si no se ha llamado a connect() previamente
+     * @throws AdmissionRejectedException si el control de admisión rechaza la sentencia
+     */
+    public List<BatchResult> executeBatch(List<BatchStatement> statements, BatchErrorMode mode) {
+        if (!connected) throw new IllegalStateException("No connection. Call connect() first.");
+        long start = System.nanoTime();
+        List<BatchResult> results;
+        try {
+            results = admitted(() -> {
+                DBConnection target = primary();
+                return withDeadline(target, () -> target.executeBatch(statements, mode));
+            });
+        } finally {
+            if (mirror != null) {
+                for (BatchStatement st : statements) mirroredWrites.addAll(mirror.tablesIn(st.getSql()));
+                for (String table : mirroredWrites) mirror.invalidate(table);
+            }
+            if (WriteEvents.hasListeners()) {
+                for (BatchStatement st : statements) WriteEvents.fire(factory.getName(), st.getSql());
+            }
+        }
+        markWrite();
+        long elapsed = System.nanoTime() - start;
+        Log.sampled(LogLevel.DEBUG, "batch", () -> "Batch of " + statements.size() + " statements (" + mode + ") took "
+                + (elapsed / 1_000_000) + " ms");
+        return results;
+    }
+
+    /**
+     * Registra una escritura hecha directamente sobre {@link #getConnection()}
+     * (por ejemplo una carga masiva), igual que las sentencias de
+     * {@link #executeText}: cuenta para el enrutado read-your-writes, invalida
+     * la copia en memoria de la tabla y se avisa a {@link WriteEvents} en
+     * disconnect() como {@code COPY tabla FROM STDIN}.
+     *
+     * @param table tabla escrita (admite "esquema.tabla")
+     */
+    public void markWrite(String table) {
+        markWrite();
+        if (mirror != null && mirror.invalidate(table)) mirroredWrites.add(table);
+        if (WriteEvents.hasListeners()) writes.add("COPY " + table + " FROM STDIN");
+    }
+
+    private void markWrite() {
+        if (router != null) {
+            wrote = true;
+            router.recordWrite(session);
+        }
     }
 
     /**
-     * Obtiene la conexión subyacente (útil para inspección/logging en demos).
+     * Obtiene la conexión al primario (útil para inspección/logging en demos
+     * y para capacidades como {@link BulkLoader}). La abre si estaba aplazada.
      *
-     * @return la instancia de {@link DBConnection} o null si no se creó aún
+     * @return la instancia de {@link DBConnection} o null si no está conectado
      */
-    public DBConnection getConnection() { return conn; }
+    public DBConnection getConnection() { return connected ? primary() : conn; }
 }
@@ -1,5 +1,7 @@
 package org.example.db;
 
+import org.example.db.utilities.BatchHelper;
+
 import java.util.List;
 import java.util.Map;
 
@@ -68,5 +70,49 @@ public interface DBConnection {
      * @throws IllegalStateException si la conexión no está abierta
      */
     List<Map<String,Object>> execute(String sql);
-}
 
+    /**
+     * Ejecuta un lote de sentencias en una única transacción y devuelve un
+     * resultado por sentencia.
+     *
+     * La implementación por defecto envía BEGIN, cada sentencia (con los
+     * parámetros sustituidos por literales) y COMMIT/ROLLBACK mediante
+     * {@link #execute(String)}: un viaje por sentencia. Las conexiones que
+     * conocen su protocolo la sobrescriben para enviar el lote completo de
+     * una vez (pipelining, multi-statements o addBatch de JDBC).
+     *
+     * @param statements sentencias del lote, en orden
+     * @param mode comportamiento si una sentencia falla
+     * @return un {@link BatchResult} por sentencia, en el mismo orden
+     * @throws IllegalStateException si la conexión no está abierta
+     * @throws RuntimeException si falla la propia transacción (no una sentencia)
+     */
+    default List<BatchResult> executeBatch(List<BatchStatement> statements, BatchErrorMode mode) {
+        if (!isConnected()) throw new IllegalStateException("Connection is not open: " + getName());
+        return BatchHelper.executeSequential(this, statements, mode, false);
+    }
+
+    /**
+     * Cancela la sentencia en curso en esta conexión. Se llama desde otro
+     * hilo (plazo vencido, cliente HTTP desconectado, lectura duplicada
+     * perdedora); la sentencia termina con error en el hilo que la ejecuta y
+     * la conexión sigue siendo utilizable. Sin sentencia en curso no hace nada.
+     *
+     * La implementación por defecto no hace nada.
+     */
+    default void cancel() {
+    }
+
+    /**
+     * Limita en el servidor la duración de las sentencias siguientes
+     * (statement_timeout en Postgres, max_execution_time en MySQL). Si ya hay
+     * un límite mayor que {@code millis} puede dejarse como está, ya que sólo
+     * respalda al plazo que controla el cliente.
+     *
+     * La implementación por defecto no hace nada.
+     *
+     * @param millis límite en milisegundos; 0 lo elimina
+     */
+    default void setStatementTimeout(long millis) {
+    }
+}
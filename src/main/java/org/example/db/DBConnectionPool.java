@@ -0,0 +1,94 @@
+package org.example.db;
+
+import org.example.db.utilities.ConnectionConfig;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @file DBConnectionPool.java
+ * @brief Pool sencillo de conexiones abiertas, uno por proveedor.
+ *
+ * La capa web abre y cierra una conexión por petición. Las tareas internas
+ * del middleware (por ejemplo la captura de planes EXPLAIN del
+ * {@link SlowQueryLog}) reutilizan en su lugar conexiones de este pool para
+ * no pagar el coste del handshake en cada uso.
+ *
+ * Contrato:
+ * - {@link #forFactory(DBFactory)} devuelve el pool compartido del proveedor
+ *   (clave: {@link DBFactory#getName()}).
+ * - {@link #borrow()} devuelve una conexión abierta (reutilizada o nueva).
+ * - {@link #release(DBConnection, boolean)} la devuelve al pool, o la cierra
+ *   si se marcó como rota o si ya hay POOL_MAX_IDLE conexiones ociosas.
+ *
+ * @author Equipo
+ */
+public class DBConnectionPool {
+    private static final Map<String, DBConnectionPool> POOLS = new ConcurrentHashMap<>();
+    private static final int MAX_IDLE = ConnectionConfig.getConfigValueAsInt("POOL_MAX_IDLE", "POOL_MAX_IDLE", 4);
+
+    private final DBFactory factory;
+    private final ConcurrentLinkedDeque<DBConnection> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    private DBConnectionPool(DBFactory factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Obtiene (o crea) el pool asociado al proveedor de la fábrica.
+     *
+     * @param factory fábrica del proveedor
+     * @return pool compartido para ese proveedor
+     */
+    public static DBConnectionPool forFactory(DBFactory factory) {
+        return POOLS.computeIfAbsent(factory.getName(), k -> new DBConnectionPool(factory));
+    }
+
+    /**
+     * Toma una conexión abierta del pool o abre una nueva.
+     *
+     * @return conexión abierta
+     * @throws RuntimeException si no se puede abrir una conexión nueva
+     */
+    public DBConnection borrow() {
+        DBConnection c;
+        while ((c = idle.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            if (c.isConnected()) return c;
+            c.disconnect();
+        }
+        c = factory.createConnection("pool");
+        c.connect();
+        return c;
+    }
+
+    /**
+     * Devuelve una conexión al pool.
+     *
+     * @param conn conexión previamente obtenida con {@link #borrow()}
+     * @param broken true si la conexión falló y no debe reutilizarse
+     */
+    public void release(DBConnection conn, boolean broken) {
+        if (conn == null) return;
+        if (broken || !conn.isConnected()) {
+            conn.disconnect();
+            return;
+        }
+        if (idleCount.incrementAndGet() > MAX_IDLE) {
+            idleCount.decrementAndGet();
+            conn.disconnect();
+            return;
+        }
+        idle.offerFirst(conn);
+    }
+
+    /**
+     * @return fábrica asociada al pool
+     */
+    public DBFactory getFactory() {
+        return factory;
+    }
+}
@@ -0,0 +1,29 @@
+package org.example.db;
+
+import org.example.db.memory.MemoryFactory;
+import org.example.db.mysql.MySQLFactory;
+import org.example.db.postgres.PostgressFactory;
+
+/**
+ * @file DBFactories.java
+ * @brief Selección de la fábrica concreta a partir del nombre recibido en la API.
+ *
+ * "mysql" (sin distinguir mayúsculas) → {@link MySQLFactory}; "memory" →
+ * {@link MemoryFactory} (motor en memoria del proceso); cualquier otro valor →
+ * {@link PostgressFactory}, igual que hacía cada endpoint por su cuenta.
+ */
+public final class DBFactories {
+    private DBFactories() {
+        throw new UnsupportedOperationException("Utility class - do not instantiate");
+    }
+
+    /**
+     * @param db nombre del proveedor ("postgres", "mysql" o "memory")
+     * @return nueva fábrica para el proveedor
+     */
+    public static DBFactory forName(String db) {
+        if ("mysql".equalsIgnoreCase(db)) return new MySQLFactory();
+        if ("memory".equalsIgnoreCase(db)) return new MemoryFactory();
+        return new PostgressFactory();
+    }
+}
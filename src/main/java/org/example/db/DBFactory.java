@@ -3,6 +3,9 @@
  */
 package org.example.db;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * @file DBFactory.java
  * @brief Interfaz de la Abstract Factory para producir objetos relacionados con
@@ -21,6 +24,11 @@ package org.example.db;
  * - Documentar en la clase concreta cómo se obtienen variables de entorno
  *   (PGHOST/PGPORT/...) o fichero de propiedades.
  *
+ * Réplicas de lectura: una fábrica puede anunciar réplicas con
+ * {@link #getReplicas()}; {@link DBClient} envía entonces las lecturas a ellas
+ * a través de {@link ReplicaRouter} y el resto de sentencias al primario
+ * ({@link #createConnection(String)}).
+ *
  * @author Equipo
  */
 public interface DBFactory {
@@ -39,5 +47,37 @@ public interface DBFactory {
      * @return instancia de {@link DBQuery}
      */
     DBQuery createQuery(DBConnection conn);
-}
 
+    /**
+     * Nombre corto del proveedor (por ejemplo "postgres" o "mysql").
+     *
+     * Se usa como clave para recursos compartidos por proveedor (pools de
+     * conexiones, estadísticas) ya que la capa web crea una fábrica por petición.
+     *
+     * @return nombre del proveedor
+     */
+    default String getName() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * Réplicas de lectura configuradas para el proveedor, como "host:puerto".
+     *
+     * @return direcciones de las réplicas; vacía (por defecto) si sólo hay primario
+     */
+    default List<String> getReplicas() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Crea una conexión (sin abrir) a una réplica de lectura, con la misma
+     * base de datos y credenciales que el primario.
+     *
+     * @param name Nombre lógico de la conexión
+     * @param replica dirección de la réplica, tal como la devuelve {@link #getReplicas()}
+     * @return instancia de {@link DBConnection}
+     */
+    default DBConnection createReplicaConnection(String name, String replica) {
+        throw new UnsupportedOperationException(getName() + " has no read replicas");
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.db;
+
+/**
+ * @file QueryCancelledException.java
+ * @brief Sentencia interrumpida por el middleware (plazo vencido) y no por
+ *        un error propio.
+ *
+ * La lanza {@link DBClient} para que la capa web responda 504 en lugar de 500
+ * cuando vence el plazo de la petición.
+ */
+public class QueryCancelledException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /** Motivo de la cancelación. */
+    public enum Reason {
+        /** Venció el plazo de la petición. */
+        TIMEOUT
+    }
+
+    private final Reason reason;
+
+    public QueryCancelledException(Reason reason) {
+        this(reason, null);
+    }
+
+    public QueryCancelledException(Reason reason, Throwable cause) {
+        super("query cancelled: deadline exceeded", cause);
+        this.reason = reason;
+    }
+
+    /**
+     * @return motivo de la cancelación
+     */
+    public Reason getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,366 @@
+package org.example.db;
+
+import org.example.db.utilities.ConnectionConfig;
+import org.example.db.utilities.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @file ReplicaRouter.java
+ * @brief Estado compartido de las réplicas de lectura de un proveedor.
+ *
+ * {@link DBClient} lo usa para decidir a dónde enviar cada lectura:
+ * - Balanceo "least outstanding": se elige la réplica sana con menos
+ *   consultas en curso (los empates se reparten al azar).
+ * - Salud: una réplica que falla por conexión se marca como caída y deja de
+ *   recibir tráfico; un hilo en segundo plano comprueba todas las réplicas
+ *   cada REPLICA_HEALTH_CHECK_MS con {@code SELECT 1} y las reincorpora.
+ * - Read-your-writes: tras una escritura, las lecturas de la misma sesión
+ *   van al primario durante READ_YOUR_WRITES_MS, para no leer de una réplica
+ *   que todavía no ha aplicado el cambio.
+ * - Hedging (opcional, HEDGE_READS): {@link DBClient} lanza una copia de la
+ *   lectura en otra réplica si la primera tarda más que el percentil
+ *   HEDGE_PERCENTILE de las latencias recientes. Las copias nunca superan
+ *   HEDGE_MAX_PERCENT de las lecturas ({@link #tryHedge()}).
+ *
+ * Como {@link DBConnectionPool}, hay una instancia por proveedor
+ * (clave: {@link DBFactory#getName()}).
+ *
+ * Configuración (ENV > db.properties > defecto):
+ * - POSTGRES_REPLICAS / MYSQL_REPLICAS: "host:puerto,host:puerto" (ver las fábricas)
+ * - READ_YOUR_WRITES_MS: ventana de lecturas en el primario tras escribir (defecto 2000)
+ * - REPLICA_HEALTH_CHECK_MS: periodo de las comprobaciones de salud (defecto 5000)
+ * - HEDGE_READS: "true" para activar las lecturas duplicadas (defecto false)
+ * - HEDGE_PERCENTILE: percentil de latencia tras el que se duplica (defecto 95)
+ * - HEDGE_MAX_PERCENT: máximo de lecturas duplicadas en % (defecto 5)
+ * - HEDGE_MIN_DELAY_MS: espera mínima antes de duplicar (defecto 2)
+ *
+ * @author Equipo
+ */
+public class ReplicaRouter {
+    private static final Map<String, ReplicaRouter> ROUTERS = new ConcurrentHashMap<>();
+    private static final long READ_YOUR_WRITES_NANOS = TimeUnit.MILLISECONDS.toNanos(
+            ConnectionConfig.getConfigValueAsInt("READ_YOUR_WRITES_MS", "READ_YOUR_WRITES_MS", 2000));
+    private static final int HEALTH_CHECK_MS =
+            ConnectionConfig.getConfigValueAsInt("REPLICA_HEALTH_CHECK_MS", "REPLICA_HEALTH_CHECK_MS", 5000);
+    /** Sesiones recordadas como máximo; al superarlo se purgan las caducadas. */
+    private static final int MAX_SESSIONS = 10_000;
+    static final boolean HEDGE_READS =
+            Boolean.parseBoolean(ConnectionConfig.getConfigValue("HEDGE_READS", "HEDGE_READS", "false"));
+    private static final int HEDGE_PERCENTILE =
+            ConnectionConfig.getConfigValueAsInt("HEDGE_PERCENTILE", "HEDGE_PERCENTILE", 95);
+    private static final double HEDGE_MAX_FRACTION =
+            ConnectionConfig.getConfigValueAsInt("HEDGE_MAX_PERCENT", "HEDGE_MAX_PERCENT", 5) / 100.0;
+    private static final long HEDGE_MIN_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(
+            ConnectionConfig.getConfigValueAsInt("HEDGE_MIN_DELAY_MS", "HEDGE_MIN_DELAY_MS", 2));
+    /** Latencias recientes usadas para el percentil, y cada cuántas se recalcula. */
+    private static final int LATENCY_WINDOW = 1024;
+    private static final int LATENCY_RECOMPUTE_EVERY = 64;
+    /** Las cuentas del presupuesto se reducen a la mitad al llegar a este número de lecturas. */
+    private static final long BUDGET_WINDOW = 100_000;
+
+    /** Una réplica de lectura y sus contadores. */
+    public static final class Replica {
+        private final String address;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private volatile boolean healthy = true;
+
+        Replica(String address) {
+            this.address = address;
+        }
+
+        /** @return dirección "host:puerto" */
+        public String getAddress() { return address; }
+
+        /** @return consultas en curso contra la réplica */
+        public int getOutstanding() { return outstanding.get(); }
+
+        /** @return false si la última conexión o comprobación de salud falló */
+        public boolean isHealthy() { return healthy; }
+    }
+
+    private final DBFactory factory;
+    private final List<Replica> replicas;
+    private final Map<String, Long> lastWrite = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final ExecutorService hedgeExecutor;
+
+    // Latencias de lectura (anillo) y retardo de hedging derivado
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private int latencyCount;
+    private volatile long hedgeDelayNanos = Long.MAX_VALUE;
+
+    // Presupuesto de hedging
+    private long reads;
+    private long hedges;
+    private final AtomicLong hedgesLaunched = new AtomicLong();
+    private final AtomicLong hedgesWon = new AtomicLong();
+
+    private ReplicaRouter(DBFactory factory, List<String> addresses) {
+        this.factory = factory;
+        List<Replica> list = new ArrayList<>();
+        for (String address : addresses) list.add(new Replica(address));
+        this.replicas = Collections.unmodifiableList(list);
+        if (list.isEmpty()) {
+            this.scheduler = null;
+            this.hedgeExecutor = null;
+            return;
+        }
+        this.scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "replica-scheduler-" + factory.getName());
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        this.hedgeExecutor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "replica-hedge-" + factory.getName());
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::checkHealth, HEALTH_CHECK_MS, HEALTH_CHECK_MS, TimeUnit.MILLISECONDS);
+        Log.info("replicas", factory.getName() + ": " + list.size() + " read replicas " + addresses);
+    }
+
+    /**
+     * Obtiene (o crea) el router del proveedor de la fábrica.
+     *
+     * @param factory fábrica del proveedor
+     * @return router compartido para ese proveedor
+     */
+    public static ReplicaRouter forFactory(DBFactory factory) {
+        return ROUTERS.computeIfAbsent(factory.getName(), k -> new ReplicaRouter(factory, factory.getReplicas()));
+    }
+
+    /**
+     * @return true si el proveedor tiene réplicas configuradas
+     */
+    public boolean hasReplicas() {
+        return !replicas.isEmpty();
+    }
+
+    /**
+     * @return réplicas configuradas (para métricas)
+     */
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * Elige la réplica sana con menos consultas en curso.
+     *
+     * @param exclude réplica a descartar (puede ser null)
+     * @return réplica elegida, o null si no hay ninguna sana
+     */
+    public Replica pick(Replica exclude) {
+        int n = replicas.size();
+        if (n == 0) return null;
+        int start = ThreadLocalRandom.current().nextInt(n);
+        Replica best = null;
+        for (int i = 0; i < n; i++) {
+            Replica r = replicas.get((start + i) % n);
+            if (!r.healthy || r == exclude) continue;
+            if (best == null || r.outstanding.get() < best.outstanding.get()) best = r;
+        }
+        return best;
+    }
+
+    /**
+     * Abre una conexión a la réplica. Si falla, la réplica se marca como caída.
+     *
+     * @param replica réplica elegida con {@link #pick}
+     * @param name nombre lógico de la conexión
+     * @return conexión abierta
+     */
+    public DBConnection connect(Replica replica, String name) {
+        DBConnection conn = factory.createReplicaConnection(name, replica.address);
+        try {
+            conn.connect();
+            return conn;
+        } catch (RuntimeException e) {
+            markDown(replica, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Marca el inicio de una consulta contra la réplica.
+     *
+     * @param replica réplica
+     */
+    public void begin(Replica replica) {
+        replica.outstanding.incrementAndGet();
+    }
+
+    /**
+     * Marca el fin de una consulta contra la réplica.
+     *
+     * @param replica réplica
+     * @param failure error de conexión que deja la réplica fuera de servicio (null si no lo hubo)
+     */
+    public void end(Replica replica, Throwable failure) {
+        replica.outstanding.decrementAndGet();
+        if (failure != null) markDown(replica, failure);
+    }
+
+    /**
+     * Registra una escritura de la sesión: sus lecturas irán al primario
+     * durante la ventana read-your-writes.
+     *
+     * @param session clave de sesión (null: sin sesión, no se registra)
+     */
+    public void recordWrite(String session) {
+        if (session == null || READ_YOUR_WRITES_NANOS <= 0) return;
+        long now = System.nanoTime();
+        lastWrite.put(session, now);
+        if (lastWrite.size() > MAX_SESSIONS) {
+            for (Iterator<Long> it = lastWrite.values().iterator(); it.hasNext(); ) {
+                if (now - it.next() > READ_YOUR_WRITES_NANOS) it.remove();
+            }
+        }
+    }
+
+    /**
+     * @param session clave de sesión (puede ser null)
+     * @return true si la sesión escribió dentro de la ventana read-your-writes
+     */
+    public boolean isSticky(String session) {
+        if (session == null) return false;
+        Long t = lastWrite.get(session);
+        return t != null && System.nanoTime() - t <= READ_YOUR_WRITES_NANOS;
+    }
+
+    // ----------------- Hedging -----------------
+
+    /**
+     * Registra la latencia de una lectura completada en una réplica.
+     *
+     * @param nanos duración de la lectura
+     */
+    public void recordReadLatency(long nanos) {
+        long[] sorted = null;
+        synchronized (latencies) {
+            latencies[latencyCount % LATENCY_WINDOW] = nanos;
+            latencyCount++;
+            if (latencyCount % LATENCY_RECOMPUTE_EVERY == 0) {
+                sorted = Arrays.copyOf(latencies, Math.min(latencyCount, LATENCY_WINDOW));
+            }
+        }
+        if (sorted != null) {
+            Arrays.sort(sorted);
+            int idx = (int) Math.min(sorted.length - 1, (long) sorted.length * HEDGE_PERCENTILE / 100);
+            hedgeDelayNanos = Math.max(HEDGE_MIN_DELAY_NANOS, sorted[idx]);
+        }
+    }
+
+    /**
+     * @return espera antes de duplicar una lectura: el percentil configurado de
+     *         las latencias recientes (Long.MAX_VALUE hasta tener muestras suficientes)
+     */
+    public long hedgeDelayNanos() {
+        return hedgeDelayNanos;
+    }
+
+    /** Cuenta una lectura en el presupuesto de hedging. */
+    synchronized void countRead() {
+        if (++reads >= BUDGET_WINDOW) {
+            reads /= 2;
+            hedges /= 2;
+        }
+    }
+
+    /**
+     * Reserva una lectura duplicada si no se supera HEDGE_MAX_PERCENT de las lecturas.
+     *
+     * @return true si se puede lanzar la copia
+     */
+    public synchronized boolean tryHedge() {
+        if (hedges + 1 > reads * HEDGE_MAX_FRACTION) return false;
+        hedges++;
+        hedgesLaunched.incrementAndGet();
+        return true;
+    }
+
+    /** Cuenta una lectura duplicada que respondió antes que la original. */
+    void hedgeWon() {
+        hedgesWon.incrementAndGet();
+    }
+
+    /** @return lecturas duplicadas lanzadas */
+    public long getHedgesLaunched() { return hedgesLaunched.get(); }
+
+    /** @return lecturas duplicadas que ganaron a la original */
+    public long getHedgesWon() { return hedgesWon.get(); }
+
+    /**
+     * Programa una tarea (la copia de una lectura) tras un retardo; se ejecuta
+     * en un pool propio para no bloquear las comprobaciones de salud.
+     *
+     * @param task tarea
+     * @param delayNanos retardo
+     * @return futuro para cancelarla si la lectura original termina antes
+     */
+    ScheduledFuture<?> scheduleHedge(Runnable task, long delayNanos) {
+        return scheduler.schedule(() -> hedgeExecutor.execute(task), delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void markDown(Replica replica, Throwable cause) {
+        if (replica.healthy) {
+            replica.healthy = false;
+            Log.warn("replicas", "Replica " + replica.address + " marked down: " + cause.getMessage());
+        }
+    }
+
+    private void checkHealth() {
+        for (Replica r : replicas) {
+            DBConnection conn = null;
+            try {
+                conn = factory.createReplicaConnection("health-check", r.address);
+                conn.connect();
+                conn.execute("SELECT 1");
+                if (!r.healthy) {
+                    r.healthy = true;
+                    Log.info("replicas", "Replica " + r.address + " is back up");
+                }
+            } catch (Exception e) {
+                markDown(r, e);
+            } finally {
+                if (conn != null) {
+                    try { conn.disconnect(); } catch (Exception ignored) {}
+                }
+            }
+        }
+    }
+
+    /**
+     * Indica si un error se debe a la conexión (réplica caída o inaccesible)
+     * y no a la sentencia: sólo en ese caso se reintenta la lectura en el primario.
+     *
+     * @param e excepción lanzada por la réplica
+     * @return true si algún error de la cadena de causas es de E/S o de conexión
+     */
+    public static boolean isConnectionFailure(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof java.io.IOException
+                    || t instanceof java.sql.SQLNonTransientConnectionException
+                    || t instanceof java.sql.SQLTransientConnectionException) {
+                return true;
+            }
+            if (t.getCause() == t) break;
+        }
+        return false;
+    }
+}
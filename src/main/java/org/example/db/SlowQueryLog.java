@@ -0,0 +1,266 @@
+package org.example.db;
+
+import org.example.db.utilities.ConnectionConfig;
+import org.example.db.utilities.Log;
+import org.example.db.utilities.SQLCleaner;
+import org.example.db.utilities.SqlParameters;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @file SlowQueryLog.java
+ * @brief Registro de consultas lentas con captura automática del plan (EXPLAIN).
+ *
+ * {@link DBClient#executeText(String)} informa de la duración de cada
+ * sentencia. Las que superan el umbral se agrupan por huella
+ * ({@link SQLCleaner#fingerprint(String)}) y, para cada huella, se conservan
+ * sólo las N muestras más lentas. Cuando una SELECT entra en ese top se lanza
+ * en segundo plano un EXPLAIN (o EXPLAIN ANALYZE si se habilita) sobre una
+ * conexión del {@link DBConnectionPool} del mismo proveedor y el plan se
+ * guarda junto a la muestra. El EXPLAIN se ejecuta dentro de una transacción
+ * READ ONLY que se deshace al terminar, y nunca sobre texto con varias
+ * instrucciones (el prefijo sólo afectaría a la primera y el resto se
+ * ejecutaría tal cual).
+ *
+ * Configuración (ENV > db.properties > defecto):
+ * - SLOW_QUERY_MS: umbral en milisegundos (defecto 500; negativo desactiva)
+ * - SLOW_QUERY_EXPLAIN_ANALYZE: "true" para usar EXPLAIN ANALYZE (re-ejecuta la consulta;
+ *   los CTE que escriben, ver {@link SQLCleaner#modifiesData}, sólo con EXPLAIN)
+ * - SLOW_QUERY_SAMPLES: muestras conservadas por huella (defecto 5)
+ * - SLOW_QUERY_MAX_FINGERPRINTS: huellas distintas conservadas (defecto 200)
+ *
+ * @author Equipo
+ */
+public class SlowQueryLog {
+    private static final SlowQueryLog INSTANCE = new SlowQueryLog(
+            ConnectionConfig.getConfigValueAsInt("SLOW_QUERY_MS", "SLOW_QUERY_MS", 500),
+            Boolean.parseBoolean(ConnectionConfig.getConfigValue("SLOW_QUERY_EXPLAIN_ANALYZE", "SLOW_QUERY_EXPLAIN_ANALYZE", "false")),
+            ConnectionConfig.getConfigValueAsInt("SLOW_QUERY_SAMPLES", "SLOW_QUERY_SAMPLES", 5),
+            ConnectionConfig.getConfigValueAsInt("SLOW_QUERY_MAX_FINGERPRINTS", "SLOW_QUERY_MAX_FINGERPRINTS", 200));
+
+    private final long thresholdNanos;
+    private final boolean explainAnalyze;
+    private final int samplesPerFingerprint;
+    private final int maxFingerprints;
+    private final Map<String, FingerprintStats> stats = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor explainExecutor;
+
+    /**
+     * Constructor.
+     *
+     * @param thresholdMs umbral a partir del cual una sentencia se considera lenta
+     * @param explainAnalyze true para capturar EXPLAIN ANALYZE en vez de EXPLAIN
+     * @param samplesPerFingerprint número de peores muestras conservadas por huella
+     * @param maxFingerprints número máximo de huellas distintas
+     */
+    public SlowQueryLog(long thresholdMs, boolean explainAnalyze, int samplesPerFingerprint, int maxFingerprints) {
+        this.thresholdNanos = thresholdMs < 0 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(thresholdMs);
+        this.explainAnalyze = explainAnalyze;
+        this.samplesPerFingerprint = Math.max(1, samplesPerFingerprint);
+        this.maxFingerprints = Math.max(1, maxFingerprints);
+        // Un único hilo y cola acotada: si los EXPLAIN no dan abasto se descartan
+        this.explainExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(64), r -> {
+                    Thread t = new Thread(r, "slow-query-explain");
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    /**
+     * @return instancia compartida configurada desde ConnectionConfig
+     */
+    public static SlowQueryLog getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registra la duración de una sentencia. Coste despreciable si no es lenta.
+     *
+     * @param factory fábrica del proveedor que ejecutó la sentencia
+     * @param sql sentencia ejecutada
+     * @param elapsedNanos duración medida
+     */
+    public void record(DBFactory factory, String sql, long elapsedNanos) {
+        if (elapsedNanos < thresholdNanos || sql == null) return;
+
+        String backend = factory.getName();
+        boolean mysql = SqlParameters.backslashEscapes(backend);
+        String key = backend + "|" + SQLCleaner.fingerprint(sql, mysql);
+        FingerprintStats fs = stats.computeIfAbsent(key, k -> new FingerprintStats(backend, k.substring(backend.length() + 1)));
+        Sample sample = fs.add(sql, elapsedNanos, samplesPerFingerprint);
+        if (stats.size() > maxFingerprints) evictFastest();
+
+        if (sample != null && isExplainable(sql, mysql)) {
+            explainExecutor.execute(() -> capturePlan(factory, sample));
+        }
+    }
+
+    /**
+     * Devuelve las huellas registradas ordenadas de la más lenta a la más rápida.
+     *
+     * @return lista de mapas serializables (una entrada por huella)
+     */
+    public List<Map<String, Object>> snapshot() {
+        List<FingerprintStats> all = new ArrayList<>(stats.values());
+        all.sort(Comparator.comparingLong((FingerprintStats f) -> f.maxNanos).reversed());
+        List<Map<String, Object>> out = new ArrayList<>(all.size());
+        for (FingerprintStats f : all) out.add(f.toMap());
+        return out;
+    }
+
+    /**
+     * Elimina todas las muestras registradas.
+     */
+    public void clear() {
+        stats.clear();
+    }
+
+    /**
+     * @return umbral configurado en milisegundos (-1 si está desactivado)
+     */
+    public long getThresholdMs() {
+        return thresholdNanos == Long.MAX_VALUE ? -1 : TimeUnit.NANOSECONDS.toMillis(thresholdNanos);
+    }
+
+    private static boolean isExplainable(String sql, boolean backslashEscapes) {
+        String upper = sql.trim().toUpperCase();
+        return (upper.startsWith("SELECT") || upper.startsWith("WITH")) && !SqlParameters.hasMultipleStatements(sql, backslashEscapes);
+    }
+
+    private void evictFastest() {
+        String victim = null;
+        long min = Long.MAX_VALUE;
+        for (Map.Entry<String, FingerprintStats> e : stats.entrySet()) {
+            if (e.getValue().maxNanos < min) {
+                min = e.getValue().maxNanos;
+                victim = e.getKey();
+            }
+        }
+        if (victim != null) stats.remove(victim);
+    }
+
+    private void capturePlan(DBFactory factory, Sample sample) {
+        DBConnectionPool pool = DBConnectionPool.forFactory(factory);
+        DBConnection conn = null;
+        boolean broken = false;
+        try {
+            conn = pool.borrow();
+            // EXPLAIN ANALYZE ejecuta la sentencia: nunca con un CTE que escribe,
+            // y en cualquier caso dentro de una transacción de sólo lectura
+            // (START TRANSACTION READ ONLY lo entienden Postgres y MySQL)
+            boolean mysql = SqlParameters.backslashEscapes(factory.getName());
+            String prefix = explainAnalyze && !SQLCleaner.modifiesData(sample.sql, mysql) ? "EXPLAIN ANALYZE " : "EXPLAIN ";
+            conn.execute("START TRANSACTION READ ONLY");
+            try {
+                sample.plan = formatPlan(conn.execute(prefix + SqlParameters.stripTrailingSemicolons(sample.sql)));
+            } finally {
+                conn.execute("ROLLBACK");
+            }
+        } catch (Exception e) {
+            broken = true;
+            sample.plan = "EXPLAIN failed: " + e.getMessage();
+            Log.warn("slow-query", "EXPLAIN failed for " + Log.truncateSql(sample.sql) + ": " + e.getMessage());
+        } finally {
+            pool.release(conn, broken);
+        }
+    }
+
+    /**
+     * Convierte el resultado de EXPLAIN en texto: Postgres devuelve una columna
+     * "QUERY PLAN" por línea; MySQL devuelve una fila por tabla con varias columnas.
+     */
+    private static String formatPlan(List<Map<String, Object>> rows) {
+        StringBuilder sb = new StringBuilder();
+        for (Map<String, Object> row : rows) {
+            if (sb.length() > 0) sb.append('\n');
+            if (row.size() == 1) {
+                sb.append(row.values().iterator().next());
+            } else {
+                boolean first = true;
+                for (Map.Entry<String, Object> e : row.entrySet()) {
+                    if (!first) sb.append(", ");
+                    first = false;
+                    sb.append(e.getKey()).append('=').append(e.getValue());
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Muestra individual de una ejecución lenta. */
+    static final class Sample {
+        final String sql;
+        final long nanos;
+        final long timestampMillis;
+        volatile String plan;
+
+        Sample(String sql, long nanos) {
+            this.sql = sql;
+            this.nanos = nanos;
+            this.timestampMillis = System.currentTimeMillis();
+        }
+    }
+
+    /** Estadísticas agregadas y peores muestras de una huella. */
+    static final class FingerprintStats {
+        final String backend;
+        final String fingerprint;
+        long count;
+        long totalNanos;
+        volatile long maxNanos;
+        /** Peores muestras, ordenadas de mayor a menor duración. */
+        final List<Sample> worst = new ArrayList<>();
+
+        FingerprintStats(String backend, String fingerprint) {
+            this.backend = backend;
+            this.fingerprint = fingerprint;
+        }
+
+        /**
+         * @return la muestra creada si entra en el top, o null si es más rápida
+         *         que todas las conservadas
+         */
+        synchronized Sample add(String sql, long nanos, int limit) {
+            count++;
+            totalNanos += nanos;
+            if (nanos > maxNanos) maxNanos = nanos;
+            if (worst.size() >= limit && worst.get(worst.size() - 1).nanos >= nanos) return null;
+            Sample s = new Sample(sql, nanos);
+            int pos = 0;
+            while (pos < worst.size() && worst.get(pos).nanos >= nanos) pos++;
+            worst.add(pos, s);
+            if (worst.size() > limit) worst.remove(worst.size() - 1);
+            return s;
+        }
+
+        synchronized Map<String, Object> toMap() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("backend", backend);
+            m.put("fingerprint", fingerprint);
+            m.put("count", count);
+            m.put("avg_ms", totalNanos / count / 1_000_000.0);
+            m.put("max_ms", maxNanos / 1_000_000.0);
+            List<Map<String, Object>> samples = new ArrayList<>(worst.size());
+            for (Sample s : worst) {
+                Map<String, Object> sm = new LinkedHashMap<>();
+                sm.put("sql", s.sql);
+                sm.put("duration_ms", s.nanos / 1_000_000.0);
+                sm.put("at", Instant.ofEpochMilli(s.timestampMillis).toString());
+                sm.put("plan", s.plan);
+                samples.add(sm);
+            }
+            m.put("samples", samples);
+            return m;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package org.example.db;
+
+import org.example.db.utilities.ConnectionConfig;
+import org.example.db.utilities.Log;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @file Tenant.java
+ * @brief Equipo (tenant) que comparte el middleware, con su peso y su cuota
+ *        en el reparto de la base de datos.
+ *
+ * {@link ConcurrencyLimiter} reparte los huecos de ejecución entre tenants
+ * con colas separadas y encolado justo ponderado: con contención, cada tenant
+ * recibe huecos en proporción a su peso. La cuota son los huecos garantizados;
+ * por encima de ella un tenant sólo usa capacidad que ningún otro tenant dentro
+ * de su cuota está esperando (capacidad ociosa prestada).
+ *
+ * Configuración (ENV > db.properties):
+ * - TENANTS: "nombre:peso[:cuota[:batch]],..." (p. ej. "web:4:16,reports:1:4:batch").
+ *   Sin cuota no hay huecos garantizados más allá del peso; "batch" marca todo
+ *   el trabajo del tenant como no interactivo ({@link Priority#BATCH}).
+ * - TENANT_API_KEYS: "clave:nombre,..." para identificar al tenant por la
+ *   cabecera X-Api-Key.
+ *
+ * Las peticiones sin tenant reconocido van a {@link #DEFAULT} (peso 1).
+ *
+ * @author Equipo
+ */
+public final class Tenant {
+    /** Clase de trabajo, para reservar huecos al tráfico sensible a la latencia. */
+    public enum Priority {
+        /** Consultas interactivas: pueden usar todos los huecos. */
+        INTERACTIVE,
+        /** Informes y trabajo pesado: no usan los huecos reservados. */
+        BATCH;
+
+        /**
+         * @param value valor de la cabecera X-Priority ("batch"/"low"; otro valor o null = interactivo)
+         * @return prioridad
+         */
+        public static Priority parse(String value) {
+            if (value != null && ("batch".equalsIgnoreCase(value.trim()) || "low".equalsIgnoreCase(value.trim()))) {
+                return BATCH;
+            }
+            return INTERACTIVE;
+        }
+    }
+
+    /** Tenant de las peticiones sin identificar. */
+    public static final Tenant DEFAULT = new Tenant("default", 1, Integer.MAX_VALUE, false);
+
+    private static final Map<String, Tenant> TENANTS = parseTenants(
+            ConnectionConfig.getConfigValue("TENANTS", "TENANTS", ""));
+    private static final Map<String, Tenant> API_KEYS = parseApiKeys(
+            ConnectionConfig.getConfigValue("TENANT_API_KEYS", "TENANT_API_KEYS", ""));
+
+    private final String name;
+    private final int weight;
+    private final int quota;
+    private final boolean batch;
+
+    private Tenant(String name, int weight, int quota, boolean batch) {
+        this.name = name;
+        this.weight = weight;
+        this.quota = quota;
+        this.batch = batch;
+    }
+
+    /**
+     * Identifica el tenant de una petición. La clave de API tiene prioridad
+     * sobre el nombre declarado, que sólo se acepta si está configurado.
+     *
+     * @param apiKey valor de la cabecera X-Api-Key (puede ser null)
+     * @param declared valor de la cabecera X-Tenant-Id (puede ser null)
+     * @return tenant, o {@link #DEFAULT}
+     */
+    public static Tenant resolve(String apiKey, String declared) {
+        if (apiKey != null) {
+            Tenant t = API_KEYS.get(apiKey.trim());
+            if (t != null) return t;
+        }
+        if (declared != null) {
+            Tenant t = TENANTS.get(declared.trim());
+            if (t != null) return t;
+        }
+        return DEFAULT;
+    }
+
+    /**
+     * Prioridad efectiva de una petición: un tenant "batch" no puede pedir
+     * trato interactivo, los demás pueden rebajarse con X-Priority.
+     *
+     * @param requested valor de la cabecera X-Priority (puede ser null)
+     * @return prioridad
+     */
+    public Priority priority(String requested) {
+        return batch ? Priority.BATCH : Priority.parse(requested);
+    }
+
+    /** @return nombre del tenant */
+    public String getName() { return name; }
+
+    /** @return peso en el reparto justo */
+    public int getWeight() { return weight; }
+
+    /** @return huecos garantizados (Integer.MAX_VALUE si no hay cuota) */
+    public int getQuota() { return quota; }
+
+    /** @return tenants configurados (para métricas) */
+    public static Map<String, Tenant> getTenants() {
+        return TENANTS;
+    }
+
+    private static Map<String, Tenant> parseTenants(String spec) {
+        Map<String, Tenant> map = new HashMap<>();
+        for (String entry : spec.split(",")) {
+            if (entry.trim().isEmpty()) continue;
+            String[] parts = entry.trim().split(":");
+            try {
+                String name = parts[0].trim();
+                int weight = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+                int quota = parts.length > 2 && !parts[2].trim().isEmpty() ? Integer.parseInt(parts[2].trim()) : Integer.MAX_VALUE;
+                boolean batch = parts.length > 3 && "batch".equalsIgnoreCase(parts[3].trim());
+                if (name.isEmpty() || weight <= 0 || quota < 0) throw new NumberFormatException();
+                map.put(name, new Tenant(name, weight, quota, batch));
+            } catch (NumberFormatException e) {
+                Log.warn("tenants", "Ignoring invalid TENANTS entry '" + entry.trim() + "' (expected name:weight[:quota[:batch]])");
+            }
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    private static Map<String, Tenant> parseApiKeys(String spec) {
+        Map<String, Tenant> map = new HashMap<>();
+        for (String entry : spec.split(",")) {
+            if (entry.trim().isEmpty()) continue;
+            int sep = entry.lastIndexOf(':');
+            Tenant t = sep > 0 ? TENANTS.get(entry.substring(sep + 1).trim()) : null;
+            if (t == null) {
+                Log.warn("tenants", "Ignoring TENANT_API_KEYS entry for unknown tenant");
+                continue;
+            }
+            map.put(entry.substring(0, sep).trim(), t);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,56 @@
+package org.example.db;
+
+import org.example.db.utilities.Log;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * @file WriteEvents.java
+ * @brief Aviso de las escrituras hechas a través del middleware.
+ *
+ * {@link DBClient} avisa al desconectarse (después del COMMIT, si la
+ * escritura iba en una transacción) con cada sentencia que no es de lectura
+ * que ejecutó, y tras cada lote de {@link DBClient#executeBatch}; las cargas
+ * masivas ({@link DBClient#markWrite(String)}) llegan como
+ * {@code COPY tabla FROM STDIN}. Lo usan
+ * las consultas en vivo de la capa web para recalcularse sin esperar a su
+ * periodo. Sin listeners registrados no se guarda nada.
+ */
+public final class WriteEvents {
+    /** Destino de los avisos; se llama en el hilo de la petición: no debe bloquear. */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * @param provider nombre del proveedor ({@link DBFactory#getName()})
+         * @param sql sentencia de escritura ejecutada
+         */
+        void onWrite(String provider, String sql);
+    }
+
+    private static final List<Listener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    private WriteEvents() {
+        throw new UnsupportedOperationException("Utility class - do not instantiate");
+    }
+
+    /** @param listener destino de los avisos */
+    public static void addListener(Listener listener) {
+        LISTENERS.add(listener);
+    }
+
+    /** @return true si alguien escucha (si no, no merece la pena anotar escrituras) */
+    static boolean hasListeners() {
+        return !LISTENERS.isEmpty();
+    }
+
+    static void fire(String provider, String sql) {
+        for (Listener l : LISTENERS) {
+            try {
+                l.onWrite(provider, sql);
+            } catch (RuntimeException e) {
+                Log.warn("write-events", "Write listener failed: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.db.memory;
+
+import java.util.Locale;
+
+/**
+ * @file AggregateFunction.java
+ * @brief Funciones de agregado de {@link AggregateSpec}.
+ *
+ * Resultados: COUNT → Long; SUM → Long sobre columnas enteras y Double sobre
+ * DOUBLE; AVG → Double; MIN/MAX → valor del tipo de la columna. SUM, AVG,
+ * MIN y MAX ignoran los null y devuelven null si el grupo no tiene valores.
+ */
+public enum AggregateFunction {
+    COUNT, SUM, MIN, MAX, AVG;
+
+    /**
+     * @param name nombre de la función (sin distinguir mayúsculas)
+     * @return función, o null si no es un agregado soportado
+     */
+    public static AggregateFunction fromName(String name) {
+        switch (name.toUpperCase(Locale.ROOT)) {
+            case "COUNT": return COUNT;
+            case "SUM": return SUM;
+            case "MIN": return MIN;
+            case "MAX": return MAX;
+            case "AVG": return AVG;
+            default: return null;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.example.db.memory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @file AggregateSpec.java
+ * @brief Agregación GROUP BY + COUNT/SUM/MIN/MAX/AVG ejecutada sobre
+ *        vectores de columna ({@link VectorAggregator}).
+ *
+ * Se usa de dos formas:
+ * - {@link #apply(List)}: post-proceso de un resultado ya obtenido (de
+ *   cualquier proveedor): las columnas implicadas se pasan a vectores
+ *   primitivos ({@link ColumnBatch}) y se agregan sin volver a la base de datos.
+ * - SELECT ... GROUP BY del motor en memoria, directamente sobre los
+ *   segmentos de la tabla.
+ *
+ * Sin columnas de agrupación el resultado tiene siempre una fila (COUNT 0 y
+ * el resto null si no hay filas). Con agrupación, una fila por grupo
+ * ordenada por las claves (null al final). Cada fila contiene las columnas
+ * de agrupación y después los agregados, con su etiqueta.
+ */
+public final class AggregateSpec {
+    private static final Pattern METRIC = Pattern.compile(
+            "\\s*([A-Za-z]+)\\s*\\(\\s*(\\*|[^()\\s]+)\\s*\\)\\s*(?:(?i:as)\\s+(\\S+)\\s*)?");
+
+    /** Agregado: función, columna (null = *) y etiqueta en el resultado. */
+    public static final class Metric {
+        private final AggregateFunction function;
+        private final String column;
+        private final String label;
+
+        /**
+         * @param function función
+         * @param column columna, o null para COUNT(*)
+         * @param label etiqueta en el resultado (null = "función(columna)" en minúsculas)
+         */
+        public Metric(AggregateFunction function, String column, String label) {
+            if (column == null && function != AggregateFunction.COUNT) {
+                throw new IllegalArgumentException(function + "(*) is not valid");
+            }
+            this.function = function;
+            this.column = column;
+            this.label = label != null ? label
+                    : function.name().toLowerCase(Locale.ROOT) + "(" + (column == null ? "*" : column) + ")";
+        }
+
+        /**
+         * @param text "función(columna) [AS etiqueta]", p. ej. "sum(amount) as total" o "count(*)"
+         * @return agregado
+         * @throws IllegalArgumentException si el texto no es válido
+         */
+        public static Metric parse(String text) {
+            Matcher m = METRIC.matcher(text);
+            if (!m.matches()) throw new IllegalArgumentException("invalid aggregate: '" + text + "'");
+            AggregateFunction fn = AggregateFunction.fromName(m.group(1));
+            if (fn == null) throw new IllegalArgumentException("unsupported aggregate function: " + m.group(1));
+            String col = m.group(2).equals("*") ? null : m.group(2);
+            return new Metric(fn, col, m.group(3));
+        }
+
+        public AggregateFunction getFunction() { return function; }
+        public String getColumn() { return column; }
+        public String getLabel() { return label; }
+    }
+
+    private final List<String> groupBy;
+    private final List<Metric> metrics;
+
+    /**
+     * @param groupBy columnas de agrupación (vacía = un único grupo)
+     * @param metrics agregados (al menos uno si no hay agrupación)
+     */
+    public AggregateSpec(List<String> groupBy, List<Metric> metrics) {
+        if (groupBy.isEmpty() && metrics.isEmpty()) throw new IllegalArgumentException("aggregate needs group_by columns or metrics");
+        this.groupBy = Collections.unmodifiableList(new ArrayList<>(groupBy));
+        this.metrics = Collections.unmodifiableList(new ArrayList<>(metrics));
+    }
+
+    public List<String> getGroupBy() { return groupBy; }
+    public List<Metric> getMetrics() { return metrics; }
+
+    /** @return columnas que lee la agregación (agrupación y argumentos), sin repetir */
+    public Set<String> columns() {
+        Set<String> cols = new LinkedHashSet<>(groupBy);
+        for (Metric m : metrics) if (m.column != null) cols.add(m.column);
+        return cols;
+    }
+
+    /**
+     * Agrega un resultado ya obtenido.
+     *
+     * @param rows filas (Map columna → valor)
+     * @return filas agregadas
+     * @throws IllegalArgumentException si una columna no existe o el tipo no
+     *         admite la función (SUM/AVG de texto)
+     */
+    public List<Map<String, Object>> apply(List<Map<String, Object>> rows) {
+        return execute(ColumnBatch.fromRows(rows, columns()));
+    }
+
+    /** Ejecuta la agregación sobre una fuente de vectores. */
+    List<Map<String, Object>> execute(VectorSource source) {
+        int[] groupCols = new int[groupBy.size()];
+        for (int k = 0; k < groupCols.length; k++) groupCols[k] = source.columnIndex(groupBy.get(k));
+        int[] metricCols = new int[metrics.size()];
+        for (int k = 0; k < metricCols.length; k++) {
+            Metric m = metrics.get(k);
+            metricCols[k] = m.column == null ? -1 : source.columnIndex(m.column);
+            if (metricCols[k] >= 0 && (m.function == AggregateFunction.SUM || m.function == AggregateFunction.AVG)
+                    && !source.columnType(metricCols[k]).isNumeric()) {
+                throw new IllegalArgumentException(m.function.name().toLowerCase(Locale.ROOT) + "(" + m.column
+                        + ") requires a numeric column, " + m.column
+                        + " is " + source.columnType(metricCols[k]));
+            }
+        }
+        return VectorAggregator.aggregate(source, groupCols, groupBy, metrics, metricCols);
+    }
+}
@@ -0,0 +1,155 @@
+package org.example.db.memory;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @file ColumnBatch.java
+ * @brief Resultado ya obtenido convertido a vectores de columna primitivos
+ *        para agregarlo ({@link AggregateSpec#apply}).
+ *
+ * Sólo se convierten las columnas pedidas. El tipo de cada una se deduce de
+ * sus valores no nulos: Integer/Short/Byte → INT, Long → BIGINT,
+ * Float/Double → DOUBLE, BigDecimal (y BigInteger de más de 64 bits) →
+ * DECIMAL, Boolean → BOOLEAN. Las mezclas de números se promueven (enteros
+ * con DECIMAL → DECIMAL; con DOUBLE → DOUBLE) y cualquier otra mezcla, o un
+ * valor no numérico, se guarda como TEXT; una columna sin
+ * valores se trata como BIGINT (todo nulos). Las filas se reparten
+ * en trozos de {@link MemoryTable#SEGMENT_ROWS}, que se agregan en paralelo.
+ */
+public final class ColumnBatch implements VectorSource {
+    private static final int ROWS = MemoryTable.SEGMENT_ROWS;
+
+    private final String[] names;
+    private final ColumnType[] types;
+    private final List<ColumnVector[]> chunks;
+    private final int size;
+
+    private ColumnBatch(String[] names, ColumnType[] types, List<ColumnVector[]> chunks, int size) {
+        this.names = names;
+        this.types = types;
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    /**
+     * @param rows filas (Map columna → valor)
+     * @param columns columnas a convertir
+     * @return lote con esas columnas
+     * @throws IllegalArgumentException si una columna no está en el resultado
+     */
+    public static ColumnBatch fromRows(List<Map<String, Object>> rows, Collection<String> columns) {
+        String[] names = new String[columns.size()];
+        ColumnType[] types = new ColumnType[names.length];
+        int c = 0;
+        for (String col : columns) {
+            names[c] = rows.isEmpty() ? col : keyOf(rows.get(0), col);
+            types[c] = infer(rows, names[c]);
+            c++;
+        }
+        List<ColumnVector[]> chunks = new ArrayList<>();
+        for (int start = 0; start < rows.size(); start += ROWS) {
+            int n = Math.min(ROWS, rows.size() - start);
+            ColumnVector[] vectors = new ColumnVector[names.length];
+            for (int k = 0; k < names.length; k++) {
+                ColumnVector v = ColumnVector.allocate(types[k], n);
+                for (int i = 0; i < n; i++) v.set(i, convert(types[k], rows.get(start + i).get(names[k])));
+                vectors[k] = v;
+            }
+            chunks.add(vectors);
+        }
+        return new ColumnBatch(names, types, chunks, rows.size());
+    }
+
+    /** @return filas del lote */
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int columnIndex(String name) {
+        for (int c = 0; c < names.length; c++) if (names[c].equals(name)) return c;
+        for (int c = 0; c < names.length; c++) if (names[c].equalsIgnoreCase(name)) return c;
+        throw new IllegalArgumentException("column \"" + name + "\" is not in the result");
+    }
+
+    @Override
+    public ColumnType columnType(int c) {
+        return types[c];
+    }
+
+    @Override
+    public int chunkCount() {
+        return chunks.size();
+    }
+
+    @Override
+    public long rowEstimate() {
+        return size;
+    }
+
+    @Override
+    public void read(int i, ChunkConsumer consumer) {
+        int n = i == chunks.size() - 1 ? size - i * ROWS : ROWS;
+        consumer.accept(chunks.get(i), IDENTITY, n);
+    }
+
+    /** Clave de la fila que corresponde a la columna (exacta o sin distinguir mayúsculas). */
+    private static String keyOf(Map<String, Object> row, String col) {
+        if (row.containsKey(col)) return col;
+        for (String k : row.keySet()) if (k.equalsIgnoreCase(col)) return k;
+        throw new IllegalArgumentException("column \"" + col + "\" is not in the result");
+    }
+
+    /** Tipo de una columna según sus valores no nulos (ver la descripción de la clase). */
+    static ColumnType infer(List<Map<String, Object>> rows, String col) {
+        ColumnType type = null;
+        for (Map<String, Object> row : rows) {
+            Object v = row.get(col);
+            if (v == null) continue;
+            ColumnType t = typeOf(v);
+            if (type == null || type == t) {
+                type = t;
+            } else if (type.isNumeric() && t.isNumeric()) {
+                type = promote(type, t);
+            } else {
+                return ColumnType.TEXT;
+            }
+            if (type == ColumnType.TEXT) return type;
+        }
+        return type == null ? ColumnType.BIGINT : type;
+    }
+
+    /** Tipo numérico común de dos tipos numéricos distintos. */
+    private static ColumnType promote(ColumnType a, ColumnType b) {
+        if (a == ColumnType.DOUBLE || b == ColumnType.DOUBLE) return ColumnType.DOUBLE;
+        if (a == ColumnType.DECIMAL || b == ColumnType.DECIMAL) return ColumnType.DECIMAL;
+        return ColumnType.BIGINT;
+    }
+
+    private static ColumnType typeOf(Object v) {
+        if (v instanceof Integer || v instanceof Short || v instanceof Byte) return ColumnType.INT;
+        if (v instanceof Long) return ColumnType.BIGINT;
+        if (v instanceof BigInteger) return ((BigInteger) v).bitLength() < 64 ? ColumnType.BIGINT : ColumnType.DECIMAL;
+        if (v instanceof BigDecimal) return ColumnType.DECIMAL;
+        if (v instanceof Number) return ColumnType.DOUBLE;
+        if (v instanceof Boolean) return ColumnType.BOOLEAN;
+        return ColumnType.TEXT;
+    }
+
+    private static Object convert(ColumnType type, Object v) {
+        if (v == null) return null;
+        switch (type) {
+            case INT: return ((Number) v).intValue();
+            case BIGINT: return ((Number) v).longValue();
+            case DOUBLE: return ((Number) v).doubleValue();
+            case DECIMAL: return ColumnType.toDecimal(v);
+            case BOOLEAN: return v;
+            default: return v.toString();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package org.example.db.memory;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Locale;
+
+/**
+ * @file ColumnType.java
+ * @brief Tipos de columna del motor en memoria y conversión de valores a su
+ *        representación Java.
+ *
+ * Cada tipo se guarda en un vector primitivo propio ({@link ColumnVector}):
+ * INT → int[], BIGINT → long[], DOUBLE → double[], DECIMAL → BigDecimal[],
+ * BOOLEAN → bits, TEXT → String[]. Los tipos SQL se asignan por familia (p. ej.
+ * NUMERIC es DECIMAL y VARCHAR, DATE o TIMESTAMP se guardan como TEXT).
+ */
+public enum ColumnType {
+    INT, BIGINT, DOUBLE, DECIMAL, BOOLEAN, TEXT;
+
+    /**
+     * @param sqlType nombre del tipo en CREATE TABLE (sin tamaño ni precisión)
+     * @return tipo de almacenamiento
+     */
+    public static ColumnType parse(String sqlType) {
+        switch (sqlType.toUpperCase(Locale.ROOT)) {
+            case "INT":
+            case "INTEGER":
+            case "INT4":
+            case "SMALLINT":
+            case "INT2":
+            case "TINYINT":
+            case "MEDIUMINT":
+            case "SERIAL":
+                return INT;
+            case "BIGINT":
+            case "INT8":
+            case "BIGSERIAL":
+            case "LONG":
+                return BIGINT;
+            case "DOUBLE":
+            case "FLOAT":
+            case "FLOAT4":
+            case "FLOAT8":
+            case "REAL":
+                return DOUBLE;
+            case "NUMERIC":
+            case "DECIMAL":
+                return DECIMAL;
+            case "BOOL":
+            case "BOOLEAN":
+                return BOOLEAN;
+            default:
+                return TEXT;
+        }
+    }
+
+    /** @return true para INT, BIGINT, DOUBLE y DECIMAL */
+    public boolean isNumeric() {
+        return this == INT || this == BIGINT || this == DOUBLE || this == DECIMAL;
+    }
+
+    /**
+     * Convierte un valor a la representación del tipo: Integer, Long, Double,
+     * BigDecimal, Boolean o String.
+     *
+     * @param v valor (puede ser null)
+     * @return valor convertido, o null
+     * @throws IllegalArgumentException si el valor no es representable en el tipo
+     */
+    public Object coerce(Object v) {
+        if (v == null) return null;
+        try {
+            switch (this) {
+                case INT: {
+                    long l = toLong(v);
+                    if (l < Integer.MIN_VALUE || l > Integer.MAX_VALUE) throw new IllegalArgumentException("integer out of range: " + v);
+                    return (int) l;
+                }
+                case BIGINT:
+                    return toLong(v);
+                case DOUBLE:
+                    return v instanceof Number ? ((Number) v).doubleValue() : Double.parseDouble(v.toString().trim());
+                case DECIMAL:
+                    return toDecimal(v);
+                case BOOLEAN:
+                    if (v instanceof Boolean) return v;
+                    if (v instanceof Number) return ((Number) v).longValue() != 0;
+                    String s = v.toString().trim().toLowerCase(Locale.ROOT);
+                    if (s.equals("true") || s.equals("t") || s.equals("1") || s.equals("yes")) return Boolean.TRUE;
+                    if (s.equals("false") || s.equals("f") || s.equals("0") || s.equals("no")) return Boolean.FALSE;
+                    throw new IllegalArgumentException("invalid boolean: " + v);
+                default:
+                    return v.toString();
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid " + name() + " value: " + v);
+        }
+    }
+
+    /**
+     * @param v número o texto (no null)
+     * @return valor exacto; Float y Double por su representación decimal más corta
+     */
+    static BigDecimal toDecimal(Object v) {
+        if (v instanceof BigDecimal) return (BigDecimal) v;
+        if (v instanceof BigInteger) return new BigDecimal((BigInteger) v);
+        if (v instanceof Integer || v instanceof Long || v instanceof Short || v instanceof Byte) {
+            return BigDecimal.valueOf(((Number) v).longValue());
+        }
+        if (v instanceof Number) return BigDecimal.valueOf(((Number) v).doubleValue());
+        return new BigDecimal(v.toString().trim());
+    }
+
+    private static long toLong(Object v) {
+        if (v instanceof Integer || v instanceof Long || v instanceof Short || v instanceof Byte) return ((Number) v).longValue();
+        if (v instanceof Number) {
+            double d = ((Number) v).doubleValue();
+            if (d != Math.rint(d)) throw new IllegalArgumentException("not an integer: " + v);
+            return (long) d;
+        }
+        return Long.parseLong(v.toString().trim());
+    }
+}
@@ -0,0 +1,270 @@
+package org.example.db.memory;
+
+import java.math.BigDecimal;
+
+/**
+ * @file ColumnVector.java
+ * @brief Vector de una columna con capacidad fija: array primitivo del tipo
+ *        más un bitmap de nulos (un bit por fila).
+ *
+ * Los bucles calientes (filtros, agregados) leen directamente el array
+ * público de la subclase ({@link IntVector#values}, ...) y consultan
+ * {@link #isNull(int)} sólo si {@link #hasNulls()}; {@link #get(int)} y
+ * {@link #set(int, Object)} son para materializar filas y para cargas.
+ *
+ * Los vectores no son seguros para hilos: el que los contiene
+ * ({@link MemoryTable}) protege cada segmento con su propio cerrojo.
+ */
+public abstract class ColumnVector {
+    private final long[] nulls;
+    private int nullCount;
+
+    protected ColumnVector(int capacity) {
+        this.nulls = new long[(capacity + 63) >>> 6];
+    }
+
+    /**
+     * @param type tipo de la columna
+     * @param capacity filas
+     * @return vector vacío (todas las posiciones a null hasta que se asignen)
+     */
+    public static ColumnVector allocate(ColumnType type, int capacity) {
+        switch (type) {
+            case INT: return new IntVector(capacity);
+            case BIGINT: return new LongVector(capacity);
+            case DOUBLE: return new DoubleVector(capacity);
+            case DECIMAL: return new DecimalVector(capacity);
+            case BOOLEAN: return new BoolVector(capacity);
+            default: return new TextVector(capacity);
+        }
+    }
+
+    /** @return tipo de la columna */
+    public abstract ColumnType type();
+
+    /** @return filas que caben en el vector */
+    public abstract int capacity();
+
+    /** @return true si alguna posición es null */
+    public final boolean hasNulls() {
+        return nullCount > 0;
+    }
+
+    /** @return true si la posición {@code i} es null */
+    public final boolean isNull(int i) {
+        return (nulls[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * @param i posición
+     * @return valor (Integer, Long, Double, BigDecimal, Boolean o String), o null
+     */
+    public final Object get(int i) {
+        return isNull(i) ? null : getValue(i);
+    }
+
+    /**
+     * @param i posición
+     * @param v valor ya convertido con {@link ColumnType#coerce}, o null
+     */
+    public final void set(int i, Object v) {
+        long bit = 1L << i;
+        boolean wasNull = (nulls[i >>> 6] & bit) != 0;
+        if (v == null) {
+            if (!wasNull) {
+                nulls[i >>> 6] |= bit;
+                nullCount++;
+            }
+            clear(i);
+        } else {
+            if (wasNull) {
+                nulls[i >>> 6] &= ~bit;
+                nullCount--;
+            }
+            setValue(i, v);
+        }
+    }
+
+    protected abstract Object getValue(int i);
+
+    protected abstract void setValue(int i, Object v);
+
+    /** Libera la referencia de la posición (sólo tiene efecto en DECIMAL y TEXT). */
+    protected void clear(int i) {
+    }
+
+    /**
+     * Compara el valor no nulo de la posición {@code i} con una constante del
+     * tipo de la columna.
+     *
+     * @return negativo, 0 o positivo
+     */
+    abstract int compare(int i, Literal lit);
+
+    /** Compara dos posiciones no nulas de vectores del mismo tipo. */
+    abstract int compare(int i, ColumnVector other, int j);
+
+    /** Enteros de 32 bits. */
+    public static final class IntVector extends ColumnVector {
+        public final int[] values;
+
+        IntVector(int capacity) {
+            super(capacity);
+            values = new int[capacity];
+        }
+
+        @Override public ColumnType type() { return ColumnType.INT; }
+        @Override public int capacity() { return values.length; }
+        @Override protected Object getValue(int i) { return values[i]; }
+        @Override protected void setValue(int i, Object v) { values[i] = (Integer) v; }
+
+        @Override
+        int compare(int i, Literal lit) {
+            return lit.integral ? Long.compare(values[i], lit.asLong) : Double.compare(values[i], lit.asDouble);
+        }
+
+        @Override
+        int compare(int i, ColumnVector other, int j) {
+            return Integer.compare(values[i], ((IntVector) other).values[j]);
+        }
+    }
+
+    /** Enteros de 64 bits. */
+    public static final class LongVector extends ColumnVector {
+        public final long[] values;
+
+        LongVector(int capacity) {
+            super(capacity);
+            values = new long[capacity];
+        }
+
+        @Override public ColumnType type() { return ColumnType.BIGINT; }
+        @Override public int capacity() { return values.length; }
+        @Override protected Object getValue(int i) { return values[i]; }
+        @Override protected void setValue(int i, Object v) { values[i] = (Long) v; }
+
+        @Override
+        int compare(int i, Literal lit) {
+            return lit.integral ? Long.compare(values[i], lit.asLong) : Double.compare(values[i], lit.asDouble);
+        }
+
+        @Override
+        int compare(int i, ColumnVector other, int j) {
+            return Long.compare(values[i], ((LongVector) other).values[j]);
+        }
+    }
+
+    /** Coma flotante de doble precisión. */
+    public static final class DoubleVector extends ColumnVector {
+        public final double[] values;
+
+        DoubleVector(int capacity) {
+            super(capacity);
+            values = new double[capacity];
+        }
+
+        @Override public ColumnType type() { return ColumnType.DOUBLE; }
+        @Override public int capacity() { return values.length; }
+        @Override protected Object getValue(int i) { return values[i]; }
+        @Override protected void setValue(int i, Object v) { values[i] = (Double) v; }
+
+        @Override
+        int compare(int i, Literal lit) {
+            return Double.compare(values[i], lit.asDouble);
+        }
+
+        @Override
+        int compare(int i, ColumnVector other, int j) {
+            return Double.compare(values[i], ((DoubleVector) other).values[j]);
+        }
+    }
+
+    /** Decimales exactos (NUMERIC): conservan la escala con la que llegan. */
+    public static final class DecimalVector extends ColumnVector {
+        public final BigDecimal[] values;
+
+        DecimalVector(int capacity) {
+            super(capacity);
+            values = new BigDecimal[capacity];
+        }
+
+        @Override public ColumnType type() { return ColumnType.DECIMAL; }
+        @Override public int capacity() { return values.length; }
+        @Override protected Object getValue(int i) { return values[i]; }
+        @Override protected void setValue(int i, Object v) { values[i] = (BigDecimal) v; }
+        @Override protected void clear(int i) { values[i] = null; }
+
+        @Override
+        int compare(int i, Literal lit) {
+            return values[i].compareTo(lit.asDecimal);
+        }
+
+        @Override
+        int compare(int i, ColumnVector other, int j) {
+            return values[i].compareTo(((DecimalVector) other).values[j]);
+        }
+    }
+
+    /** Booleanos, un bit por fila. */
+    public static final class BoolVector extends ColumnVector {
+        private final long[] bits;
+        private final int capacity;
+
+        BoolVector(int capacity) {
+            super(capacity);
+            this.capacity = capacity;
+            this.bits = new long[(capacity + 63) >>> 6];
+        }
+
+        /** @return valor de la posición (false si es null) */
+        public boolean getBoolean(int i) {
+            return (bits[i >>> 6] & (1L << i)) != 0;
+        }
+
+        @Override public ColumnType type() { return ColumnType.BOOLEAN; }
+        @Override public int capacity() { return capacity; }
+        @Override protected Object getValue(int i) { return getBoolean(i); }
+
+        @Override
+        protected void setValue(int i, Object v) {
+            if ((Boolean) v) bits[i >>> 6] |= 1L << i;
+            else bits[i >>> 6] &= ~(1L << i);
+        }
+
+        @Override
+        int compare(int i, Literal lit) {
+            return Boolean.compare(getBoolean(i), lit.asBool);
+        }
+
+        @Override
+        int compare(int i, ColumnVector other, int j) {
+            return Boolean.compare(getBoolean(i), ((BoolVector) other).getBoolean(j));
+        }
+    }
+
+    /** Texto. */
+    public static final class TextVector extends ColumnVector {
+        public final String[] values;
+
+        TextVector(int capacity) {
+            super(capacity);
+            values = new String[capacity];
+        }
+
+        @Override public ColumnType type() { return ColumnType.TEXT; }
+        @Override public int capacity() { return values.length; }
+        @Override protected Object getValue(int i) { return values[i]; }
+        @Override protected void setValue(int i, Object v) { values[i] = (String) v; }
+        @Override protected void clear(int i) { values[i] = null; }
+
+        @Override
+        int compare(int i, Literal lit) {
+            return values[i].compareTo(lit.asString);
+        }
+
+        @Override
+        int compare(int i, ColumnVector other, int j) {
+            return values[i].compareTo(((TextVector) other).values[j]);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package org.example.db.memory;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * @file Condition.java
+ * @brief Árbol de una cláusula WHERE ya resuelto contra las columnas de una
+ *        tabla.
+ *
+ * Se evalúa fila a fila sobre los vectores de un segmento con lógica de tres
+ * valores de SQL ({@link #TRUE}, {@link #FALSE}, {@link #UNKNOWN}): una
+ * comparación con null es UNKNOWN y la fila sólo se devuelve si el resultado
+ * final es TRUE. Las constantes se convierten una vez al tipo de la columna
+ * ({@link Literal}), por lo que la evaluación no crea objetos.
+ */
+abstract class Condition {
+    static final int FALSE = 0;
+    static final int TRUE = 1;
+    static final int UNKNOWN = 2;
+
+    /** Operadores de comparación. */
+    enum Op {
+        EQ, NE, LT, LE, GT, GE;
+
+        boolean accept(int cmp) {
+            switch (this) {
+                case EQ: return cmp == 0;
+                case NE: return cmp != 0;
+                case LT: return cmp < 0;
+                case LE: return cmp <= 0;
+                case GT: return cmp > 0;
+                default: return cmp >= 0;
+            }
+        }
+
+        /** @return operador equivalente con los operandos intercambiados (5 &lt; a → a &gt; 5) */
+        Op flip() {
+            switch (this) {
+                case LT: return GT;
+                case LE: return GE;
+                case GT: return LT;
+                case GE: return LE;
+                default: return this;
+            }
+        }
+    }
+
+    /**
+     * @param columns vectores del segmento
+     * @param i posición dentro del segmento
+     * @return TRUE, FALSE o UNKNOWN
+     */
+    abstract int eval(ColumnVector[] columns, int i);
+
+    final boolean test(ColumnVector[] columns, int i) {
+        return eval(columns, i) == TRUE;
+    }
+
+    private static int of(boolean b) {
+        return b ? TRUE : FALSE;
+    }
+
+    /** Constante TRUE, FALSE o UNKNOWN (WHERE 1 = 1, WHERE FALSE, WHERE a = NULL). */
+    static final class Constant extends Condition {
+        final int value;
+
+        Constant(int value) {
+            this.value = value;
+        }
+
+        @Override
+        int eval(ColumnVector[] columns, int i) {
+            return value;
+        }
+    }
+
+    /** Columna OP constante. */
+    static final class Compare extends Condition {
+        final int column;
+        final Op op;
+        final Literal literal;
+
+        Compare(int column, Op op, Literal literal) {
+            this.column = column;
+            this.op = op;
+            this.literal = literal;
+        }
+
+        @Override
+        int eval(ColumnVector[] columns, int i) {
+            ColumnVector v = columns[column];
+            if (v.isNull(i)) return UNKNOWN;
+            return of(op.accept(v.compare(i, literal)));
+        }
+    }
+
+    /** Columna OP columna (ambas del mismo tipo). */
+    static final class CompareColumns extends Condition {
+        final int left;
+        final Op op;
+        final int right;
+
+        CompareColumns(int left, Op op, int right) {
+            this.left = left;
+            this.op = op;
+            this.right = right;
+        }
+
+        @Override
+        int eval(ColumnVector[] columns, int i) {
+            ColumnVector a = columns[left];
+            ColumnVector b = columns[right];
+            if (a.isNull(i) || b.isNull(i)) return UNKNOWN;
+            return of(op.accept(a.compare(i, b, i)));
+        }
+    }
+
+    /** Columna IS [NOT] NULL. */
+    static final class IsNull extends Condition {
+        final int column;
+        final boolean negated;
+
+        IsNull(int column, boolean negated) {
+            this.column = column;
+            this.negated = negated;
+        }
+
+        @Override
+        int eval(ColumnVector[] columns, int i) {
+            return of(columns[column].isNull(i) != negated);
+        }
+    }
+
+    /** Columna [NOT] IN (constantes). */
+    static final class In extends Condition {
+        final int column;
+        final List<Literal> values;
+        final boolean negated;
+
+        In(int column, List<Literal> values, boolean negated) {
+            this.column = column;
+            this.values = values;
+            this.negated = negated;
+        }
+
+        @Override
+        int eval(ColumnVector[] columns, int i) {
+            ColumnVector v = columns[column];
+            if (v.isNull(i)) return UNKNOWN;
+            for (Literal lit : values) {
+                if (v.compare(i, lit) == 0) return of(!negated);
+            }
+            return of(negated);
+        }
+    }
+
+    /** Columna [NOT] BETWEEN a AND b. */
+    static final class Between extends Condition {
+        final int column;
+        final Literal low;
+        final Literal high;
+        final boolean negated;
+
+        Between(int column, Literal low, Literal high, boolean negated) {
+            this.column = column;
+            this.low = low;
+            this.high = high;
+            this.negated = negated;
+        }
+
+        @Override
+        int eval(ColumnVector[] columns, int i) {
+            ColumnVector v = columns[column];
+            if (v.isNull(i)) return UNKNOWN;
+            boolean in = v.compare(i, low) >= 0 && v.compare(i, high) <= 0;
+            return of(in != negated);
+        }
+    }
+
+    /** Columna [NOT] LIKE patrón (% y _; ILIKE sin distinguir mayúsculas). */
+    static final class Like extends Condition {
+        final int column;
+        final Pattern pattern;
+        final boolean negated;
+
+        Like(int column, String like, boolean caseInsensitive, boolean negated) {
+            this.column = column;
+            this.negated = negated;
+            StringBuilder re = new StringBuilder();
+            StringBuilder lit = new StringBuilder();
+            for (int k = 0; k < like.length(); k++) {
+                char c = like.charAt(k);
+                if (c == '\\' && k + 1 < like.length()) {
+                    lit.append(like.charAt(++k));
+                } else if (c == '%' || c == '_') {
+                    if (lit.length() > 0) re.append(Pattern.quote(lit.toString()));
+                    lit.setLength(0);
+                    re.append(c == '%' ? ".*" : ".");
+                } else {
+                    lit.append(c);
+                }
+            }
+            if (lit.length() > 0) re.append(Pattern.quote(lit.toString()));
+            int flags = Pattern.DOTALL | (caseInsensitive ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0);
+            this.pattern = Pattern.compile(re.toString(), flags);
+        }
+
+        @Override
+        int eval(ColumnVector[] columns, int i) {
+            ColumnVector v = columns[column];
+            if (v.isNull(i)) return UNKNOWN;
+            Object value = v instanceof ColumnVector.TextVector ? ((ColumnVector.TextVector) v).values[i] : v.get(i);
+            return of(pattern.matcher(value.toString()).matches() != negated);
+        }
+    }
+
+    /** NOT condición. */
+    static final class Not extends Condition {
+        final Condition inner;
+
+        Not(Condition inner) {
+            this.inner = inner;
+        }
+
+        @Override
+        int eval(ColumnVector[] columns, int i) {
+            int r = inner.eval(columns, i);
+            return r == UNKNOWN ? UNKNOWN : of(r == FALSE);
+        }
+    }
+
+    /** Conjunción. */
+    static final class And extends Condition {
+        final List<Condition> terms;
+
+        And(List<Condition> terms) {
+            this.terms = terms;
+        }
+
+        @Override
+        int eval(ColumnVector[] columns, int i) {
+            int r = TRUE;
+            for (Condition c : terms) {
+                int t = c.eval(columns, i);
+                if (t == FALSE) return FALSE;
+                if (t == UNKNOWN) r = UNKNOWN;
+            }
+            return r;
+        }
+    }
+
+    /** Disyunción. */
+    static final class Or extends Condition {
+        final List<Condition> terms;
+
+        Or(List<Condition> terms) {
+            this.terms = terms;
+        }
+
+        @Override
+        int eval(ColumnVector[] columns, int i) {
+            int r = FALSE;
+            for (Condition c : terms) {
+                int t = c.eval(columns, i);
+                if (t == TRUE) return TRUE;
+                if (t == UNKNOWN) r = UNKNOWN;
+            }
+            return r;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.example.db.memory;
+
+import java.util.Arrays;
+
+/**
+ * @file IntList.java
+ * @brief Lista creciente de int sin autoboxing, para identificadores de fila.
+ */
+final class IntList {
+    private int[] values;
+    private int size;
+
+    IntList() {
+        this(8);
+    }
+
+    IntList(int capacity) {
+        values = new int[Math.max(1, capacity)];
+    }
+
+    void add(int v) {
+        if (size == values.length) values = Arrays.copyOf(values, size * 2);
+        values[size++] = v;
+    }
+
+    void addAll(IntList other) {
+        if (size + other.size > values.length) values = Arrays.copyOf(values, Math.max(size + other.size, size * 2));
+        System.arraycopy(other.values, 0, values, size, other.size);
+        size += other.size;
+    }
+
+    /** Quita la primera aparición de {@code v} (el orden no se conserva). */
+    boolean remove(int v) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == v) {
+                values[i] = values[--size];
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int get(int i) {
+        return values[i];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    IntList copy() {
+        IntList c = new IntList(size);
+        System.arraycopy(values, 0, c.values, 0, size);
+        c.size = size;
+        return c;
+    }
+
+    /** Ordena y elimina duplicados. */
+    void sortDistinct() {
+        Arrays.sort(values, 0, size);
+        int w = 0;
+        for (int i = 0; i < size; i++) {
+            if (w == 0 || values[i] != values[w - 1]) values[w++] = values[i];
+        }
+        size = w;
+    }
+}
@@ -0,0 +1,98 @@
+package org.example.db.memory;
+
+import java.math.BigDecimal;
+
+/**
+ * @file Literal.java
+ * @brief Constante de una condición ya convertida al tipo de la columna con
+ *        la que se compara, para comparar sin autoboxing fila a fila.
+ */
+final class Literal {
+    final Object value;
+    final long asLong;
+    final double asDouble;
+    /** true si el valor es entero (la comparación con columnas enteras es exacta). */
+    final boolean integral;
+    final boolean asBool;
+    final String asString;
+    /** Valor exacto para columnas DECIMAL (null en el resto). */
+    final BigDecimal asDecimal;
+    /** Clave de índice equivalente, o null si ninguna fila puede ser igual (2.5 en una columna INT). */
+    final Object key;
+
+    private Literal(Object value, long asLong, double asDouble, boolean integral, boolean asBool, String asString,
+                    BigDecimal asDecimal, Object key) {
+        this.value = value;
+        this.asLong = asLong;
+        this.asDouble = asDouble;
+        this.integral = integral;
+        this.asBool = asBool;
+        this.asString = asString;
+        this.asDecimal = asDecimal;
+        this.key = key;
+    }
+
+    /**
+     * @param type tipo de la columna comparada
+     * @param raw constante del SQL (Long, Double, Boolean o String; no null)
+     * @return literal
+     * @throws IllegalArgumentException si la constante no es comparable con el tipo
+     */
+    static Literal of(ColumnType type, Object raw) {
+        switch (type) {
+            case INT:
+            case BIGINT:
+            case DOUBLE: {
+                double d;
+                if (raw instanceof Number) {
+                    d = ((Number) raw).doubleValue();
+                } else if (raw instanceof Boolean) {
+                    throw new IllegalArgumentException("cannot compare " + type + " with boolean " + raw);
+                } else {
+                    try {
+                        d = Double.parseDouble(raw.toString().trim());
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("invalid " + type + " value: '" + raw + "'");
+                    }
+                }
+                boolean whole = raw instanceof Long || raw instanceof Integer
+                        || (d == Math.rint(d) && !Double.isInfinite(d) && Math.abs(d) < 0x1p63);
+                long l = raw instanceof Long || raw instanceof Integer ? ((Number) raw).longValue() : (long) d;
+                Object key;
+                if (type == ColumnType.DOUBLE) key = d;
+                else key = whole ? (Object) l : null;
+                return new Literal(raw, l, d, whole, false, null, null, key);
+            }
+            case DECIMAL: {
+                if (raw instanceof Boolean) throw new IllegalArgumentException("cannot compare " + type + " with boolean " + raw);
+                BigDecimal d;
+                try {
+                    d = ColumnType.toDecimal(raw);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("invalid " + type + " value: '" + raw + "'");
+                }
+                return new Literal(raw, 0, d.doubleValue(), false, false, null, d, key(type, d));
+            }
+            case BOOLEAN: {
+                Boolean b = (Boolean) type.coerce(raw);
+                return new Literal(b, 0, 0, false, b, null, null, b);
+            }
+            default: {
+                String s = raw.toString();
+                return new Literal(s, 0, 0, false, false, s, null, s);
+            }
+        }
+    }
+
+    /**
+     * @param type tipo de la columna
+     * @param value valor ya convertido con {@link ColumnType#coerce}
+     * @return clave de índice (Long para INT y BIGINT; DECIMAL sin ceros a la
+     *         derecha, para que 1.50 y 1.5 sean la misma clave), o null si el valor es null
+     */
+    static Object key(ColumnType type, Object value) {
+        if (value == null) return null;
+        if (type == ColumnType.DECIMAL) return ((BigDecimal) value).stripTrailingZeros();
+        return type == ColumnType.INT ? (Object) ((Integer) value).longValue() : value;
+    }
+}
@@ -0,0 +1,154 @@
+package org.example.db.memory;
+
+import org.example.db.DBConnection;
+import org.example.db.utilities.Log;
+import org.example.db.utilities.LogLevel;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Conexión al motor en memoria ({@link MemoryDatabase}).
+ *
+ * Ejecuta el subconjunto de SQL de {@link MemorySqlParser} directamente sobre
+ * las tablas, sin red ni serialización. Transacciones:
+ * - Fuera de BEGIN cada sentencia es atómica por sí misma (autocommit).
+ * - Dentro de BEGIN ... COMMIT/ROLLBACK los cambios se registran en un
+ *   {@link UndoLog}; ROLLBACK y ROLLBACK TO SAVEPOINT los deshacen. Una
+ *   sentencia que falla deshace sólo sus propios cambios y la transacción
+ *   sigue abierta (como MySQL, a diferencia de Postgres).
+ * - Aislamiento READ UNCOMMITTED: otras conexiones ven los cambios en curso,
+ *   pero las filas escritas (y las claves únicas borradas) quedan bloqueadas
+ *   hasta COMMIT/ROLLBACK; otra conexión que intente escribirlas falla en el
+ *   acto en lugar de esperar, y un ROLLBACK nunca pisa escrituras ajenas.
+ *
+ * Así el lote por defecto de {@link DBConnection#executeBatch} (BEGIN,
+ * SAVEPOINT, ROLLBACK TO SAVEPOINT, COMMIT) funciona sin cambios.
+ * disconnect() con una transacción abierta la deshace.
+ */
+public class MemoryConnection implements DBConnection {
+    private final String name;
+    private final MemoryDatabase db;
+    private volatile boolean connected;
+    /** Transacción abierta, o null en autocommit. */
+    private UndoLog tx;
+
+    /**
+     * @param name nombre lógico de la conexión
+     */
+    public MemoryConnection(String name) {
+        this(name, MemoryDatabase.getDefault());
+    }
+
+    /**
+     * @param name nombre lógico de la conexión
+     * @param db base de datos sobre la que trabaja
+     */
+    public MemoryConnection(String name, MemoryDatabase db) {
+        this.name = name;
+        this.db = db;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void connect() {
+        connected = true;
+    }
+
+    @Override
+    public void disconnect() {
+        if (tx != null) {
+            try {
+                tx.rollback();
+            } catch (RuntimeException e) {
+                Log.warn("memory", "Rollback on disconnect failed: " + e.getMessage());
+            }
+            tx = null;
+        }
+        connected = false;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Ejecuta una o varias sentencias separadas por ';'.
+     *
+     * @param sql sentencias
+     * @return resultado de la última sentencia
+     * @throws IllegalStateException si la conexión no está abierta
+     * @throws RuntimeException si una sentencia no es válida o falla
+     */
+    @Override
+    public List<Map<String, Object>> execute(String sql) {
+        if (!connected) throw new IllegalStateException("Connection is not open: " + getName());
+        Log.sampled(LogLevel.DEBUG, "memory", () -> "Executing SQL: " + Log.truncateSql(sql));
+        try {
+            List<Map<String, Object>> result = Collections.emptyList();
+            for (MemoryStatement st : MemorySqlParser.parse(sql)) result = run(st);
+            return result;
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw new RuntimeException("Query error: " + e.getMessage(), e);
+        }
+    }
+
+    private List<Map<String, Object>> run(MemoryStatement st) {
+        MemoryStatement.Control ctl = st instanceof MemoryStatement.Control ? (MemoryStatement.Control) st : null;
+        switch (st.kind) {
+            case BEGIN:
+                if (tx == null) tx = new UndoLog(true);
+                return Collections.emptyList();
+            case COMMIT:
+                if (tx != null) tx.clear();
+                tx = null;
+                return Collections.emptyList();
+            case ROLLBACK:
+                UndoLog open = tx;
+                tx = null;
+                if (open != null) open.rollback();
+                return Collections.emptyList();
+            case SAVEPOINT:
+                transaction("SAVEPOINT").savepoint(ctl.savepoint);
+                return Collections.emptyList();
+            case ROLLBACK_TO:
+                transaction("ROLLBACK TO SAVEPOINT").rollbackToSavepoint(ctl.savepoint);
+                return Collections.emptyList();
+            case RELEASE:
+                transaction("RELEASE SAVEPOINT").release(ctl.savepoint);
+                return Collections.emptyList();
+            case NOOP:
+                return Collections.emptyList();
+            default:
+                if (tx == null) {
+                    UndoLog log = new UndoLog(false);
+                    try {
+                        List<Map<String, Object>> result = st.execute(db, log);
+                        log.clear();
+                        return result;
+                    } catch (RuntimeException e) {
+                        log.rollback();
+                        throw e;
+                    }
+                }
+                int mark = tx.mark();
+                try {
+                    return st.execute(db, tx);
+                } catch (RuntimeException e) {
+                    tx.rollbackTo(mark);
+                    throw e;
+                }
+        }
+    }
+
+    private UndoLog transaction(String command) {
+        if (tx == null) throw new IllegalStateException(command + " can only be used in transaction blocks");
+        return tx;
+    }
+}
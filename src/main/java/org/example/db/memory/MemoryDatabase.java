@@ -0,0 +1,92 @@
+package org.example.db.memory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @file MemoryDatabase.java
+ * @brief Catálogo de tablas del motor en memoria.
+ *
+ * {@link #getDefault()} es la base compartida por todas las conexiones que
+ * crea {@link MemoryFactory} (el equivalente a un servidor); se pueden crear
+ * bases aisladas con el constructor, por ejemplo para un benchmark. Los
+ * nombres de tabla no distinguen mayúsculas.
+ */
+public final class MemoryDatabase {
+    private static final MemoryDatabase DEFAULT = new MemoryDatabase();
+
+    private final Map<String, MemoryTable> tables = new ConcurrentHashMap<>();
+
+    /** @return base de datos compartida del proceso */
+    public static MemoryDatabase getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @param name nombre de la tabla
+     * @return tabla, o null si no existe
+     */
+    public MemoryTable getTable(String name) {
+        return tables.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /** @return nombres de las tablas existentes, ordenados */
+    public List<String> getTableNames() {
+        List<String> names = new ArrayList<>();
+        for (MemoryTable t : tables.values()) names.add(t.getName());
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * Ejecuta SQL en modo autocommit con una conexión propia (carga de datos,
+     * pruebas).
+     *
+     * @param sql una o varias sentencias
+     * @return resultado de la última sentencia
+     */
+    public List<Map<String, Object>> execute(String sql) {
+        MemoryConnection conn = new MemoryConnection("memory:direct", this);
+        conn.connect();
+        try {
+            return conn.execute(sql);
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException si la tabla no existe
+     */
+    MemoryTable table(String name) {
+        MemoryTable t = getTable(name);
+        if (t == null) throw new IllegalArgumentException("relation \"" + name + "\" does not exist");
+        return t;
+    }
+
+    /**
+     * @throws IllegalStateException si ya existe y no se indicó IF NOT EXISTS
+     */
+    void createTable(MemoryTable table, boolean ifNotExists) {
+        MemoryTable prev = tables.putIfAbsent(table.getName().toLowerCase(Locale.ROOT), table);
+        if (prev != null && !ifNotExists) throw new IllegalStateException("relation \"" + table.getName() + "\" already exists");
+    }
+
+    /** Crea la tabla o sustituye de forma atómica la que tenga el mismo nombre. */
+    void replaceTable(MemoryTable table) {
+        tables.put(table.getName().toLowerCase(Locale.ROOT), table);
+    }
+
+    /**
+     * @throws IllegalArgumentException si no existe y no se indicó IF EXISTS
+     */
+    void dropTable(String name, boolean ifExists) {
+        if (tables.remove(name.toLowerCase(Locale.ROOT)) == null && !ifExists) {
+            throw new IllegalArgumentException("table \"" + name + "\" does not exist");
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.db.memory;
+
+import org.example.db.DBConnection;
+import org.example.db.DBFactory;
+import org.example.db.DBQuery;
+
+/**
+ * Fábrica concreta del motor en memoria.
+ *
+ * Produce conexiones sobre la base compartida del proceso
+ * ({@link MemoryDatabase#getDefault()}): sin red ni servidor, para pruebas,
+ * benchmarks y como capa de caché de datos de referencia. No anuncia réplicas.
+ */
+public class MemoryFactory implements DBFactory {
+
+    /**
+     * Crea una conexión (sin abrir) a la base en memoria compartida.
+     *
+     * @param name Nombre lógico para la conexión
+     * @return Instancia de {@link org.example.db.DBConnection}
+     */
+    @Override
+    public DBConnection createConnection(String name) {
+        return new MemoryConnection(name);
+    }
+
+    /**
+     * Crea una query asociada a la conexión proporcionada.
+     *
+     * @param conn Conexión sobre la que se ejecutarán las queries
+     * @return Instancia de {@link org.example.db.DBQuery}
+     */
+    @Override
+    public DBQuery createQuery(DBConnection conn) {
+        return new MemoryQuery(conn);
+    }
+
+    /**
+     * Nombre del proveedor.
+     *
+     * @return "memory"
+     */
+    @Override
+    public String getName() {
+        return "memory";
+    }
+}
@@ -0,0 +1,184 @@
+package org.example.db.memory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * @file MemoryIndex.java
+ * @brief Índices secundarios de {@link MemoryTable}: clave de una columna →
+ *        identificadores de fila.
+ *
+ * - {@link Hash}: igualdad e IN. El mapa se reparte en {@link #STRIPES}
+ *   particiones por hash de la clave, cada una con su propio monitor, para
+ *   que escrituras sobre claves distintas no compitan por un único cerrojo.
+ * - {@link Sorted}: igualdad y rangos (&lt;, &lt;=, &gt;, &gt;=, BETWEEN) sobre un
+ *   TreeMap con cerrojo de lectura/escritura.
+ *
+ * Los valores null no se indexan. Los índices sólo proponen candidatas: la
+ * tabla vuelve a evaluar la condición sobre cada fila bajo el cerrojo de su
+ * segmento.
+ */
+abstract class MemoryIndex {
+    static final int STRIPES = 16;
+
+    final String name;
+    final int column;
+    final boolean unique;
+
+    MemoryIndex(String name, int column, boolean unique) {
+        this.name = name;
+        this.column = column;
+        this.unique = unique;
+    }
+
+    abstract void add(Object key, int row);
+
+    abstract void remove(Object key, int row);
+
+    /** @return filas con esa clave (copia; vacía si no hay) */
+    abstract IntList lookup(Object key);
+
+    /** @return true si alguna fila tiene esa clave */
+    abstract boolean contains(Object key);
+
+    /** @return true si el índice admite búsquedas por rango */
+    boolean supportsRange() {
+        return false;
+    }
+
+    /**
+     * @param lo límite inferior (null = sin límite)
+     * @param hi límite superior (null = sin límite)
+     * @return filas con clave en el rango (copia)
+     */
+    IntList range(Object lo, boolean loInclusive, Object hi, boolean hiInclusive) {
+        throw new UnsupportedOperationException("hash index " + name + " does not support ranges");
+    }
+
+    /** Índice hash con particiones. */
+    static final class Hash extends MemoryIndex {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private final Map<Object, IntList>[] stripes = new Map[STRIPES];
+
+        Hash(String name, int column, boolean unique) {
+            super(name, column, unique);
+            for (int i = 0; i < STRIPES; i++) stripes[i] = new HashMap<>();
+        }
+
+        private Map<Object, IntList> stripe(Object key) {
+            int h = key.hashCode();
+            return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+        }
+
+        @Override
+        void add(Object key, int row) {
+            Map<Object, IntList> m = stripe(key);
+            synchronized (m) {
+                m.computeIfAbsent(key, k -> new IntList(2)).add(row);
+            }
+        }
+
+        @Override
+        void remove(Object key, int row) {
+            Map<Object, IntList> m = stripe(key);
+            synchronized (m) {
+                IntList rows = m.get(key);
+                if (rows != null && rows.remove(row) && rows.isEmpty()) m.remove(key);
+            }
+        }
+
+        @Override
+        IntList lookup(Object key) {
+            Map<Object, IntList> m = stripe(key);
+            synchronized (m) {
+                IntList rows = m.get(key);
+                return rows == null ? new IntList(1) : rows.copy();
+            }
+        }
+
+        @Override
+        boolean contains(Object key) {
+            Map<Object, IntList> m = stripe(key);
+            synchronized (m) {
+                return m.containsKey(key);
+            }
+        }
+    }
+
+    /** Índice ordenado. */
+    static final class Sorted extends MemoryIndex {
+        private final TreeMap<Object, IntList> map = new TreeMap<>();
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        Sorted(String name, int column, boolean unique) {
+            super(name, column, unique);
+        }
+
+        @Override
+        void add(Object key, int row) {
+            lock.writeLock().lock();
+            try {
+                map.computeIfAbsent(key, k -> new IntList(2)).add(row);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        @Override
+        void remove(Object key, int row) {
+            lock.writeLock().lock();
+            try {
+                IntList rows = map.get(key);
+                if (rows != null && rows.remove(row) && rows.isEmpty()) map.remove(key);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        @Override
+        IntList lookup(Object key) {
+            lock.readLock().lock();
+            try {
+                IntList rows = map.get(key);
+                return rows == null ? new IntList(1) : rows.copy();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        boolean contains(Object key) {
+            lock.readLock().lock();
+            try {
+                return map.containsKey(key);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        boolean supportsRange() {
+            return true;
+        }
+
+        @Override
+        IntList range(Object lo, boolean loInclusive, Object hi, boolean hiInclusive) {
+            lock.readLock().lock();
+            try {
+                NavigableMap<Object, IntList> sub;
+                if (lo != null && hi != null) sub = map.subMap(lo, loInclusive, hi, hiInclusive);
+                else if (lo != null) sub = map.tailMap(lo, loInclusive);
+                else if (hi != null) sub = map.headMap(hi, hiInclusive);
+                else sub = map;
+                IntList out = new IntList();
+                for (IntList rows : sub.values()) out.addAll(rows);
+                return out;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+}
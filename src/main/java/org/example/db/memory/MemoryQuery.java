@@ -0,0 +1,51 @@
+package org.example.db.memory;
+
+import org.example.db.DBConnection;
+import org.example.db.DBQuery;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consulta SQL sobre una {@link MemoryConnection}.
+ *
+ * Encapsula la sentencia y delega su ejecución en la conexión asociada, igual
+ * que las queries de Postgres y MySQL.
+ */
+public class MemoryQuery implements DBQuery {
+    /** Conexión asociada a esta query. */
+    private final DBConnection conn;
+    /** Sentencia SQL a ejecutar. */
+    private String sql;
+
+    /**
+     * Constructor.
+     *
+     * @param conn Conexión sobre la que se ejecutarán las consultas (no nulo)
+     */
+    public MemoryQuery(DBConnection conn) {
+        this.conn = conn;
+    }
+
+    /**
+     * Establece la sentencia SQL de la query.
+     *
+     * @param sql Sentencia SQL en texto plano
+     */
+    @Override
+    public void setSql(String sql) {
+        this.sql = sql;
+    }
+
+    /**
+     * Ejecuta la query delegando en la conexión subyacente.
+     *
+     * @return Lista de filas (cada fila: Map nombreColumna->valor)
+     */
+    @Override
+    public List<Map<String, Object>> execute() {
+        if (conn == null) throw new IllegalStateException("No connection associated");
+        if (!(conn instanceof MemoryConnection)) throw new IllegalStateException("Connection is not MemoryConnection");
+        return conn.execute(sql);
+    }
+}
@@ -0,0 +1,664 @@
+package org.example.db.memory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * @file MemorySqlParser.java
+ * @brief Analizador (léxico + descenso recursivo) del subconjunto de SQL que
+ *        entiende el motor en memoria.
+ *
+ * Sentencias:
+ * - CREATE TABLE [IF NOT EXISTS] t (col tipo [PRIMARY KEY | NOT NULL | NULL |
+ *   UNIQUE | DEFAULT constante]..., [PRIMARY KEY (col)], [UNIQUE (col)])
+ * - CREATE [UNIQUE] INDEX [IF NOT EXISTS] [nombre] ON t [USING HASH|BTREE] (col)
+ * - DROP TABLE [IF EXISTS] t, TRUNCATE [TABLE] t
+ * - INSERT INTO t [(cols)] VALUES (...), (...)
+ * - SELECT * | col [AS alias], ... FROM t [WHERE ...] [GROUP BY col, ...]
+ *   [ORDER BY col|alias|n [ASC|DESC], ...] [LIMIT n | LIMIT m, n] [OFFSET m];
+ *   sin FROM sólo constantes. COUNT(*), COUNT/SUM/MIN/MAX/AVG(col) en la
+ *   lista y en ORDER BY ({@link MemoryTable#aggregate}).
+ * - UPDATE t SET col = constante, ... [WHERE ...]
+ * - DELETE FROM t [WHERE ...]
+ * - BEGIN / START TRANSACTION, COMMIT / END, ROLLBACK [TO [SAVEPOINT] s],
+ *   SAVEPOINT s, RELEASE [SAVEPOINT] s; SET se acepta y se ignora.
+ *
+ * WHERE: comparaciones (=, &lt;&gt;, !=, &lt;, &lt;=, &gt;, &gt;=) entre columnas y
+ * constantes, IS [NOT] NULL, [NOT] IN, [NOT] BETWEEN, [NOT] LIKE / ILIKE,
+ * NOT, AND, OR y paréntesis. Varias sentencias se separan con ';'. Los
+ * nombres calificados (esquema.tabla, alias.columna) usan la última parte
+ * y los casts "::tipo" se ignoran.
+ *
+ * Los errores de sintaxis lanzan IllegalArgumentException con la posición.
+ */
+final class MemorySqlParser {
+    private enum T { WORD, QUOTED, NUMBER, STRING, SYMBOL, END }
+
+    private static final class Token {
+        final T type;
+        final String text;
+        final int pos;
+
+        Token(T type, String text, int pos) {
+            this.type = type;
+            this.text = text;
+            this.pos = pos;
+        }
+    }
+
+    private final List<Token> tokens;
+    private int p;
+
+    private MemorySqlParser(String sql) {
+        this.tokens = tokenize(sql);
+    }
+
+    /**
+     * @param sql una o varias sentencias separadas por ';'
+     * @return sentencias analizadas, en orden
+     * @throws IllegalArgumentException si el texto no es válido o usa algo no soportado
+     */
+    static List<MemoryStatement> parse(String sql) {
+        if (sql == null) throw new IllegalArgumentException("SQL is null");
+        MemorySqlParser parser = new MemorySqlParser(sql);
+        List<MemoryStatement> out = new ArrayList<>();
+        while (true) {
+            while (parser.accept(";")) {
+                // sentencias vacías
+            }
+            if (parser.peek().type == T.END) break;
+            out.add(parser.statement());
+            if (!parser.accept(";") && parser.peek().type != T.END) throw parser.error("expected ';'");
+        }
+        return out;
+    }
+
+    // ---- sentencias ----
+
+    private MemoryStatement statement() {
+        Token t = peek();
+        if (t.type != T.WORD) throw error("expected a statement");
+        switch (t.text.toUpperCase(Locale.ROOT)) {
+            case "SELECT": return select();
+            case "INSERT": return insert();
+            case "UPDATE": return update();
+            case "DELETE": return delete();
+            case "CREATE": return create();
+            case "DROP": return drop();
+            case "TRUNCATE": {
+                next();
+                accept("TABLE");
+                return new MemoryStatement.Delete(identifier());
+            }
+            case "BEGIN":
+            case "START":
+                next();
+                skipToEnd();
+                return new MemoryStatement.Control(MemoryStatement.Kind.BEGIN, null);
+            case "COMMIT":
+            case "END":
+                next();
+                skipToEnd();
+                return new MemoryStatement.Control(MemoryStatement.Kind.COMMIT, null);
+            case "ROLLBACK": {
+                next();
+                if (!accept("WORK")) accept("TRANSACTION");
+                if (accept("TO")) {
+                    accept("SAVEPOINT");
+                    return new MemoryStatement.Control(MemoryStatement.Kind.ROLLBACK_TO, identifier());
+                }
+                return new MemoryStatement.Control(MemoryStatement.Kind.ROLLBACK, null);
+            }
+            case "SAVEPOINT":
+                next();
+                return new MemoryStatement.Control(MemoryStatement.Kind.SAVEPOINT, identifier());
+            case "RELEASE":
+                next();
+                accept("SAVEPOINT");
+                return new MemoryStatement.Control(MemoryStatement.Kind.RELEASE, identifier());
+            case "SET":
+                next();
+                skipToEnd();
+                return new MemoryStatement.Control(MemoryStatement.Kind.NOOP, null);
+            default:
+                throw error("unsupported statement " + t.text + " in memory engine");
+        }
+    }
+
+    private MemoryStatement select() {
+        expect("SELECT");
+        List<MemoryStatement.Operand> items = null;
+        List<String> aliases = null;
+        if (!accept("*")) {
+            items = new ArrayList<>();
+            aliases = new ArrayList<>();
+            do {
+                items.add(selectOperand());
+                String alias = null;
+                if (accept("AS")) alias = identifier();
+                else if (peek().type == T.QUOTED || (peek().type == T.WORD && !isReserved(peek().text))) alias = identifier();
+                aliases.add(alias);
+            } while (accept(","));
+        }
+        String table = null;
+        String schema = null;
+        if (accept("FROM")) {
+            List<String> name = qualifiedName();
+            table = name.get(name.size() - 1);
+            if (name.size() > 1) schema = String.join(".", name.subList(0, name.size() - 1));
+            if (peekIs(",") || peekIs("JOIN") || peekIs("INNER") || peekIs("LEFT") || peekIs("RIGHT") || peekIs("CROSS")) {
+                throw error("joins are not supported by the memory engine");
+            }
+            if (accept("AS") || (peek().type == T.WORD && !isReserved(peek().text))) identifier();
+        }
+        MemoryStatement.Select s = new MemoryStatement.Select(table, items, aliases);
+        s.schema = schema;
+        if (accept("WHERE")) s.where = expression();
+        if (accept("GROUP")) {
+            expect("BY");
+            do {
+                s.groupBy.add(identifier());
+            } while (accept(","));
+        }
+        if (peekIs("HAVING")) throw error("HAVING is not supported by the memory engine");
+        if (accept("ORDER")) {
+            expect("BY");
+            do {
+                s.orderBy.add(selectOperand());
+                boolean desc = false;
+                if (accept("DESC")) desc = true;
+                else accept("ASC");
+                if (accept("NULLS")) throw error("NULLS FIRST/LAST is not supported by the memory engine");
+                s.descending.add(desc);
+            } while (accept(","));
+        }
+        while (peekIs("LIMIT") || peekIs("OFFSET")) {
+            if (accept("LIMIT")) {
+                if (!accept("ALL")) {
+                    long n = count();
+                    if (accept(",")) {
+                        s.offset = n;
+                        n = count();
+                    }
+                    s.limit = n;
+                }
+            } else {
+                next();
+                s.offset = count();
+                if (!accept("ROWS")) accept("ROW");
+            }
+        }
+        return s;
+    }
+
+    /** Operando de la lista de SELECT o de ORDER BY: admite COUNT/SUM/MIN/MAX/AVG. */
+    private MemoryStatement.Operand selectOperand() {
+        MemoryStatement.Operand item = operand();
+        if (!item.isColumn() || !peekIs("(")) return item;
+        AggregateFunction fn = AggregateFunction.fromName(item.column);
+        if (fn == null) throw error("functions are not supported by the memory engine: " + item.column);
+        expect("(");
+        if (peekIs("DISTINCT")) throw error("DISTINCT aggregates are not supported by the memory engine");
+        String column = null;
+        if (!accept("*")) column = identifier();
+        expect(")");
+        if (column == null && fn != AggregateFunction.COUNT) throw error(item.column + "(*) is not valid");
+        return MemoryStatement.Operand.aggregate(fn, column);
+    }
+
+    private MemoryStatement insert() {
+        expect("INSERT");
+        expect("INTO");
+        String table = identifier();
+        List<String> columns = null;
+        if (accept("(")) {
+            columns = new ArrayList<>();
+            do {
+                columns.add(identifier());
+            } while (accept(","));
+            expect(")");
+        }
+        MemoryStatement.Insert s = new MemoryStatement.Insert(table, columns);
+        expect("VALUES");
+        do {
+            expect("(");
+            List<Object> values = new ArrayList<>();
+            do {
+                values.add(constant());
+            } while (accept(","));
+            expect(")");
+            s.rows.add(values.toArray());
+        } while (accept(","));
+        return s;
+    }
+
+    private MemoryStatement update() {
+        expect("UPDATE");
+        MemoryStatement.Update s = new MemoryStatement.Update(identifier());
+        expect("SET");
+        do {
+            s.columns.add(identifier());
+            expect("=");
+            s.values.add(constant());
+        } while (accept(","));
+        if (accept("WHERE")) s.where = expression();
+        return s;
+    }
+
+    private MemoryStatement delete() {
+        expect("DELETE");
+        expect("FROM");
+        MemoryStatement.Delete s = new MemoryStatement.Delete(identifier());
+        if (accept("WHERE")) s.where = expression();
+        return s;
+    }
+
+    private MemoryStatement create() {
+        expect("CREATE");
+        boolean unique = accept("UNIQUE");
+        if (unique || peekIs("INDEX")) {
+            expect("INDEX");
+            boolean ifNotExists = ifNotExists();
+            String index = peekIs("ON") ? null : identifier();
+            expect("ON");
+            String table = identifier();
+            boolean sorted = method(true);
+            expect("(");
+            String column = identifier();
+            if (!accept("ASC")) accept("DESC");
+            if (accept(",")) throw error("multi-column indexes are not supported by the memory engine");
+            expect(")");
+            sorted = method(sorted);
+            return new MemoryStatement.CreateIndex(index, table, column, sorted, unique, ifNotExists);
+        }
+        if (!accept("TEMP")) accept("TEMPORARY");
+        expect("TABLE");
+        boolean ifNotExists = ifNotExists();
+        MemoryStatement.CreateTable s = new MemoryStatement.CreateTable(identifier(), ifNotExists);
+        expect("(");
+        do {
+            if (accept("PRIMARY")) {
+                expect("KEY");
+                s.primaryKey = singleColumn();
+            } else if (accept("UNIQUE")) {
+                s.unique.add(singleColumn());
+            } else {
+                columnDefinition(s);
+            }
+        } while (accept(","));
+        expect(")");
+        return s;
+    }
+
+    private void columnDefinition(MemoryStatement.CreateTable s) {
+        String column = identifier();
+        String type = identifier();
+        if (type.equalsIgnoreCase("DOUBLE")) accept("PRECISION");
+        if (type.equalsIgnoreCase("CHARACTER")) accept("VARYING");
+        if (accept("(")) {
+            count();
+            if (accept(",")) count();
+            expect(")");
+        }
+        if (!accept("UNSIGNED")) accept("SIGNED");
+        boolean notNull = false;
+        Object def = null;
+        while (true) {
+            if (accept("PRIMARY")) {
+                expect("KEY");
+                if (s.primaryKey != null) throw error("multiple primary keys for table " + s.table);
+                s.primaryKey = column;
+            } else if (accept("NOT")) {
+                expect("NULL");
+                notNull = true;
+            } else if (accept("NULL")) {
+                notNull = false;
+            } else if (accept("UNIQUE")) {
+                s.unique.add(column);
+            } else if (accept("DEFAULT")) {
+                def = constant();
+            } else {
+                break;
+            }
+        }
+        s.columns.add(column);
+        s.types.add(ColumnType.parse(type));
+        s.notNull.add(notNull);
+        s.defaults.add(def);
+    }
+
+    private String singleColumn() {
+        expect("(");
+        String column = identifier();
+        if (accept(",")) throw error("multi-column keys are not supported by the memory engine");
+        expect(")");
+        return column;
+    }
+
+    /** USING HASH | BTREE opcional; devuelve si el índice es ordenado. */
+    private boolean method(boolean current) {
+        if (!accept("USING")) return current;
+        String m = identifier();
+        if (m.equalsIgnoreCase("HASH")) return false;
+        if (m.equalsIgnoreCase("BTREE")) return true;
+        throw error("unsupported index method " + m);
+    }
+
+    private boolean ifNotExists() {
+        if (!accept("IF")) return false;
+        expect("NOT");
+        expect("EXISTS");
+        return true;
+    }
+
+    private MemoryStatement drop() {
+        expect("DROP");
+        expect("TABLE");
+        boolean ifExists = false;
+        if (accept("IF")) {
+            expect("EXISTS");
+            ifExists = true;
+        }
+        return new MemoryStatement.DropTable(identifier(), ifExists);
+    }
+
+    // ---- expresiones ----
+
+    private MemoryStatement.Predicate expression() {
+        List<MemoryStatement.Predicate> terms = new ArrayList<>();
+        terms.add(conjunction());
+        while (accept("OR")) terms.add(conjunction());
+        return terms.size() == 1 ? terms.get(0) : new MemoryStatement.LogicalPredicate("OR", terms);
+    }
+
+    private MemoryStatement.Predicate conjunction() {
+        List<MemoryStatement.Predicate> terms = new ArrayList<>();
+        terms.add(negation());
+        while (accept("AND")) terms.add(negation());
+        return terms.size() == 1 ? terms.get(0) : new MemoryStatement.LogicalPredicate("AND", terms);
+    }
+
+    private MemoryStatement.Predicate negation() {
+        if (accept("NOT")) {
+            List<MemoryStatement.Predicate> inner = new ArrayList<>();
+            inner.add(negation());
+            return new MemoryStatement.LogicalPredicate("NOT", inner);
+        }
+        return primary();
+    }
+
+    private MemoryStatement.Predicate primary() {
+        if (accept("(")) {
+            MemoryStatement.Predicate e = expression();
+            expect(")");
+            return e;
+        }
+        MemoryStatement.Operand left = operand();
+        if (left.isColumn() && peekIs("(")) throw error("functions are not supported by the memory engine: " + left.column);
+        if (accept("IS")) {
+            boolean negated = accept("NOT");
+            expect("NULL");
+            return new MemoryStatement.IsNullPredicate(columnOf(left, "IS NULL"), negated);
+        }
+        boolean negated = accept("NOT");
+        if (accept("IN")) {
+            expect("(");
+            List<Object> values = new ArrayList<>();
+            do {
+                values.add(constant());
+            } while (accept(","));
+            expect(")");
+            return new MemoryStatement.InPredicate(columnOf(left, "IN"), values, negated);
+        }
+        if (accept("BETWEEN")) {
+            Object low = constant();
+            expect("AND");
+            Object high = constant();
+            return new MemoryStatement.BetweenPredicate(columnOf(left, "BETWEEN"), low, high, negated);
+        }
+        if (peekIs("LIKE") || peekIs("ILIKE")) {
+            boolean ci = next().text.equalsIgnoreCase("ILIKE");
+            Object pattern = constant();
+            return new MemoryStatement.LikePredicate(columnOf(left, "LIKE"), pattern == null ? null : pattern.toString(), ci, negated);
+        }
+        if (negated) throw error("expected IN, BETWEEN or LIKE after NOT");
+        Condition.Op op = comparison();
+        if (op == null) return new MemoryStatement.BooleanPredicate(left);
+        return new MemoryStatement.ComparePredicate(left, op, operand());
+    }
+
+    private Condition.Op comparison() {
+        Token t = peek();
+        if (t.type != T.SYMBOL) return null;
+        Condition.Op op;
+        switch (t.text) {
+            case "=": op = Condition.Op.EQ; break;
+            case "<>":
+            case "!=": op = Condition.Op.NE; break;
+            case "<": op = Condition.Op.LT; break;
+            case "<=": op = Condition.Op.LE; break;
+            case ">": op = Condition.Op.GT; break;
+            case ">=": op = Condition.Op.GE; break;
+            default: return null;
+        }
+        next();
+        return op;
+    }
+
+    private String columnOf(MemoryStatement.Operand o, String what) {
+        if (!o.isColumn()) throw error(what + " requires a column on the left side in the memory engine");
+        return o.column;
+    }
+
+    private MemoryStatement.Operand operand() {
+        Token t = peek();
+        if (t.type == T.QUOTED || (t.type == T.WORD && !isConstantWord(t.text))) return MemoryStatement.Operand.column(identifier());
+        return MemoryStatement.Operand.constant(constant());
+    }
+
+    /** Constante: número (con signo), cadena, TRUE, FALSE o NULL, con cast opcional. */
+    private Object constant() {
+        int at = p;
+        Token t = next();
+        Object value;
+        if (t.type == T.SYMBOL && (t.text.equals("-") || t.text.equals("+")) && peek().type == T.NUMBER) {
+            value = number(t.text + next().text);
+        } else if (t.type == T.NUMBER) {
+            value = number(t.text);
+        } else if (t.type == T.STRING) {
+            value = t.text;
+        } else if (t.type == T.WORD && isConstantWord(t.text)) {
+            String w = t.text.toUpperCase(Locale.ROOT);
+            value = w.equals("NULL") ? null : Boolean.valueOf(w.equals("TRUE"));
+        } else {
+            p = at;
+            throw error("expected a constant");
+        }
+        if (accept("::")) {
+            identifier();
+            if (accept("(")) {
+                count();
+                if (accept(",")) count();
+                expect(")");
+            }
+        }
+        return value;
+    }
+
+    private static Object number(String text) {
+        if (text.indexOf('.') < 0 && text.indexOf('e') < 0 && text.indexOf('E') < 0) {
+            try {
+                return Long.parseLong(text.startsWith("+") ? text.substring(1) : text);
+            } catch (NumberFormatException e) {
+                // fuera de rango de long: se trata como double
+            }
+        }
+        return Double.parseDouble(text);
+    }
+
+    /** Entero no negativo de LIMIT / OFFSET / tamaño de tipo. */
+    private long count() {
+        int at = p;
+        Token t = next();
+        if (t.type != T.NUMBER || t.text.indexOf('.') >= 0) {
+            p = at;
+            throw error("expected a non-negative integer");
+        }
+        return Long.parseLong(t.text);
+    }
+
+    /** Identificador (con o sin comillas); de un nombre calificado se queda con la última parte. */
+    private String identifier() {
+        List<String> name = qualifiedName();
+        return name.get(name.size() - 1);
+    }
+
+    /** Nombre calificado (esquema.tabla, ...): sus partes, sin comillas. */
+    private List<String> qualifiedName() {
+        List<String> parts = new ArrayList<>();
+        parts.add(simpleIdentifier());
+        while (peekIs(".") && p + 1 < tokens.size()
+                && (tokens.get(p + 1).type == T.WORD || tokens.get(p + 1).type == T.QUOTED)) {
+            next();
+            parts.add(simpleIdentifier());
+        }
+        return parts;
+    }
+
+    private String simpleIdentifier() {
+        int at = p;
+        Token t = next();
+        if (t.type == T.WORD || t.type == T.QUOTED) return t.text;
+        p = at;
+        throw error("expected an identifier");
+    }
+
+    private static boolean isConstantWord(String w) {
+        return w.equalsIgnoreCase("NULL") || w.equalsIgnoreCase("TRUE") || w.equalsIgnoreCase("FALSE");
+    }
+
+    /** Palabras que terminan una lista de columnas y no pueden ser un alias sin AS. */
+    private static boolean isReserved(String w) {
+        switch (w.toUpperCase(Locale.ROOT)) {
+            case "FROM": case "WHERE": case "ORDER": case "GROUP": case "HAVING": case "LIMIT": case "OFFSET":
+            case "JOIN": case "INNER": case "LEFT": case "RIGHT": case "CROSS": case "ON": case "UNION":
+            case "AND": case "OR": case "NOT": case "AS": case "ASC": case "DESC":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // ---- tokens ----
+
+    private Token peek() {
+        return tokens.get(p);
+    }
+
+    private Token next() {
+        Token t = tokens.get(p);
+        if (t.type != T.END) p++;
+        return t;
+    }
+
+    /** true si el siguiente token es la palabra clave o el símbolo (sin comillas). */
+    private boolean peekIs(String text) {
+        Token t = peek();
+        return (t.type == T.WORD || t.type == T.SYMBOL) && t.text.equalsIgnoreCase(text);
+    }
+
+    private boolean accept(String text) {
+        if (!peekIs(text)) return false;
+        p++;
+        return true;
+    }
+
+    private void expect(String text) {
+        if (!accept(text)) throw error("expected " + text);
+    }
+
+    private void skipToEnd() {
+        while (peek().type != T.END && !peekIs(";")) p++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        Token t = peek();
+        String near = t.type == T.END ? "end of input" : "'" + t.text + "'";
+        return new IllegalArgumentException("syntax error at position " + t.pos + " near " + near + ": " + message);
+    }
+
+    private static List<Token> tokenize(String sql) {
+        List<Token> out = new ArrayList<>();
+        int n = sql.length();
+        int i = 0;
+        while (i < n) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '-' && i + 1 < n && sql.charAt(i + 1) == '-') {
+                while (i < n && sql.charAt(i) != '\n') i++;
+            } else if (c == '/' && i + 1 < n && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? n : end + 2;
+            } else if (c == '\'') {
+                StringBuilder sb = new StringBuilder();
+                int start = i++;
+                while (true) {
+                    if (i >= n) throw new IllegalArgumentException("unterminated string literal at position " + start);
+                    char d = sql.charAt(i++);
+                    if (d == '\'') {
+                        if (i < n && sql.charAt(i) == '\'') {
+                            sb.append('\'');
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        sb.append(d);
+                    }
+                }
+                out.add(new Token(T.STRING, sb.toString(), start));
+            } else if (c == '"' || c == '`') {
+                int start = i;
+                int end = sql.indexOf(c, i + 1);
+                if (end < 0) throw new IllegalArgumentException("unterminated quoted identifier at position " + start);
+                out.add(new Token(T.QUOTED, sql.substring(i + 1, end), start));
+                i = end + 1;
+            } else if (Character.isDigit(c) || (c == '.' && i + 1 < n && Character.isDigit(sql.charAt(i + 1)))) {
+                int start = i;
+                while (i < n && Character.isDigit(sql.charAt(i))) i++;
+                if (i < n && sql.charAt(i) == '.') {
+                    i++;
+                    while (i < n && Character.isDigit(sql.charAt(i))) i++;
+                }
+                if (i < n && (sql.charAt(i) == 'e' || sql.charAt(i) == 'E')) {
+                    int j = i + 1;
+                    if (j < n && (sql.charAt(j) == '+' || sql.charAt(j) == '-')) j++;
+                    if (j < n && Character.isDigit(sql.charAt(j))) {
+                        i = j;
+                        while (i < n && Character.isDigit(sql.charAt(i))) i++;
+                    }
+                }
+                out.add(new Token(T.NUMBER, sql.substring(start, i), start));
+            } else if (Character.isLetter(c) || c == '_') {
+                int start = i;
+                while (i < n && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '_' || sql.charAt(i) == '$')) i++;
+                out.add(new Token(T.WORD, sql.substring(start, i), start));
+            } else {
+                String two = i + 1 < n ? sql.substring(i, i + 2) : "";
+                if (two.equals("<=") || two.equals(">=") || two.equals("<>") || two.equals("!=") || two.equals("::")) {
+                    out.add(new Token(T.SYMBOL, two, i));
+                    i += 2;
+                } else if ("(),;*=<>.-+".indexOf(c) >= 0) {
+                    out.add(new Token(T.SYMBOL, String.valueOf(c), i));
+                    i++;
+                } else {
+                    throw new IllegalArgumentException("unexpected character '" + c + "' at position " + i);
+                }
+            }
+        }
+        out.add(new Token(T.END, "", n));
+        return out;
+    }
+}
@@ -0,0 +1,645 @@
+package org.example.db.memory;
+
+import org.example.db.utilities.QueryResponseBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * @file MemoryStatement.java
+ * @brief Sentencias ya analizadas por {@link MemorySqlParser} y su ejecución
+ *        sobre un {@link MemoryDatabase}.
+ *
+ * Las referencias a columnas se resuelven contra la tabla al ejecutar (no
+ * al analizar), para que un mismo texto pueda crear una tabla y usarla a
+ * continuación. Resultados:
+ * - SELECT: filas (Map columna → valor).
+ * - INSERT/UPDATE/DELETE: una fila de {@link QueryResponseBuilder} con
+ *   "affected_rows", como las demás conexiones.
+ * - DDL: la misma respuesta con 0 filas afectadas.
+ * - Control de transacciones: lista vacía (lo resuelve {@link MemoryConnection}).
+ */
+abstract class MemoryStatement {
+    /** Tipo de sentencia. */
+    enum Kind { QUERY, UPDATE, DDL, BEGIN, COMMIT, ROLLBACK, SAVEPOINT, ROLLBACK_TO, RELEASE, NOOP }
+
+    final Kind kind;
+
+    MemoryStatement(Kind kind) {
+        this.kind = kind;
+    }
+
+    /**
+     * @param db base de datos
+     * @param undo registro donde dejar las acciones inversas de los cambios
+     * @return resultado de la sentencia
+     */
+    List<Map<String, Object>> execute(MemoryDatabase db, UndoLog undo) {
+        throw new UnsupportedOperationException(kind + " is handled by the connection");
+    }
+
+    private static List<Map<String, Object>> affected(int rows) {
+        return Collections.singletonList(QueryResponseBuilder.createSuccessResponse(rows));
+    }
+
+    /** BEGIN, COMMIT, ROLLBACK, SAVEPOINT, ROLLBACK TO, RELEASE y sentencias ignoradas (SET). */
+    static final class Control extends MemoryStatement {
+        final String savepoint;
+
+        Control(Kind kind, String savepoint) {
+            super(kind);
+            this.savepoint = savepoint;
+        }
+    }
+
+    /** CREATE TABLE. */
+    static final class CreateTable extends MemoryStatement {
+        final String table;
+        final boolean ifNotExists;
+        final List<String> columns = new ArrayList<>();
+        final List<ColumnType> types = new ArrayList<>();
+        final List<Boolean> notNull = new ArrayList<>();
+        final List<Object> defaults = new ArrayList<>();
+        final List<String> unique = new ArrayList<>();
+        String primaryKey;
+
+        CreateTable(String table, boolean ifNotExists) {
+            super(Kind.DDL);
+            this.table = table;
+            this.ifNotExists = ifNotExists;
+        }
+
+        @Override
+        List<Map<String, Object>> execute(MemoryDatabase db, UndoLog undo) {
+            int n = columns.size();
+            boolean[] nn = new boolean[n];
+            for (int c = 0; c < n; c++) nn[c] = notNull.get(c);
+            int pk = -1;
+            for (int c = 0; c < n && primaryKey != null; c++) {
+                if (columns.get(c).equalsIgnoreCase(primaryKey)) pk = c;
+            }
+            if (primaryKey != null && pk < 0) throw new IllegalArgumentException("column \"" + primaryKey + "\" named in key does not exist");
+            MemoryTable t = new MemoryTable(table, columns.toArray(new String[0]), types.toArray(new ColumnType[0]),
+                    nn, defaults.toArray(), pk);
+            for (String col : unique) t.createIndex(table + "_" + col + "_key", col, false, true);
+            db.createTable(t, ifNotExists);
+            return affected(0);
+        }
+    }
+
+    /** CREATE [UNIQUE] INDEX. */
+    static final class CreateIndex extends MemoryStatement {
+        final String index;
+        final String table;
+        final String column;
+        final boolean sorted;
+        final boolean unique;
+        final boolean ifNotExists;
+
+        CreateIndex(String index, String table, String column, boolean sorted, boolean unique, boolean ifNotExists) {
+            super(Kind.DDL);
+            this.index = index;
+            this.table = table;
+            this.column = column;
+            this.sorted = sorted;
+            this.unique = unique;
+            this.ifNotExists = ifNotExists;
+        }
+
+        @Override
+        List<Map<String, Object>> execute(MemoryDatabase db, UndoLog undo) {
+            MemoryTable t = db.table(table);
+            String name = index != null ? index : table + "_" + column + "_idx";
+            if (ifNotExists && t.hasIndex(name)) return affected(0);
+            t.createIndex(name, column, sorted, unique);
+            return affected(0);
+        }
+    }
+
+    /** DROP TABLE. */
+    static final class DropTable extends MemoryStatement {
+        final String table;
+        final boolean ifExists;
+
+        DropTable(String table, boolean ifExists) {
+            super(Kind.DDL);
+            this.table = table;
+            this.ifExists = ifExists;
+        }
+
+        @Override
+        List<Map<String, Object>> execute(MemoryDatabase db, UndoLog undo) {
+            db.dropTable(table, ifExists);
+            return affected(0);
+        }
+    }
+
+    /** INSERT INTO ... VALUES. */
+    static final class Insert extends MemoryStatement {
+        final String table;
+        /** Columnas dadas, o null para todas en orden. */
+        final List<String> columns;
+        final List<Object[]> rows = new ArrayList<>();
+
+        Insert(String table, List<String> columns) {
+            super(Kind.UPDATE);
+            this.table = table;
+            this.columns = columns;
+        }
+
+        @Override
+        List<Map<String, Object>> execute(MemoryDatabase db, UndoLog undo) {
+            MemoryTable t = db.table(table);
+            int[] cols = null;
+            if (columns != null) {
+                cols = new int[columns.size()];
+                for (int k = 0; k < cols.length; k++) cols[k] = t.columnIndex(columns.get(k));
+            }
+            for (Object[] values : rows) t.insert(t.coerceRow(cols, values), undo);
+            return affected(rows.size());
+        }
+    }
+
+    /** SELECT. */
+    static final class Select extends MemoryStatement {
+        /** Tabla, o null en SELECT sin FROM (sólo constantes). */
+        final String table;
+        /** Calificación de la tabla en el FROM (esquema o base de datos), o null. */
+        String schema;
+        /** Columnas o constantes devueltas, o null para '*'. */
+        final List<Operand> items;
+        final List<String> aliases;
+        Predicate where;
+        final List<String> groupBy = new ArrayList<>();
+        final List<Operand> orderBy = new ArrayList<>();
+        final List<Boolean> descending = new ArrayList<>();
+        long limit = -1;
+        long offset;
+
+        Select(String table, List<Operand> items, List<String> aliases) {
+            super(Kind.QUERY);
+            this.table = table;
+            this.items = items;
+            this.aliases = aliases;
+        }
+
+        @Override
+        List<Map<String, Object>> execute(MemoryDatabase db, UndoLog undo) {
+            if (table == null) return constants();
+            MemoryTable t = db.table(table);
+            if (isAggregate()) return aggregate(t);
+            int[] projection = projection(t);
+            String[] labels = labels(t, projection);
+            int[] order = orderColumns(t, projection, labels);
+            boolean[] desc = new boolean[order.length];
+            for (int k = 0; k < order.length; k++) desc[k] = descending.get(k);
+            Condition cond = where == null ? null : where.resolve(t);
+            return t.select(projection, labels, cond, order, desc, limit, offset);
+        }
+
+        /** @return columnas de la tabla devueltas, en orden (SELECT sin agregados) */
+        int[] projection(MemoryTable t) {
+            if (items == null) {
+                int[] projection = new int[t.getColumnNames().size()];
+                for (int c = 0; c < projection.length; c++) projection[c] = c;
+                return projection;
+            }
+            int[] projection = new int[items.size()];
+            for (int k = 0; k < projection.length; k++) {
+                Operand item = items.get(k);
+                if (!item.isColumn()) throw new IllegalArgumentException("constants cannot be mixed with columns of " + table);
+                projection[k] = t.columnIndex(item.column);
+            }
+            return projection;
+        }
+
+        private String[] labels(MemoryTable t, int[] projection) {
+            String[] labels = new String[projection.length];
+            for (int k = 0; k < labels.length; k++) {
+                labels[k] = items != null && aliases.get(k) != null ? aliases.get(k) : t.getColumnNames().get(projection[k]);
+            }
+            return labels;
+        }
+
+        /** @return columnas de la tabla de cada clave de ORDER BY (SELECT sin agregados) */
+        int[] orderColumns(MemoryTable t) {
+            int[] projection = projection(t);
+            return orderColumns(t, projection, labels(t, projection));
+        }
+
+        private int[] orderColumns(MemoryTable t, int[] projection, String[] labels) {
+            int[] order = new int[orderBy.size()];
+            for (int k = 0; k < order.length; k++) order[k] = orderColumn(t, orderBy.get(k), projection, labels);
+            return order;
+        }
+
+        /** @return true si la sentencia agrega (GROUP BY o funciones de agregado) */
+        boolean isAggregate() {
+            return !groupBy.isEmpty() || hasAggregates();
+        }
+
+        private boolean hasAggregates() {
+            if (items != null) for (Operand item : items) if (item.isAggregate()) return true;
+            for (Operand o : orderBy) if (o.isAggregate()) return true;
+            return false;
+        }
+
+        /**
+         * SELECT con agregados y/o GROUP BY: la agregación se hace sobre los
+         * segmentos de la tabla ({@link MemoryTable#aggregate}) y después se
+         * ordenan las filas agregadas, se aplica LIMIT/OFFSET y se pasan al
+         * orden y nombres de la lista de SELECT. Las columnas de la lista
+         * tienen que estar en GROUP BY.
+         */
+        private List<Map<String, Object>> aggregate(MemoryTable t) {
+            if (items == null) throw new IllegalArgumentException("SELECT * cannot be used with GROUP BY or aggregates");
+            for (String g : groupBy) t.columnIndex(g);
+            List<AggregateSpec.Metric> metrics = new ArrayList<>();
+            String[] keys = new String[items.size()];
+            String[] labels = new String[items.size()];
+            for (int k = 0; k < keys.length; k++) {
+                Operand item = items.get(k);
+                String alias = aliases.get(k);
+                if (item.isAggregate()) {
+                    keys[k] = "#" + metrics.size();
+                    metrics.add(new AggregateSpec.Metric(item.function, item.column, keys[k]));
+                    labels[k] = alias != null ? alias : item.function.name().toLowerCase(Locale.ROOT);
+                } else if (item.isColumn()) {
+                    keys[k] = groupKey(item.column);
+                    labels[k] = alias != null ? alias : t.getColumnNames().get(t.columnIndex(item.column));
+                } else {
+                    labels[k] = alias != null ? alias : "?column?";
+                }
+            }
+            // Cada fila agregada pasa a Object[]: valores de la lista y después claves de ORDER BY.
+            int width = keys.length;
+            String[] fetch = Arrays.copyOf(keys, width + orderBy.size());
+            int[] orderPos = new int[orderBy.size()];
+            boolean[] desc = new boolean[orderPos.length];
+            for (int k = 0; k < orderPos.length; k++) {
+                Operand o = orderBy.get(k);
+                desc[k] = descending.get(k);
+                if (!o.isColumn() && !o.isAggregate()) {
+                    orderPos[k] = orderPosition(o, keys.length);
+                    continue;
+                }
+                int pos = -1;
+                if (o.isColumn()) {
+                    for (int j = 0; j < labels.length && pos < 0; j++) {
+                        if (aliases.get(j) != null && labels[j].equalsIgnoreCase(o.column)) pos = j;
+                    }
+                }
+                if (pos < 0) {
+                    String key;
+                    if (o.isColumn()) {
+                        key = groupKey(o.column);
+                    } else {
+                        key = "#" + metrics.size();
+                        metrics.add(new AggregateSpec.Metric(o.function, o.column, key));
+                    }
+                    pos = width;
+                    fetch[width++] = key;
+                }
+                orderPos[k] = pos;
+            }
+
+            Condition cond = where == null ? null : where.resolve(t);
+            List<Map<String, Object>> grouped = t.aggregate(cond, new AggregateSpec(groupBy, metrics));
+            List<Object[]> rows = new ArrayList<>(grouped.size());
+            for (Map<String, Object> g : grouped) {
+                Object[] r = new Object[width];
+                for (int k = 0; k < width; k++) r[k] = fetch[k] == null ? items.get(k).value : g.get(fetch[k]);
+                rows.add(r);
+            }
+            if (orderPos.length > 0) rows.sort(MemoryTable.rowComparator(orderPos, desc));
+
+            List<Map<String, Object>> out = new ArrayList<>();
+            long end = limit < 0 ? rows.size() : Math.min(rows.size(), offset + limit);
+            for (long i = Math.min(offset, end); i < end; i++) {
+                Object[] r = rows.get((int) i);
+                Map<String, Object> m = new LinkedHashMap<>();
+                for (int k = 0; k < labels.length; k++) m.put(labels[k], r[k]);
+                out.add(m);
+            }
+            return out;
+        }
+
+        /** Etiqueta de una columna de GROUP BY en las filas agregadas. */
+        private String groupKey(String column) {
+            for (String g : groupBy) if (g.equalsIgnoreCase(column)) return g;
+            throw new IllegalArgumentException("column \"" + column
+                    + "\" must appear in the GROUP BY clause or be used in an aggregate function");
+        }
+
+        private static int orderPosition(Operand o, int size) {
+            if (o.value instanceof Long) {
+                long pos = (Long) o.value;
+                if (pos < 1 || pos > size) throw new IllegalArgumentException("ORDER BY position " + pos + " is not in select list");
+                return (int) pos - 1;
+            }
+            throw new IllegalArgumentException("invalid ORDER BY item: " + o.value);
+        }
+
+        /** ORDER BY admite columna, alias de la lista o posición (1..n). */
+        private int orderColumn(MemoryTable t, Operand o, int[] projection, String[] labels) {
+            if (o.isColumn()) {
+                for (int k = 0; k < labels.length; k++) {
+                    if (items != null && aliases.get(k) != null && labels[k].equalsIgnoreCase(o.column)) return projection[k];
+                }
+                return t.columnIndex(o.column);
+            }
+            return projection[orderPosition(o, projection.length)];
+        }
+
+        private List<Map<String, Object>> constants() {
+            if (items == null) throw new IllegalArgumentException("SELECT * with no tables specified is not valid");
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int k = 0; k < items.size(); k++) {
+                Operand item = items.get(k);
+                if (item.isColumn()) throw new IllegalArgumentException("column \"" + item.column + "\" does not exist");
+                row.put(aliases.get(k) != null ? aliases.get(k) : "?column?", item.value);
+            }
+            Condition cond = where == null ? null : where.resolve(null);
+            boolean match = cond == null || cond instanceof Condition.Constant && ((Condition.Constant) cond).value == Condition.TRUE;
+            List<Map<String, Object>> out = new ArrayList<>();
+            if (match && limit != 0 && offset == 0) out.add(row);
+            return out;
+        }
+    }
+
+    /** UPDATE ... SET ... [WHERE]. */
+    static final class Update extends MemoryStatement {
+        final String table;
+        final List<String> columns = new ArrayList<>();
+        final List<Object> values = new ArrayList<>();
+        Predicate where;
+
+        Update(String table) {
+            super(Kind.UPDATE);
+            this.table = table;
+        }
+
+        @Override
+        List<Map<String, Object>> execute(MemoryDatabase db, UndoLog undo) {
+            MemoryTable t = db.table(table);
+            int[] cols = new int[columns.size()];
+            Object[] vals = new Object[cols.length];
+            for (int k = 0; k < cols.length; k++) {
+                cols[k] = t.columnIndex(columns.get(k));
+                vals[k] = t.coerce(cols[k], values.get(k));
+                for (int j = 0; j < k; j++) {
+                    if (cols[j] == cols[k]) throw new IllegalArgumentException("multiple assignments to same column \"" + columns.get(k) + "\"");
+                }
+            }
+            return affected(t.update(where == null ? null : where.resolve(t), cols, vals, undo));
+        }
+    }
+
+    /** DELETE FROM ... [WHERE] y TRUNCATE. */
+    static final class Delete extends MemoryStatement {
+        final String table;
+        Predicate where;
+
+        Delete(String table) {
+            super(Kind.UPDATE);
+            this.table = table;
+        }
+
+        @Override
+        List<Map<String, Object>> execute(MemoryDatabase db, UndoLog undo) {
+            MemoryTable t = db.table(table);
+            return affected(t.delete(where == null ? null : where.resolve(t), undo));
+        }
+    }
+
+    /**
+     * Operando de una expresión: columna, constante (null = NULL) o, en la
+     * lista de SELECT y en ORDER BY, un agregado (column null = COUNT(*)).
+     */
+    static final class Operand {
+        final String column;
+        final Object value;
+        final AggregateFunction function;
+
+        private Operand(String column, Object value, AggregateFunction function) {
+            this.column = column;
+            this.value = value;
+            this.function = function;
+        }
+
+        static Operand column(String name) {
+            return new Operand(name, null, null);
+        }
+
+        static Operand constant(Object value) {
+            return new Operand(null, value, null);
+        }
+
+        static Operand aggregate(AggregateFunction function, String column) {
+            return new Operand(column, null, function);
+        }
+
+        boolean isColumn() {
+            return column != null && function == null;
+        }
+
+        boolean isAggregate() {
+            return function != null;
+        }
+    }
+
+    /**
+     * Condición WHERE sin resolver. {@link #resolve} la convierte en una
+     * {@link Condition} sobre las columnas de la tabla (null si no hay tabla:
+     * sólo constantes).
+     */
+    abstract static class Predicate {
+        abstract Condition resolve(MemoryTable t);
+
+        static int column(MemoryTable t, String name) {
+            if (t == null) throw new IllegalArgumentException("column \"" + name + "\" does not exist");
+            return t.columnIndex(name);
+        }
+    }
+
+    /** a OP b. */
+    static final class ComparePredicate extends Predicate {
+        final Operand left;
+        final Condition.Op op;
+        final Operand right;
+
+        ComparePredicate(Operand left, Condition.Op op, Operand right) {
+            this.left = left;
+            this.op = op;
+            this.right = right;
+        }
+
+        @Override
+        Condition resolve(MemoryTable t) {
+            if (left.isColumn() && right.isColumn()) {
+                int a = column(t, left.column);
+                int b = column(t, right.column);
+                if (t.getColumnType(a) != t.getColumnType(b)) {
+                    throw new IllegalArgumentException("cannot compare " + left.column + " (" + t.getColumnType(a)
+                            + ") with " + right.column + " (" + t.getColumnType(b) + ")");
+                }
+                return new Condition.CompareColumns(a, op, b);
+            }
+            if (left.isColumn()) return compare(t, left.column, op, right.value);
+            if (right.isColumn()) return compare(t, right.column, op.flip(), left.value);
+            Object a = left.value;
+            Object b = right.value;
+            if (a == null || b == null) return new Condition.Constant(Condition.UNKNOWN);
+            int cmp = a instanceof Number && b instanceof Number
+                    ? Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue())
+                    : a.toString().compareTo(b.toString());
+            return new Condition.Constant(op.accept(cmp) ? Condition.TRUE : Condition.FALSE);
+        }
+
+        private static Condition compare(MemoryTable t, String column, Condition.Op op, Object value) {
+            int c = column(t, column);
+            if (value == null) return new Condition.Constant(Condition.UNKNOWN);
+            return new Condition.Compare(c, op, Literal.of(t.getColumnType(c), value));
+        }
+    }
+
+    /** Operando suelto como condición: WHERE activo, WHERE TRUE. */
+    static final class BooleanPredicate extends Predicate {
+        final Operand operand;
+
+        BooleanPredicate(Operand operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        Condition resolve(MemoryTable t) {
+            if (operand.isColumn()) {
+                int c = column(t, operand.column);
+                if (t.getColumnType(c) != ColumnType.BOOLEAN) {
+                    throw new IllegalArgumentException("argument of WHERE must be type boolean, not " + t.getColumnType(c));
+                }
+                return new Condition.Compare(c, Condition.Op.EQ, Literal.of(ColumnType.BOOLEAN, Boolean.TRUE));
+            }
+            if (operand.value == null) return new Condition.Constant(Condition.UNKNOWN);
+            boolean b = (Boolean) ColumnType.BOOLEAN.coerce(operand.value);
+            return new Condition.Constant(b ? Condition.TRUE : Condition.FALSE);
+        }
+    }
+
+    /** col IS [NOT] NULL. */
+    static final class IsNullPredicate extends Predicate {
+        final String column;
+        final boolean negated;
+
+        IsNullPredicate(String column, boolean negated) {
+            this.column = column;
+            this.negated = negated;
+        }
+
+        @Override
+        Condition resolve(MemoryTable t) {
+            return new Condition.IsNull(column(t, column), negated);
+        }
+    }
+
+    /** col [NOT] IN (...). Los NULL de la lista se ignoran. */
+    static final class InPredicate extends Predicate {
+        final String column;
+        final List<Object> values;
+        final boolean negated;
+
+        InPredicate(String column, List<Object> values, boolean negated) {
+            this.column = column;
+            this.values = values;
+            this.negated = negated;
+        }
+
+        @Override
+        Condition resolve(MemoryTable t) {
+            int c = column(t, column);
+            List<Literal> lits = new ArrayList<>(values.size());
+            for (Object v : values) if (v != null) lits.add(Literal.of(t.getColumnType(c), v));
+            return new Condition.In(c, lits, negated);
+        }
+    }
+
+    /** col [NOT] BETWEEN a AND b. */
+    static final class BetweenPredicate extends Predicate {
+        final String column;
+        final Object low;
+        final Object high;
+        final boolean negated;
+
+        BetweenPredicate(String column, Object low, Object high, boolean negated) {
+            this.column = column;
+            this.low = low;
+            this.high = high;
+            this.negated = negated;
+        }
+
+        @Override
+        Condition resolve(MemoryTable t) {
+            int c = column(t, column);
+            if (low == null || high == null) return new Condition.Constant(Condition.UNKNOWN);
+            ColumnType type = t.getColumnType(c);
+            return new Condition.Between(c, Literal.of(type, low), Literal.of(type, high), negated);
+        }
+    }
+
+    /** col [NOT] LIKE / ILIKE patrón. */
+    static final class LikePredicate extends Predicate {
+        final String column;
+        final String pattern;
+        final boolean caseInsensitive;
+        final boolean negated;
+
+        LikePredicate(String column, String pattern, boolean caseInsensitive, boolean negated) {
+            this.column = column;
+            this.pattern = pattern;
+            this.caseInsensitive = caseInsensitive;
+            this.negated = negated;
+        }
+
+        @Override
+        Condition resolve(MemoryTable t) {
+            if (pattern == null) return new Condition.Constant(Condition.UNKNOWN);
+            return new Condition.Like(column(t, column), pattern, caseInsensitive, negated);
+        }
+    }
+
+    /** NOT, AND y OR. */
+    static final class LogicalPredicate extends Predicate {
+        final String operator;
+        final List<Predicate> terms;
+
+        LogicalPredicate(String operator, List<Predicate> terms) {
+            this.operator = operator.toUpperCase(Locale.ROOT);
+            this.terms = terms;
+        }
+
+        @Override
+        Condition resolve(MemoryTable t) {
+            List<Condition> resolved = new ArrayList<>(terms.size());
+            for (Predicate p : terms) resolved.add(p.resolve(t));
+            switch (operator) {
+                case "NOT": {
+                    Condition inner = resolved.get(0);
+                    if (inner instanceof Condition.Constant) {
+                        int v = ((Condition.Constant) inner).value;
+                        return new Condition.Constant(v == Condition.UNKNOWN ? v : v == Condition.TRUE ? Condition.FALSE : Condition.TRUE);
+                    }
+                    return new Condition.Not(inner);
+                }
+                case "AND":
+                    return new Condition.And(resolved);
+                default:
+                    return new Condition.Or(resolved);
+            }
+        }
+    }
+}
@@ -0,0 +1,856 @@
+package org.example.db.memory;
+
+import org.example.db.utilities.ConnectionConfig;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * @file MemoryTable.java
+ * @brief Tabla del motor en memoria almacenada por columnas.
+ *
+ * Las filas se reparten en segmentos de {@link #SEGMENT_ROWS} filas; cada
+ * segmento guarda un {@link ColumnVector} por columna (arrays primitivos más
+ * bitmap de nulos), un bitmap de filas borradas y su propio cerrojo de
+ * lectura/escritura. Las lecturas y escrituras sobre segmentos distintos no
+ * compiten entre sí (lock striping) y un recorrido sólo retiene el cerrojo
+ * del segmento que está leyendo.
+ *
+ * El identificador de fila es su posición global (segmento &lt;&lt; 12 |
+ * posición) y no cambia: un DELETE sólo marca la fila como borrada y la
+ * saca de los índices, de modo que ROLLBACK puede revivirla.
+ *
+ * Las inserciones, y las actualizaciones de columnas con índice único, se
+ * serializan con un cerrojo de añadido que hace atómica la comprobación de
+ * unicidad. Orden de cerrojos: añadido → segmento → índice.
+ *
+ * Bloqueos de fila: cada fila insertada, actualizada o borrada queda a nombre
+ * del {@link UndoLog} que la escribió hasta que éste confirma o deshace, y
+ * las claves únicas que un borrado (o un cambio de clave) saca de un índice
+ * quedan reservadas para que el ROLLBACK pueda devolverlas. Un escritor que
+ * encuentra una fila o clave retenida por otro falla en el acto (no hay
+ * espera, así que tampoco interbloqueos); dos sentencias sueltas en
+ * autocommit no chocan entre sí.
+ *
+ * Una tabla admite como mucho MEMORY_MAX_ROWS filas (defecto 10.000.000).
+ * Cuentan también las borradas: su posición no se reutiliza.
+ *
+ * Índices ({@link MemoryIndex}): para una condición WHERE se usa el índice
+ * que menos filas candidatas propone entre los términos del AND de primer
+ * nivel (igualdad, IN, rangos y BETWEEN); las candidatas se vuelven a
+ * comprobar contra la condición completa bajo el cerrojo del segmento.
+ */
+public final class MemoryTable {
+    static final int SEGMENT_SHIFT = 12;
+    static final int SEGMENT_ROWS = 1 << SEGMENT_SHIFT;
+    static final int SEGMENT_MASK = SEGMENT_ROWS - 1;
+    private static final int MAX_ROWS = ConnectionConfig.getConfigValueAsInt("MEMORY_MAX_ROWS", "MEMORY_MAX_ROWS", 10_000_000);
+
+    private final String name;
+    private final String[] columnNames;
+    private final ColumnType[] types;
+    private final boolean[] notNull;
+    private final Object[] defaults;
+    private final Map<String, Integer> columnIndex = new HashMap<>();
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private volatile Segment[] segments = new Segment[0];
+    /** Siguiente identificador de fila; protegido por appendLock. */
+    private int nextRow;
+    private final AtomicInteger liveRows = new AtomicInteger();
+    private final List<MemoryIndex> indexes = new CopyOnWriteArrayList<>();
+    /** Dueño de cada fila escrita por una sentencia o transacción en curso. */
+    private final Map<Integer, UndoLog> rowLocks = new ConcurrentHashMap<>();
+    /** Claves únicas (índice, clave) que un ROLLBACK en curso podría devolver a su índice. */
+    private final Map<Map.Entry<MemoryIndex, Object>, UndoLog> reservedKeys = new ConcurrentHashMap<>();
+    /** Filas y claves retenidas por cada dueño, para liberarlas al terminar. */
+    private final Map<UndoLog, Held> held = new ConcurrentHashMap<>();
+
+    /** Bloqueos de un {@link UndoLog}; sólo los toca el hilo de su conexión. */
+    private static final class Held {
+        final IntList rows = new IntList();
+        final List<Map.Entry<MemoryIndex, Object>> keys = new ArrayList<>();
+    }
+
+    /** Segmento de filas con su cerrojo. */
+    static final class Segment {
+        final ColumnVector[] columns;
+        final long[] deleted = new long[SEGMENT_ROWS >>> 6];
+        /** Filas marcadas en {@link #deleted}; protegido por el cerrojo. */
+        int deletedCount;
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        /** Posiciones ocupadas; protegido por el cerrojo. */
+        int size;
+
+        Segment(ColumnType[] types) {
+            columns = new ColumnVector[types.length];
+            for (int c = 0; c < types.length; c++) columns[c] = ColumnVector.allocate(types[c], SEGMENT_ROWS);
+        }
+
+        boolean isDeleted(int i) {
+            return (deleted[i >>> 6] & (1L << i)) != 0;
+        }
+    }
+
+    /** Visita de una fila durante un recorrido, con el cerrojo del segmento tomado. */
+    interface RowVisitor {
+        /** @return false para terminar el recorrido */
+        boolean visit(Segment s, int offset, int row);
+    }
+
+    /**
+     * @param name nombre de la tabla
+     * @param columnNames nombres de las columnas
+     * @param types tipos de las columnas
+     * @param notNull columnas NOT NULL
+     * @param defaults valor DEFAULT de cada columna (null si no tiene)
+     * @param primaryKey posición de la columna PRIMARY KEY, o -1
+     */
+    MemoryTable(String name, String[] columnNames, ColumnType[] types, boolean[] notNull, Object[] defaults, int primaryKey) {
+        if (columnNames.length == 0) throw new IllegalArgumentException("table " + name + " must have at least one column");
+        this.name = name;
+        this.columnNames = columnNames.clone();
+        this.types = types.clone();
+        this.notNull = notNull.clone();
+        this.defaults = new Object[columnNames.length];
+        for (int c = 0; c < columnNames.length; c++) this.defaults[c] = coerce(c, defaults[c]);
+        for (int c = 0; c < columnNames.length; c++) {
+            if (columnIndex.put(columnNames[c].toLowerCase(Locale.ROOT), c) != null) {
+                throw new IllegalArgumentException("column \"" + columnNames[c] + "\" specified more than once");
+            }
+        }
+        if (primaryKey >= 0) {
+            this.notNull[primaryKey] = true;
+            indexes.add(new MemoryIndex.Hash(name + "_pkey", primaryKey, true));
+        }
+    }
+
+    /** @return nombre de la tabla */
+    public String getName() {
+        return name;
+    }
+
+    /** @return nombres de las columnas, en orden */
+    public List<String> getColumnNames() {
+        return Collections.unmodifiableList(Arrays.asList(columnNames));
+    }
+
+    /** @return tipo de la columna {@code c} */
+    public ColumnType getColumnType(int c) {
+        return types[c];
+    }
+
+    /** @return filas vivas (sin las borradas) */
+    public int size() {
+        return liveRows.get();
+    }
+
+    /**
+     * @param column nombre (sin distinguir mayúsculas)
+     * @return posición de la columna
+     * @throws IllegalArgumentException si no existe
+     */
+    public int columnIndex(String column) {
+        Integer c = columnIndex.get(column.toLowerCase(Locale.ROOT));
+        if (c == null) throw new IllegalArgumentException("column \"" + column + "\" does not exist in table " + name);
+        return c;
+    }
+
+    /**
+     * Convierte los valores de un INSERT al tipo de cada columna y comprueba
+     * NOT NULL.
+     *
+     * @param columns posiciones de las columnas dadas (null = todas, en orden)
+     * @param values valores, uno por columna dada
+     * @return fila completa (las columnas no dadas toman su DEFAULT o null)
+     */
+    Object[] coerceRow(int[] columns, Object[] values) {
+        int expected = columns == null ? columnNames.length : columns.length;
+        if (values.length != expected) {
+            throw new IllegalArgumentException("INSERT has " + values.length + " values but " + expected + " target columns");
+        }
+        Object[] row = columns == null ? new Object[columnNames.length] : defaults.clone();
+        for (int k = 0; k < values.length; k++) {
+            int c = columns == null ? k : columns[k];
+            row[c] = coerce(c, values[k]);
+        }
+        for (int c = 0; c < row.length; c++) {
+            if (row[c] == null && notNull[c]) {
+                throw new IllegalStateException("null value in column \"" + columnNames[c] + "\" violates not-null constraint");
+            }
+        }
+        return row;
+    }
+
+    /** Convierte un valor al tipo de la columna {@code c}. */
+    Object coerce(int c, Object value) {
+        try {
+            return types[c].coerce(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("column \"" + columnNames[c] + "\": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Inserta una fila.
+     *
+     * @param row fila completa ya convertida ({@link #coerceRow})
+     * @param undo registro de la transacción (null = sin registro)
+     * @throws IllegalStateException si viola un índice único
+     */
+    void insert(Object[] row, UndoLog undo) {
+        int id;
+        appendLock.lock();
+        try {
+            if (nextRow >= MAX_ROWS) {
+                throw new IllegalStateException("table " + name + " is full: MEMORY_MAX_ROWS=" + MAX_ROWS + " rows, deleted ones included");
+            }
+            for (MemoryIndex idx : indexes) {
+                if (!idx.unique) continue;
+                Object key = Literal.key(types[idx.column], row[idx.column]);
+                if (key != null) checkUnique(idx, key, row[idx.column], undo);
+            }
+            id = nextRow;
+            int seg = id >>> SEGMENT_SHIFT;
+            Segment[] segs = segments;
+            if (seg == segs.length) {
+                segs = Arrays.copyOf(segs, seg + 1);
+                segs[seg] = new Segment(types);
+                segments = segs;
+            }
+            Segment s = segs[seg];
+            int off = id & SEGMENT_MASK;
+            s.lock.writeLock().lock();
+            try {
+                for (int c = 0; c < row.length; c++) s.columns[c].set(off, row[c]);
+                s.size = off + 1;
+                lockRow(id, undo);
+                for (MemoryIndex idx : indexes) {
+                    Object key = Literal.key(types[idx.column], row[idx.column]);
+                    if (key != null) idx.add(key, id);
+                }
+            } finally {
+                s.lock.writeLock().unlock();
+            }
+            nextRow = id + 1;
+        } finally {
+            appendLock.unlock();
+        }
+        liveRows.incrementAndGet();
+        if (undo != null) undo.add(() -> deleteRow(id));
+    }
+
+    /**
+     * Actualiza las filas que cumplen la condición.
+     *
+     * @param where condición (null = todas)
+     * @param columns columnas asignadas
+     * @param values valores ya convertidos, uno por columna
+     * @param undo registro de la transacción (null = sin registro)
+     * @return filas actualizadas
+     * @throws IllegalStateException si viola un índice único
+     */
+    int update(Condition where, int[] columns, Object[] values, UndoLog undo) {
+        for (int k = 0; k < columns.length; k++) {
+            if (values[k] == null && notNull[columns[k]]) {
+                throw new IllegalStateException("null value in column \"" + columnNames[columns[k]] + "\" violates not-null constraint");
+            }
+        }
+        boolean unique = false;
+        for (MemoryIndex idx : indexes) {
+            for (int c : columns) unique |= idx.unique && idx.column == c;
+        }
+        if (unique) appendLock.lock();
+        try {
+            int[] count = {0};
+            scan(where, true, (s, off, id) -> {
+                lockRow(id, undo);
+                Object[] old = assign(s, off, id, columns, values, undo, true);
+                count[0]++;
+                if (undo != null) undo.add(() -> restore(id, columns, old));
+                return true;
+            });
+            return count[0];
+        } finally {
+            if (unique) appendLock.unlock();
+        }
+    }
+
+    /**
+     * Borra las filas que cumplen la condición.
+     *
+     * @param where condición (null = todas)
+     * @param undo registro de la transacción (null = sin registro)
+     * @return filas borradas
+     */
+    int delete(Condition where, UndoLog undo) {
+        int[] count = {0};
+        scan(where, true, (s, off, id) -> {
+            lockRow(id, undo);
+            if (deleteAt(s, off, id, undo)) {
+                count[0]++;
+                if (undo != null) undo.add(() -> reviveRow(id));
+            }
+            return true;
+        });
+        return count[0];
+    }
+
+    /**
+     * Consulta filas.
+     *
+     * @param projection columnas devueltas
+     * @param labels nombre de cada columna devuelta en el resultado
+     * @param where condición (null = todas)
+     * @param orderBy columnas de ORDER BY (vacío = orden de inserción)
+     * @param descending DESC por columna de ORDER BY
+     * @param limit máximo de filas (-1 = sin límite)
+     * @param offset filas a saltar
+     * @return filas (Map etiqueta → valor)
+     */
+    List<Map<String, Object>> select(int[] projection, String[] labels, Condition where,
+                                     int[] orderBy, boolean[] descending, long limit, long offset) {
+        int[] fetch = Arrays.copyOf(projection, projection.length + orderBy.length);
+        int width = projection.length;
+        int[] orderPos = new int[orderBy.length];
+        for (int k = 0; k < orderBy.length; k++) {
+            int pos = -1;
+            for (int p = 0; p < width && pos < 0; p++) if (fetch[p] == orderBy[k]) pos = p;
+            if (pos < 0) {
+                pos = width;
+                fetch[width++] = orderBy[k];
+            }
+            orderPos[k] = pos;
+        }
+        int[] columns = Arrays.copyOf(fetch, width);
+        long keep = limit < 0 ? Long.MAX_VALUE : offset + limit;
+        if (keep <= 0) return new ArrayList<>();
+
+        List<Object[]> rows;
+        if (orderBy.length == 0) {
+            List<Object[]> out = new ArrayList<>();
+            scan(where, false, (s, off, id) -> {
+                out.add(materialize(s, off, columns));
+                return out.size() < keep;
+            });
+            rows = out;
+        } else {
+            Comparator<Object[]> cmp = rowComparator(orderPos, descending);
+            if (limit >= 0 && keep <= Integer.MAX_VALUE - 1) {
+                // Top-K: montículo con la peor fila en la cima.
+                PriorityQueue<Object[]> heap = new PriorityQueue<>((int) Math.min(keep, 1024) + 1, cmp.reversed());
+                scan(where, false, (s, off, id) -> {
+                    Object[] r = materialize(s, off, columns);
+                    if (heap.size() < keep) {
+                        heap.add(r);
+                    } else if (cmp.compare(r, heap.peek()) < 0) {
+                        heap.poll();
+                        heap.add(r);
+                    }
+                    return true;
+                });
+                rows = new ArrayList<>(heap);
+            } else {
+                List<Object[]> out = new ArrayList<>();
+                scan(where, false, (s, off, id) -> {
+                    out.add(materialize(s, off, columns));
+                    return true;
+                });
+                rows = out;
+            }
+            rows.sort(cmp);
+        }
+
+        List<Map<String, Object>> result = new ArrayList<>();
+        long end = Math.min(rows.size(), keep);
+        for (long i = Math.min(offset, end); i < end; i++) {
+            Object[] r = rows.get((int) i);
+            Map<String, Object> m = new LinkedHashMap<>();
+            for (int p = 0; p < projection.length; p++) m.put(labels[p], r[p]);
+            result.add(m);
+        }
+        return result;
+    }
+
+    /**
+     * GROUP BY y agregados sobre las filas que cumplen la condición, leyendo
+     * directamente los vectores de cada segmento ({@link VectorAggregator}).
+     * Cada segmento se lee con su cerrojo de lectura; segmentos distintos
+     * pueden agregarse en paralelo.
+     *
+     * @param where condición (null = todas)
+     * @param spec agrupación y agregados
+     * @return filas agregadas
+     */
+    List<Map<String, Object>> aggregate(Condition where, AggregateSpec spec) {
+        if (where instanceof Condition.Constant) {
+            if (((Condition.Constant) where).value != Condition.TRUE) return spec.execute(new TableSource(new Segment[0], null, null));
+            where = null;
+        }
+        IntList candidates = where == null ? null : plan(where);
+        if (candidates != null) candidates.sortDistinct();
+        return spec.execute(new TableSource(segments, where, candidates));
+    }
+
+    /** Segmentos de la tabla como {@link VectorSource}: un trozo por segmento. */
+    private final class TableSource implements VectorSource {
+        private final Segment[] segs;
+        private final Condition where;
+        /** Candidatas de un índice (ordenadas), o null para recorrer todo. */
+        private final IntList candidates;
+        /** Primera candidata de cada segmento. */
+        private final int[] starts;
+
+        TableSource(Segment[] segs, Condition where, IntList candidates) {
+            this.segs = segs;
+            this.where = where;
+            this.candidates = candidates;
+            if (candidates == null) {
+                starts = null;
+            } else {
+                starts = new int[segs.length + 1];
+                int p = 0;
+                for (int k = 0; k <= segs.length; k++) {
+                    while (p < candidates.size() && candidates.get(p) >>> SEGMENT_SHIFT < k) p++;
+                    starts[k] = p;
+                }
+            }
+        }
+
+        @Override
+        public int columnIndex(String name) {
+            return MemoryTable.this.columnIndex(name);
+        }
+
+        @Override
+        public ColumnType columnType(int c) {
+            return types[c];
+        }
+
+        @Override
+        public int chunkCount() {
+            return segs.length;
+        }
+
+        @Override
+        public long rowEstimate() {
+            return candidates != null ? candidates.size() : (long) segs.length * SEGMENT_ROWS;
+        }
+
+        @Override
+        public void read(int i, ChunkConsumer consumer) {
+            Segment s = segs[i];
+            s.lock.readLock().lock();
+            try {
+                ColumnVector[] cols = s.columns;
+                if (candidates == null && where == null && s.deletedCount == 0) {
+                    consumer.accept(cols, IDENTITY, s.size);
+                    return;
+                }
+                int[] rows = new int[SEGMENT_ROWS];
+                int n = 0;
+                if (candidates == null) {
+                    for (int off = 0; off < s.size; off++) {
+                        if (s.isDeleted(off) || (where != null && !where.test(cols, off))) continue;
+                        rows[n++] = off;
+                    }
+                } else {
+                    for (int p = starts[i]; p < starts[i + 1]; p++) {
+                        int off = candidates.get(p) & SEGMENT_MASK;
+                        if (off >= s.size || s.isDeleted(off) || !where.test(cols, off)) continue;
+                        rows[n++] = off;
+                    }
+                }
+                consumer.accept(cols, rows, n);
+            } finally {
+                s.lock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Crea un índice y lo rellena con las filas existentes. Bloquea todos los
+     * segmentos mientras se construye.
+     *
+     * @param indexName nombre del índice
+     * @param column columna indexada
+     * @param sorted true para índice ordenado (rangos), false para hash
+     * @param unique true si la clave no puede repetirse
+     * @throws IllegalStateException si ya existe un índice con ese nombre o
+     *         si {@code unique} y hay claves repetidas
+     */
+    void createIndex(String indexName, String column, boolean sorted, boolean unique) {
+        int c = columnIndex(column);
+        MemoryIndex idx = sorted ? new MemoryIndex.Sorted(indexName, c, unique) : new MemoryIndex.Hash(indexName, c, unique);
+        appendLock.lock();
+        try {
+            for (MemoryIndex existing : indexes) {
+                if (existing.name.equalsIgnoreCase(indexName)) throw new IllegalStateException("index \"" + indexName + "\" already exists");
+            }
+            Segment[] segs = segments;
+            for (Segment s : segs) s.lock.writeLock().lock();
+            try {
+                for (int k = 0; k < segs.length; k++) {
+                    Segment s = segs[k];
+                    ColumnVector v = s.columns[c];
+                    for (int off = 0; off < s.size; off++) {
+                        if (s.isDeleted(off) || v.isNull(off)) continue;
+                        Object key = Literal.key(types[c], v.get(off));
+                        if (unique && idx.contains(key)) {
+                            throw new IllegalStateException("could not create unique index \"" + indexName
+                                    + "\": key (" + columnNames[c] + ")=(" + key + ") is duplicated");
+                        }
+                        idx.add(key, (k << SEGMENT_SHIFT) | off);
+                    }
+                }
+                indexes.add(idx);
+            } finally {
+                for (Segment s : segs) s.lock.writeLock().unlock();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /** @return true si existe un índice con ese nombre */
+    boolean hasIndex(String indexName) {
+        for (MemoryIndex idx : indexes) if (idx.name.equalsIgnoreCase(indexName)) return true;
+        return false;
+    }
+
+    /**
+     * Recorre las filas vivas que cumplen la condición, segmento a segmento y
+     * en orden de identificador, con el cerrojo del segmento tomado (de
+     * escritura si {@code write}).
+     */
+    void scan(Condition where, boolean write, RowVisitor visitor) {
+        if (where instanceof Condition.Constant) {
+            if (((Condition.Constant) where).value != Condition.TRUE) return;
+            where = null;
+        }
+        IntList candidates = where == null ? null : plan(where);
+        if (candidates == null) {
+            Segment[] segs = segments;
+            for (int k = 0; k < segs.length; k++) {
+                Segment s = segs[k];
+                Lock lock = write ? s.lock.writeLock() : s.lock.readLock();
+                lock.lock();
+                try {
+                    int base = k << SEGMENT_SHIFT;
+                    ColumnVector[] cols = s.columns;
+                    for (int off = 0; off < s.size; off++) {
+                        if (s.isDeleted(off) || (where != null && !where.test(cols, off))) continue;
+                        if (!visitor.visit(s, off, base + off)) return;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return;
+        }
+        candidates.sortDistinct();
+        Segment[] segs = segments;
+        int n = candidates.size();
+        int p = 0;
+        while (p < n) {
+            int k = candidates.get(p) >>> SEGMENT_SHIFT;
+            if (k >= segs.length) segs = segments;
+            Segment s = segs[k];
+            Lock lock = write ? s.lock.writeLock() : s.lock.readLock();
+            lock.lock();
+            try {
+                for (; p < n && candidates.get(p) >>> SEGMENT_SHIFT == k; p++) {
+                    int id = candidates.get(p);
+                    int off = id & SEGMENT_MASK;
+                    if (off >= s.size || s.isDeleted(off) || !where.test(s.columns, off)) continue;
+                    if (!visitor.visit(s, off, id)) return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Busca filas candidatas con los índices.
+     *
+     * @return candidatas (sin ordenar, con posibles duplicados), o null si
+     *         ningún término de la condición puede usar un índice
+     */
+    private IntList plan(Condition where) {
+        if (indexes.isEmpty()) return null;
+        List<Condition> terms = where instanceof Condition.And
+                ? ((Condition.And) where).terms : Collections.singletonList(where);
+        IntList best = null;
+        for (Condition term : terms) {
+            IntList rows = probe(term);
+            if (rows != null && (best == null || rows.size() < best.size())) best = rows;
+            if (best != null && best.size() <= 1) break;
+        }
+        return best;
+    }
+
+    @SuppressWarnings("unchecked")
+    private IntList probe(Condition term) {
+        if (term instanceof Condition.Constant) {
+            return ((Condition.Constant) term).value == Condition.TRUE ? null : new IntList(1);
+        }
+        if (term instanceof Condition.Compare) {
+            Condition.Compare cmp = (Condition.Compare) term;
+            Literal lit = cmp.literal;
+            switch (cmp.op) {
+                case EQ: {
+                    MemoryIndex idx = indexFor(cmp.column, false);
+                    if (idx == null) return null;
+                    return lit.key == null ? new IntList(1) : idx.lookup(lit.key);
+                }
+                case LT:
+                case LE:
+                case GT:
+                case GE: {
+                    MemoryIndex idx = indexFor(cmp.column, true);
+                    if (idx == null || lit.key == null) return null;
+                    boolean inclusive = cmp.op == Condition.Op.LE || cmp.op == Condition.Op.GE;
+                    boolean upper = cmp.op == Condition.Op.LT || cmp.op == Condition.Op.LE;
+                    return upper ? idx.range(null, false, lit.key, inclusive) : idx.range(lit.key, inclusive, null, false);
+                }
+                default:
+                    return null;
+            }
+        }
+        if (term instanceof Condition.In && !((Condition.In) term).negated) {
+            Condition.In in = (Condition.In) term;
+            MemoryIndex idx = indexFor(in.column, false);
+            if (idx == null) return null;
+            IntList out = new IntList();
+            for (Literal lit : in.values) if (lit.key != null) out.addAll(idx.lookup(lit.key));
+            return out;
+        }
+        if (term instanceof Condition.Between && !((Condition.Between) term).negated) {
+            Condition.Between b = (Condition.Between) term;
+            MemoryIndex idx = indexFor(b.column, true);
+            if (idx == null || b.low.key == null || b.high.key == null) return null;
+            if (((Comparable<Object>) b.low.key).compareTo(b.high.key) > 0) return new IntList(1);
+            return idx.range(b.low.key, true, b.high.key, true);
+        }
+        return null;
+    }
+
+    private MemoryIndex indexFor(int column, boolean range) {
+        MemoryIndex found = null;
+        for (MemoryIndex idx : indexes) {
+            if (idx.column != column || (range && !idx.supportsRange())) continue;
+            if (found == null || (idx.unique && !found.unique)) found = idx;
+        }
+        return found;
+    }
+
+    private static Object[] materialize(Segment s, int off, int[] columns) {
+        Object[] r = new Object[columns.length];
+        for (int k = 0; k < columns.length; k++) r[k] = s.columns[columns[k]].get(off);
+        return r;
+    }
+
+    /** Orden de ORDER BY: null se considera mayor que cualquier valor (último en ASC, primero en DESC). */
+    @SuppressWarnings("unchecked")
+    static Comparator<Object[]> rowComparator(int[] positions, boolean[] descending) {
+        return (x, y) -> {
+            for (int k = 0; k < positions.length; k++) {
+                Object a = x[positions[k]];
+                Object b = y[positions[k]];
+                int c;
+                if (a == null) c = b == null ? 0 : 1;
+                else if (b == null) c = -1;
+                else c = ((Comparable<Object>) a).compareTo(b);
+                if (c != 0) return descending[k] ? -c : c;
+            }
+            return 0;
+        };
+    }
+
+    /**
+     * Asigna valores a una fila con el cerrojo de escritura del segmento
+     * tomado, manteniendo los índices.
+     *
+     * @param checkUnique true para rechazar claves repetidas (requiere appendLock)
+     * @return valores anteriores de las columnas asignadas
+     */
+    private Object[] assign(Segment s, int off, int id, int[] columns, Object[] values, UndoLog owner, boolean checkUnique) {
+        Object[] old = new Object[columns.length];
+        for (int k = 0; k < columns.length; k++) old[k] = s.columns[columns[k]].get(off);
+        boolean live = !s.isDeleted(off);
+        if (live && checkUnique) {
+            for (MemoryIndex idx : indexes) {
+                if (!idx.unique) continue;
+                for (int k = 0; k < columns.length; k++) {
+                    if (columns[k] != idx.column) continue;
+                    Object key = Literal.key(types[idx.column], values[k]);
+                    Object oldKey = Literal.key(types[idx.column], old[k]);
+                    if (key != null && !key.equals(oldKey)) checkUnique(idx, key, values[k], owner);
+                }
+            }
+        }
+        for (int k = 0; k < columns.length; k++) {
+            int c = columns[k];
+            if (live) {
+                for (MemoryIndex idx : indexes) {
+                    if (idx.column != c) continue;
+                    Object oldKey = Literal.key(types[c], old[k]);
+                    if (oldKey != null) {
+                        if (idx.unique) reserve(idx, oldKey, owner);
+                        idx.remove(oldKey, id);
+                    }
+                    Object key = Literal.key(types[c], values[k]);
+                    if (key != null) idx.add(key, id);
+                }
+            }
+            s.columns[c].set(off, values[k]);
+        }
+        return old;
+    }
+
+    /** Deshace un UPDATE de una fila. */
+    private void restore(int id, int[] columns, Object[] values) {
+        Segment s = segments[id >>> SEGMENT_SHIFT];
+        s.lock.writeLock().lock();
+        try {
+            assign(s, id & SEGMENT_MASK, id, columns, values, null, false);
+        } finally {
+            s.lock.writeLock().unlock();
+        }
+    }
+
+    /** Borra una fila por identificador (deshace un INSERT). */
+    private void deleteRow(int id) {
+        Segment s = segments[id >>> SEGMENT_SHIFT];
+        s.lock.writeLock().lock();
+        try {
+            deleteAt(s, id & SEGMENT_MASK, id, null);
+        } finally {
+            s.lock.writeLock().unlock();
+        }
+    }
+
+    private boolean deleteAt(Segment s, int off, int id, UndoLog owner) {
+        if (s.isDeleted(off)) return false;
+        s.deleted[off >>> 6] |= 1L << off;
+        s.deletedCount++;
+        for (MemoryIndex idx : indexes) {
+            Object key = Literal.key(types[idx.column], s.columns[idx.column].get(off));
+            if (key == null) continue;
+            // Reservada antes de quitarla: siempre está en el índice o reservada
+            if (idx.unique) reserve(idx, key, owner);
+            idx.remove(key, id);
+        }
+        liveRows.decrementAndGet();
+        return true;
+    }
+
+    /**
+     * Revive una fila borrada (deshace un DELETE). Sus claves únicas siguen
+     * reservadas por quien la borró, así que nadie más ha podido ocuparlas;
+     * aun así se comprueban y, si una ya está en uso (una fila creada por un
+     * índice posterior, por ejemplo), la fila sigue borrada.
+     *
+     * @throws IllegalStateException si viola un índice único
+     */
+    private void reviveRow(int id) {
+        appendLock.lock();
+        try {
+            Segment s = segments[id >>> SEGMENT_SHIFT];
+            int off = id & SEGMENT_MASK;
+            s.lock.writeLock().lock();
+            try {
+                if (!s.isDeleted(off)) return;
+                for (MemoryIndex idx : indexes) {
+                    if (!idx.unique) continue;
+                    Object value = s.columns[idx.column].get(off);
+                    Object key = Literal.key(types[idx.column], value);
+                    if (key != null && idx.contains(key)) throw duplicate(idx, value);
+                }
+                s.deleted[off >>> 6] &= ~(1L << off);
+                s.deletedCount--;
+                for (MemoryIndex idx : indexes) {
+                    Object key = Literal.key(types[idx.column], s.columns[idx.column].get(off));
+                    if (key != null) idx.add(key, id);
+                }
+                liveRows.incrementAndGet();
+            } finally {
+                s.lock.writeLock().unlock();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Bloquea una fila a nombre de {@code owner} hasta que éste termine.
+     *
+     * @throws IllegalStateException si otra transacción la tiene bloqueada
+     */
+    private void lockRow(int id, UndoLog owner) {
+        if (owner == null) return;
+        UndoLog prev = rowLocks.putIfAbsent(id, owner);
+        if (prev == null) {
+            held(owner).rows.add(id);
+        } else if (prev != owner && (prev.transactional || owner.transactional)) {
+            throw new IllegalStateException("could not obtain lock on row in relation \"" + name
+                    + "\": it is being modified by another transaction");
+        }
+    }
+
+    /** Reserva una clave única que sale de su índice mientras {@code owner} pueda deshacerlo. */
+    private void reserve(MemoryIndex idx, Object key, UndoLog owner) {
+        if (owner == null) return;
+        Map.Entry<MemoryIndex, Object> k = new AbstractMap.SimpleImmutableEntry<>(idx, key);
+        if (reservedKeys.putIfAbsent(k, owner) == null) held(owner).keys.add(k);
+    }
+
+    /**
+     * @throws IllegalStateException si la clave está en el índice o reservada
+     *         por otra transacción
+     */
+    private void checkUnique(MemoryIndex idx, Object key, Object value, UndoLog owner) {
+        if (idx.contains(key)) throw duplicate(idx, value);
+        UndoLog prev = reservedKeys.get(new AbstractMap.SimpleImmutableEntry<>(idx, key));
+        if (prev != null && prev != owner && (prev.transactional || owner == null || owner.transactional)) {
+            throw new IllegalStateException("could not obtain lock on key (" + columnNames[idx.column] + ")=(" + value
+                    + ") in relation \"" + name + "\": it is held by another transaction");
+        }
+    }
+
+    private Held held(UndoLog owner) {
+        return held.computeIfAbsent(owner, k -> {
+            owner.hold(this);
+            return new Held();
+        });
+    }
+
+    /** Libera las filas y claves retenidas por {@code owner} (COMMIT o ROLLBACK ya aplicado). */
+    void release(UndoLog owner) {
+        Held h = held.remove(owner);
+        if (h == null) return;
+        for (int i = 0; i < h.rows.size(); i++) rowLocks.remove(h.rows.get(i), owner);
+        for (Map.Entry<MemoryIndex, Object> k : h.keys) reservedKeys.remove(k, owner);
+    }
+
+    private IllegalStateException duplicate(MemoryIndex idx, Object value) {
+        return new IllegalStateException("duplicate key value violates unique constraint \"" + idx.name
+                + "\": (" + columnNames[idx.column] + ")=(" + value + ")");
+    }
+}
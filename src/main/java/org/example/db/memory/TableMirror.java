@@ -0,0 +1,512 @@
+package org.example.db.memory;
+
+import org.example.db.DBConnection;
+import org.example.db.DBFactory;
+import org.example.db.DBQuery;
+import org.example.db.utilities.ConnectionConfig;
+import org.example.db.utilities.Log;
+import org.example.db.utilities.LogLevel;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @file TableMirror.java
+ * @brief Copia en memoria de tablas de referencia de Postgres/MySQL que
+ *        responde localmente las lecturas sobre ellas.
+ *
+ * Las tablas de MIRROR_TABLES se cargan completas ("SELECT * FROM t") en
+ * tablas del motor en memoria ({@link MemoryTable}) con un índice ordenado por
+ * columna, de modo que las búsquedas por igualdad, IN, rangos y BETWEEN no
+ * recorren la tabla. {@link org.example.db.DBClient} pasa cada lectura por
+ * {@link #query(String)}: un SELECT sobre una sola tabla replicada que el
+ * motor en memoria entiende (sin agregados ni GROUP BY) se responde sin ir a
+ * la base de datos; cualquier otro, o si la copia no está al día, sigue su
+ * camino normal.
+ *
+ * Refresco:
+ * - Cada MIRROR_REFRESH_MS se recargan todas las tablas (0 = sólo al invalidar).
+ * - {@link #invalidate(String)} deja de responder con esa tabla y la recarga
+ *   enseguida. DBClient invalida las tablas que menciona cada escritura hecha
+ *   a través del middleware; el endpoint /admin/mirror permite hacerlo a mano.
+ * - Una recarga que empezó antes de una invalidación no se da por buena.
+ * - La tabla nueva se construye aparte y sustituye a la anterior de forma
+ *   atómica: las lecturas en curso terminan con la versión anterior.
+ * - Con MIRROR_MAX_STALENESS_MS &gt; 0, una copia más antigua que ese valor
+ *   (por ejemplo si las recargas fallan) deja de usarse.
+ *
+ * Las tablas se identifican por su nombre sin distinguir mayúsculas. Una
+ * lectura que califica la tabla con otro esquema (archive.countries frente a
+ * public.countries) no se responde con la copia; una sin esquema, sí. Los
+ * tipos se deducen de los valores cargados como en {@link ColumnBatch}.
+ *
+ * Sólo se responde si el resultado es el mismo que daría la base de datos;
+ * si no, la lectura va a la base de datos (y cuenta como fallo):
+ * - Columnas cuyos valores no vuelven con el mismo tipo Java (fechas, Float,
+ *   binarios, mezclas de tipos) no pueden aparecer en la lista de SELECT (ni
+ *   con '*'), en comparaciones ni en ORDER BY; sí en IS NULL.
+ * - El texto sólo se compara por igualdad (=, &lt;&gt;, IN) y con constantes de
+ *   texto: el orden depende de la intercalación del servidor, así que no hay
+ *   rangos, BETWEEN ni ORDER BY sobre texto. En MySQL, donde la intercalación
+ *   no distingue mayúsculas, tampoco igualdad ni LIKE sobre texto.
+ * - En MySQL los NULL van primero en ORDER BY ASC, así que no se ordena por
+ *   columnas con algún NULL.
+ *
+ * Métricas por tabla en {@link #snapshot()}: aciertos, fallos (lecturas sobre
+ * la tabla que fueron a la base de datos), tasa de aciertos, filas,
+ * antigüedad de la copia (staleness), recargas y errores.
+ *
+ * Como {@link org.example.db.ConcurrencyLimiter}, hay una instancia por
+ * proveedor (clave: {@link DBFactory#getName()}).
+ *
+ * Configuración (ENV > db.properties > defecto):
+ * - MIRROR_TABLES: lista "proveedor:tabla" o "tabla" (todos los proveedores),
+ *   p. ej. "postgres:public.countries,mysql:config" (vacía = desactivado)
+ * - MIRROR_REFRESH_MS: periodo de recarga (defecto 60000)
+ * - MIRROR_MAX_STALENESS_MS: antigüedad máxima para responder (defecto 0 = sin límite)
+ * - MIRROR_MAX_ROWS: filas máximas de una tabla replicada (defecto 100000)
+ */
+public final class TableMirror {
+    private static final List<String> TABLES = ConnectionConfig.getConfigValueAsList("MIRROR_TABLES", "MIRROR_TABLES");
+    private static final long REFRESH_MS =
+            ConnectionConfig.getConfigValueAsInt("MIRROR_REFRESH_MS", "MIRROR_REFRESH_MS", 60000);
+    private static final long MAX_STALENESS_MS =
+            ConnectionConfig.getConfigValueAsInt("MIRROR_MAX_STALENESS_MS", "MIRROR_MAX_STALENESS_MS", 0);
+    private static final int MAX_ROWS =
+            ConnectionConfig.getConfigValueAsInt("MIRROR_MAX_ROWS", "MIRROR_MAX_ROWS", 100000);
+    private static final Map<String, TableMirror> MIRRORS = new ConcurrentHashMap<>();
+    private static final ScheduledThreadPoolExecutor LOADER = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread t = new Thread(r, "table-mirror");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Estado de una tabla replicada. */
+    public enum State { LOADING, READY, INVALID, FAILED }
+
+    /** Tabla replicada y sus contadores. */
+    private static final class Mirrored {
+        final String source;
+        final String name;
+        /** Esquema (o base de datos) de MIRROR_TABLES, o null. */
+        final String schema;
+        volatile State state = State.LOADING;
+        /** Última carga publicada. */
+        volatile Shape shape;
+        /** Momento (currentTimeMillis) de la última carga correcta; 0 = nunca. */
+        volatile long loadedAt;
+        volatile int rows;
+        volatile String lastError;
+        /** Se incrementa en cada invalidación; una carga sólo vale si no cambió. */
+        final AtomicLong version = new AtomicLong();
+        /** Hay una carga encolada que aún no ha empezado. */
+        final AtomicBoolean queued = new AtomicBoolean();
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+        final AtomicLong loads = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+
+        Mirrored(String source) {
+            this.source = source;
+            this.name = lastPart(source);
+            int dot = source.trim().lastIndexOf('.');
+            this.schema = dot < 0 ? null : lastPart(source.trim().substring(0, dot));
+        }
+    }
+
+    /** Tabla cargada y lo que la copia puede reproducir de cada columna. */
+    private static final class Shape {
+        final MemoryTable table;
+        /** Columnas cuyos valores no vuelven con el tipo Java que da la base de datos. */
+        final boolean[] opaque;
+        /** Columnas con algún NULL. */
+        final boolean[] nullable;
+
+        Shape(MemoryTable table, List<Map<String, Object>> rows) {
+            this.table = table;
+            List<String> columns = table.getColumnNames();
+            this.opaque = new boolean[columns.size()];
+            this.nullable = new boolean[columns.size()];
+            for (int c = 0; c < opaque.length; c++) {
+                ColumnType type = table.getColumnType(c);
+                for (Map<String, Object> row : rows) {
+                    Object v = row.get(columns.get(c));
+                    if (v == null) nullable[c] = true;
+                    else if (!sameType(type, v)) opaque[c] = true;
+                }
+            }
+        }
+
+        /** El valor vuelve de la copia con su tipo Java, o con uno que se serializa igual (Short → Integer). */
+        private static boolean sameType(ColumnType type, Object v) {
+            if (v instanceof String) return type == ColumnType.TEXT;
+            if (v instanceof Boolean) return type == ColumnType.BOOLEAN;
+            if (v instanceof Double) return type == ColumnType.DOUBLE;
+            if (v instanceof BigDecimal) return type == ColumnType.DECIMAL;
+            if (v instanceof Integer || v instanceof Long || v instanceof Short || v instanceof Byte || v instanceof BigInteger) {
+                return type == ColumnType.INT || type == ColumnType.BIGINT || type == ColumnType.DECIMAL;
+            }
+            return false;
+        }
+    }
+
+    private final DBFactory factory;
+    private final MemoryDatabase db = new MemoryDatabase();
+    private final Map<String, Mirrored> tables = new LinkedHashMap<>();
+    /** Menciones de cualquier tabla replicada en un texto SQL. */
+    private final Pattern mentions;
+    /** MySQL: texto comparado sin distinguir mayúsculas y NULL primero en ORDER BY ASC. */
+    private final boolean mysqlSemantics;
+
+    private TableMirror(DBFactory factory, List<String> sources) {
+        this.factory = factory;
+        this.mysqlSemantics = "mysql".equals(factory.getName());
+        StringBuilder alternatives = new StringBuilder();
+        for (String source : sources) {
+            Mirrored m = new Mirrored(source);
+            if (tables.putIfAbsent(m.name.toLowerCase(Locale.ROOT), m) != null) continue;
+            if (alternatives.length() > 0) alternatives.append('|');
+            alternatives.append(Pattern.quote(m.name));
+        }
+        this.mentions = Pattern.compile("(?<![\\w$])(" + alternatives + ")(?![\\w$])",
+                Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        for (Mirrored m : tables.values()) scheduleLoad(m);
+        if (REFRESH_MS > 0) {
+            LOADER.scheduleWithFixedDelay(() -> {
+                for (Mirrored m : tables.values()) load(m);
+            }, REFRESH_MS, REFRESH_MS, TimeUnit.MILLISECONDS);
+        }
+        Log.info("mirror", factory.getName() + ": mirroring " + tables.keySet()
+                + (REFRESH_MS > 0 ? " every " + REFRESH_MS + " ms" : " (refresh on invalidation only)"));
+    }
+
+    /**
+     * Obtiene (o crea, lanzando la primera carga) la copia del proveedor de
+     * la fábrica.
+     *
+     * @param factory fábrica del proveedor
+     * @return copia compartida para ese proveedor, o null si MIRROR_TABLES no
+     *         incluye ninguna tabla suya
+     */
+    public static TableMirror forFactory(DBFactory factory) {
+        String provider = factory.getName();
+        TableMirror mirror = MIRRORS.get(provider);
+        if (mirror != null || TABLES.isEmpty() || factory instanceof MemoryFactory) return mirror;
+        List<String> sources = new ArrayList<>();
+        for (String entry : TABLES) {
+            int colon = entry.indexOf(':');
+            if (colon < 0) sources.add(entry.trim());
+            else if (entry.substring(0, colon).trim().equalsIgnoreCase(provider)) sources.add(entry.substring(colon + 1).trim());
+        }
+        sources.removeIf(String::isEmpty);
+        if (sources.isEmpty()) return null;
+        return MIRRORS.computeIfAbsent(provider, k -> new TableMirror(factory, sources));
+    }
+
+    /**
+     * @param provider nombre del proveedor ({@link DBFactory#getName()})
+     * @return copia del proveedor si ya se creó, o null (no la crea)
+     */
+    public static TableMirror get(String provider) {
+        return MIRRORS.get(provider);
+    }
+
+    /** @return copias creadas hasta ahora, una por proveedor */
+    public static List<TableMirror> all() {
+        return new ArrayList<>(MIRRORS.values());
+    }
+
+    /** @return nombre del proveedor */
+    public String getProvider() {
+        return factory.getName();
+    }
+
+    /**
+     * Responde una lectura con la copia si es posible.
+     *
+     * @param sql sentencia de lectura
+     * @return filas, o null si hay que ejecutarla en la base de datos
+     */
+    public List<Map<String, Object>> query(String sql) {
+        Matcher matcher = mentions.matcher(sql);
+        if (!matcher.find()) return null;
+        Mirrored m = tables.get(matcher.group(1).toLowerCase(Locale.ROOT));
+        MemoryStatement.Select select = parseSelect(sql);
+        if (select != null && !select.table.equalsIgnoreCase(m.name)) {
+            m = tables.get(select.table.toLowerCase(Locale.ROOT));
+            if (m == null) return null;
+        }
+        if (select != null && select.schema != null && !select.schema.equalsIgnoreCase(m.schema)) {
+            // Tabla homónima de otro esquema: no es una lectura de la copia
+            return null;
+        }
+        Shape shape = m.shape;
+        if (select == null || !usable(m) || shape == null || db.getTable(m.name) != shape.table) {
+            m.misses.incrementAndGet();
+            return null;
+        }
+        try {
+            if (!faithful(select, shape)) {
+                m.misses.incrementAndGet();
+                return null;
+            }
+            List<Map<String, Object>> rows = select.execute(db, null);
+            if (db.getTable(m.name) != shape.table) {
+                // Recargada mientras tanto: lo comprobado era de la carga anterior
+                m.misses.incrementAndGet();
+                return null;
+            }
+            m.hits.incrementAndGet();
+            return rows;
+        } catch (RuntimeException e) {
+            // Columna desconocida, tipos...: que responda la base de datos con su propio error
+            m.misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /** SELECT sobre una sola tabla y sin agregados, o null. */
+    private static MemoryStatement.Select parseSelect(String sql) {
+        List<MemoryStatement> statements;
+        try {
+            statements = MemorySqlParser.parse(sql);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (statements.size() != 1 || !(statements.get(0) instanceof MemoryStatement.Select)) return null;
+        MemoryStatement.Select select = (MemoryStatement.Select) statements.get(0);
+        return select.table == null || select.isAggregate() ? null : select;
+    }
+
+    /**
+     * @return true si la base de datos devolvería lo mismo (ver la descripción
+     *         de la clase)
+     * @throws IllegalArgumentException si la sentencia usa una columna que no existe
+     */
+    private boolean faithful(MemoryStatement.Select s, Shape shape) {
+        MemoryTable t = shape.table;
+        for (int c : s.projection(t)) if (shape.opaque[c]) return false;
+        for (int c : s.orderColumns(t)) {
+            if (shape.opaque[c] || t.getColumnType(c) == ColumnType.TEXT) return false;
+            if (mysqlSemantics && shape.nullable[c]) return false;
+        }
+        return s.where == null || faithful(s.where, shape);
+    }
+
+    private boolean faithful(MemoryStatement.Predicate p, Shape shape) {
+        MemoryTable t = shape.table;
+        if (p instanceof MemoryStatement.LogicalPredicate) {
+            for (MemoryStatement.Predicate term : ((MemoryStatement.LogicalPredicate) p).terms) {
+                if (!faithful(term, shape)) return false;
+            }
+            return true;
+        }
+        if (p instanceof MemoryStatement.ComparePredicate) {
+            MemoryStatement.ComparePredicate cmp = (MemoryStatement.ComparePredicate) p;
+            boolean equality = cmp.op == Condition.Op.EQ || cmp.op == Condition.Op.NE;
+            return faithfulSide(cmp.left, cmp.right, equality, shape) && faithfulSide(cmp.right, cmp.left, equality, shape);
+        }
+        if (p instanceof MemoryStatement.InPredicate) {
+            MemoryStatement.InPredicate in = (MemoryStatement.InPredicate) p;
+            int c = t.columnIndex(in.column);
+            if (!comparable(c, true, shape)) return false;
+            for (Object v : in.values) if (!sameKind(c, v, shape)) return false;
+            return true;
+        }
+        if (p instanceof MemoryStatement.BetweenPredicate) {
+            MemoryStatement.BetweenPredicate b = (MemoryStatement.BetweenPredicate) p;
+            int c = t.columnIndex(b.column);
+            return comparable(c, false, shape) && sameKind(c, b.low, shape) && sameKind(c, b.high, shape);
+        }
+        if (p instanceof MemoryStatement.LikePredicate) {
+            int c = t.columnIndex(((MemoryStatement.LikePredicate) p).column);
+            return !mysqlSemantics && !shape.opaque[c] && t.getColumnType(c) == ColumnType.TEXT;
+        }
+        return p instanceof MemoryStatement.IsNullPredicate || p instanceof MemoryStatement.BooleanPredicate;
+    }
+
+    /** Lado {@code a} de "a OP b". */
+    private boolean faithfulSide(MemoryStatement.Operand a, MemoryStatement.Operand b, boolean equality, Shape shape) {
+        if (!a.isColumn()) {
+            if (b.isColumn()) return true; // se comprueba desde el otro lado
+            // Constante con constante: el motor compara el texto carácter a carácter
+            return a.value == null || b.value == null || (a.value instanceof Number && b.value instanceof Number);
+        }
+        int c = shape.table.columnIndex(a.column);
+        return comparable(c, equality, shape) && (b.isColumn() || sameKind(c, b.value, shape));
+    }
+
+    /** La columna se compara igual que en la base de datos (por igualdad o también por orden). */
+    private boolean comparable(int c, boolean equality, Shape shape) {
+        if (shape.opaque[c]) return false;
+        if (shape.table.getColumnType(c) != ColumnType.TEXT) return true;
+        return equality && !mysqlSemantics;
+    }
+
+    /** Una columna de texto sólo con constantes de texto: el servidor convertiría un número. */
+    private static boolean sameKind(int c, Object value, Shape shape) {
+        return value == null || shape.table.getColumnType(c) != ColumnType.TEXT || value instanceof String;
+    }
+
+    private static boolean usable(Mirrored m) {
+        if (m.state != State.READY) return false;
+        return MAX_STALENESS_MS <= 0 || System.currentTimeMillis() - m.loadedAt <= MAX_STALENESS_MS;
+    }
+
+    /**
+     * @param sql sentencia cualquiera
+     * @return tablas replicadas que menciona (nombres en minúsculas), sin repetir
+     */
+    public List<String> tablesIn(String sql) {
+        List<String> found = new ArrayList<>();
+        Matcher matcher = mentions.matcher(sql);
+        while (matcher.find()) {
+            String name = matcher.group(1).toLowerCase(Locale.ROOT);
+            if (!found.contains(name)) found.add(name);
+        }
+        return found;
+    }
+
+    /**
+     * Deja de responder con la tabla y la recarga en segundo plano.
+     *
+     * @param table nombre de la tabla (con o sin esquema)
+     * @return true si la tabla está replicada
+     */
+    public boolean invalidate(String table) {
+        Mirrored m = tables.get(lastPart(table).toLowerCase(Locale.ROOT));
+        if (m == null) return false;
+        m.version.incrementAndGet();
+        m.state = State.INVALID;
+        scheduleLoad(m);
+        return true;
+    }
+
+    /** Invalida todas las tablas de la copia. */
+    public void invalidateAll() {
+        for (Mirrored m : tables.values()) invalidate(m.name);
+    }
+
+    /** Encola una carga de la tabla si no hay ya una pendiente. */
+    private void scheduleLoad(Mirrored m) {
+        if (!m.queued.compareAndSet(false, true)) return;
+        LOADER.execute(() -> {
+            m.queued.set(false);
+            load(m);
+        });
+    }
+
+    /**
+     * Carga la tabla en una {@link MemoryTable} nueva y la publica si nadie
+     * la invalidó entretanto. Todas las cargas se hacen en el hilo
+     * "table-mirror", de una en una.
+     */
+    private void load(Mirrored m) {
+        long version = m.version.get();
+        long start = System.currentTimeMillis();
+        try {
+            List<Map<String, Object>> rows = fetch(m.source);
+            if (rows.size() > MAX_ROWS) {
+                throw new IllegalStateException(m.source + " has more than MIRROR_MAX_ROWS=" + MAX_ROWS + " rows");
+            }
+            if (rows.isEmpty()) throw new IllegalStateException(m.source + " is empty, its columns are unknown");
+            MemoryTable table = build(m.name, rows);
+            Shape shape = new Shape(table, rows);
+            if (m.version.get() != version) {
+                // Invalidada mientras se cargaba: la carga encolada por invalidate() la repetirá
+                return;
+            }
+            db.replaceTable(table);
+            m.shape = shape;
+            m.rows = rows.size();
+            m.loadedAt = start;
+            m.lastError = null;
+            m.state = State.READY;
+            if (m.version.get() != version) m.state = State.INVALID;
+            m.loads.incrementAndGet();
+            Log.sampled(LogLevel.DEBUG, "mirror", () -> factory.getName() + ": loaded " + m.source + " (" + m.rows
+                    + " rows) in " + (System.currentTimeMillis() - start) + " ms");
+        } catch (RuntimeException e) {
+            m.failures.incrementAndGet();
+            m.lastError = String.valueOf(e.getMessage());
+            if (m.state != State.READY || m.version.get() != version) m.state = State.FAILED;
+            Log.warn("mirror", factory.getName() + ": could not load " + m.source + ": " + e.getMessage());
+        }
+    }
+
+    private List<Map<String, Object>> fetch(String source) {
+        DBConnection conn = factory.createConnection("table-mirror");
+        conn.connect();
+        try {
+            DBQuery q = factory.createQuery(conn);
+            q.setSql("SELECT * FROM " + source + " LIMIT " + (MAX_ROWS + 1));
+            return q.execute();
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    /** Tabla en memoria con las filas cargadas y un índice ordenado por columna. */
+    private static MemoryTable build(String name, List<Map<String, Object>> rows) {
+        String[] columns = rows.get(0).keySet().toArray(new String[0]);
+        ColumnType[] types = new ColumnType[columns.length];
+        for (int c = 0; c < columns.length; c++) types[c] = ColumnBatch.infer(rows, columns[c]);
+        MemoryTable table = new MemoryTable(name, columns, types, new boolean[columns.length], new Object[columns.length], -1);
+        for (Map<String, Object> row : rows) {
+            Object[] values = new Object[columns.length];
+            for (int c = 0; c < columns.length; c++) values[c] = row.get(columns[c]);
+            table.insert(table.coerceRow(null, values), null);
+        }
+        for (int c = 0; c < columns.length; c++) table.createIndex(name + "_" + columns[c] + "_idx", columns[c], true, false);
+        return table;
+    }
+
+    private static String lastPart(String name) {
+        String n = name.trim();
+        int dot = n.lastIndexOf('.');
+        if (dot >= 0) n = n.substring(dot + 1);
+        if (n.length() > 1 && (n.charAt(0) == '"' || n.charAt(0) == '`')) n = n.substring(1, n.length() - 1);
+        return n;
+    }
+
+    /**
+     * @return métricas de cada tabla replicada: provider, table, state, rows,
+     *         hits, misses, hit_rate, staleness_ms (null si nunca se cargó),
+     *         loads, failures y last_error
+     */
+    public List<Map<String, Object>> snapshot() {
+        long now = System.currentTimeMillis();
+        List<Map<String, Object>> out = new ArrayList<>();
+        for (Mirrored m : tables.values()) {
+            long hits = m.hits.get();
+            long misses = m.misses.get();
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("provider", factory.getName());
+            row.put("table", m.source);
+            row.put("state", m.state.name());
+            row.put("rows", m.rows);
+            row.put("hits", hits);
+            row.put("misses", misses);
+            row.put("hit_rate", hits + misses == 0 ? null : (double) hits / (hits + misses));
+            row.put("staleness_ms", m.loadedAt == 0 ? null : now - m.loadedAt);
+            row.put("loads", m.loads.get());
+            row.put("failures", m.failures.get());
+            row.put("last_error", m.lastError);
+            out.add(row);
+        }
+        return Collections.unmodifiableList(out);
+    }
+}
@@ -0,0 +1,131 @@
+package org.example.db.memory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @file UndoLog.java
+ * @brief Registro de deshacer de una transacción de {@link MemoryConnection}.
+ *
+ * Cada cambio sobre una tabla se aplica en el momento y deja aquí la acción
+ * inversa (una inserción se deshace borrando la fila, un borrado
+ * reviviéndola y una actualización restaurando los valores anteriores).
+ * ROLLBACK ejecuta las acciones en orden inverso; un SAVEPOINT es una
+ * posición del registro.
+ *
+ * No hay control de versiones: otras conexiones ven los cambios antes del
+ * COMMIT (aislamiento READ UNCOMMITTED), pero no pueden escribir encima: las
+ * filas tocadas quedan bloqueadas a nombre de este registro en cada
+ * {@link MemoryTable} hasta que {@link #clear()} o {@link #rollback()} las
+ * liberan. El registro tampoco es seguro para hilos; pertenece a una única
+ * conexión.
+ */
+final class UndoLog {
+    /** false para el registro de una sentencia suelta (autocommit). */
+    final boolean transactional;
+    private final List<Runnable> actions = new ArrayList<>();
+    /** Tablas en las que este registro retiene filas o claves bloqueadas. */
+    private final List<MemoryTable> holding = new ArrayList<>();
+    private final List<String> savepointNames = new ArrayList<>();
+    private final List<Integer> savepointMarks = new ArrayList<>();
+
+    /**
+     * @param transactional true dentro de BEGIN ... COMMIT; los bloqueos de
+     *                      dos sentencias sueltas no chocan entre sí
+     */
+    UndoLog(boolean transactional) {
+        this.transactional = transactional;
+    }
+
+    void add(Runnable undo) {
+        actions.add(undo);
+    }
+
+    /** Anota que {@code table} retiene bloqueos de este registro (lo llama la tabla una vez). */
+    void hold(MemoryTable table) {
+        holding.add(table);
+    }
+
+    /** @return posición actual, para deshacer sólo una sentencia con {@link #rollbackTo(int)} */
+    int mark() {
+        return actions.size();
+    }
+
+    /** Deshace, en orden inverso, las acciones registradas después de {@code mark}. */
+    void rollbackTo(int mark) {
+        RuntimeException first = null;
+        for (int i = actions.size() - 1; i >= mark; i--) {
+            try {
+                actions.remove(i).run();
+            } catch (RuntimeException e) {
+                if (first == null) first = e;
+            }
+        }
+        if (first != null) throw first;
+    }
+
+    /** Deshace todo, descarta los savepoints y libera los bloqueos. */
+    void rollback() {
+        savepointNames.clear();
+        savepointMarks.clear();
+        try {
+            rollbackTo(0);
+        } finally {
+            releaseLocks();
+        }
+    }
+
+    /** Confirma: olvida las acciones y los savepoints y libera los bloqueos. */
+    void clear() {
+        actions.clear();
+        savepointNames.clear();
+        savepointMarks.clear();
+        releaseLocks();
+    }
+
+    private void releaseLocks() {
+        for (MemoryTable t : holding) t.release(this);
+        holding.clear();
+    }
+
+    /** Crea un savepoint (un nombre repetido oculta al anterior, como en Postgres). */
+    void savepoint(String name) {
+        savepointNames.add(name);
+        savepointMarks.add(actions.size());
+    }
+
+    /**
+     * Deshace hasta el savepoint más reciente con ese nombre, que sigue
+     * existiendo; los posteriores se descartan.
+     *
+     * @throws IllegalStateException si el savepoint no existe
+     */
+    void rollbackToSavepoint(String name) {
+        int k = find(name);
+        while (savepointNames.size() > k + 1) {
+            savepointNames.remove(savepointNames.size() - 1);
+            savepointMarks.remove(savepointMarks.size() - 1);
+        }
+        rollbackTo(savepointMarks.get(k));
+    }
+
+    /**
+     * Libera el savepoint más reciente con ese nombre y los posteriores; sus
+     * cambios siguen formando parte de la transacción.
+     *
+     * @throws IllegalStateException si el savepoint no existe
+     */
+    void release(String name) {
+        int k = find(name);
+        while (savepointNames.size() > k) {
+            savepointNames.remove(savepointNames.size() - 1);
+            savepointMarks.remove(savepointMarks.size() - 1);
+        }
+    }
+
+    private int find(String name) {
+        int k = savepointNames.lastIndexOf(name);
+        if (k < 0) throw new IllegalStateException("savepoint \"" + name + "\" does not exist");
+        return k;
+    }
+}
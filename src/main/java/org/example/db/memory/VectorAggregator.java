@@ -0,0 +1,817 @@
+package org.example.db.memory;
+
+import org.example.db.utilities.ConnectionConfig;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * @file VectorAggregator.java
+ * @brief Ejecución de {@link AggregateSpec}: GROUP BY y agregados con bucles
+ *        sobre los arrays primitivos de {@link ColumnVector} y paralelismo
+ *        fork-join por trozos.
+ *
+ * Cada tarea hoja recorre unos cuantos trozos de la fuente y acumula en un
+ * estado parcial propio (tabla de grupos + un acumulador por agregado, con
+ * arrays indexados por número de grupo); las tareas se combinan fusionando
+ * los parciales, sin estado compartido ni cerrojos durante el recorrido.
+ *
+ * Por cada trozo se calcula primero el número de grupo de cada fila y
+ * después cada acumulador recorre su columna una vez. Sin agrupación no hay
+ * números de grupo y los bucles acumulan en variables locales. Las columnas
+ * sin nulos no consultan el bitmap de nulos. Una única columna de
+ * agrupación que no sea TEXT ni DECIMAL usa una tabla hash de claves long
+ * con direccionamiento abierto; el resto, un HashMap.
+ *
+ * SUM de enteros acumula en long y, si se desborda, sigue en BigInteger y
+ * devuelve un BigDecimal; SUM y AVG de DECIMAL acumulan en BigDecimal sin
+ * pasar por double.
+ *
+ * Configuración:
+ * - AGGREGATE_THREADS: paralelismo del pool fork-join (por defecto, núcleos).
+ * - AGGREGATE_PARALLEL_MIN_ROWS: por debajo se agrega en el hilo llamante.
+ */
+final class VectorAggregator {
+    private static final int THREADS = Math.max(1, ConnectionConfig.getConfigValueAsInt(
+            "AGGREGATE_THREADS", "AGGREGATE_THREADS", Runtime.getRuntime().availableProcessors()));
+    private static final int PARALLEL_MIN_ROWS = ConnectionConfig.getConfigValueAsInt(
+            "AGGREGATE_PARALLEL_MIN_ROWS", "AGGREGATE_PARALLEL_MIN_ROWS", 65536);
+
+    private static volatile ForkJoinPool pool;
+
+    private VectorAggregator() {
+        throw new UnsupportedOperationException("Utility class - do not instantiate");
+    }
+
+    /**
+     * @param source datos
+     * @param groupCols columnas de agrupación (posiciones en la fuente)
+     * @param groupLabels etiqueta de cada columna de agrupación en el resultado
+     * @param metrics agregados
+     * @param metricCols columna de cada agregado (-1 = COUNT(*))
+     * @return filas agregadas
+     */
+    static List<Map<String, Object>> aggregate(VectorSource source, int[] groupCols, List<String> groupLabels,
+                                               List<AggregateSpec.Metric> metrics, int[] metricCols) {
+        Plan plan = new Plan(source, groupCols, metrics, metricCols);
+        int chunks = source.chunkCount();
+        Partial result;
+        if (THREADS > 1 && chunks > 1 && source.rowEstimate() >= PARALLEL_MIN_ROWS) {
+            int leaf = Math.max(1, chunks / (THREADS * 4));
+            result = pool().invoke(new Task(plan, 0, chunks, leaf));
+        } else {
+            result = plan.scan(0, chunks);
+        }
+        return result.rows(groupLabels, metrics);
+    }
+
+    private static ForkJoinPool pool() {
+        ForkJoinPool p = pool;
+        if (p == null) {
+            synchronized (VectorAggregator.class) {
+                p = pool;
+                if (p == null) pool = p = new ForkJoinPool(THREADS);
+            }
+        }
+        return p;
+    }
+
+    /** Datos fijos de una agregación. */
+    private static final class Plan {
+        final VectorSource source;
+        final int[] groupCols;
+        final ColumnType[] groupTypes;
+        final List<AggregateSpec.Metric> metrics;
+        final int[] metricCols;
+
+        Plan(VectorSource source, int[] groupCols, List<AggregateSpec.Metric> metrics, int[] metricCols) {
+            this.source = source;
+            this.groupCols = groupCols;
+            this.groupTypes = new ColumnType[groupCols.length];
+            for (int k = 0; k < groupCols.length; k++) groupTypes[k] = source.columnType(groupCols[k]);
+            this.metrics = metrics;
+            this.metricCols = metricCols;
+        }
+
+        Partial scan(int from, int to) {
+            Partial p = new Partial(this);
+            for (int i = from; i < to; i++) source.read(i, p);
+            return p;
+        }
+    }
+
+    /** Divide los trozos [from, to) y fusiona los parciales. */
+    private static final class Task extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+
+        private final Plan plan;
+        private final int from;
+        private final int to;
+        private final int leaf;
+
+        Task(Plan plan, int from, int to, int leaf) {
+            this.plan = plan;
+            this.from = from;
+            this.to = to;
+            this.leaf = leaf;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from <= leaf) return plan.scan(from, to);
+            int mid = (from + to) >>> 1;
+            Task left = new Task(plan, from, mid, leaf);
+            left.fork();
+            Partial right = new Task(plan, mid, to, leaf).compute();
+            Partial result = left.join();
+            result.merge(right);
+            return result;
+        }
+    }
+
+    /** Estado parcial: grupos vistos y acumuladores. */
+    private static final class Partial implements VectorSource.ChunkConsumer {
+        private final Plan plan;
+        private final Groups groups;
+        private final Acc[] accs;
+        private int[] gid;
+
+        Partial(Plan plan) {
+            this.plan = plan;
+            this.groups = plan.groupCols.length == 0 ? null : Groups.create(plan.groupTypes);
+            this.accs = new Acc[plan.metrics.size()];
+            for (int k = 0; k < accs.length; k++) {
+                int c = plan.metricCols[k];
+                accs[k] = Acc.create(plan.metrics.get(k).getFunction(), c < 0 ? null : plan.source.columnType(c));
+                if (groups == null) accs[k].grow(1);
+            }
+        }
+
+        int groupCount() {
+            return groups == null ? 1 : groups.size();
+        }
+
+        @Override
+        public void accept(ColumnVector[] columns, int[] rows, int n) {
+            if (n == 0) return;
+            int[] g = null;
+            if (groups != null) {
+                if (gid == null) gid = new int[MemoryTable.SEGMENT_ROWS];
+                groups.assign(columns, plan.groupCols, rows, n, gid);
+                g = gid;
+                for (Acc acc : accs) acc.grow(groups.size());
+            }
+            for (int k = 0; k < accs.length; k++) {
+                int c = plan.metricCols[k];
+                accs[k].add(c < 0 ? null : columns[c], rows, n, g);
+            }
+        }
+
+        void merge(Partial other) {
+            int[] map;
+            if (groups == null) {
+                map = new int[]{0};
+            } else {
+                map = groups.absorb(other.groups);
+                for (Acc acc : accs) acc.grow(groups.size());
+            }
+            for (int k = 0; k < accs.length; k++) accs[k].merge(other.accs[k], map, other.groupCount());
+        }
+
+        List<Map<String, Object>> rows(List<String> groupLabels, List<AggregateSpec.Metric> metrics) {
+            int count = groupCount();
+            Object[][] keys = new Object[count][];
+            Integer[] order = new Integer[count];
+            for (int g = 0; g < count; g++) {
+                keys[g] = groups == null ? new Object[0] : groups.key(g);
+                order[g] = g;
+            }
+            Arrays.sort(order, (a, b) -> compareKeys(keys[a], keys[b]));
+            List<Map<String, Object>> out = new ArrayList<>(count);
+            for (int g : order) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                for (int k = 0; k < keys[g].length; k++) row.put(groupLabels.get(k), keys[g][k]);
+                for (int k = 0; k < accs.length; k++) row.put(metrics.get(k).getLabel(), accs[k].result(g));
+                out.add(row);
+            }
+            return out;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static int compareKeys(Object[] a, Object[] b) {
+            for (int k = 0; k < a.length; k++) {
+                int c;
+                if (a[k] == null) c = b[k] == null ? 0 : 1;
+                else if (b[k] == null) c = -1;
+                else c = ((Comparable<Object>) a[k]).compareTo(b[k]);
+                if (c != 0) return c;
+            }
+            return 0;
+        }
+    }
+
+    // ---- tablas de grupos ----
+
+    /** Asigna un número de grupo consecutivo (0, 1, ...) a cada clave distinta. */
+    private abstract static class Groups {
+        abstract int size();
+
+        /** Rellena {@code gid[k]} con el grupo de la fila {@code rows[k]}. */
+        abstract void assign(ColumnVector[] columns, int[] groupCols, int[] rows, int n, int[] gid);
+
+        /** @return valores de la clave del grupo {@code g} */
+        abstract Object[] key(int g);
+
+        /**
+         * Añade los grupos de otra tabla del mismo tipo.
+         *
+         * @return grupo propio de cada grupo de {@code other}
+         */
+        abstract int[] absorb(Groups other);
+
+        static Groups create(ColumnType[] types) {
+            if (types.length == 1 && types[0] != ColumnType.TEXT && types[0] != ColumnType.DECIMAL) {
+                return new LongGroups(types[0]);
+            }
+            return new ObjectGroups();
+        }
+    }
+
+    /** Una columna INT, BIGINT, DOUBLE o BOOLEAN: claves long en direccionamiento abierto. */
+    private static final class LongGroups extends Groups {
+        private final ColumnType type;
+        private long[] slotKeys = new long[64];
+        /** Grupo + 1 de cada hueco (0 = libre). */
+        private int[] slotIds = new int[64];
+        private long[] keysById = new long[16];
+        private int count;
+        private int nullGroup = -1;
+
+        LongGroups(ColumnType type) {
+            this.type = type;
+        }
+
+        @Override
+        int size() {
+            return count;
+        }
+
+        @Override
+        void assign(ColumnVector[] columns, int[] groupCols, int[] rows, int n, int[] gid) {
+            ColumnVector v = columns[groupCols[0]];
+            boolean nulls = v.hasNulls();
+            long last = 0;
+            int lastId = -1;
+            if (v instanceof ColumnVector.IntVector) {
+                int[] a = ((ColumnVector.IntVector) v).values;
+                for (int k = 0; k < n; k++) {
+                    int r = rows[k];
+                    if (nulls && v.isNull(r)) { gid[k] = nullGroup(); continue; }
+                    long key = a[r];
+                    if (key != last || lastId < 0) { last = key; lastId = find(key); }
+                    gid[k] = lastId;
+                }
+            } else if (v instanceof ColumnVector.LongVector) {
+                long[] a = ((ColumnVector.LongVector) v).values;
+                for (int k = 0; k < n; k++) {
+                    int r = rows[k];
+                    if (nulls && v.isNull(r)) { gid[k] = nullGroup(); continue; }
+                    long key = a[r];
+                    if (key != last || lastId < 0) { last = key; lastId = find(key); }
+                    gid[k] = lastId;
+                }
+            } else if (v instanceof ColumnVector.DoubleVector) {
+                double[] a = ((ColumnVector.DoubleVector) v).values;
+                for (int k = 0; k < n; k++) {
+                    int r = rows[k];
+                    if (nulls && v.isNull(r)) { gid[k] = nullGroup(); continue; }
+                    double d = a[r];
+                    long key = Double.doubleToLongBits(d == 0.0 ? 0.0 : d);
+                    if (key != last || lastId < 0) { last = key; lastId = find(key); }
+                    gid[k] = lastId;
+                }
+            } else {
+                ColumnVector.BoolVector b = (ColumnVector.BoolVector) v;
+                for (int k = 0; k < n; k++) {
+                    int r = rows[k];
+                    gid[k] = nulls && v.isNull(r) ? nullGroup() : find(b.getBoolean(r) ? 1 : 0);
+                }
+            }
+        }
+
+        private int nullGroup() {
+            if (nullGroup < 0) nullGroup = newGroup(0);
+            return nullGroup;
+        }
+
+        private int find(long key) {
+            int mask = slotKeys.length - 1;
+            int h = mix(key) & mask;
+            while (slotIds[h] != 0) {
+                if (slotKeys[h] == key) return slotIds[h] - 1;
+                h = (h + 1) & mask;
+            }
+            int id = newGroup(key);
+            slotKeys[h] = key;
+            slotIds[h] = id + 1;
+            if (count * 2 > slotKeys.length) rehash();
+            return id;
+        }
+
+        private int newGroup(long key) {
+            if (count == keysById.length) keysById = Arrays.copyOf(keysById, count * 2);
+            keysById[count] = key;
+            return count++;
+        }
+
+        private void rehash() {
+            long[] oldKeys = slotKeys;
+            int[] oldIds = slotIds;
+            slotKeys = new long[oldKeys.length * 2];
+            slotIds = new int[oldIds.length * 2];
+            int mask = slotKeys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldIds[i] == 0) continue;
+                int h = mix(oldKeys[i]) & mask;
+                while (slotIds[h] != 0) h = (h + 1) & mask;
+                slotKeys[h] = oldKeys[i];
+                slotIds[h] = oldIds[i];
+            }
+        }
+
+        private static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        @Override
+        Object[] key(int g) {
+            if (g == nullGroup) return new Object[]{null};
+            long key = keysById[g];
+            switch (type) {
+                case INT: return new Object[]{(int) key};
+                case BIGINT: return new Object[]{key};
+                case DOUBLE: return new Object[]{Double.longBitsToDouble(key)};
+                default: return new Object[]{key != 0};
+            }
+        }
+
+        @Override
+        int[] absorb(Groups other) {
+            LongGroups o = (LongGroups) other;
+            int[] map = new int[o.count];
+            for (int g = 0; g < o.count; g++) map[g] = g == o.nullGroup ? nullGroup() : find(o.keysById[g]);
+            return map;
+        }
+    }
+
+    /**
+     * TEXT, DECIMAL o varias columnas: HashMap de la clave (valor o lista de
+     * valores). Los DECIMAL se comparan sin ceros a la derecha (1.50 = 1.5).
+     */
+    private static final class ObjectGroups extends Groups {
+        private final Map<Object, Integer> ids = new HashMap<>();
+        private final List<Object[]> keys = new ArrayList<>();
+
+        @Override
+        int size() {
+            return keys.size();
+        }
+
+        @Override
+        void assign(ColumnVector[] columns, int[] groupCols, int[] rows, int n, int[] gid) {
+            for (int k = 0; k < n; k++) {
+                Object[] values = new Object[groupCols.length];
+                for (int c = 0; c < values.length; c++) values[c] = columns[groupCols[c]].get(rows[k]);
+                gid[k] = find(values);
+            }
+        }
+
+        private int find(Object[] values) {
+            Object key;
+            if (values.length == 1) {
+                key = hashKey(values[0]);
+            } else {
+                Object[] k = new Object[values.length];
+                for (int c = 0; c < k.length; c++) k[c] = hashKey(values[c]);
+                key = Arrays.asList(k);
+            }
+            Integer id = ids.get(key);
+            if (id == null) {
+                id = keys.size();
+                ids.put(key, id);
+                keys.add(values);
+            }
+            return id;
+        }
+
+        private static Object hashKey(Object v) {
+            return v instanceof BigDecimal ? ((BigDecimal) v).stripTrailingZeros() : v;
+        }
+
+        @Override
+        Object[] key(int g) {
+            return keys.get(g);
+        }
+
+        @Override
+        int[] absorb(Groups other) {
+            ObjectGroups o = (ObjectGroups) other;
+            int[] map = new int[o.keys.size()];
+            for (int g = 0; g < map.length; g++) map[g] = find(o.keys.get(g));
+            return map;
+        }
+    }
+
+    // ---- acumuladores ----
+
+    /** Estado de un agregado por grupo. */
+    private abstract static class Acc {
+        /** Asegura sitio para {@code groups} grupos. */
+        abstract void grow(int groups);
+
+        /**
+         * @param v columna del agregado (null en COUNT(*))
+         * @param gid grupo de cada fila, o null si hay un único grupo (0)
+         */
+        abstract void add(ColumnVector v, int[] rows, int n, int[] gid);
+
+        /** Suma el estado de {@code other}; su grupo g pasa a ser map[g]. */
+        abstract void merge(Acc other, int[] map, int otherGroups);
+
+        abstract Object result(int g);
+
+        static Acc create(AggregateFunction fn, ColumnType type) {
+            switch (fn) {
+                case COUNT: return new CountAcc();
+                case SUM: return new SumAcc(type, false);
+                case AVG: return new SumAcc(type, true);
+                case MIN: return new MinMaxAcc(type, false);
+                default: return new MinMaxAcc(type, true);
+            }
+        }
+
+        static int capacity(int current, int groups) {
+            return Math.max(groups, current * 2);
+        }
+    }
+
+    /** COUNT(*) y COUNT(columna). */
+    private static final class CountAcc extends Acc {
+        private long[] counts = new long[1];
+
+        @Override
+        void grow(int groups) {
+            if (groups > counts.length) counts = Arrays.copyOf(counts, capacity(counts.length, groups));
+        }
+
+        @Override
+        void add(ColumnVector v, int[] rows, int n, int[] gid) {
+            long[] cnt = counts;
+            if (v == null || !v.hasNulls()) {
+                if (gid == null) cnt[0] += n;
+                else for (int k = 0; k < n; k++) cnt[gid[k]]++;
+            } else if (gid == null) {
+                long c = 0;
+                for (int k = 0; k < n; k++) if (!v.isNull(rows[k])) c++;
+                cnt[0] += c;
+            } else {
+                for (int k = 0; k < n; k++) if (!v.isNull(rows[k])) cnt[gid[k]]++;
+            }
+        }
+
+        @Override
+        void merge(Acc other, int[] map, int otherGroups) {
+            long[] o = ((CountAcc) other).counts;
+            for (int g = 0; g < otherGroups; g++) counts[map[g]] += o[g];
+        }
+
+        @Override
+        Object result(int g) {
+            return counts[g];
+        }
+    }
+
+    /**
+     * SUM y AVG: enteros en long (lo que no cabe pasa a BigInteger y la suma
+     * se devuelve como BigDecimal), DOUBLE en double y DECIMAL en BigDecimal.
+     */
+    private static final class SumAcc extends Acc {
+        private final ColumnType kind;
+        private final boolean avg;
+        private long[] lsum = new long[1];
+        /** Parte de la suma entera que ya no cabía en lsum (null hasta el primer desbordamiento). */
+        private BigInteger[] carry;
+        private double[] dsum = new double[1];
+        private BigDecimal[] xsum = new BigDecimal[1];
+        private long[] counts = new long[1];
+
+        SumAcc(ColumnType type, boolean avg) {
+            this.kind = type == ColumnType.DOUBLE || type == ColumnType.DECIMAL ? type : ColumnType.BIGINT;
+            this.avg = avg;
+        }
+
+        @Override
+        void grow(int groups) {
+            if (groups <= counts.length) return;
+            int cap = capacity(counts.length, groups);
+            counts = Arrays.copyOf(counts, cap);
+            switch (kind) {
+                case DOUBLE: dsum = Arrays.copyOf(dsum, cap); break;
+                case DECIMAL: xsum = Arrays.copyOf(xsum, cap); break;
+                default:
+                    lsum = Arrays.copyOf(lsum, cap);
+                    if (carry != null) carry = Arrays.copyOf(carry, cap);
+                    break;
+            }
+        }
+
+        /** Suma x a lsum[g]; si se desborda, lo acumulado pasa a carry[g]. */
+        private void addLong(int g, long x) {
+            long s = lsum[g];
+            long r = s + x;
+            if (((s ^ r) & (x ^ r)) < 0) {
+                spill(g, BigInteger.valueOf(s));
+                r = x;
+            }
+            lsum[g] = r;
+        }
+
+        private void spill(int g, BigInteger v) {
+            if (carry == null) carry = new BigInteger[lsum.length];
+            carry[g] = carry[g] == null ? v : carry[g].add(v);
+        }
+
+        private void addDecimal(int g, BigDecimal x) {
+            xsum[g] = xsum[g] == null ? x : xsum[g].add(x);
+        }
+
+        @Override
+        void add(ColumnVector v, int[] rows, int n, int[] gid) {
+            boolean nulls = v.hasNulls();
+            if (v instanceof ColumnVector.IntVector) {
+                int[] a = ((ColumnVector.IntVector) v).values;
+                if (gid == null) {
+                    // Un trozo de enteros de 32 bits no puede desbordar un long
+                    long s = 0;
+                    long c = 0;
+                    if (!nulls) {
+                        for (int k = 0; k < n; k++) s += a[rows[k]];
+                        c = n;
+                    } else {
+                        for (int k = 0; k < n; k++) {
+                            int r = rows[k];
+                            if (!v.isNull(r)) { s += a[r]; c++; }
+                        }
+                    }
+                    addLong(0, s);
+                    counts[0] += c;
+                } else {
+                    for (int k = 0; k < n; k++) {
+                        int r = rows[k];
+                        if (nulls && v.isNull(r)) continue;
+                        int g = gid[k];
+                        addLong(g, a[r]);
+                        counts[g]++;
+                    }
+                }
+            } else if (v instanceof ColumnVector.LongVector) {
+                long[] a = ((ColumnVector.LongVector) v).values;
+                if (gid == null) {
+                    long s = lsum[0];
+                    long c = 0;
+                    for (int k = 0; k < n; k++) {
+                        int r = rows[k];
+                        if (nulls && v.isNull(r)) continue;
+                        long x = a[r];
+                        long t = s + x;
+                        if (((s ^ t) & (x ^ t)) < 0) {
+                            spill(0, BigInteger.valueOf(s));
+                            t = x;
+                        }
+                        s = t;
+                        c++;
+                    }
+                    lsum[0] = s;
+                    counts[0] += c;
+                } else {
+                    for (int k = 0; k < n; k++) {
+                        int r = rows[k];
+                        if (nulls && v.isNull(r)) continue;
+                        int g = gid[k];
+                        addLong(g, a[r]);
+                        counts[g]++;
+                    }
+                }
+            } else if (v instanceof ColumnVector.DecimalVector) {
+                BigDecimal[] a = ((ColumnVector.DecimalVector) v).values;
+                for (int k = 0; k < n; k++) {
+                    int r = rows[k];
+                    if (nulls && v.isNull(r)) continue;
+                    int g = gid == null ? 0 : gid[k];
+                    addDecimal(g, a[r]);
+                    counts[g]++;
+                }
+            } else {
+                double[] a = ((ColumnVector.DoubleVector) v).values;
+                if (gid == null) {
+                    double s = 0;
+                    long c = 0;
+                    if (!nulls) {
+                        for (int k = 0; k < n; k++) s += a[rows[k]];
+                        c = n;
+                    } else {
+                        for (int k = 0; k < n; k++) {
+                            int r = rows[k];
+                            if (!v.isNull(r)) { s += a[r]; c++; }
+                        }
+                    }
+                    dsum[0] += s;
+                    counts[0] += c;
+                } else {
+                    for (int k = 0; k < n; k++) {
+                        int r = rows[k];
+                        if (nulls && v.isNull(r)) continue;
+                        int g = gid[k];
+                        dsum[g] += a[r];
+                        counts[g]++;
+                    }
+                }
+            }
+        }
+
+        @Override
+        void merge(Acc other, int[] map, int otherGroups) {
+            SumAcc o = (SumAcc) other;
+            for (int g = 0; g < otherGroups; g++) {
+                int t = map[g];
+                counts[t] += o.counts[g];
+                switch (kind) {
+                    case DOUBLE: dsum[t] += o.dsum[g]; break;
+                    case DECIMAL: if (o.xsum[g] != null) addDecimal(t, o.xsum[g]); break;
+                    default:
+                        addLong(t, o.lsum[g]);
+                        if (o.carry != null && o.carry[g] != null) spill(t, o.carry[g]);
+                        break;
+                }
+            }
+        }
+
+        @Override
+        Object result(int g) {
+            if (counts[g] == 0) return null;
+            switch (kind) {
+                case DOUBLE:
+                    return avg ? dsum[g] / counts[g] : dsum[g];
+                case DECIMAL:
+                    return avg ? xsum[g].divide(BigDecimal.valueOf(counts[g]), MathContext.DECIMAL128) : xsum[g];
+                default: {
+                    if (carry == null || carry[g] == null) return avg ? (double) lsum[g] / counts[g] : (Object) lsum[g];
+                    BigDecimal total = new BigDecimal(carry[g].add(BigInteger.valueOf(lsum[g])));
+                    return avg ? total.doubleValue() / counts[g] : total;
+                }
+            }
+        }
+    }
+
+    /** MIN y MAX de cualquier tipo. */
+    private static final class MinMaxAcc extends Acc {
+        private final ColumnType type;
+        private final boolean max;
+        private long[] lbest = new long[1];
+        private double[] dbest = new double[1];
+        private String[] sbest = new String[1];
+        private BigDecimal[] xbest = new BigDecimal[1];
+        private boolean[] seen = new boolean[1];
+
+        MinMaxAcc(ColumnType type, boolean max) {
+            this.type = type;
+            this.max = max;
+        }
+
+        @Override
+        void grow(int groups) {
+            if (groups <= seen.length) return;
+            int cap = capacity(seen.length, groups);
+            seen = Arrays.copyOf(seen, cap);
+            switch (type) {
+                case DOUBLE: dbest = Arrays.copyOf(dbest, cap); break;
+                case TEXT: sbest = Arrays.copyOf(sbest, cap); break;
+                case DECIMAL: xbest = Arrays.copyOf(xbest, cap); break;
+                default: lbest = Arrays.copyOf(lbest, cap); break;
+            }
+        }
+
+        @Override
+        void add(ColumnVector v, int[] rows, int n, int[] gid) {
+            boolean nulls = v.hasNulls();
+            if (v instanceof ColumnVector.IntVector) {
+                int[] a = ((ColumnVector.IntVector) v).values;
+                for (int k = 0; k < n; k++) {
+                    int r = rows[k];
+                    if (nulls && v.isNull(r)) continue;
+                    offerLong(gid == null ? 0 : gid[k], a[r]);
+                }
+            } else if (v instanceof ColumnVector.LongVector) {
+                long[] a = ((ColumnVector.LongVector) v).values;
+                for (int k = 0; k < n; k++) {
+                    int r = rows[k];
+                    if (nulls && v.isNull(r)) continue;
+                    offerLong(gid == null ? 0 : gid[k], a[r]);
+                }
+            } else if (v instanceof ColumnVector.BoolVector) {
+                ColumnVector.BoolVector b = (ColumnVector.BoolVector) v;
+                for (int k = 0; k < n; k++) {
+                    int r = rows[k];
+                    if (nulls && v.isNull(r)) continue;
+                    offerLong(gid == null ? 0 : gid[k], b.getBoolean(r) ? 1 : 0);
+                }
+            } else if (v instanceof ColumnVector.DoubleVector) {
+                double[] a = ((ColumnVector.DoubleVector) v).values;
+                for (int k = 0; k < n; k++) {
+                    int r = rows[k];
+                    if (nulls && v.isNull(r)) continue;
+                    offerDouble(gid == null ? 0 : gid[k], a[r]);
+                }
+            } else if (v instanceof ColumnVector.DecimalVector) {
+                BigDecimal[] a = ((ColumnVector.DecimalVector) v).values;
+                for (int k = 0; k < n; k++) {
+                    int r = rows[k];
+                    if (nulls && v.isNull(r)) continue;
+                    offerDecimal(gid == null ? 0 : gid[k], a[r]);
+                }
+            } else {
+                String[] a = ((ColumnVector.TextVector) v).values;
+                for (int k = 0; k < n; k++) {
+                    int r = rows[k];
+                    if (nulls && v.isNull(r)) continue;
+                    offerString(gid == null ? 0 : gid[k], a[r]);
+                }
+            }
+        }
+
+        private void offerLong(int g, long x) {
+            if (!seen[g] || (max ? x > lbest[g] : x < lbest[g])) {
+                lbest[g] = x;
+                seen[g] = true;
+            }
+        }
+
+        private void offerDouble(int g, double x) {
+            if (!seen[g] || (max ? Double.compare(x, dbest[g]) > 0 : Double.compare(x, dbest[g]) < 0)) {
+                dbest[g] = x;
+                seen[g] = true;
+            }
+        }
+
+        private void offerString(int g, String x) {
+            if (!seen[g] || (max ? x.compareTo(sbest[g]) > 0 : x.compareTo(sbest[g]) < 0)) {
+                sbest[g] = x;
+                seen[g] = true;
+            }
+        }
+
+        private void offerDecimal(int g, BigDecimal x) {
+            if (!seen[g] || (max ? x.compareTo(xbest[g]) > 0 : x.compareTo(xbest[g]) < 0)) {
+                xbest[g] = x;
+                seen[g] = true;
+            }
+        }
+
+        @Override
+        void merge(Acc other, int[] map, int otherGroups) {
+            MinMaxAcc o = (MinMaxAcc) other;
+            for (int g = 0; g < otherGroups; g++) {
+                if (!o.seen[g]) continue;
+                switch (type) {
+                    case DOUBLE: offerDouble(map[g], o.dbest[g]); break;
+                    case TEXT: offerString(map[g], o.sbest[g]); break;
+                    case DECIMAL: offerDecimal(map[g], o.xbest[g]); break;
+                    default: offerLong(map[g], o.lbest[g]); break;
+                }
+            }
+        }
+
+        @Override
+        Object result(int g) {
+            if (!seen[g]) return null;
+            switch (type) {
+                case INT: return (int) lbest[g];
+                case BIGINT: return lbest[g];
+                case BOOLEAN: return lbest[g] != 0;
+                case DOUBLE: return dbest[g];
+                case DECIMAL: return xbest[g];
+                default: return sbest[g];
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.db.memory;
+
+/**
+ * @file VectorSource.java
+ * @brief Datos en vectores de columna que {@link VectorAggregator} recorre
+ *        por trozos de hasta {@link MemoryTable#SEGMENT_ROWS} filas.
+ *
+ * Implementaciones: {@link ColumnBatch} (resultado ya obtenido) y los
+ * segmentos de una {@link MemoryTable}. Cada trozo se lee de forma
+ * independiente, por lo que varios hilos pueden leer trozos distintos a la vez.
+ */
+interface VectorSource {
+    /** Filas de un trozo: posiciones {@code rows[0..n)} de los vectores. */
+    interface ChunkConsumer {
+        void accept(ColumnVector[] columns, int[] rows, int n);
+    }
+
+    /** Posiciones 0..SEGMENT_ROWS-1, para trozos sin filtrar. */
+    int[] IDENTITY = identity();
+
+    /**
+     * @param name nombre de columna
+     * @return posición de la columna
+     * @throws IllegalArgumentException si no existe
+     */
+    int columnIndex(String name);
+
+    /** @return tipo de la columna {@code c} */
+    ColumnType columnType(int c);
+
+    /** @return número de trozos */
+    int chunkCount();
+
+    /** @return filas aproximadas (decide si merece la pena paralelizar) */
+    long rowEstimate();
+
+    /**
+     * Entrega las filas del trozo {@code i} (tras filtrar) al consumidor,
+     * con los cerrojos que necesite la fuente tomados durante la llamada.
+     */
+    void read(int i, ChunkConsumer consumer);
+
+    static int[] identity() {
+        int[] ids = new int[MemoryTable.SEGMENT_ROWS];
+        for (int i = 0; i < ids.length; i++) ids[i] = i;
+        return ids;
+    }
+}
@@ -0,0 +1,230 @@
+package org.example.db.mysql;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Protocolo comprimido de MySQL (CLIENT_COMPRESS) como par de flujos que se
+ * interponen entre el socket y el lector/escritor de paquetes.
+ *
+ * Cada trama comprimida lleva una cabecera de 7 bytes: longitud del payload
+ * comprimido (3), número de secuencia (1) y longitud sin comprimir (3; 0 si el
+ * payload va sin comprimir). El payload descomprimido es un trozo del flujo de
+ * paquetes normales, así que los paquetes pueden estar repartidos entre tramas
+ * y {@link MySQLProtocolHelper} no necesita saber nada de la compresión.
+ *
+ * El número de secuencia de las tramas es independiente del de los paquetes:
+ * se comparte entre ambos sentidos y vuelve a 0 en cada comando
+ * ({@link #resetSequence()}).
+ *
+ * Al enviar, los payloads menores que el umbral se mandan sin comprimir (el
+ * coste de zlib no compensa), igual que hace libmysqlclient con
+ * MIN_COMPRESS_LENGTH.
+ */
+final class MySQLCompression {
+    /** Tamaño máximo de payload de una trama. */
+    private static final int MAX_FRAME_PAYLOAD = 0xFF_FFFF;
+    /** Tamaño a partir del cual el flujo de salida emite tramas sin esperar a flush(). */
+    private static final int MAX_PENDING_BYTES = 1024 * 1024;
+
+    private final Input input;
+    private final Output output;
+    private int sequence;
+
+    /**
+     * @param in flujo de entrada del socket
+     * @param out flujo de salida del socket (preferiblemente con buffer)
+     * @param threshold tamaño mínimo en bytes para comprimir un payload saliente
+     */
+    MySQLCompression(InputStream in, OutputStream out, int threshold) {
+        this.input = new Input(in);
+        this.output = new Output(out, threshold);
+    }
+
+    InputStream getInputStream() {
+        return input;
+    }
+
+    OutputStream getOutputStream() {
+        return output;
+    }
+
+    /** Inicio de un nuevo comando: la secuencia de tramas vuelve a 0. */
+    void resetSequence() {
+        sequence = 0;
+    }
+
+    /** Libera los recursos nativos de zlib. */
+    void end() {
+        input.inflater.end();
+        output.deflater.end();
+    }
+
+    private static void readFully(InputStream in, byte[] buf, int off, int len) throws IOException {
+        while (len > 0) {
+            int r = in.read(buf, off, len);
+            if (r == -1) throw new IOException("Unexpected EOF in compressed packet");
+            off += r;
+            len -= r;
+        }
+    }
+
+    /** Descomprime tramas bajo demanda y entrega el flujo de paquetes normales. */
+    private final class Input extends InputStream {
+        private final InputStream in;
+        private final Inflater inflater = new Inflater();
+        private final byte[] header = new byte[7];
+        private byte[] compressed = new byte[0];
+        private byte[] buf = new byte[0];
+        private int pos;
+        private int limit;
+
+        Input(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (pos == limit && !nextFrame()) return -1;
+            return buf[pos++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            if (pos == limit && !nextFrame()) return -1;
+            int n = Math.min(len, limit - pos);
+            System.arraycopy(buf, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return limit - pos;
+        }
+
+        private boolean nextFrame() throws IOException {
+            do {
+                int first = in.read();
+                if (first == -1) return false;
+                header[0] = (byte) first;
+                readFully(in, header, 1, 6);
+                int compressedLength = (header[0] & 0xFF) | ((header[1] & 0xFF) << 8) | ((header[2] & 0xFF) << 16);
+                sequence = ((header[3] & 0xFF) + 1) & 0xFF;
+                int length = (header[4] & 0xFF) | ((header[5] & 0xFF) << 8) | ((header[6] & 0xFF) << 16);
+                pos = 0;
+                if (length == 0) {
+                    // Payload sin comprimir
+                    if (buf.length < compressedLength) buf = new byte[compressedLength];
+                    readFully(in, buf, 0, compressedLength);
+                    limit = compressedLength;
+                } else {
+                    if (compressed.length < compressedLength) compressed = new byte[compressedLength];
+                    if (buf.length < length) buf = new byte[length];
+                    readFully(in, compressed, 0, compressedLength);
+                    inflater.reset();
+                    inflater.setInput(compressed, 0, compressedLength);
+                    try {
+                        limit = inflater.inflate(buf, 0, length);
+                    } catch (DataFormatException e) {
+                        throw new IOException("Corrupt compressed packet: " + e.getMessage(), e);
+                    }
+                    if (limit != length) throw new IOException("Compressed packet inflated to " + limit + " bytes, expected " + length);
+                }
+            } while (limit == 0);
+            return true;
+        }
+    }
+
+    /** Acumula los paquetes escritos y los envía como tramas en flush(). */
+    private final class Output extends OutputStream {
+        private final OutputStream out;
+        private final int threshold;
+        private final Deflater deflater = new Deflater();
+        private final byte[] header = new byte[7];
+        private byte[] pending = new byte[8192];
+        private int count;
+        private byte[] compressed = new byte[0];
+
+        Output(OutputStream out, int threshold) {
+            this.out = out;
+            this.threshold = threshold;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            ensure(1);
+            pending[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ensure(len);
+            System.arraycopy(b, off, pending, count, len);
+            count += len;
+            if (count >= MAX_PENDING_BYTES) writeFrames();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writeFrames();
+            out.flush();
+        }
+
+        private void ensure(int n) {
+            if (count + n > pending.length) {
+                pending = Arrays.copyOf(pending, Math.max(pending.length * 2, count + n));
+            }
+        }
+
+        private void writeFrames() throws IOException {
+            int off = 0;
+            while (off < count) {
+                int len = Math.min(count - off, MAX_FRAME_PAYLOAD);
+                writeFrame(off, len);
+                off += len;
+            }
+            count = 0;
+            if (pending.length > MAX_PENDING_BYTES * 2) pending = new byte[8192];
+        }
+
+        private void writeFrame(int off, int len) throws IOException {
+            int compressedLength = -1;
+            if (len >= threshold) {
+                deflater.reset();
+                deflater.setInput(pending, off, len);
+                deflater.finish();
+                // Si no cabe en len bytes no merece la pena: se envía sin comprimir
+                if (compressed.length < len) compressed = new byte[len];
+                int n = deflater.deflate(compressed, 0, len);
+                if (deflater.finished() && n < len) compressedLength = n;
+            }
+            if (compressedLength < 0) {
+                putHeader(len, 0);
+                out.write(header);
+                out.write(pending, off, len);
+            } else {
+                putHeader(compressedLength, len);
+                out.write(header);
+                out.write(compressed, 0, compressedLength);
+            }
+        }
+
+        private void putHeader(int payloadLength, int uncompressedLength) {
+            header[0] = (byte) payloadLength;
+            header[1] = (byte) (payloadLength >> 8);
+            header[2] = (byte) (payloadLength >> 16);
+            header[3] = (byte) sequence;
+            header[4] = (byte) uncompressedLength;
+            header[5] = (byte) (uncompressedLength >> 8);
+            header[6] = (byte) (uncompressedLength >> 16);
+            sequence = (sequence + 1) & 0xFF;
+        }
+    }
+}
@@ -1,8 +1,16 @@
 package org.example.db.mysql;
 
+import org.example.db.BatchErrorMode;
+import org.example.db.BatchResult;
+import org.example.db.BatchStatement;
+import org.example.db.BulkFormat;
+import org.example.db.BulkLoader;
 import org.example.db.DBConnection;
 import org.example.db.utilities.*;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
@@ -23,7 +31,40 @@ import java.util.*;
  * - Fallback automático a JDBC si falla socket
  * - Ejecución de queries via protocolo nativo o JDBC
  */
-public class MySQLConnection implements DBConnection {
+public class MySQLConnection implements DBConnection, BulkLoader {
+    // Capability flags del handshake
+    private static final int CLIENT_LONG_PASSWORD = 0x0000_0001;
+    private static final int CLIENT_FOUND_ROWS = 0x0000_0002;
+    private static final int CLIENT_LONG_FLAG = 0x0000_0004;
+    private static final int CLIENT_CONNECT_WITH_DB = 0x0000_0008;
+    private static final int CLIENT_COMPRESS = 0x0000_0020;
+    private static final int CLIENT_LOCAL_FILES = 0x0000_0080;
+    private static final int CLIENT_PROTOCOL_41 = 0x0000_0200;
+    private static final int CLIENT_TRANSACTIONS = 0x0000_2000;
+    private static final int CLIENT_SECURE_CONNECTION = 0x0000_8000;
+    private static final int CLIENT_MULTI_STATEMENTS = 0x0001_0000;
+    private static final int CLIENT_MULTI_RESULTS = 0x0002_0000;
+    private static final int CLIENT_PS_MULTI_RESULTS = 0x0004_0000;
+    private static final int CLIENT_PLUGIN_AUTH = 0x0008_0000;
+    /** Capacidades que el cliente nativo implementa (sin SSL ni CLIENT_DEPRECATE_EOF). */
+    private static final int CLIENT_CAPABILITIES = CLIENT_LONG_PASSWORD | CLIENT_FOUND_ROWS | CLIENT_LONG_FLAG
+            | CLIENT_LOCAL_FILES | CLIENT_PROTOCOL_41 | CLIENT_TRANSACTIONS | CLIENT_SECURE_CONNECTION
+            | CLIENT_MULTI_STATEMENTS | CLIENT_MULTI_RESULTS | CLIENT_PS_MULTI_RESULTS | CLIENT_PLUGIN_AUTH;
+
+    /** Protocolo comprimido (MYSQL_COMPRESS) si el servidor lo admite. */
+    private static final boolean COMPRESS =
+            Boolean.parseBoolean(ConnectionConfig.getConfigValue("MYSQL_COMPRESS", "MYSQL_COMPRESS", "false"));
+    /** Payloads salientes menores que este tamaño se envían sin comprimir. */
+    private static final int COMPRESS_THRESHOLD =
+            ConnectionConfig.getConfigValueAsInt("MYSQL_COMPRESS_THRESHOLD", "MYSQL_COMPRESS_THRESHOLD", 50);
+
+    private static final int SERVER_MORE_RESULTS_EXISTS = 0x0008;
+    private static final int ER_LOCK_DEADLOCK = 1213;
+    /** Tamaño máximo aproximado de un COM_QUERY con varias sentencias del lote. */
+    private static final int MAX_MULTI_STATEMENT_BYTES = 1024 * 1024;
+    /** Tamaño de cada paquete de datos enviado en LOAD DATA LOCAL INFILE. */
+    private static final int INFILE_CHUNK_BYTES = 64 * 1024;
+
     private final String name;
     
     // Parámetros de conexión
@@ -37,6 +78,7 @@ public class MySQLConnection implements DBConnection {
     private Socket socket;
     private InputStream in;
     private OutputStream out;
+    private MySQLCompression compression; // null si no se negoció CLIENT_COMPRESS
     
     // JDBC fallback
     private Connection jdbcConnection;
@@ -46,6 +88,11 @@ public class MySQLConnection implements DBConnection {
     private boolean nativeConnected = false;
     private boolean jdbcFallbackMode = false;
 
+    // Cancelación: id de conexión (para KILL QUERY) en modo nativo, Statement en curso en modo JDBC
+    private volatile long connectionId;
+    private volatile Statement currentStatement;
+    private long statementTimeoutMs = 0;
+
     public MySQLConnection(String name) {
         this(
                 name,
@@ -73,11 +120,11 @@ public class MySQLConnection implements DBConnection {
 
     @Override
     public void connect() {
-        System.out.println("[mysql-socket] Intentando conectar via sockets a " + host + ":" + port + " (db=" + database + ") as user=" + user);
+        Log.sampled(LogLevel.INFO, "mysql-socket", () -> "Intentando conectar via sockets a " + host + ":" + port + " (db=" + database + ") as user=" + user);
         try {
             socket = new Socket(host, port);
-            in = socket.getInputStream();
-            out = socket.getOutputStream();
+            in = new BufferedInputStream(socket.getInputStream(), 64 * 1024);
+            out = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024);
 
             // Leer Initial Handshake Packet
             byte[] handshake = readPacket();
@@ -94,6 +141,8 @@ public class MySQLConnection implements DBConnection {
             offset++; // skip null
             
             // Connection ID (4 bytes)
+            connectionId = ((handshake[offset] & 0xFFL) | ((handshake[offset + 1] & 0xFFL) << 8)
+                    | ((handshake[offset + 2] & 0xFFL) << 16) | ((handshake[offset + 3] & 0xFFL) << 24));
             offset += 4;
             
             // Auth plugin data part 1 (8 bytes)
@@ -107,8 +156,12 @@ public class MySQLConnection implements DBConnection {
             int capLower = ((handshake[offset] & 0xFF) | ((handshake[offset + 1] & 0xFF) << 8));
             offset += 2;
             
-            // Skip charset, status flags, capability upper
-            offset += 1 + 2 + 2;
+            // Skip charset and status flags
+            offset += 1 + 2;
+
+            // Capability flags upper 2 bytes
+            int serverCapabilities = capLower | (((handshake[offset] & 0xFF) | ((handshake[offset + 1] & 0xFF) << 8)) << 16);
+            offset += 2;
             
             // Auth plugin data length
             int authDataLen = handshake[offset++] & 0xFF;
@@ -127,11 +180,11 @@ public class MySQLConnection implements DBConnection {
                 authPlugin.append((char) handshake[offset++]);
             }
             
-            System.out.println("[mysql-socket] Server version: " + serverVersion + ", Auth plugin: " + authPlugin);
+            Log.sampled(LogLevel.DEBUG, "mysql-socket", () -> "Server version: " + serverVersion + ", Auth plugin: " + authPlugin);
             
             // Si el plugin de autenticación no es mysql_native_password, usar fallback JDBC
             if (!authPlugin.toString().equals("mysql_native_password")) {
-                System.err.println("[mysql-socket] Auth plugin '" + authPlugin + "' no soportado por socket client. Usando JDBC fallback...");
+                Log.sampled(LogLevel.WARN, "mysql-socket", () -> "Auth plugin '" + authPlugin + "' no soportado por socket client. Usando JDBC fallback...");
                 throw new RuntimeException("Unsupported auth plugin: " + authPlugin + ". Falling back to JDBC.");
             }
             
@@ -140,16 +193,30 @@ public class MySQLConnection implements DBConnection {
             System.arraycopy(authData1, 0, salt, 0, authData1.length);
             System.arraycopy(authData2, 0, salt, authData1.length, authData2.length);
             
+            // Capacidades: las que implementamos y el servidor anuncia
+            int capabilities = CLIENT_CAPABILITIES & serverCapabilities | CLIENT_PROTOCOL_41;
+            if (database != null && !database.isEmpty()) capabilities |= CLIENT_CONNECT_WITH_DB & serverCapabilities;
+            if (COMPRESS) {
+                if ((serverCapabilities & CLIENT_COMPRESS) != 0) capabilities |= CLIENT_COMPRESS;
+                else Log.warn("mysql-socket", "MYSQL_COMPRESS=true pero el servidor no admite compresión");
+            }
+
             // Enviar Handshake Response Packet (autenticación)
-            sendHandshakeResponse(salt, authPlugin.toString());
+            sendHandshakeResponse(salt, authPlugin.toString(), capabilities);
             
             // Leer respuesta de autenticación
             byte[] authResponse = readPacket();
             if (authResponse[0] == 0x00) {
-                // OK packet
+                // OK packet: a partir de aquí, si se negoció, todo va en tramas comprimidas
+                if ((capabilities & CLIENT_COMPRESS) != 0) {
+                    compression = new MySQLCompression(in, out, COMPRESS_THRESHOLD);
+                    in = compression.getInputStream();
+                    out = compression.getOutputStream();
+                }
                 nativeConnected = true;
                 connected = true;
-                System.out.println("[mysql-socket] ✓ Connected to " + host + ":" + port + " database '" + database + "'");
+                Log.sampled(LogLevel.INFO, "mysql-socket", () -> "✓ Connected to " + host + ":" + port + " database '" + database + "'"
+                        + (compression != null ? " (compressed)" : ""));
                 return;
             } else if (authResponse[0] == (byte) 0xFF) {
                 // Error packet
@@ -162,22 +229,20 @@ public class MySQLConnection implements DBConnection {
         } catch (Exception e) {
             nativeConnected = false;
             closeSocket();
-            System.err.println("[mysql-socket] ✗ FAILED to connect via sockets to " + host + ":" + port);
-            System.err.println("[mysql-socket]   Error: " + e.getMessage());
-            System.err.println("[mysql-socket]   Intentando fallback a JDBC...");
+            Log.sampled(LogLevel.WARN, "mysql-socket", () -> "✗ FAILED to connect via sockets to " + host + ":" + port
+                    + " (" + e.getMessage() + "). Intentando fallback a JDBC...");
             
             // Fallback: intentar conexión JDBC usando la utilidad
             try {
-                String jdbcUrl = "jdbc:mysql://" + host + ":" + port + "/" + database + "?useSSL=false&allowPublicKeyRetrieval=true";
-                jdbcConnection = JDBCConnectionHelper.createConnection(jdbcUrl, user, password);
+                jdbcConnection = JDBCConnectionHelper.createConnection(jdbcUrl(false), user, password);
                 jdbcFallbackMode = true;
                 connected = true;
-                System.out.println("[mysql-jdbc] ✓ Connected via JDBC fallback to " + host + ":" + port + " database '" + database + "'");
+                Log.sampled(LogLevel.INFO, "mysql-jdbc", () -> "✓ Connected via JDBC fallback to " + host + ":" + port + " database '" + database + "'");
                 return;
             } catch (SQLException jdbcEx) {
                 connected = false;
                 jdbcFallbackMode = false;
-                System.err.println("[mysql-jdbc] ✗ JDBC fallback also failed: " + jdbcEx.getMessage());
+                Log.warn("mysql-jdbc", "✗ JDBC fallback also failed: " + jdbcEx.getMessage());
                 throw new RuntimeException("Cannot establish connection to MySQL (socket and JDBC both failed). Check Docker and credentials.", jdbcEx);
             }
         }
@@ -190,7 +255,7 @@ public class MySQLConnection implements DBConnection {
         jdbcFallbackMode = false;
         closeSocket();
         closeJdbc();
-        System.out.println("[mysql-socket] Disconnected");
+        Log.sampled(LogLevel.INFO, "mysql-socket", () -> "Disconnected");
     }
 
     @Override
@@ -222,9 +287,10 @@ public class MySQLConnection implements DBConnection {
         }
         
         try {
-            System.out.println("[mysql-socket] Executing native SQL: " + sql);
+            final String logSql = sql;
+            Log.sampled(LogLevel.INFO, "mysql-socket", () -> "Executing native SQL: " + Log.truncateSql(logSql));
             List<Map<String, Object>> res = executeNativeQuerySocket(sql);
-            System.out.println("[mysql-socket] Native query returned rows: " + (res == null ? 0 : res.size()));
+            Log.sampled(LogLevel.DEBUG, "mysql-socket", () -> "Native query returned rows: " + (res == null ? 0 : res.size()));
             return res;
         } catch (Exception e) {
             throw new RuntimeException("Failed to execute query: " + sql + ". Error: " + e.getMessage(), e);
@@ -233,10 +299,11 @@ public class MySQLConnection implements DBConnection {
     
     // Ejecutar query via JDBC
     private List<Map<String, Object>> executeJdbc(String sql) {
-        System.out.println("[mysql-jdbc] Executing JDBC SQL: " + sql);
+        Log.sampled(LogLevel.INFO, "mysql-jdbc", () -> "Executing JDBC SQL: " + Log.truncateSql(sql));
         List<Map<String, Object>> rows = new ArrayList<>();
         
         try (Statement stmt = jdbcConnection.createStatement()) {
+            currentStatement = stmt;
             // Usar SQLCleaner para detectar el tipo de consulta
             boolean isSelect = SQLCleaner.isSelectQuery(sql);
             
@@ -244,18 +311,21 @@ public class MySQLConnection implements DBConnection {
                 // Para SELECT, usar executeQuery y convertir con utilidad
                 try (ResultSet rs = stmt.executeQuery(sql)) {
                     rows = ResultSetConverter.convertToList(rs);
-                    System.out.println("[mysql-jdbc] JDBC query returned rows: " + rows.size());
+                    final int rowCount = rows.size();
+                    Log.sampled(LogLevel.DEBUG, "mysql-jdbc", () -> "JDBC query returned rows: " + rowCount);
                 }
             } else {
                 // Para DDL/DML, usar executeUpdate y crear respuesta con utilidad
                 int affectedRows = stmt.executeUpdate(sql);
-                System.out.println("[mysql-jdbc] JDBC statement executed. Affected rows: " + affectedRows);
+                Log.sampled(LogLevel.DEBUG, "mysql-jdbc", () -> "JDBC statement executed. Affected rows: " + affectedRows);
                 rows.add(QueryResponseBuilder.createSuccessResponse(affectedRows));
             }
             
             return rows;
         } catch (SQLException e) {
             throw new RuntimeException("Failed to execute JDBC query: " + sql + ". Error: " + e.getMessage(), e);
+        } finally {
+            currentStatement = null;
         }
     }
     
@@ -263,86 +333,381 @@ public class MySQLConnection implements DBConnection {
     private List<Map<String, Object>> executeNativeQuerySocket(String sql) throws Exception {
         // Enviar COM_QUERY
         sendQuery(sql);
-        
-        // Leer respuesta
+        NativeResult result = readResult();
+        if (result.error != null) {
+            throw new RuntimeException("MySQL query error: " + result.error);
+        }
+        // OK packet (para UPDATE, INSERT, DELETE): sin filas
+        return result.rows == null ? Collections.emptyList() : result.rows;
+    }
+
+    /** Respuesta a una sentencia: paquete OK, paquete de error o result set. */
+    private static final class NativeResult {
+        List<Map<String, Object>> rows; // null si no hubo result set
+        long affectedRows = -1;
+        int errorCode;
+        String error; // null si no hubo error
+        int status; // flags de estado del servidor (SERVER_MORE_RESULTS_EXISTS, ...)
+    }
+
+    // Leer la respuesta de una sentencia
+    private NativeResult readResult() throws Exception {
+        NativeResult result = new NativeResult();
         byte[] response = readPacket();
-        
+
+        if (response[0] == (byte) 0xFB) {
+            // LOCAL INFILE no solicitado por nosotros: se rechaza enviando un fichero vacío
+            writePacket(new byte[0], 2);
+            response = readPacket();
+        }
+
         if (response[0] == (byte) 0xFF) {
-            // Error packet
-            String error = new String(Arrays.copyOfRange(response, 3, response.length), StandardCharsets.UTF_8);
-            throw new RuntimeException("MySQL query error: " + error);
+            // Error packet: 0xFF, código (2 bytes), '#' + SQLSTATE, mensaje
+            result.errorCode = (response[1] & 0xFF) | ((response[2] & 0xFF) << 8);
+            result.error = new String(Arrays.copyOfRange(response, 3, response.length), StandardCharsets.UTF_8);
+            return result;
         }
-        
+
         if (response[0] == 0x00) {
-            // OK packet (para UPDATE, INSERT, DELETE)
-            return Collections.emptyList();
+            // OK packet: affected_rows y last_insert_id (length-encoded), status (2 bytes)
+            int pos = 1;
+            result.affectedRows = MySQLProtocolHelper.getLengthEncodedLong(response, pos);
+            pos += MySQLProtocolHelper.lengthEncodedSize(response, pos);
+            pos += MySQLProtocolHelper.lengthEncodedSize(response, pos);
+            result.status = (response[pos] & 0xFF) | ((response[pos + 1] & 0xFF) << 8);
+            return result;
         }
-        
-        // Result set
-        // First packet contains column count
-        int columnCount = response[0] & 0xFF;
-        
-        // Read column definitions
-        List<String> columnNames = new ArrayList<>();
+
+        // Result set: número de columnas (length-encoded), definiciones, EOF, filas, EOF
+        int columnCount = MySQLProtocolHelper.getLengthEncodedInt(response, 0);
+        MySQLRowDecoder.Column[] columns = new MySQLRowDecoder.Column[columnCount];
         for (int i = 0; i < columnCount; i++) {
-            byte[] colDef = readPacket();
-            // Parsear column definition (simplificado)
-            // Catalog, schema, table, org_table, name, org_name...
-            // Por simplicidad, saltar a name (hay offsets variables por length-encoded strings)
-            // Aquí solo parseamos básico
-            int pos = 0;
-            // Skip catalog
-            pos += getLengthEncodedInt(colDef, pos);
-            pos += colDef[pos] & 0xFF;
-            // Skip schema
-            pos += getLengthEncodedInt(colDef, pos);
-            pos += colDef[pos] & 0xFF;
-            // Skip table
-            pos += getLengthEncodedInt(colDef, pos);
-            pos += colDef[pos] & 0xFF;
-            // Skip org_table
-            pos += getLengthEncodedInt(colDef, pos);
-            pos += colDef[pos] & 0xFF;
-            // Name
-            int nameLen = getLengthEncodedInt(colDef, pos);
-            pos++;
-            String colName = new String(colDef, pos, nameLen, StandardCharsets.UTF_8);
-            columnNames.add(colName);
+            columns[i] = MySQLRowDecoder.parseColumnDefinition(readPacket());
         }
-        
-        // EOF packet
-        readPacket();
-        
-        // Read rows
+        readPacket(); // EOF
+
         List<Map<String, Object>> rows = new ArrayList<>();
         while (true) {
             byte[] row = readPacket();
             if (row[0] == (byte) 0xFE && row.length < 9) {
-                // EOF packet
+                // EOF packet: 0xFE, warnings (2 bytes), status (2 bytes)
+                if (row.length >= 5) result.status = (row[3] & 0xFF) | ((row[4] & 0xFF) << 8);
                 break;
             }
-            
-            Map<String, Object> rowMap = new LinkedHashMap<>();
-            int pos = 0;
-            for (String colName : columnNames) {
-                if (row[pos] == (byte) 0xFB) {
-                    // NULL
-                    rowMap.put(colName, null);
-                    pos++;
-                } else {
-                    int len = getLengthEncodedInt(row, pos);
-                    pos++;
-                    String value = new String(row, pos, len, StandardCharsets.UTF_8);
-                    rowMap.put(colName, value);
-                    pos += len;
-                }
+            if (row[0] == (byte) 0xFF) {
+                // Error a mitad del result set (p. ej. query interrumpida)
+                result.errorCode = (row[1] & 0xFF) | ((row[2] & 0xFF) << 8);
+                result.error = new String(row, 3, row.length - 3, StandardCharsets.UTF_8);
+                return result;
             }
-            rows.add(rowMap);
+            rows.add(MySQLRowDecoder.decodeRow(row, columns));
         }
         
-        return rows;
+        result.rows = rows;
+        return result;
+    }
+
+    // =============== Lotes (multi-statements) ===============
+
+    /**
+     * Ejecuta un lote en una transacción.
+     *
+     * En modo nativo las sentencias (con los parámetros sustituidos por
+     * literales) se concatenan con ';' en COM_QUERY de hasta
+     * {@link BatchHelper#PIPELINE_DEPTH} sentencias y ~1 MB, aprovechando
+     * CLIENT_MULTI_STATEMENTS: el servidor devuelve un resultado por sentencia
+     * (con SERVER_MORE_RESULTS_EXISTS mientras queden) y se detiene en la
+     * primera que falla, sin deshacer la transacción. Según el modo se envía
+     * entonces ROLLBACK (ROLLBACK), COMMIT (STOP) o se reenvía el resto del
+     * lote (CONTINUE). Un deadlock deshace siempre la transacción completa.
+     *
+     * En modo JDBC delega en {@link BatchHelper#executeJdbc}.
+     */
+    @Override
+    public List<BatchResult> executeBatch(List<BatchStatement> statements, BatchErrorMode mode) {
+        if (!isConnected()) {
+            throw new IllegalStateException("Connection is not open: " + getName());
+        }
+        if (jdbcFallbackMode && jdbcConnection != null) {
+            return BatchHelper.executeJdbc(jdbcConnection, statements, mode, true);
+        }
+        if (!nativeConnected || socket == null || out == null || in == null) {
+            throw new IllegalStateException("Socket connection is not established. Cannot execute batch.");
+        }
+        try {
+            return executeNativeBatch(statements, mode);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to execute batch. Error: " + e.getMessage(), e);
+        }
+    }
+
+    private List<BatchResult> executeNativeBatch(List<BatchStatement> statements, BatchErrorMode mode) throws Exception {
+        int n = statements.size();
+        BatchResult[] results = new BatchResult[n];
+        String[] sqls = new String[n];
+        int stopAt = n;
+        for (int i = 0; i < n; i++) {
+            BatchStatement st = statements.get(i);
+            try {
+                sqls[i] = SqlParameters.inline(BatchHelper.normalize(st, true), st.getParams(), true);
+            } catch (IllegalArgumentException e) {
+                results[i] = BatchResult.error(i, e.getMessage());
+                if (mode == BatchErrorMode.ROLLBACK) return BatchHelper.finish(results, false);
+                if (mode == BatchErrorMode.STOP && stopAt == n) stopAt = i;
+            }
+        }
+
+        executeControl("START TRANSACTION");
+        try {
+            int i = 0;
+            while (i < stopAt) {
+                // Siguiente bloque de sentencias válidas
+                List<Integer> chunk = new ArrayList<>();
+                StringBuilder multi = new StringBuilder();
+                while (i < stopAt && chunk.size() < BatchHelper.PIPELINE_DEPTH
+                        && (chunk.isEmpty() || sqls[i] == null || multi.length() + sqls[i].length() < MAX_MULTI_STATEMENT_BYTES)) {
+                    if (results[i] == null) {
+                        // Salto de línea antes de ';': un comentario "--" al final de la sentencia anterior
+                        // se comería el separador y la sentencia siguiente
+                        if (!chunk.isEmpty()) multi.append("\n;");
+                        multi.append(sqls[i]);
+                        chunk.add(i);
+                    }
+                    i++;
+                }
+                if (chunk.isEmpty()) continue;
+
+                sendQuery(multi.toString());
+                for (int k = 0; k < chunk.size(); k++) {
+                    int idx = chunk.get(k);
+                    NativeResult r = readResult();
+                    if (r.error != null) {
+                        results[idx] = BatchResult.error(idx, r.error);
+                        if (mode == BatchErrorMode.ROLLBACK || r.errorCode == ER_LOCK_DEADLOCK) {
+                            executeControl("ROLLBACK");
+                            return BatchHelper.finish(results, true);
+                        }
+                        if (mode == BatchErrorMode.STOP) {
+                            executeControl("COMMIT");
+                            return BatchHelper.finish(results, false);
+                        }
+                        // CONTINUE: el servidor no ejecutó el resto del bloque; se reenvía
+                        i = idx + 1;
+                        break;
+                    }
+                    results[idx] = r.rows != null ? BatchResult.rows(idx, r.rows) : BatchResult.updated(idx, r.affectedRows);
+                    boolean more = (r.status & SERVER_MORE_RESULTS_EXISTS) != 0;
+                    if (more != (k + 1 < chunk.size())) {
+                        throw new RuntimeException("Unexpected number of results in multi-statement batch");
+                    }
+                }
+            }
+        } catch (Exception e) {
+            try { executeControl("ROLLBACK"); } catch (Exception ignored) {}
+            throw e;
+        }
+        executeControl("COMMIT");
+        return BatchHelper.finish(results, false);
+    }
+
+    // Sentencia de control de transacción: debe devolver OK
+    private void executeControl(String sql) throws Exception {
+        sendQuery(sql);
+        NativeResult r = readResult();
+        if (r.error != null) throw new RuntimeException("MySQL error on " + sql + ": " + r.error);
     }
     
+    // =============== Cancelación y límites de tiempo ===============
+
+    /**
+     * Cancela la sentencia en curso. En modo nativo abre una conexión
+     * auxiliar con las mismas credenciales y ejecuta {@code KILL QUERY <id>}
+     * con el id de conexión del handshake; la sentencia termina con
+     * ER_QUERY_INTERRUPTED (1317) y la conexión original sigue abierta. En
+     * modo JDBC usa {@link Statement#cancel()}, que hace lo mismo.
+     */
+    @Override
+    public void cancel() {
+        if (jdbcFallbackMode) {
+            Statement stmt = currentStatement;
+            if (stmt == null) return;
+            try {
+                stmt.cancel();
+            } catch (SQLException e) {
+                Log.warn("mysql-jdbc", "Cancel failed: " + e.getMessage());
+            }
+            return;
+        }
+        long id = connectionId;
+        if (!nativeConnected || id == 0) return;
+        MySQLConnection side = new MySQLConnection(name + "-kill", host, port, database, user, password);
+        try {
+            side.connect();
+            side.execute("KILL QUERY " + id);
+            Log.sampled(LogLevel.INFO, "mysql-socket", () -> "KILL QUERY sent for connection " + id);
+        } catch (RuntimeException e) {
+            Log.warn("mysql-socket", "KILL QUERY " + id + " failed: " + e.getMessage());
+        } finally {
+            side.disconnect();
+        }
+    }
+
+    /**
+     * Fija max_execution_time para las sentencias siguientes de la sesión.
+     * MySQL sólo lo aplica a SELECT; en servidores que no lo soportan
+     * (MariaDB, MySQL &lt; 5.7.8) se ignora y el límite queda sólo en el cliente.
+     */
+    @Override
+    public void setStatementTimeout(long millis) {
+        // Un límite vigente mayor basta: el plazo del cliente cancela antes
+        if (millis == statementTimeoutMs || (millis > 0 && statementTimeoutMs >= millis)) return;
+        statementTimeoutMs = millis;
+        try {
+            execute("SET SESSION max_execution_time = " + Math.max(0, millis));
+        } catch (RuntimeException e) {
+            Log.sampled(LogLevel.WARN, "mysql-socket", () -> "max_execution_time not supported: " + e.getMessage());
+        }
+    }
+
+    // =============== LOAD DATA LOCAL INFILE (carga masiva) ===============
+
+    /**
+     * Carga datos con {@code LOAD DATA LOCAL INFILE}.
+     *
+     * En modo nativo envía la sentencia; el servidor responde con el paquete
+     * de petición de fichero local (0xFB + nombre) y el contenido del flujo se
+     * envía en paquetes de {@value #INFILE_CHUNK_BYTES} bytes, terminando con
+     * un paquete vacío. El nombre pedido por el servidor se ignora: sólo se
+     * envía el flujo recibido, nunca un fichero del disco. En modo JDBC se usa
+     * {@code setLocalInfileInputStream} de Connector/J sobre una conexión
+     * dedicada, la única con LOCAL INFILE habilitado. La carga nativa se hace
+     * en una transacción para poder deshacerla si la subida se interrumpe.
+     *
+     * CSV: campos separados por ',' y opcionalmente entre comillas dobles
+     * (comillas internas duplicadas). TSV: formato por defecto de MySQL
+     * (tabuladores, '\' como escape y {@code \N} para NULL).
+     * Requiere {@code local_infile=ON} en el servidor.
+     */
+    @Override
+    public long bulkLoad(String table, List<String> columns, BulkFormat format, boolean header, InputStream data) {
+        if (!isConnected()) {
+            throw new IllegalStateException("Connection is not open: " + getName());
+        }
+        String sql = buildLoadDataSql(table, columns, format, header);
+        Log.sampled(LogLevel.INFO, jdbcFallbackMode ? "mysql-jdbc" : "mysql-socket", () -> "Executing " + sql);
+        try {
+            if (jdbcFallbackMode && jdbcConnection != null) {
+                // Conexión propia con LOCAL INFILE sólo para esta sentencia; el fichero es siempre el flujo recibido
+                try (Connection loader = JDBCConnectionHelper.createConnection(jdbcUrl(true), user, password);
+                     Statement stmt = loader.createStatement()) {
+                    stmt.unwrap(com.mysql.cj.jdbc.JdbcStatement.class).setLocalInfileInputStream(data);
+                    return stmt.executeLargeUpdate(sql);
+                }
+            }
+            if (!nativeConnected || socket == null || out == null || in == null) {
+                throw new IllegalStateException("Socket connection is not established. Cannot execute LOAD DATA.");
+            }
+            return loadDataNative(sql, data);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("LOAD DATA into " + table + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * URL JDBC del modo de respaldo. LOCAL INFILE sólo se habilita en la
+     * conexión dedicada de {@link #bulkLoad}: en el resto, una sentencia
+     * {@code LOAD DATA LOCAL INFILE '/etc/...'} recibida por /query haría que
+     * el middleware enviara sus propios ficheros al servidor.
+     */
+    private String jdbcUrl(boolean localInfile) {
+        return "jdbc:mysql://" + host + ":" + port + "/" + database + "?useSSL=false&allowPublicKeyRetrieval=true"
+                + (localInfile ? "&allowLoadLocalInfile=true" : "")
+                + (COMPRESS ? "&useCompression=true" : "");
+    }
+
+    private static String buildLoadDataSql(String table, List<String> columns, BulkFormat format, boolean header) {
+        StringBuilder sb = new StringBuilder("LOAD DATA LOCAL INFILE 'stream' INTO TABLE ")
+                .append(SqlParameters.quoteIdentifier(table, '`'))
+                .append(" CHARACTER SET utf8mb4");
+        if (format == BulkFormat.CSV) {
+            sb.append(" FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY '\"' ESCAPED BY ''");
+        }
+        sb.append(" LINES TERMINATED BY '\\n'");
+        if (header) sb.append(" IGNORE 1 LINES");
+        if (columns != null && !columns.isEmpty()) {
+            sb.append(" (");
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) sb.append(", ");
+                sb.append(SqlParameters.quoteIdentifier(columns.get(i), '`'));
+            }
+            sb.append(')');
+        }
+        return sb.toString();
+    }
+
+    private long loadDataNative(String sql, InputStream data) throws Exception {
+        // Dentro de una transacción: si la subida se corta, el fichero ya enviado se deshace
+        executeControl("START TRANSACTION");
+        try {
+            long rows = loadDataInTransaction(sql, data);
+            executeControl("COMMIT");
+            return rows;
+        } catch (Exception e) {
+            try { executeControl("ROLLBACK"); } catch (Exception ignored) {}
+            throw e;
+        }
+    }
+
+    private long loadDataInTransaction(String sql, InputStream data) throws Exception {
+        sendQuery(sql);
+        byte[] response = readPacket();
+        if (response[0] == (byte) 0xFF) {
+            throw new RuntimeException("MySQL LOAD DATA error: "
+                    + new String(Arrays.copyOfRange(response, 3, response.length), StandardCharsets.UTF_8));
+        }
+        if (response[0] != (byte) 0xFB) {
+            throw new RuntimeException("Unexpected response to LOAD DATA LOCAL INFILE (is local_infile enabled?)");
+        }
+
+        // Petición con seq 1: los paquetes de datos siguen con 2, 3, ... (módulo 256)
+        int seq = 2;
+        byte[] buf = new byte[INFILE_CHUNK_BYTES + 4];
+        IOException readFailure = null;
+        try {
+            int n;
+            while ((n = readChunk(data, buf, 4, INFILE_CHUNK_BYTES)) > 0) {
+                buf[0] = (byte) n;
+                buf[1] = (byte) (n >> 8);
+                buf[2] = (byte) (n >> 16);
+                buf[3] = (byte) seq;
+                seq = (seq + 1) & 0xFF;
+                out.write(buf, 0, n + 4);
+            }
+        } catch (IOException e) {
+            // El protocolo no permite cancelar: se cierra el fichero y la transacción se deshace
+            readFailure = e;
+        }
+        writePacket(new byte[0], seq); // fin del fichero
+
+        NativeResult result = readResult();
+        if (readFailure != null) throw readFailure;
+        if (result.error != null) throw new RuntimeException("MySQL LOAD DATA error: " + result.error);
+        return result.affectedRows;
+    }
+
+    /** Lee hasta {@code len} bytes (menos sólo al final del flujo). */
+    private static int readChunk(InputStream data, byte[] buf, int off, int len) throws IOException {
+        int total = 0;
+        while (total < len) {
+            int r = data.read(buf, off + total, len - total);
+            if (r == -1) break;
+            total += r;
+        }
+        return total;
+    }
+
     // =============== Protocol Helper Methods ===============
     
     private byte[] readPacket() throws Exception {
@@ -353,29 +718,25 @@ public class MySQLConnection implements DBConnection {
         MySQLProtocolHelper.writePacket(out, payload, sequenceId);
     }
     
-    private int getLengthEncodedInt(byte[] data, int offset) {
-        return MySQLProtocolHelper.getLengthEncodedInt(data, offset);
-    }
-    
     private void sendQuery(String sql) throws Exception {
+        if (compression != null) compression.resetSequence();
         java.io.ByteArrayOutputStream bout = new java.io.ByteArrayOutputStream();
         bout.write(0x03); // COM_QUERY
         bout.write(sql.getBytes(StandardCharsets.UTF_8));
         writePacket(bout.toByteArray(), 0);
     }
     
-    private void sendHandshakeResponse(byte[] salt, String authPlugin) throws Exception {
+    private void sendHandshakeResponse(byte[] salt, String authPlugin, int capabilities) throws Exception {
         java.io.ByteArrayOutputStream bout = new java.io.ByteArrayOutputStream();
         
         // Client capabilities (32-bit)
-        int capabilities = 0x000F_FFFF; // CLIENT_LONG_PASSWORD | CLIENT_PROTOCOL_41 | etc.
         bout.write(capabilities & 0xFF);
         bout.write((capabilities >> 8) & 0xFF);
         bout.write((capabilities >> 16) & 0xFF);
         bout.write((capabilities >> 24) & 0xFF);
         
-        // Max packet size (4 bytes)
-        bout.write(new byte[]{0, 0, 0, 1});
+        // Max packet size (4 bytes): 1 GB, los paquetes mayores de 16 MB se reensamblan
+        bout.write(new byte[]{0, 0, 0, 0x40});
         
         // Character set (1 byte) - utf8_general_ci
         bout.write(33);
@@ -408,12 +769,12 @@ public class MySQLConnection implements DBConnection {
         }
         
         // Database (null-terminated)
-        if (database != null && !database.isEmpty()) {
+        if ((capabilities & CLIENT_CONNECT_WITH_DB) != 0) {
             MySQLProtocolHelper.writeNullTerminatedString(bout, database);
         }
         
         // Auth plugin name
-        if (authPlugin != null && !authPlugin.isEmpty()) {
+        if ((capabilities & CLIENT_PLUGIN_AUTH) != 0 && authPlugin != null && !authPlugin.isEmpty()) {
             MySQLProtocolHelper.writeNullTerminatedString(bout, authPlugin);
         }
         
@@ -422,7 +783,8 @@ public class MySQLConnection implements DBConnection {
     
     private void closeSocket() {
         try { if (socket != null) socket.close(); } catch (Exception ignored) {}
-        socket = null; in = null; out = null;
+        if (compression != null) compression.end();
+        socket = null; in = null; out = null; compression = null;
     }
     
     private void closeJdbc() {
@@ -3,6 +3,9 @@ package org.example.db.mysql;
 import org.example.db.DBConnection;
 import org.example.db.DBFactory;
 import org.example.db.DBQuery;
+import org.example.db.utilities.ConnectionConfig;
+
+import java.util.List;
 
 /**
  * Fábrica concreta para crear objetos relacionados con MySQL.
@@ -50,4 +53,42 @@ public class MySQLFactory implements DBFactory {
         // Devolver la query que delega sobre la conexión (simulada actual).
         return new MySQLQuery(conn);
     }
+
+    /**
+     * Nombre del proveedor.
+     *
+     * @return "mysql"
+     */
+    @Override
+    public String getName() {
+        return "mysql";
+    }
+
+    /**
+     * Réplicas de lectura de MYSQL_REPLICAS ("host:puerto,host:puerto").
+     *
+     * @return direcciones de las réplicas (vacía si no hay)
+     */
+    @Override
+    public List<String> getReplicas() {
+        return ConnectionConfig.getConfigValueAsList("MYSQL_REPLICAS", "MYSQL_REPLICAS");
+    }
+
+    /**
+     * Crea una conexión a una réplica con la base de datos y credenciales del primario.
+     *
+     * @param name Nombre lógico para la conexión
+     * @param replica "host:puerto" (sin puerto se usa 3306)
+     * @return Instancia de {@link org.example.db.DBConnection}
+     */
+    @Override
+    public DBConnection createReplicaConnection(String name, String replica) {
+        int colon = replica.lastIndexOf(':');
+        String host = colon < 0 ? replica : replica.substring(0, colon);
+        int port = colon < 0 ? 3306 : Integer.parseInt(replica.substring(colon + 1));
+        return new MySQLConnection(name, host, port,
+                ConnectionConfig.getConfigValue("MYSQL_DATABASE", "MYSQL_DATABASE", "test"),
+                ConnectionConfig.getConfigValue("MYSQL_USER", "MYSQL_USER", "root"),
+                ConnectionConfig.getConfigValue("MYSQL_PASSWORD", "MYSQL_PASSWORD", "root"));
+    }
 }
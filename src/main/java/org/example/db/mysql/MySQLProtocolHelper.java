@@ -0,0 +1,159 @@
+package org.example.db.mysql;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * Helper methods for MySQL protocol implementation
+ */
+class MySQLProtocolHelper {
+    
+    /** Longitud máxima de un paquete físico; un paquete de este tamaño indica que el payload continúa. */
+    static final int MAX_PACKET_PAYLOAD = 0xFF_FFFF;
+
+    // Read MySQL packet from input stream, reassembling payloads split in 16 MB packets.
+    // The whole payload is buffered: large values are not streamed (see MySQLRowDecoder).
+    static byte[] readPacket(InputStream in) throws Exception {
+        byte[] header = new byte[4];
+        readFully(in, header, 0, 4);
+        int length = payloadLength(header);
+        byte[] payload = new byte[length];
+        readFully(in, payload, 0, length);
+
+        // Un paquete de 0xFFFFFF bytes continúa en el siguiente (que puede estar vacío)
+        int total = length;
+        while (length == MAX_PACKET_PAYLOAD) {
+            readFully(in, header, 0, 4);
+            length = payloadLength(header);
+            if (total + length > payload.length) {
+                payload = Arrays.copyOf(payload, (int) Math.min(Integer.MAX_VALUE - 8, Math.max((long) payload.length * 2, (long) total + length)));
+            }
+            readFully(in, payload, total, length);
+            total += length;
+        }
+        return total == payload.length ? payload : Arrays.copyOf(payload, total);
+    }
+
+    private static int payloadLength(byte[] header) {
+        return (header[0] & 0xFF) | ((header[1] & 0xFF) << 8) | ((header[2] & 0xFF) << 16);
+    }
+
+    /**
+     * Write MySQL packet to output stream. Payloads of 16 MB or more are split
+     * in consecutive packets (ending with a shorter, possibly empty, one).
+     * The stream should be buffered so that header and payload of small
+     * packets leave in a single write.
+     *
+     * @return sequence id for the next packet
+     */
+    static int writePacket(OutputStream out, byte[] payload, int sequenceId) throws Exception {
+        byte[] header = new byte[4];
+        int offset = 0;
+        int length;
+        do {
+            length = Math.min(payload.length - offset, MAX_PACKET_PAYLOAD);
+            header[0] = (byte) length;
+            header[1] = (byte) (length >> 8);
+            header[2] = (byte) (length >> 16);
+            header[3] = (byte) sequenceId;
+            out.write(header);
+            out.write(payload, offset, length);
+            offset += length;
+            sequenceId = (sequenceId + 1) & 0xFF;
+        } while (length == MAX_PACKET_PAYLOAD);
+        out.flush();
+        return sequenceId;
+    }
+    
+    // Read exact number of bytes
+    static void readFully(InputStream in, byte[] buffer, int offset, int length) throws Exception {
+        int end = offset + length;
+        while (offset < end) {
+            int read = in.read(buffer, offset, end - offset);
+            if (read == -1) throw new RuntimeException("Unexpected EOF");
+            offset += read;
+        }
+    }
+    
+    // Compute SHA1 hash
+    static byte[] sha1(byte[] data) throws Exception {
+        MessageDigest md = MessageDigest.getInstance("SHA-1");
+        return md.digest(data);
+    }
+    
+    // XOR two byte arrays
+    static byte[] xor(byte[] a, byte[] b) {
+        byte[] result = new byte[a.length];
+        for (int i = 0; i < a.length; i++) {
+            result[i] = (byte) (a[i] ^ b[i]);
+        }
+        return result;
+    }
+    
+    // Get length-encoded integer that must fit in an int (lengths, column counts)
+    static int getLengthEncodedInt(byte[] data, int offset) {
+        long v = getLengthEncodedLong(data, offset);
+        if (v > Integer.MAX_VALUE) throw new IllegalStateException("Length-encoded value too large: " + v);
+        return (int) v;
+    }
+    
+    // Get length-encoded integer (0xFC: 2 bytes, 0xFD: 3 bytes, 0xFE: 8 bytes little-endian)
+    static long getLengthEncodedLong(byte[] data, int offset) {
+        int first = data[offset] & 0xFF;
+        if (first < 0xFB) return first;
+        int size = lengthEncodedSize(data, offset) - 1;
+        long v = 0;
+        for (int i = 0; i < size; i++) {
+            v |= (long) (data[offset + 1 + i] & 0xFF) << (8 * i);
+        }
+        return v;
+    }
+
+    // Bytes occupied by a length-encoded integer, including the first byte
+    static int lengthEncodedSize(byte[] data, int offset) {
+        int first = data[offset] & 0xFF;
+        if (first < 0xFB) return 1;
+        if (first == 0xFC) return 3;
+        if (first == 0xFD) return 4;
+        if (first == 0xFE) return 9;
+        return 1; // 0xFB (NULL)
+    }
+    
+    // Write null-terminated string
+    static void writeNullTerminatedString(java.io.ByteArrayOutputStream out, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.write(bytes, 0, bytes.length);
+        out.write(0);
+    }
+    
+    // Write length-encoded string
+    static void writeLengthEncodedString(java.io.ByteArrayOutputStream out, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeLengthEncodedInt(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    // Write length-encoded integer (1, 3, 4 or 9 bytes)
+    static void writeLengthEncodedInt(java.io.ByteArrayOutputStream out, long v) {
+        int size;
+        if (v >= 0 && v < 0xFB) {
+            out.write((int) v);
+            return;
+        } else if (v >= 0 && v < 0x1_0000) {
+            out.write(0xFC);
+            size = 2;
+        } else if (v >= 0 && v < 0x100_0000) {
+            out.write(0xFD);
+            size = 3;
+        } else {
+            out.write(0xFE);
+            size = 8;
+        }
+        for (int i = 0; i < size; i++) {
+            out.write((int) (v >>> (8 * i)) & 0xFF);
+        }
+    }
+}
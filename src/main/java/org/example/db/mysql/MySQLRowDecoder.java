@@ -0,0 +1,208 @@
+package org.example.db.mysql;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decodificación de definiciones de columna y filas del protocolo de texto de
+ * MySQL (respuesta a COM_QUERY).
+ *
+ * Todos los enteros y longitudes se leen como length-encoded completos
+ * (0xFC: 2 bytes, 0xFD: 3 bytes, 0xFE: 8 bytes), así que los valores de más de
+ * 250 bytes y los paquetes reensamblados de más de 16 MB se decodifican sin
+ * caer a JDBC. Cada valor se convierte directamente desde su posición en el
+ * payload del paquete, sin copiar la fila ni el paquete a buffers intermedios.
+ *
+ * Limitación: no hay streaming de valores. Cada fila se decodifica desde su
+ * payload completo, ya reensamblado en memoria por
+ * {@link MySQLProtocolHelper#readPacket}, así que un valor de N bytes (p. ej.
+ * un LONGBLOB) ocupa N bytes en el payload más su conversión, y el tamaño de
+ * fila está limitado por el heap y por el array de Java (~2 GB).
+ *
+ * Como {@code PgValueDecoder}, convierte según el tipo de la columna: enteros,
+ * DECIMAL → BigDecimal, FLOAT/DOUBLE → Double, DATE/DATETIME/TIMESTAMP →
+ * java.time y BLOB/BINARY (charset binario) → {@code byte[]}. Lo que no se
+ * puede convertir (p. ej. fechas cero '0000-00-00') se devuelve como String.
+ */
+final class MySQLRowDecoder {
+    static final int TYPE_DECIMAL = 0x00;
+    static final int TYPE_TINY = 0x01;
+    static final int TYPE_SHORT = 0x02;
+    static final int TYPE_LONG = 0x03;
+    static final int TYPE_FLOAT = 0x04;
+    static final int TYPE_DOUBLE = 0x05;
+    static final int TYPE_TIMESTAMP = 0x07;
+    static final int TYPE_LONGLONG = 0x08;
+    static final int TYPE_INT24 = 0x09;
+    static final int TYPE_DATE = 0x0A;
+    static final int TYPE_DATETIME = 0x0C;
+    static final int TYPE_YEAR = 0x0D;
+    static final int TYPE_VARCHAR = 0x0F;
+    static final int TYPE_BIT = 0x10;
+    static final int TYPE_NEWDECIMAL = 0xF6;
+    static final int TYPE_TINY_BLOB = 0xF9;
+    static final int TYPE_MEDIUM_BLOB = 0xFA;
+    static final int TYPE_LONG_BLOB = 0xFB;
+    static final int TYPE_BLOB = 0xFC;
+    static final int TYPE_VAR_STRING = 0xFD;
+    static final int TYPE_STRING = 0xFE;
+    static final int TYPE_GEOMETRY = 0xFF;
+
+    static final int UNSIGNED_FLAG = 0x0020;
+    /** Collation "binary": BLOB/BINARY/VARBINARY. */
+    static final int BINARY_CHARSET = 63;
+
+    /** Metadatos de una columna (Protocol::ColumnDefinition41). */
+    static final class Column {
+        final String name;
+        final int charset;
+        final int type;
+        final int flags;
+
+        Column(String name, int charset, int type, int flags) {
+            this.name = name;
+            this.charset = charset;
+            this.type = type;
+            this.flags = flags;
+        }
+
+        boolean isUnsigned() {
+            return (flags & UNSIGNED_FLAG) != 0;
+        }
+    }
+
+    private MySQLRowDecoder() {
+    }
+
+    /**
+     * Parsea un paquete de definición de columna.
+     *
+     * @param def payload del paquete
+     * @return columna
+     */
+    static Column parseColumnDefinition(byte[] def) {
+        int pos = 0;
+        for (int i = 0; i < 4; i++) pos = skipLengthEncodedString(def, pos); // catalog, schema, table, org_table
+        int nameLen = MySQLProtocolHelper.getLengthEncodedInt(def, pos);
+        pos += MySQLProtocolHelper.lengthEncodedSize(def, pos);
+        String name = new String(def, pos, nameLen, StandardCharsets.UTF_8);
+        pos += nameLen;
+        pos = skipLengthEncodedString(def, pos); // org_name
+        pos += MySQLProtocolHelper.lengthEncodedSize(def, pos); // longitud de los campos fijos (0x0C)
+        int charset = (def[pos] & 0xFF) | ((def[pos + 1] & 0xFF) << 8);
+        pos += 2 + 4; // charset, column_length
+        int type = def[pos] & 0xFF;
+        int flags = (def[pos + 1] & 0xFF) | ((def[pos + 2] & 0xFF) << 8);
+        return new Column(name, charset, type, flags);
+    }
+
+    /**
+     * Decodifica una fila de texto: por columna, 0xFB (NULL) o una cadena
+     * length-encoded.
+     *
+     * @param row payload del paquete de fila
+     * @param columns columnas del result set
+     * @return fila (columna → valor)
+     */
+    static Map<String, Object> decodeRow(byte[] row, Column[] columns) {
+        Map<String, Object> map = new LinkedHashMap<>(columns.length * 4 / 3 + 1);
+        int pos = 0;
+        for (Column col : columns) {
+            if (row[pos] == (byte) 0xFB) {
+                map.put(col.name, null);
+                pos++;
+                continue;
+            }
+            int len = MySQLProtocolHelper.getLengthEncodedInt(row, pos);
+            pos += MySQLProtocolHelper.lengthEncodedSize(row, pos);
+            if (pos + len > row.length) {
+                throw new IllegalStateException("Truncated row: column " + col.name + " needs " + len + " bytes");
+            }
+            map.put(col.name, decode(col, row, pos, len));
+            pos += len;
+        }
+        return map;
+    }
+
+    /**
+     * Convierte un valor en formato texto según el tipo de la columna.
+     *
+     * @param col columna
+     * @param data payload del paquete
+     * @param off desplazamiento del valor
+     * @param len longitud del valor en bytes
+     * @return valor Java tipado (o String si el tipo no se convierte)
+     */
+    static Object decode(Column col, byte[] data, int off, int len) {
+        switch (col.type) {
+            case TYPE_TINY:
+            case TYPE_SHORT:
+            case TYPE_INT24:
+            case TYPE_YEAR:
+                return (int) parseLongAscii(data, off, len);
+            case TYPE_LONG:
+                long v = parseLongAscii(data, off, len);
+                return col.isUnsigned() ? (Object) v : (Object) (int) v;
+            case TYPE_LONGLONG:
+                if (!col.isUnsigned() || len < 19) return parseLongAscii(data, off, len);
+                BigInteger big = new BigInteger(new String(data, off, len, StandardCharsets.US_ASCII));
+                return big.bitLength() < 64 ? (Object) big.longValue() : big;
+            case TYPE_BIT:
+            case TYPE_GEOMETRY:
+                return Arrays.copyOfRange(data, off, off + len);
+            case TYPE_TINY_BLOB:
+            case TYPE_MEDIUM_BLOB:
+            case TYPE_LONG_BLOB:
+            case TYPE_BLOB:
+            case TYPE_VARCHAR:
+            case TYPE_VAR_STRING:
+            case TYPE_STRING:
+                if (col.charset == BINARY_CHARSET) return Arrays.copyOfRange(data, off, off + len);
+                return new String(data, off, len, StandardCharsets.UTF_8);
+            default:
+                break;
+        }
+        String s = new String(data, off, len, StandardCharsets.UTF_8);
+        try {
+            switch (col.type) {
+                case TYPE_FLOAT:
+                case TYPE_DOUBLE:
+                    return Double.parseDouble(s);
+                case TYPE_DECIMAL:
+                case TYPE_NEWDECIMAL:
+                    return new BigDecimal(s);
+                case TYPE_DATE:
+                    return LocalDate.parse(s);
+                case TYPE_DATETIME:
+                case TYPE_TIMESTAMP:
+                    return LocalDateTime.parse(s.replace(' ', 'T'));
+                default:
+                    return s;
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            return s;
+        }
+    }
+
+    private static int skipLengthEncodedString(byte[] data, int pos) {
+        int len = MySQLProtocolHelper.getLengthEncodedInt(data, pos);
+        return pos + MySQLProtocolHelper.lengthEncodedSize(data, pos) + len;
+    }
+
+    private static long parseLongAscii(byte[] data, int off, int len) {
+        int i = off;
+        int end = off + len;
+        boolean neg = data[i] == '-';
+        if (neg) i++;
+        long v = 0;
+        for (; i < end; i++) v = v * 10 + (data[i] - '0');
+        return neg ? -v : v;
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.db.postgres;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @file PgNotification.java
+ * @brief Notificación de NOTIFY recibida en una sesión que hizo LISTEN
+ *        (mensaje NotificationResponse 'A' del protocolo).
+ */
+public final class PgNotification {
+    private final int pid;
+    private final String channel;
+    private final String payload;
+
+    /**
+     * @param pid pid del backend que ejecutó NOTIFY
+     * @param channel canal
+     * @param payload carga ("" si NOTIFY no la lleva)
+     */
+    public PgNotification(int pid, String channel, String payload) {
+        this.pid = pid;
+        this.channel = channel;
+        this.payload = payload == null ? "" : payload;
+    }
+
+    /** Decodifica el cuerpo de un mensaje 'A': int32 pid, canal\0, carga\0. */
+    static PgNotification parse(byte[] body) {
+        ByteBuffer bb = ByteBuffer.wrap(body);
+        int pid = bb.getInt();
+        String channel = cstring(body, bb);
+        String payload = cstring(body, bb);
+        return new PgNotification(pid, channel, payload);
+    }
+
+    private static String cstring(byte[] body, ByteBuffer bb) {
+        int start = bb.position();
+        int end = start;
+        while (end < body.length && body[end] != 0) end++;
+        bb.position(Math.min(body.length, end + 1));
+        return new String(body, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /** @return pid del backend que ejecutó NOTIFY */
+    public int getPid() {
+        return pid;
+    }
+
+    /** @return canal */
+    public String getChannel() {
+        return channel;
+    }
+
+    /** @return carga ("" si no tiene) */
+    public String getPayload() {
+        return payload;
+    }
+
+    @Override
+    public String toString() {
+        return channel + "(" + pid + "): " + payload;
+    }
+}
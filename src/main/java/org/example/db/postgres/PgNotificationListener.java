@@ -0,0 +1,174 @@
+package org.example.db.postgres;
+
+import org.example.db.memory.TableMirror;
+import org.example.db.utilities.ConnectionConfig;
+import org.example.db.utilities.Log;
+import org.example.db.utilities.LogLevel;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * @file PgNotificationListener.java
+ * @brief Conexión dedicada a Postgres que hace LISTEN en los canales
+ *        configurados y reparte las notificaciones de NOTIFY.
+ *
+ * Un hilo propio ("pg-listener") abre una {@link PostgressConnection}, se
+ * suscribe a PG_LISTEN_CHANNELS y espera notificaciones con la conexión
+ * ociosa ({@link PostgressConnection#pollNotifications}). Cada notificación:
+ * - Invalida al momento las tablas replicadas ({@link TableMirror}) de
+ *   Postgres cuyo nombre aparece en el canal o en la carga, por ejemplo un
+ *   trigger que hace {@code NOTIFY countries} o
+ *   {@code pg_notify('changes', '{"table":"countries"}')}. Así la copia
+ *   puede recargarse con un periodo largo sin servir datos viejos.
+ * - Se entrega a los {@link Listener} registrados (la capa web la publica por
+ *   Server-Sent Events en /events).
+ *
+ * Si la conexión se pierde se reintenta cada PG_LISTEN_RECONNECT_MS. Las
+ * notificaciones enviadas mientras tanto se pierden, por eso al (re)conectar
+ * se invalidan todas las tablas replicadas y se avisa a los listeners
+ * ({@link Listener#onResync()}).
+ *
+ * Configuración (ENV > db.properties > defecto):
+ * - PG_LISTEN_CHANNELS: canales separados por comas (vacío = desactivado)
+ * - PG_LISTEN_RECONNECT_MS: espera entre reconexiones (defecto 5000)
+ */
+public final class PgNotificationListener {
+    private static final List<String> CHANNELS =
+            ConnectionConfig.getConfigValueAsList("PG_LISTEN_CHANNELS", "PG_LISTEN_CHANNELS");
+    private static final long RECONNECT_MS =
+            ConnectionConfig.getConfigValueAsInt("PG_LISTEN_RECONNECT_MS", "PG_LISTEN_RECONNECT_MS", 5000);
+    /** Espera de cada sondeo; acota lo que tarda {@link #close()} en surtir efecto. */
+    private static final long POLL_MS = 1000;
+    /** Identificador que Postgres no pasa a minúsculas si va sin comillas. */
+    private static final Pattern PLAIN_IDENTIFIER = Pattern.compile("[a-z_][a-z0-9_$]*");
+    private static PgNotificationListener instance;
+
+    /** Destino de las notificaciones. */
+    @FunctionalInterface
+    public interface Listener {
+        /** Notificación recibida (en el hilo del listener: no debe bloquear). */
+        void onNotification(PgNotification notification);
+
+        /** La conexión se (re)estableció y pudieron perderse notificaciones. */
+        default void onResync() {
+        }
+    }
+
+    private final List<String> channels;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Thread thread;
+    private final AtomicLong received = new AtomicLong();
+    private volatile boolean running = true;
+    private volatile boolean listening;
+
+    private PgNotificationListener(List<String> channels) {
+        this.channels = Collections.unmodifiableList(channels);
+        this.thread = new Thread(this::run, "pg-listener");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Arranca el listener del proceso si PG_LISTEN_CHANNELS tiene canales.
+     * Llamadas posteriores devuelven la misma instancia.
+     *
+     * @return listener, o null si no hay canales configurados
+     */
+    public static synchronized PgNotificationListener start() {
+        if (instance == null && !CHANNELS.isEmpty()) {
+            instance = new PgNotificationListener(CHANNELS);
+            instance.thread.start();
+        }
+        return instance;
+    }
+
+    /** @param listener destino de las notificaciones y avisos de resincronización */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /** @return canales suscritos */
+    public List<String> getChannels() {
+        return channels;
+    }
+
+    /** @return true si la suscripción está activa (conectado y con LISTEN hecho) */
+    public boolean isListening() {
+        return listening;
+    }
+
+    /** @return notificaciones recibidas desde el arranque */
+    public long getReceived() {
+        return received.get();
+    }
+
+    /** Detiene el hilo y cierra la conexión (en menos de un sondeo). */
+    public void close() {
+        running = false;
+        thread.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            PostgressConnection conn = new PostgressConnection("pg-listener");
+            try {
+                conn.connect();
+                conn.setNotificationListener(this::dispatch);
+                for (String channel : channels) conn.execute("LISTEN " + identifier(channel));
+                listening = true;
+                Log.info("postgres-notify", "Listening on " + channels);
+                resync();
+                while (running) conn.pollNotifications(POLL_MS);
+            } catch (RuntimeException e) {
+                if (!running) break;
+                Log.warn("postgres-notify", "Listener connection lost: " + e.getMessage() + "; retrying in " + RECONNECT_MS + " ms");
+                try {
+                    Thread.sleep(RECONNECT_MS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            } finally {
+                listening = false;
+                conn.disconnect();
+            }
+        }
+    }
+
+    private void dispatch(PgNotification n) {
+        received.incrementAndGet();
+        Log.sampled(LogLevel.DEBUG, "postgres-notify", () -> "NOTIFY " + n);
+        TableMirror mirror = TableMirror.get("postgres");
+        if (mirror != null) {
+            for (String table : mirror.tablesIn(n.getChannel() + " " + n.getPayload())) mirror.invalidate(table);
+        }
+        for (Listener l : listeners) {
+            try {
+                l.onNotification(n);
+            } catch (RuntimeException e) {
+                Log.warn("postgres-notify", "Notification listener failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void resync() {
+        TableMirror mirror = TableMirror.get("postgres");
+        if (mirror != null) mirror.invalidateAll();
+        for (Listener l : listeners) {
+            try {
+                l.onResync();
+            } catch (RuntimeException e) {
+                Log.warn("postgres-notify", "Resync listener failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /** Nombre de canal para LISTEN: tal cual si Postgres lo deja igual, si no entre comillas. */
+    static String identifier(String channel) {
+        if (PLAIN_IDENTIFIER.matcher(channel).matches()) return channel;
+        return '"' + channel.replace("\"", "\"\"") + '"';
+    }
+}
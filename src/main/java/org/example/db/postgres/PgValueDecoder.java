@@ -0,0 +1,118 @@
+package org.example.db.postgres;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Conversión de valores en formato texto del protocolo Postgres a tipos Java
+ * según el OID del tipo indicado en RowDescription.
+ *
+ * El cliente nativo recibe todos los valores como texto; convertirlos aquí
+ * permite que la capa web emita números y booleanos sin comillas, fechas en
+ * ISO-8601 y bytea en Base64, igual que en modo JDBC. Cualquier valor que no
+ * se pueda convertir (p. ej. 'infinity' en timestamps) se devuelve como String.
+ */
+final class PgValueDecoder {
+    static final int BOOL = 16;
+    static final int BYTEA = 17;
+    static final int INT8 = 20;
+    static final int INT2 = 21;
+    static final int INT4 = 23;
+    static final int OID = 26;
+    static final int FLOAT4 = 700;
+    static final int FLOAT8 = 701;
+    static final int DATE = 1082;
+    static final int TIMESTAMP = 1114;
+    static final int TIMESTAMPTZ = 1184;
+    static final int NUMERIC = 1700;
+
+    private PgValueDecoder() {
+    }
+
+    /**
+     * Decodifica un valor de una DataRow.
+     *
+     * @param typeOid OID del tipo de la columna
+     * @param data buffer del mensaje
+     * @param off desplazamiento del valor
+     * @param len longitud del valor en bytes
+     * @return valor Java tipado (o String si el tipo no se convierte)
+     */
+    static Object decode(int typeOid, byte[] data, int off, int len) {
+        switch (typeOid) {
+            case INT2:
+            case INT4:
+                return parseIntAscii(data, off, len);
+            case INT8:
+            case OID: // entero sin signo de 32 bits: puede superar Integer.MAX_VALUE
+                return parseLongAscii(data, off, len);
+            case BOOL:
+                return len == 1 && data[off] == 't';
+            case BYTEA:
+                return decodeByteaHex(data, off, len);
+            default:
+                break;
+        }
+        String s = new String(data, off, len, StandardCharsets.UTF_8);
+        try {
+            switch (typeOid) {
+                case FLOAT4:
+                case FLOAT8:
+                    return Double.parseDouble(s);
+                case NUMERIC:
+                    return "NaN".equals(s) ? s : new BigDecimal(s);
+                case DATE:
+                    return LocalDate.parse(s);
+                case TIMESTAMP:
+                    return LocalDateTime.parse(s.replace(' ', 'T'));
+                case TIMESTAMPTZ:
+                    return OffsetDateTime.parse(normalizeOffset(s.replace(' ', 'T')));
+                default:
+                    return s;
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            return s;
+        }
+    }
+
+    private static Object parseIntAscii(byte[] data, int off, int len) {
+        long v = parseLongAscii(data, off, len);
+        return (int) v;
+    }
+
+    private static long parseLongAscii(byte[] data, int off, int len) {
+        int i = off;
+        int end = off + len;
+        boolean neg = data[i] == '-';
+        if (neg) i++;
+        long v = 0;
+        for (; i < end; i++) v = v * 10 + (data[i] - '0');
+        return neg ? -v : v;
+    }
+
+    /** bytea en formato hex ("\x0a0b..."), el formato por defecto desde Postgres 9.0. */
+    private static Object decodeByteaHex(byte[] data, int off, int len) {
+        if (len < 2 || data[off] != '\\' || data[off + 1] != 'x') {
+            return new String(data, off, len, StandardCharsets.UTF_8); // formato escape: se deja como texto
+        }
+        byte[] out = new byte[(len - 2) / 2];
+        for (int i = 0, p = off + 2; i < out.length; i++, p += 2) {
+            out[i] = (byte) ((Character.digit(data[p], 16) << 4) | Character.digit(data[p + 1], 16));
+        }
+        return out;
+    }
+
+    /** Postgres abrevia los offsets ("+01", "+0530"); OffsetDateTime exige "+01:00". */
+    private static String normalizeOffset(String s) {
+        int sign = Math.max(s.lastIndexOf('+'), s.lastIndexOf('-'));
+        if (sign < 10) return s; // sin offset (los '-' de la fecha están antes de la posición 10)
+        String off = s.substring(sign + 1);
+        if (off.length() == 2) return s + ":00";
+        if (off.length() == 4 && off.indexOf(':') < 0) return s.substring(0, sign + 3) + ":" + off.substring(2);
+        return s;
+    }
+}
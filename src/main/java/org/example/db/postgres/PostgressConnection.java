@@ -1,11 +1,22 @@
 package org.example.db.postgres;
 
+import org.example.db.BatchErrorMode;
+import org.example.db.BatchResult;
+import org.example.db.BatchStatement;
+import org.example.db.BulkExporter;
+import org.example.db.BulkFormat;
+import org.example.db.BulkLoader;
 import org.example.db.DBConnection;
 import org.example.db.utilities.*;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
 
+import java.io.BufferedInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -14,6 +25,7 @@ import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * Conexión a Postgres implementada mediante sockets (cliente mínimo del protocolo)
@@ -37,7 +49,12 @@ import java.util.*;
  *   caer en modo simulación.
  * - Para la versión MySQL recomendamos usar JDBC (comentar más abajo en docs).
  */
-public class PostgressConnection implements DBConnection {
+public class PostgressConnection implements DBConnection, BulkLoader, BulkExporter {
+    /** Tamaño de cada mensaje CopyData enviado al servidor. */
+    private static final int COPY_CHUNK_BYTES = 64 * 1024;
+    /** Código de CancelRequest (1234 << 16 | 5678). */
+    private static final int CANCEL_REQUEST_CODE = 80877102;
+
     private final String name;
 
     // Parámetros de conexión (tomados de variables de entorno / properties o valores por defecto)
@@ -60,6 +77,15 @@ public class PostgressConnection implements DBConnection {
     private boolean nativeConnected = false; // true si la comunicación nativa con el servidor real
     private boolean jdbcFallbackMode = false; // true si usamos JDBC en lugar de socket
 
+    // Cancelación: BackendKeyData en modo nativo, Statement en curso en modo JDBC
+    private volatile int backendPid;
+    private volatile int backendSecret;
+    private volatile Statement currentStatement;
+    private long statementTimeoutMs = 0;
+
+    // LISTEN/NOTIFY: destino de los mensajes 'A' (null = se descartan)
+    private volatile Consumer<PgNotification> notificationListener;
+
     public PostgressConnection(String name) {
         this(
                 name,
@@ -90,10 +116,11 @@ public class PostgressConnection implements DBConnection {
      */
     @Override
     public void connect() {
-        System.out.println("[postgres-socket] Intentando conectar via sockets a " + host + ":" + port + " (db=" + database + ") as user=" + user);
+        Log.sampled(LogLevel.INFO, "postgres-socket", () -> "Intentando conectar via sockets a " + host + ":" + port + " (db=" + database + ") as user=" + user);
         try {
             socket = new Socket(host, port);
-            in = socket.getInputStream();
+            // Buffer de lectura: cada mensaje se lee en varias llamadas (tipo, longitud, cuerpo)
+            in = new BufferedInputStream(socket.getInputStream(), 64 * 1024);
             out = socket.getOutputStream();
 
             sendStartup();
@@ -128,13 +155,18 @@ public class PostgressConnection implements DBConnection {
                         throw new RuntimeException("Authentication/Startup error: " + err);
                     }
                     case 'S': // ParameterStatus - ignore
-                    case 'K': // BackendKeyData - ignore
                         break;
+                    case 'K': { // BackendKeyData: pid y clave secreta para CancelRequest
+                        ByteBuffer bb = ByteBuffer.wrap(payload);
+                        backendPid = bb.getInt();
+                        backendSecret = bb.getInt();
+                        break;
+                    }
                     case 'Z': // ReadyForQuery
                         if (authOk) {
                             nativeConnected = true;
                             connected = true;
-                            System.out.println("[postgres-socket] ✓ Connected to " + host + ":" + port + " as user '" + user + "' database '" + database + "'.");
+                            Log.sampled(LogLevel.INFO, "postgres-socket", () -> "✓ Connected to " + host + ":" + port + " as user '" + user + "' database '" + database + "'.");
                             return;
                         }
                         break;
@@ -147,22 +179,22 @@ public class PostgressConnection implements DBConnection {
         } catch (Exception e) {
             nativeConnected = false;
             closeSocket();
-            System.err.println("[postgres-socket] ✗ FAILED to connect via sockets to " + host + ":" + port);
-            System.err.println("[postgres-socket]   Error: " + e.getMessage());
-            System.err.println("[postgres-socket]   Intentando fallback a JDBC...");
+            Log.sampled(LogLevel.WARN, "postgres-socket", () -> "✗ FAILED to connect via sockets to " + host + ":" + port
+                    + " (" + e.getMessage() + "). Intentando fallback a JDBC...");
             
             // Fallback: intentar conexión JDBC usando la utilidad
             try {
-                String jdbcUrl = "jdbc:postgresql://" + host + ":" + port + "/" + database;
+                // stringtype=unspecified: los parámetros String de los lotes se tipan en el servidor, como en modo nativo
+                String jdbcUrl = "jdbc:postgresql://" + host + ":" + port + "/" + database + "?stringtype=unspecified";
                 jdbcConnection = JDBCConnectionHelper.createConnection(jdbcUrl, user, password);
                 jdbcFallbackMode = true;
                 connected = true;
-                System.out.println("[postgres-jdbc] ✓ Connected via JDBC fallback to " + host + ":" + port + " database '" + database + "'");
+                Log.sampled(LogLevel.INFO, "postgres-jdbc", () -> "✓ Connected via JDBC fallback to " + host + ":" + port + " database '" + database + "'");
                 return;
             } catch (SQLException jdbcEx) {
                 connected = false;
                 jdbcFallbackMode = false;
-                System.err.println("[postgres-jdbc] ✗ JDBC fallback also failed: " + jdbcEx.getMessage());
+                Log.warn("postgres-jdbc", "✗ JDBC fallback also failed: " + jdbcEx.getMessage());
                 throw new RuntimeException("Cannot establish connection to PostgreSQL (socket and JDBC both failed). Check Docker and credentials.", jdbcEx);
             }
         }
@@ -175,7 +207,7 @@ public class PostgressConnection implements DBConnection {
         jdbcFallbackMode = false;
         closeSocket();
         closeJdbc();
-        System.out.println("[postgres-socket] Disconnected");
+        Log.sampled(LogLevel.INFO, "postgres-socket", () -> "Disconnected");
     }
 
     @Override
@@ -212,9 +244,10 @@ public class PostgressConnection implements DBConnection {
             throw new IllegalStateException("Socket connection is not established. Cannot execute query.");
         }
         try {
-            System.out.println("[postgres-socket] Executing native SQL: " + sql);
+            final String logSql = sql;
+            Log.sampled(LogLevel.INFO, "postgres-socket", () -> "Executing native SQL: " + Log.truncateSql(logSql));
             List<Map<String, Object>> res = executeNativeQuerySocket(sql);
-            System.out.println("[postgres-socket] Native query returned rows: " + (res == null ? 0 : res.size()));
+            Log.sampled(LogLevel.DEBUG, "postgres-socket", () -> "Native query returned rows: " + (res == null ? 0 : res.size()));
             return res;
         } catch (Exception e) {
             throw new RuntimeException("Failed to execute query: " + sql + ". Error: " + e.getMessage(), e);
@@ -223,10 +256,11 @@ public class PostgressConnection implements DBConnection {
     
     // Ejecutar query via JDBC
     private List<Map<String, Object>> executeJdbc(String sql) {
-        System.out.println("[postgres-jdbc] Executing JDBC SQL: " + sql);
+        Log.sampled(LogLevel.INFO, "postgres-jdbc", () -> "Executing JDBC SQL: " + Log.truncateSql(sql));
         List<Map<String, Object>> rows = new ArrayList<>();
         
         try (Statement stmt = jdbcConnection.createStatement()) {
+            currentStatement = stmt;
             // Usar SQLCleaner para detectar el tipo de consulta
             boolean isSelect = SQLCleaner.isSelectQuery(sql);
             
@@ -234,18 +268,21 @@ public class PostgressConnection implements DBConnection {
                 // Para SELECT, usar executeQuery y convertir con utilidad
                 try (ResultSet rs = stmt.executeQuery(sql)) {
                     rows = ResultSetConverter.convertToList(rs);
-                    System.out.println("[postgres-jdbc] JDBC query returned rows: " + rows.size());
+                    final int rowCount = rows.size();
+                    Log.sampled(LogLevel.DEBUG, "postgres-jdbc", () -> "JDBC query returned rows: " + rowCount);
                 }
             } else {
                 // Para DDL/DML, usar executeUpdate y crear respuesta con utilidad
                 int affectedRows = stmt.executeUpdate(sql);
-                System.out.println("[postgres-jdbc] JDBC statement executed. Affected rows: " + affectedRows);
+                Log.sampled(LogLevel.DEBUG, "postgres-jdbc", () -> "JDBC statement executed. Affected rows: " + affectedRows);
                 rows.add(QueryResponseBuilder.createSuccessResponse(affectedRows));
             }
             
             return rows;
         } catch (SQLException e) {
             throw new RuntimeException("Failed to execute JDBC query: " + sql + ". Error: " + e.getMessage(), e);
+        } finally {
+            currentStatement = null;
         }
     }
 
@@ -256,8 +293,10 @@ public class PostgressConnection implements DBConnection {
         sendQuery(sql);
 
         List<String> columnNames = null;
+        int[] columnTypes = null;
         List<Map<String, Object>> rows = new ArrayList<>();
 
+        String error = null;
         boolean done = false;
         while (!done) {
             int t = in.read();
@@ -268,51 +307,37 @@ public class PostgressConnection implements DBConnection {
             byte[] payload = readBytes(in, payloadLen);
             switch (type) {
                 case 'T': { // RowDescription
-                    ByteBuffer bb = ByteBuffer.wrap(payload);
-                    int fieldCount = bb.getShort() & 0xffff;
                     columnNames = new ArrayList<>();
-                    for (int i = 0; i < fieldCount; i++) {
-                        String name = readNullTerminatedString(bb);
-                        // skip table oid (4), col attr (2), dataType (4), size(2), typeMod(4), format(2)
-                        int skip = 4 + 2 + 4 + 2 + 4 + 2;
-                        bb.position(bb.position() + skip);
-                        columnNames.add(name);
-                    }
+                    columnTypes = parseRowDescription(payload, columnNames);
                     break;
                 }
                 case 'D': { // DataRow
-                    ByteBuffer bb = ByteBuffer.wrap(payload);
-                    int colCount = bb.getShort() & 0xffff;
-                    Map<String, Object> row = new LinkedHashMap<>();
-                    for (int i = 0; i < colCount; i++) {
-                        int colLen = bb.getInt();
-                        if (colLen == -1) {
-                            row.put(columnNames.get(i), null);
-                        } else {
-                            byte[] b = new byte[colLen];
-                            bb.get(b);
-                            row.put(columnNames.get(i), new String(b, StandardCharsets.UTF_8));
-                        }
-                    }
-                    rows.add(row);
+                    rows.add(parseDataRow(payload, columnNames, columnTypes));
                     break;
                 }
                 case 'C': { // CommandComplete
                     // ignore
                     break;
                 }
+                case 'A': // NotificationResponse (LISTEN/NOTIFY)
+                    dispatchNotification(payload);
+                    break;
                 case 'Z': // ReadyForQuery
                     done = true;
                     break;
                 case 'E': {
-                    String err = parseError(payload);
-                    throw new RuntimeException("Query error: " + err);
+                    // Se sigue leyendo hasta ReadyForQuery para dejar la conexión utilizable
+                    error = parseError(payload);
+                    break;
                 }
                 default:
                     // ignore others
                     break;
             }
         }
+        if (error != null) {
+            throw new RuntimeException("Query error: " + error);
+        }
 
         if (columnNames == null) {
             return Collections.emptyList();
@@ -320,6 +345,631 @@ public class PostgressConnection implements DBConnection {
         return rows;
         }
 
+    // Columnas de un RowDescription: rellena los nombres y devuelve los OID de tipo
+    // (visible en el paquete para los benchmarks de decodificación)
+    static int[] parseRowDescription(byte[] payload, List<String> columnNames) {
+        ByteBuffer bb = ByteBuffer.wrap(payload);
+        int fieldCount = bb.getShort() & 0xffff;
+        int[] columnTypes = new int[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            String name = readNullTerminatedString(bb);
+            // skip table oid (4), col attr (2); read dataType (4); skip size(2), typeMod(4), format(2)
+            bb.position(bb.position() + 4 + 2);
+            columnTypes[i] = bb.getInt();
+            bb.position(bb.position() + 2 + 4 + 2);
+            columnNames.add(name);
+        }
+        return columnTypes;
+    }
+
+    static Map<String, Object> parseDataRow(byte[] payload, List<String> columnNames, int[] columnTypes) {
+        ByteBuffer bb = ByteBuffer.wrap(payload);
+        int colCount = bb.getShort() & 0xffff;
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (int i = 0; i < colCount; i++) {
+            int colLen = bb.getInt();
+            if (colLen == -1) {
+                row.put(columnNames.get(i), null);
+            } else {
+                // Valor en texto convertido según el tipo de la columna (sin copia intermedia)
+                row.put(columnNames.get(i), PgValueDecoder.decode(columnTypes[i], payload, bb.position(), colLen));
+                bb.position(bb.position() + colLen);
+            }
+        }
+        return row;
+    }
+
+    // ----------------- Lotes (pipelining del protocolo extendido) -----------------
+
+    /**
+     * Ejecuta un lote en una transacción.
+     *
+     * En modo nativo usa el protocolo extendido con pipelining: por cada
+     * sentencia se envían Parse/Bind/Describe/Execute sin esperar respuesta y
+     * un único Sync al final, de modo que todo el lote viaja junto y el
+     * servidor lo ejecuta como una transacción implícita (si una sentencia
+     * falla, descarta el resto hasta el Sync y deshace la transacción).
+     * Los parámetros viajan en el Bind en formato texto con tipo sin
+     * especificar, así que el servidor los infiere como en un literal.
+     *
+     * Los modos STOP y CONTINUE se resuelven repitiendo el pipeline: tras un
+     * fallo se vuelve a enviar el prefijo anterior al fallo (STOP) o el lote
+     * sin la sentencia fallida (CONTINUE). Sin errores el coste es un único
+     * viaje cada {@link BatchHelper#PIPELINE_DEPTH} sentencias.
+     *
+     * En modo JDBC delega en {@link BatchHelper#executeJdbc}.
+     */
+    @Override
+    public List<BatchResult> executeBatch(List<BatchStatement> statements, BatchErrorMode mode) {
+        if (!isConnected()) {
+            throw new IllegalStateException("Connection is not open: " + getName());
+        }
+        if (jdbcFallbackMode && jdbcConnection != null) {
+            return BatchHelper.executeJdbc(jdbcConnection, statements, mode, false);
+        }
+        if (!nativeConnected || socket == null || out == null || in == null) {
+            throw new IllegalStateException("Socket connection is not established. Cannot execute batch.");
+        }
+        try {
+            return executeNativeBatch(statements, mode);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to execute batch. Error: " + e.getMessage(), e);
+        }
+    }
+
+    private List<BatchResult> executeNativeBatch(List<BatchStatement> statements, BatchErrorMode mode) throws Exception {
+        int n = statements.size();
+        BatchResult[] results = new BatchResult[n];
+        String[] sqls = new String[n];
+        boolean[] excluded = new boolean[n];
+        int stopAt = n;
+        for (int i = 0; i < n; i++) {
+            try {
+                sqls[i] = SqlParameters.toNumbered(BatchHelper.normalize(statements.get(i), false));
+            } catch (IllegalArgumentException e) {
+                results[i] = BatchResult.error(i, e.getMessage());
+                excluded[i] = true;
+                if (mode == BatchErrorMode.ROLLBACK) return BatchHelper.finish(results, false);
+                if (mode == BatchErrorMode.STOP && stopAt == n) stopAt = i;
+            }
+        }
+
+        while (true) {
+            List<Integer> run = new ArrayList<>();
+            for (int i = 0; i < stopAt; i++) if (!excluded[i]) run.add(i);
+            if (run.isEmpty()) return BatchHelper.finish(results, false);
+
+            BatchResult[] attempt = new BatchResult[n];
+            int failed = runPipeline(run, sqls, statements, attempt);
+            if (failed < 0) {
+                for (int i : run) results[i] = attempt[i];
+                return BatchHelper.finish(results, false);
+            }
+            final int failedIndex = failed;
+            Log.sampled(LogLevel.DEBUG, "postgres-socket", () -> "Batch statement " + failedIndex + " failed (" + mode + ")");
+            results[failed] = attempt[failed];
+            switch (mode) {
+                case ROLLBACK:
+                    for (int i : run) if (i < failed) results[i] = attempt[i];
+                    return BatchHelper.finish(results, true);
+                case STOP:
+                    for (int i = failed + 1; i < n; i++) results[i] = null;
+                    stopAt = failed;
+                    break;
+                default:
+                    excluded[failed] = true;
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Envía las sentencias indicadas en un pipeline terminado en un único Sync.
+     *
+     * @return índice de la sentencia que falló, o -1 si la transacción se confirmó
+     */
+    private int runPipeline(List<Integer> run, String[] sqls, List<BatchStatement> statements, BatchResult[] attempt) throws Exception {
+        int failed = -1;
+        boolean synced = false;
+        for (int from = 0; from < run.size() && failed < 0; from += BatchHelper.PIPELINE_DEPTH) {
+            int to = Math.min(run.size(), from + BatchHelper.PIPELINE_DEPTH);
+            ByteArrayOutputStreamEx bout = new ByteArrayOutputStreamEx();
+            for (int k = from; k < to; k++) {
+                int idx = run.get(k);
+                writeParse(bout, sqls[idx]);
+                writeBind(bout, statements.get(idx).getParams());
+                writeMessage(bout, 'D', new byte[]{'P', 0}); // Describe del portal sin nombre
+                writeMessage(bout, 'E', new byte[]{0, 0, 0, 0, 0}); // Execute: portal "", sin límite de filas
+            }
+            // Flush pide al servidor las respuestas pendientes sin cerrar la transacción implícita
+            synced = to == run.size();
+            writeMessage(bout, synced ? 'S' : 'H', new byte[0]);
+            out.write(bout.toByteArray());
+            out.flush();
+
+            for (int k = from; k < to; k++) {
+                int idx = run.get(k);
+                attempt[idx] = readBatchResponse(idx);
+                if (attempt[idx].getStatus() == BatchResult.Status.ERROR) {
+                    failed = idx;
+                    break;
+                }
+            }
+        }
+        if (!synced) {
+            // Error antes del último bloque: el servidor descarta todo hasta el Sync
+            ByteArrayOutputStreamEx bout = new ByteArrayOutputStreamEx();
+            writeMessage(bout, 'S', new byte[0]);
+            out.write(bout.toByteArray());
+            out.flush();
+        }
+        // Hasta ReadyForQuery; su estado indica si la transacción implícita sigue viva
+        while (true) {
+            int t = in.read();
+            if (t == -1) throw new RuntimeException("Server closed connection during batch");
+            byte[] payload = readBytes(in, readInt(in) - 4);
+            if (t == 'Z') {
+                if (failed < 0 && payload.length > 0 && payload[0] != 'I') {
+                    throw new RuntimeException("Unexpected transaction status after batch: " + (char) payload[0]);
+                }
+                return failed;
+            }
+            if (t == 'E' && failed < 0) {
+                throw new RuntimeException("Batch commit failed: " + parseError(payload));
+            }
+            if (t == 'A') dispatchNotification(payload);
+        }
+    }
+
+    /** Lee las respuestas de una sentencia del pipeline hasta CommandComplete o error. */
+    private BatchResult readBatchResponse(int index) throws Exception {
+        List<String> columnNames = null;
+        int[] columnTypes = null;
+        List<Map<String, Object>> rows = null;
+        while (true) {
+            int t = in.read();
+            if (t == -1) throw new RuntimeException("Server closed connection during batch");
+            byte[] payload = readBytes(in, readInt(in) - 4);
+            switch (t) {
+                case 'T':
+                    columnNames = new ArrayList<>();
+                    columnTypes = parseRowDescription(payload, columnNames);
+                    rows = new ArrayList<>();
+                    break;
+                case 'D':
+                    rows.add(parseDataRow(payload, columnNames, columnTypes));
+                    break;
+                case 'C':
+                    if (rows != null) return BatchResult.rows(index, rows);
+                    return BatchResult.updated(index, commandTagCount(payload));
+                case 'I': // EmptyQueryResponse
+                    return BatchResult.updated(index, -1);
+                case 'E':
+                    return BatchResult.error(index, parseError(payload));
+                case 'Z':
+                    throw new RuntimeException("Unexpected ReadyForQuery in batch");
+                case 'A':
+                    dispatchNotification(payload);
+                    break;
+                default:
+                    // ParseComplete, BindComplete, NoData, avisos: ignorar
+                    break;
+            }
+        }
+    }
+
+    /** Filas afectadas según la etiqueta de CommandComplete ("INSERT 0 5", "UPDATE 3"); -1 si no aplica. */
+    private static long commandTagCount(byte[] payload) {
+        int end = payload.length;
+        while (end > 0 && payload[end - 1] == 0) end--;
+        int start = end;
+        while (start > 0 && payload[start - 1] >= '0' && payload[start - 1] <= '9') start--;
+        if (start == end || start == 0 || payload[start - 1] != ' ') return -1;
+        String tag = new String(payload, 0, end, StandardCharsets.UTF_8);
+        if (tag.startsWith("SELECT") || tag.startsWith("INSERT") || tag.startsWith("UPDATE") || tag.startsWith("DELETE")
+                || tag.startsWith("MERGE") || tag.startsWith("COPY") || tag.startsWith("FETCH") || tag.startsWith("MOVE")) {
+            return Long.parseLong(new String(payload, start, end - start, StandardCharsets.US_ASCII));
+        }
+        return -1;
+    }
+
+    private static void writeParse(ByteArrayOutputStreamEx bout, String sql) {
+        ByteArrayOutputStreamEx body = new ByteArrayOutputStreamEx();
+        body.writeString(""); // sentencia sin nombre
+        body.writeString(sql);
+        body.writeInt16(0); // tipos de parámetros sin especificar
+        writeMessage(bout, 'P', body.toByteArray());
+    }
+
+    private static void writeBind(ByteArrayOutputStreamEx bout, List<Object> params) {
+        ByteArrayOutputStreamEx body = new ByteArrayOutputStreamEx();
+        body.writeString(""); // portal
+        body.writeString(""); // sentencia
+        body.writeInt16(0); // todos los parámetros en formato texto
+        body.writeInt16(params.size());
+        for (Object p : params) {
+            byte[] v = SqlParameters.toPostgresText(p);
+            if (v == null) {
+                body.writeInt32(-1);
+            } else {
+                body.writeInt32(v.length);
+                body.writeBytes(v);
+            }
+        }
+        body.writeInt16(0); // resultados en formato texto
+        writeMessage(bout, 'B', body.toByteArray());
+    }
+
+    private static void writeMessage(ByteArrayOutputStreamEx bout, char type, byte[] body) {
+        bout.writeByte((byte) type);
+        bout.writeInt32(body.length + 4);
+        bout.writeBytes(body);
+    }
+
+    // ----------------- COPY FROM STDIN (carga masiva) -----------------
+
+    /**
+     * Carga datos con {@code COPY tabla (columnas) FROM STDIN}.
+     *
+     * En modo nativo envía la sentencia COPY, espera CopyInResponse y reenvía
+     * el flujo tal cual en mensajes CopyData de {@value #COPY_CHUNK_BYTES}
+     * bytes, terminando con CopyDone (o CopyFail si falla la lectura del
+     * flujo, lo que deshace la carga). Si el servidor informa de un error a
+     * mitad de carga se deja de enviar datos. En modo JDBC usa el
+     * {@code CopyManager} de PgJDBC.
+     *
+     * CSV usa {@code FORMAT csv}; TSV usa el formato text de Postgres
+     * (tabuladores, {@code \N} para NULL) y la cabecera se descarta en el cliente.
+     */
+    @Override
+    public long bulkLoad(String table, List<String> columns, BulkFormat format, boolean header, InputStream data) {
+        if (!isConnected()) {
+            throw new IllegalStateException("Connection is not open: " + getName());
+        }
+        String sql = buildCopyFromSql(table, columns, format, header);
+        InputStream source = format == BulkFormat.TSV && header ? new SkipLinesInputStream(data, 1) : data;
+        Log.sampled(LogLevel.INFO, jdbcFallbackMode ? "postgres-jdbc" : "postgres-socket", () -> "Executing " + sql);
+        try {
+            if (jdbcFallbackMode && jdbcConnection != null) {
+                return jdbcConnection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql, source, COPY_CHUNK_BYTES);
+            }
+            if (!nativeConnected || socket == null || out == null || in == null) {
+                throw new IllegalStateException("Socket connection is not established. Cannot execute COPY.");
+            }
+            return copyInNative(sql, source);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("COPY into " + table + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    private static String buildCopyFromSql(String table, List<String> columns, BulkFormat format, boolean header) {
+        StringBuilder sb = new StringBuilder("COPY ").append(SqlParameters.quoteIdentifier(table, '"'));
+        if (columns != null && !columns.isEmpty()) {
+            sb.append(" (");
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) sb.append(", ");
+                sb.append(SqlParameters.quoteIdentifier(columns.get(i), '"'));
+            }
+            sb.append(')');
+        }
+        sb.append(" FROM STDIN WITH (FORMAT ").append(format == BulkFormat.CSV ? "csv" : "text");
+        if (format == BulkFormat.CSV && header) sb.append(", HEADER true");
+        return sb.append(')').toString();
+    }
+
+    private long copyInNative(String sql, InputStream data) throws Exception {
+        sendQuery(sql);
+        // Esperar CopyInResponse ('G')
+        String error = null;
+        while (true) {
+            int t = in.read();
+            if (t == -1) throw new RuntimeException("Server closed connection during COPY");
+            byte[] payload = readBytes(in, readInt(in) - 4);
+            if (t == 'G') break;
+            if (t == 'E') error = parseError(payload);
+            if (t == 'Z') throw new RuntimeException("COPY rejected: " + error);
+        }
+
+        // Reenviar el flujo en mensajes CopyData: cabecera de 5 bytes y datos en el mismo buffer
+        byte[] buf = new byte[COPY_CHUNK_BYTES + 5];
+        buf[0] = 'd';
+        IOException readFailure = null;
+        try {
+            int n;
+            copy:
+            while ((n = readChunk(data, buf, 5, COPY_CHUNK_BYTES)) > 0) {
+                ByteBuffer.wrap(buf, 1, 4).putInt(n + 4);
+                out.write(buf, 0, n + 5);
+                // Mensajes que el servidor envió mientras tanto: sólo un ErrorResponse detiene el envío;
+                // NoticeResponse, ParameterStatus y NotificationResponse pueden llegar en cualquier momento
+                while (in.available() > 0) {
+                    int t = in.read();
+                    if (t == -1) throw new RuntimeException("Server closed connection during COPY");
+                    byte[] payload = readBytes(in, readInt(in) - 4);
+                    if (t == 'A') {
+                        dispatchNotification(payload);
+                    } else if (t == 'E') {
+                        error = parseError(payload);
+                        break copy;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            readFailure = e;
+        }
+        ByteArrayOutputStreamEx end = new ByteArrayOutputStreamEx();
+        if (readFailure == null) {
+            writeMessage(end, 'c', new byte[0]); // CopyDone
+        } else {
+            ByteArrayOutputStreamEx msg = new ByteArrayOutputStreamEx();
+            msg.writeString("upload aborted: " + readFailure.getMessage());
+            writeMessage(end, 'f', msg.toByteArray()); // CopyFail
+        }
+        out.write(end.toByteArray());
+        out.flush();
+
+        long rows = -1;
+        while (true) {
+            int t = in.read();
+            if (t == -1) throw new RuntimeException("Server closed connection during COPY");
+            byte[] payload = readBytes(in, readInt(in) - 4);
+            if (t == 'C') {
+                rows = commandTagCount(payload);
+            } else if (t == 'E') {
+                if (error == null) error = parseError(payload);
+            } else if (t == 'A') {
+                dispatchNotification(payload);
+            } else if (t == 'Z') {
+                break;
+            }
+        }
+        if (readFailure != null) throw readFailure;
+        if (error != null) throw new RuntimeException("COPY error: " + error);
+        return rows;
+    }
+
+    /** Lee hasta {@code len} bytes (menos sólo al final del flujo). */
+    private static int readChunk(InputStream data, byte[] buf, int off, int len) throws IOException {
+        int total = 0;
+        while (total < len) {
+            int r = data.read(buf, off + total, len - total);
+            if (r == -1) break;
+            total += r;
+        }
+        return total;
+    }
+
+    // ----------------- COPY TO STDOUT (exportación masiva) -----------------
+
+    /**
+     * Exporta con {@code COPY tabla|(consulta) TO STDOUT}.
+     *
+     * En modo nativo el contenido de cada mensaje CopyData se escribe tal cual
+     * en el flujo de salida (son ya líneas CSV/text completas), reutilizando
+     * un único buffer: memoria constante sea cual sea el tamaño de la
+     * exportación. En modo JDBC usa {@code CopyManager.copyOut}.
+     *
+     * La consulta debe ser una única SELECT autocontenida (sin comentarios y
+     * con los paréntesis equilibrados, para que no pueda salir de
+     * {@code COPY (...)}) y que no escriba; además el COPY se ejecuta en una
+     * transacción READ ONLY que se deshace al terminar.
+     *
+     * La cabecera en formato TSV (text) requiere Postgres 15 o superior.
+     */
+    @Override
+    public long bulkExport(String table, String query, BulkFormat format, boolean header, OutputStream target) {
+        if (!isConnected()) {
+            throw new IllegalStateException("Connection is not open: " + getName());
+        }
+        String sql = buildCopyToSql(table, query, format, header);
+        Log.sampled(LogLevel.INFO, jdbcFallbackMode ? "postgres-jdbc" : "postgres-socket", () -> "Executing " + Log.truncateSql(sql));
+        try {
+            boolean jdbc = jdbcFallbackMode && jdbcConnection != null;
+            if (!jdbc && (!nativeConnected || socket == null || out == null || in == null)) {
+                throw new IllegalStateException("Socket connection is not established. Cannot execute COPY.");
+            }
+            execute("START TRANSACTION READ ONLY");
+            try {
+                if (jdbc) {
+                    return jdbcConnection.unwrap(PGConnection.class).getCopyAPI().copyOut(sql, target);
+                }
+                return copyOutNative(sql, target);
+            } finally {
+                execute("ROLLBACK");
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("COPY TO STDOUT failed: " + e.getMessage(), e);
+        }
+    }
+
+    private static String buildCopyToSql(String table, String query, BulkFormat format, boolean header) {
+        StringBuilder sb = new StringBuilder("COPY ");
+        if (query != null) {
+            String select = SqlParameters.stripTrailingSemicolons(query.trim());
+            if (select.isEmpty() || !SqlParameters.isSelfContained(select, false)) {
+                throw new IllegalArgumentException("export query must be a single statement without comments or unbalanced parentheses");
+            }
+            if (!SQLCleaner.isSelectQuery(select) || SQLCleaner.modifiesData(select, false)) {
+                throw new IllegalArgumentException("export query must be a read-only SELECT");
+            }
+            sb.append('(').append(select).append(')');
+        } else {
+            sb.append(SqlParameters.quoteIdentifier(table, '"'));
+        }
+        sb.append(" TO STDOUT WITH (FORMAT ").append(format == BulkFormat.CSV ? "csv" : "text");
+        if (header) sb.append(", HEADER true");
+        return sb.append(')').toString();
+    }
+
+    private long copyOutNative(String sql, OutputStream target) throws Exception {
+        sendQuery(sql);
+        byte[] buf = new byte[8192];
+        long rows = -1;
+        String error = null;
+        while (true) {
+            int t = in.read();
+            if (t == -1) throw new RuntimeException("Server closed connection during COPY");
+            int len = readInt(in) - 4;
+            if (t == 'd') {
+                // CopyData: una o varias líneas ya formateadas; se copian sin interpretar
+                if (len > buf.length) buf = new byte[Math.max(len, buf.length * 2)];
+                readFully(buf, len);
+                target.write(buf, 0, len);
+                continue;
+            }
+            byte[] payload = readBytes(in, len);
+            if (t == 'C') {
+                rows = commandTagCount(payload);
+            } else if (t == 'E') {
+                error = parseError(payload);
+            } else if (t == 'Z') {
+                break;
+            }
+            // CopyOutResponse ('H'), CopyDone ('c') y avisos: nada que hacer
+        }
+        if (error != null) throw new RuntimeException("COPY error: " + error);
+        return rows;
+    }
+
+    private void readFully(byte[] buf, int n) throws Exception {
+        int off = 0;
+        while (off < n) {
+            int r = in.read(buf, off, n - off);
+            if (r == -1) throw new RuntimeException("Unexpected EOF");
+            off += r;
+        }
+    }
+
+    // =============== Cancelación y límites de tiempo ===============
+
+    /**
+     * Cancela la sentencia en curso. En modo nativo abre una conexión
+     * auxiliar y envía un CancelRequest con el pid y la clave recibidos en
+     * BackendKeyData; el servidor interrumpe la sentencia, que termina con
+     * ERROR 57014 en la conexión original. En modo JDBC usa
+     * {@link Statement#cancel()}, que hace lo mismo.
+     */
+    @Override
+    public void cancel() {
+        if (jdbcFallbackMode) {
+            Statement stmt = currentStatement;
+            if (stmt == null) return;
+            try {
+                stmt.cancel();
+            } catch (SQLException e) {
+                Log.warn("postgres-jdbc", "Cancel failed: " + e.getMessage());
+            }
+            return;
+        }
+        int pid = backendPid;
+        if (!nativeConnected || pid == 0) return;
+        try (Socket side = new Socket(host, port)) {
+            ByteBuffer bb = ByteBuffer.allocate(16);
+            bb.putInt(16).putInt(CANCEL_REQUEST_CODE).putInt(pid).putInt(backendSecret);
+            side.getOutputStream().write(bb.array());
+            side.getOutputStream().flush();
+            // El servidor cierra la conexión sin responder
+            side.setSoTimeout(1000);
+            side.getInputStream().read();
+        } catch (IOException e) {
+            Log.warn("postgres-socket", "CancelRequest for pid " + pid + " failed: " + e.getMessage());
+        }
+        Log.sampled(LogLevel.INFO, "postgres-socket", () -> "CancelRequest sent for backend pid " + pid);
+    }
+
+    // ----------------- LISTEN/NOTIFY -----------------
+
+    /**
+     * Fija quién recibe las notificaciones de los canales a los que la sesión
+     * se suscribió con LISTEN. Se entregan en el hilo que está leyendo de la
+     * conexión: durante {@link #execute} si llegan junto a una respuesta, o en
+     * {@link #pollNotifications} con la conexión ociosa.
+     *
+     * @param listener destino (null para descartarlas, como hasta ahora)
+     */
+    public void setNotificationListener(Consumer<PgNotification> listener) {
+        this.notificationListener = listener;
+    }
+
+    /**
+     * Espera notificaciones con la conexión ociosa (sin sentencia en curso) y
+     * las entrega al listener.
+     *
+     * @param timeoutMs espera máxima si no llega nada (mayor que 0)
+     * @return notificaciones entregadas (0 si venció la espera)
+     * @throws IllegalStateException si la conexión no está abierta
+     * @throws RuntimeException si el servidor cierra la conexión o envía un error
+     */
+    public int pollNotifications(long timeoutMs) {
+        if (!isConnected()) throw new IllegalStateException("Connection is not open: " + getName());
+        int wait = (int) Math.max(1, Math.min(Integer.MAX_VALUE, timeoutMs));
+        try {
+            if (jdbcFallbackMode) {
+                PGNotification[] received = jdbcConnection.unwrap(PGConnection.class).getNotifications(wait);
+                if (received == null) return 0;
+                for (PGNotification n : received) deliver(new PgNotification(n.getPID(), n.getName(), n.getParameter()));
+                return received.length;
+            }
+            int t;
+            socket.setSoTimeout(wait);
+            try {
+                t = in.read();
+            } catch (SocketTimeoutException e) {
+                return 0;
+            } finally {
+                socket.setSoTimeout(0);
+            }
+            int count = 0;
+            // Un mensaje y los que ya estén en el búfer (llegan juntos al confirmar una transacción)
+            while (true) {
+                if (t == -1) throw new RuntimeException("Server closed connection");
+                byte[] payload = readBytes(in, readInt(in) - 4);
+                if (t == 'A') {
+                    dispatchNotification(payload);
+                    count++;
+                } else if (t == 'E') {
+                    throw new RuntimeException("Server error: " + parseError(payload));
+                }
+                // 'N' (NoticeResponse) y 'S' (ParameterStatus) pueden llegar en cualquier momento: se ignoran
+                if (in.available() == 0) return count;
+                t = in.read();
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to wait for notifications: " + e.getMessage(), e);
+        }
+    }
+
+    private void dispatchNotification(byte[] payload) {
+        deliver(PgNotification.parse(payload));
+    }
+
+    private void deliver(PgNotification n) {
+        Consumer<PgNotification> listener = notificationListener;
+        if (listener == null) return;
+        try {
+            listener.accept(n);
+        } catch (RuntimeException e) {
+            Log.warn("postgres-notify", "Notification listener failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Fija statement_timeout para las sentencias siguientes de la sesión.
+     */
+    @Override
+    public void setStatementTimeout(long millis) {
+        // Un límite vigente mayor basta: el plazo del cliente cancela antes
+        if (millis == statementTimeoutMs || (millis > 0 && statementTimeoutMs >= millis)) return;
+        execute("SET statement_timeout = " + Math.max(0, millis));
+        statementTimeoutMs = millis;
+    }
+
     private void closeSocket() {
         try { if (socket != null) socket.close(); } catch (Exception ignored) {}
         socket = null; in = null; out = null;
@@ -373,7 +1023,7 @@ public class PostgressConnection implements DBConnection {
         ByteArrayOutputStreamEx bout = new ByteArrayOutputStreamEx();
         bout.writeByte((byte) 'p');
         bout.writeInt32(result.getBytes(StandardCharsets.UTF_8).length + 4);
-        bout.writeString(result);
+        bout.writeBytes(result.getBytes(StandardCharsets.UTF_8)); // result ya incluye el terminador
         out.write(bout.toByteArray());
         out.flush();
     }
@@ -444,6 +1094,10 @@ public class PostgressConnection implements DBConnection {
             this.write((v >> 8) & 0xFF);
             this.write(v & 0xFF);
         }
+        void writeInt16(int v) {
+            this.write((v >> 8) & 0xFF);
+            this.write(v & 0xFF);
+        }
         void writeString(String s) {
             try { this.write(s.getBytes(StandardCharsets.UTF_8)); } catch (Exception ignored) {}
             this.write(0);
@@ -3,6 +3,9 @@ package org.example.db.postgres;
 import org.example.db.DBConnection;
 import org.example.db.DBFactory;
 import org.example.db.DBQuery;
+import org.example.db.utilities.ConnectionConfig;
+
+import java.util.List;
 
 
 /**
@@ -42,4 +45,42 @@ public class PostgressFactory implements DBFactory {
     public DBQuery createQuery(DBConnection conn) {
         return new PostgressQuery(conn);
     }
+
+    /**
+     * @brief Nombre del proveedor.
+     *
+     * @return "postgres"
+     */
+    @Override
+    public String getName() {
+        return "postgres";
+    }
+
+    /**
+     * Réplicas de lectura de POSTGRES_REPLICAS ("host:puerto,host:puerto").
+     *
+     * @return direcciones de las réplicas (vacía si no hay)
+     */
+    @Override
+    public List<String> getReplicas() {
+        return ConnectionConfig.getConfigValueAsList("POSTGRES_REPLICAS", "POSTGRES_REPLICAS");
+    }
+
+    /**
+     * Crea una conexión a una réplica con la base de datos y credenciales del primario.
+     *
+     * @param name Nombre lógico para la conexión
+     * @param replica "host:puerto" (sin puerto se usa 5432)
+     * @return Instancia de {@link org.example.db.DBConnection}
+     */
+    @Override
+    public DBConnection createReplicaConnection(String name, String replica) {
+        int colon = replica.lastIndexOf(':');
+        String host = colon < 0 ? replica : replica.substring(0, colon);
+        int port = colon < 0 ? 5432 : Integer.parseInt(replica.substring(colon + 1));
+        return new PostgressConnection(name, host, port,
+                ConnectionConfig.getConfigValue("PGDATABASE", "POSTGRES_DB", "postgres"),
+                ConnectionConfig.getConfigValue("PGUSER", "POSTGRES_USER", "postgres"),
+                ConnectionConfig.getConfigValue("PGPASSWORD", "POSTGRES_PASSWORD", "postgres"));
+    }
 }
@@ -0,0 +1,154 @@
+package org.example.db.utilities;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Appender asíncrono basado en un ring buffer acotado (multi-productor,
+ * un único consumidor).
+ *
+ * Los hilos que registran mensajes nunca se bloquean en la E/S de consola:
+ * reservan una posición del anillo con un CAS y vuelven. Un hilo daemon
+ * vacía el anillo por lotes hacia stdout/stderr. Si el anillo está lleno el
+ * mensaje se descarta y se contabiliza; el número de descartes se informa
+ * en la siguiente escritura.
+ */
+public class AsyncLogAppender {
+
+    private final int mask;
+    private final String[] messages;
+    private final boolean[] errorStream;
+    /** Número de secuencia esperado por slot (algoritmo de Vyukov). */
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private long head = 0;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final PrintStream out;
+    private final PrintStream err;
+    private final Thread consumer;
+    private volatile boolean consumerParked = false;
+    private volatile boolean running = true;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity Capacidad del anillo; se redondea a la potencia de 2 superior
+     */
+    public AsyncLogAppender(int capacity) {
+        int size = Integer.highestOneBit(Math.max(16, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.messages = new String[size];
+        this.errorStream = new boolean[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) sequences.set(i, i);
+
+        // Flujos propios con buffer: evitan el lock y el autoflush de System.out por línea
+        this.out = new PrintStream(new FileOutputStream(FileDescriptor.out), false, StandardCharsets.UTF_8);
+        this.err = new PrintStream(new FileOutputStream(FileDescriptor.err), false, StandardCharsets.UTF_8);
+
+        this.consumer = new Thread(this::drainLoop, "async-log-appender");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "async-log-flush"));
+    }
+
+    /**
+     * Encola una línea ya formateada. No bloquea nunca.
+     *
+     * @param line Línea a escribir
+     * @param toErr true para escribir en stderr
+     * @return false si el anillo estaba lleno y la línea se descartó
+     */
+    public boolean append(String line, boolean toErr) {
+        long pos;
+        while (true) {
+            pos = tail.get();
+            int idx = (int) (pos & mask);
+            long seq = sequences.get(idx);
+            if (seq == pos) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    messages[idx] = line;
+                    errorStream[idx] = toErr;
+                    sequences.set(idx, pos + 1); // publicar
+                    break;
+                }
+            } else if (seq < pos) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            // otro productor se adelantó: reintentar
+        }
+        if (consumerParked) LockSupport.unpark(consumer);
+        return true;
+    }
+
+    /**
+     * @return número total de líneas descartadas por anillo lleno
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private void drainLoop() {
+        long reportedDrops = 0;
+        while (running) {
+            int n = drainBatch();
+            long drops = dropped.get();
+            if (drops != reportedDrops) {
+                err.println("[log] " + (drops - reportedDrops) + " log lines dropped (ring buffer full)");
+                reportedDrops = drops;
+                n++;
+            }
+            if (n > 0) {
+                out.flush();
+                err.flush();
+                continue;
+            }
+            consumerParked = true;
+            // Re-comprobar tras anunciar que vamos a dormir para no perder un unpark
+            if (!hasPending()) LockSupport.parkNanos(50_000_000L);
+            consumerParked = false;
+        }
+    }
+
+    private boolean hasPending() {
+        return sequences.get((int) (head & mask)) == head + 1;
+    }
+
+    private int drainBatch() {
+        int n = 0;
+        while (hasPending()) {
+            int idx = (int) (head & mask);
+            String line = messages[idx];
+            boolean toErr = errorStream[idx];
+            messages[idx] = null;
+            sequences.set(idx, head + mask + 1); // liberar slot para la siguiente vuelta
+            head++;
+            (toErr ? err : out).println(line);
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Detiene el consumidor y vacía lo pendiente. Se invoca desde un shutdown hook.
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!consumer.isAlive()) drainBatch();
+        out.flush();
+        err.flush();
+    }
+}
@@ -0,0 +1,293 @@
+package org.example.db.utilities;
+
+import org.example.db.BatchErrorMode;
+import org.example.db.BatchResult;
+import org.example.db.BatchStatement;
+import org.example.db.DBConnection;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Utilidad para ejecutar lotes de sentencias en una transacción.
+ *
+ * Contiene las piezas comunes a todas las implementaciones de
+ * {@link DBConnection#executeBatch}:
+ * - {@link #normalize(BatchStatement)}: valida y limpia cada sentencia.
+ * - {@link #executeJdbc}: modo JDBC, agrupando sentencias consecutivas con el
+ *   mismo SQL en un único {@code addBatch}/{@code executeBatch}.
+ * - {@link #executeSequential}: modo genérico sobre {@link DBConnection#execute}
+ *   con BEGIN/SAVEPOINT/COMMIT en texto, para conexiones sin soporte propio.
+ * - {@link #finish}: rellena los resultados de las sentencias no ejecutadas y
+ *   marca como deshechas las ejecutadas si el lote se revirtió.
+ */
+public class BatchHelper {
+    /**
+     * Número máximo de sentencias enviadas antes de leer sus respuestas en
+     * los modos nativos (pipelining de Postgres, multi-statements de MySQL).
+     * Limita la memoria y evita que cliente y servidor se bloqueen mutuamente
+     * con los buffers del socket llenos.
+     */
+    public static final int PIPELINE_DEPTH =
+            ConnectionConfig.getConfigValueAsInt("BATCH_PIPELINE_DEPTH", "BATCH_PIPELINE_DEPTH", 1000);
+    private static final String SAVEPOINT = "batch_stmt";
+
+    /**
+     * Valida y limpia una sentencia del lote.
+     *
+     * @param st sentencia
+     * @param backslashEscapes dialecto MySQL (ver {@link SqlParameters})
+     * @return SQL limpio y sin ';' final
+     * @throws IllegalArgumentException si está vacía, contiene varias
+     *         instrucciones o no coincide el número de parámetros
+     */
+    public static String normalize(BatchStatement st, boolean backslashEscapes) {
+        String sql = SqlParameters.stripTrailingSemicolons(SQLCleaner.cleanSql(st.getSql()));
+        if (sql.isEmpty()) throw new IllegalArgumentException("empty statement");
+        if (SqlParameters.hasMultipleStatements(sql, backslashEscapes)) {
+            throw new IllegalArgumentException("a batch entry must contain a single statement");
+        }
+        int expected = SqlParameters.countPlaceholders(sql, backslashEscapes);
+        if (expected != st.getParams().size()) {
+            throw new IllegalArgumentException("statement expects " + expected + " parameters but "
+                    + st.getParams().size() + " were given");
+        }
+        return sql;
+    }
+
+    /**
+     * Convierte el array de resultados en la lista final.
+     *
+     * @param results resultados por índice (null = no ejecutada)
+     * @param rolledBack true si la transacción se deshizo
+     * @return lista con un resultado por sentencia
+     */
+    public static List<BatchResult> finish(BatchResult[] results, boolean rolledBack) {
+        List<BatchResult> out = new ArrayList<>(results.length);
+        for (int i = 0; i < results.length; i++) {
+            BatchResult r = results[i] == null ? BatchResult.skipped(i) : results[i];
+            out.add(rolledBack ? r.rolledBack() : r);
+        }
+        return out;
+    }
+
+    /**
+     * Ejecuta el lote sobre una conexión JDBC en una transacción.
+     *
+     * Las sentencias consecutivas con el mismo SQL que no devuelven filas se
+     * envían juntas con {@code addBatch}/{@code executeBatch} (el driver las
+     * manda en un solo viaje). En modo CONTINUE cada sentencia va sola y
+     * protegida por un savepoint; en modo STOP, si un grupo falla se deshace
+     * hasta el savepoint del grupo y se repite sentencia a sentencia para
+     * confirmar exactamente las anteriores al fallo.
+     *
+     * @param c conexión JDBC
+     * @param statements sentencias
+     * @param mode comportamiento ante errores
+     * @param backslashEscapes dialecto MySQL (ver {@link SqlParameters})
+     * @return un resultado por sentencia
+     * @throws RuntimeException si falla el control de la transacción (commit/rollback)
+     */
+    public static List<BatchResult> executeJdbc(Connection c, List<BatchStatement> statements, BatchErrorMode mode,
+                                                boolean backslashEscapes) {
+        int n = statements.size();
+        BatchResult[] results = new BatchResult[n];
+        String[] sqls = new String[n];
+        for (int i = 0; i < n; i++) {
+            try {
+                sqls[i] = normalize(statements.get(i), backslashEscapes);
+            } catch (IllegalArgumentException e) {
+                results[i] = BatchResult.error(i, e.getMessage());
+            }
+        }
+
+        boolean rolledBack = false;
+        try {
+            boolean autoCommit = c.getAutoCommit();
+            c.setAutoCommit(false);
+            try {
+                int i = 0;
+                int singleUntil = -1; // tras un fallo de grupo en modo STOP se repite de uno en uno
+                while (i < n) {
+                    if (results[i] != null) { // sentencia inválida
+                        if (mode == BatchErrorMode.CONTINUE) { i++; continue; }
+                        rolledBack = mode == BatchErrorMode.ROLLBACK;
+                        break;
+                    }
+                    int j = i;
+                    if (mode != BatchErrorMode.CONTINUE && i > singleUntil && !SQLCleaner.isSelectQuery(sqls[i])) {
+                        while (j + 1 < n && results[j + 1] == null && sqls[i].equals(sqls[j + 1])) j++;
+                    }
+                    if (j > i) {
+                        int failed = executeJdbcGroup(c, statements, sqls, i, j, mode, results);
+                        if (failed < 0) { i = j + 1; continue; }
+                        if (mode == BatchErrorMode.STOP) { singleUntil = j; continue; }
+                        rolledBack = true;
+                        break;
+                    }
+                    if (!executeJdbcSingle(c, statements.get(i), sqls[i], i, mode, results)) {
+                        if (mode == BatchErrorMode.ROLLBACK) { rolledBack = true; break; }
+                        if (mode == BatchErrorMode.STOP) break;
+                    }
+                    i++;
+                }
+                if (rolledBack) c.rollback(); else c.commit();
+            } finally {
+                c.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Batch transaction failed: " + e.getMessage(), e);
+        }
+        return finish(results, rolledBack);
+    }
+
+    /**
+     * Ejecuta un grupo de sentencias idénticas con addBatch.
+     *
+     * @return -1 si todo fue bien; si no, índice de la sentencia que falló
+     *         (en modo STOP se deshace el grupo y no se anota ningún resultado)
+     */
+    private static int executeJdbcGroup(Connection c, List<BatchStatement> statements, String[] sqls,
+                                        int from, int to, BatchErrorMode mode, BatchResult[] results) throws SQLException {
+        Savepoint sp = mode == BatchErrorMode.STOP ? c.setSavepoint() : null;
+        try (PreparedStatement ps = c.prepareStatement(sqls[from])) {
+            for (int k = from; k <= to; k++) {
+                bind(ps, statements.get(k).getParams());
+                ps.addBatch();
+            }
+            int[] counts = ps.executeBatch();
+            for (int k = from; k <= to; k++) {
+                int count = k - from < counts.length ? counts[k - from] : Statement.SUCCESS_NO_INFO;
+                results[k] = BatchResult.updated(k, count >= 0 ? count : -1);
+            }
+            if (sp != null) c.releaseSavepoint(sp);
+            return -1;
+        } catch (SQLException e) {
+            if (sp != null) {
+                c.rollback(sp);
+                return from;
+            }
+            int failed = from;
+            if (e instanceof BatchUpdateException) {
+                int[] counts = ((BatchUpdateException) e).getUpdateCounts();
+                failed = from + failedOffset(counts);
+                for (int k = from; k < failed && k <= to; k++) {
+                    results[k] = BatchResult.updated(k, counts[k - from] >= 0 ? counts[k - from] : -1);
+                }
+                if (failed > to) failed = to;
+            }
+            results[failed] = BatchResult.error(failed, e.getMessage());
+            return failed;
+        }
+    }
+
+    /** Posición de la primera sentencia fallida según los contadores de BatchUpdateException. */
+    private static int failedOffset(int[] counts) {
+        if (counts == null) return 0;
+        for (int k = 0; k < counts.length; k++) {
+            if (counts[k] == Statement.EXECUTE_FAILED) return k;
+        }
+        return counts.length; // el driver se detuvo en la primera que falló
+    }
+
+    /**
+     * Ejecuta una sentencia suelta (protegida por savepoint salvo en modo ROLLBACK).
+     *
+     * @return true si se ejecutó correctamente
+     */
+    private static boolean executeJdbcSingle(Connection c, BatchStatement st, String sql, int index,
+                                             BatchErrorMode mode, BatchResult[] results) throws SQLException {
+        Savepoint sp = mode == BatchErrorMode.ROLLBACK ? null : c.setSavepoint();
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            bind(ps, st.getParams());
+            if (ps.execute()) {
+                try (java.sql.ResultSet rs = ps.getResultSet()) {
+                    results[index] = BatchResult.rows(index, ResultSetConverter.convertToList(rs));
+                }
+            } else {
+                results[index] = BatchResult.updated(index, ps.getUpdateCount());
+            }
+            if (sp != null) c.releaseSavepoint(sp);
+            return true;
+        } catch (SQLException e) {
+            if (sp != null) c.rollback(sp);
+            results[index] = BatchResult.error(index, e.getMessage());
+            return false;
+        }
+    }
+
+    private static void bind(PreparedStatement ps, List<Object> params) throws SQLException {
+        for (int k = 0; k < params.size(); k++) ps.setObject(k + 1, params.get(k));
+    }
+
+    /**
+     * Ejecuta el lote mediante {@link DBConnection#execute} enviando
+     * BEGIN / SAVEPOINT / COMMIT como sentencias de texto y sustituyendo los
+     * parámetros por literales. Es la implementación por defecto para
+     * conexiones sin un modo de lote propio: un viaje por sentencia.
+     *
+     * @param conn conexión abierta
+     * @param statements sentencias
+     * @param mode comportamiento ante errores
+     * @param backslashEscapes true si el servidor interpreta '\' en literales (MySQL)
+     * @return un resultado por sentencia
+     * @throws RuntimeException si falla el control de la transacción
+     */
+    public static List<BatchResult> executeSequential(DBConnection conn, List<BatchStatement> statements,
+                                                      BatchErrorMode mode, boolean backslashEscapes) {
+        int n = statements.size();
+        BatchResult[] results = new BatchResult[n];
+        boolean rolledBack = false;
+        conn.execute("BEGIN");
+        try {
+            for (int i = 0; i < n; i++) {
+                BatchStatement st = statements.get(i);
+                String sql;
+                try {
+                    sql = SqlParameters.inline(normalize(st, backslashEscapes), st.getParams(), backslashEscapes);
+                } catch (IllegalArgumentException e) {
+                    results[i] = BatchResult.error(i, e.getMessage());
+                    if (mode == BatchErrorMode.CONTINUE) continue;
+                    rolledBack = mode == BatchErrorMode.ROLLBACK;
+                    break;
+                }
+                if (mode != BatchErrorMode.ROLLBACK) conn.execute("SAVEPOINT " + SAVEPOINT);
+                try {
+                    List<Map<String, Object>> rows = conn.execute(sql);
+                    results[i] = SQLCleaner.isSelectQuery(sql) ? BatchResult.rows(i, rows) : BatchResult.updated(i, affectedRows(rows));
+                } catch (RuntimeException e) {
+                    results[i] = BatchResult.error(i, e.getMessage());
+                    if (mode == BatchErrorMode.ROLLBACK) { rolledBack = true; break; }
+                    conn.execute("ROLLBACK TO SAVEPOINT " + SAVEPOINT);
+                    if (mode == BatchErrorMode.STOP) break;
+                }
+            }
+        } catch (RuntimeException e) {
+            conn.execute("ROLLBACK");
+            throw e;
+        }
+        conn.execute(rolledBack ? "ROLLBACK" : "COMMIT");
+        return finish(results, rolledBack);
+    }
+
+    /** Filas afectadas según la respuesta de {@link QueryResponseBuilder}, o -1 si no se conoce. */
+    private static long affectedRows(List<Map<String, Object>> rows) {
+        if (rows == null || rows.size() != 1) return -1;
+        Object v = rows.get(0).get("affected_rows");
+        return v instanceof Number ? ((Number) v).longValue() : -1;
+    }
+
+    /**
+     * Constructor privado para prevenir instanciación.
+     */
+    private BatchHelper() {
+        throw new UnsupportedOperationException("Utility class - do not instantiate");
+    }
+}
@@ -1,6 +1,8 @@
 package org.example.db.utilities;
 
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 /**
@@ -8,8 +10,9 @@ import java.util.Properties;
  * 
  * Esta clase proporciona métodos para obtener valores de configuración desde:
  * 1. Variables de entorno
- * 2. Archivo de propiedades (db.properties)
- * 3. Valores por defecto
+ * 2. Propiedades del sistema (-DCLAVE=valor), con la misma clave que la variable de entorno
+ * 3. Archivo de propiedades (db.properties)
+ * 4. Valores por defecto
  */
 public class ConnectionConfig {
     
@@ -34,7 +37,7 @@ public class ConnectionConfig {
     }
     
     /**
-     * Obtiene un valor de configuración con prioridad: ENV > File > Default
+     * Obtiene un valor de configuración con prioridad: ENV > -D > File > Default
      * 
      * @param envKey Clave de variable de entorno
      * @param fileKey Clave en archivo de propiedades
@@ -47,14 +50,20 @@ public class ConnectionConfig {
         if (envVal != null && !envVal.isEmpty()) {
             return envVal;
         }
+
+        // 2. Propiedad del sistema (útil para lanzar en el mismo proceso servidores de prueba)
+        String sysVal = System.getProperty(envKey);
+        if (sysVal != null && !sysVal.isEmpty()) {
+            return sysVal;
+        }
         
-        // 2. Luego archivo de propiedades
+        // 3. Luego archivo de propiedades
         String fileVal = FILE_CONFIG.getProperty(fileKey);
         if (fileVal != null && !fileVal.isEmpty()) {
             return fileVal;
         }
         
-        // 3. Por último, valor por defecto
+        // 4. Por último, valor por defecto
         return defaultValue;
     }
     
@@ -75,6 +84,22 @@ public class ConnectionConfig {
         }
     }
     
+    /**
+     * Obtiene un valor de configuración como lista separada por comas
+     * (por ejemplo "replica1:5432,replica2:5432").
+     * 
+     * @param envKey Clave de variable de entorno
+     * @param fileKey Clave en archivo de propiedades
+     * @return Elementos no vacíos, sin espacios; lista vacía si no está configurado
+     */
+    public static List<String> getConfigValueAsList(String envKey, String fileKey) {
+        List<String> values = new ArrayList<>();
+        for (String v : getConfigValue(envKey, fileKey, "").split(",")) {
+            if (!v.trim().isEmpty()) values.add(v.trim());
+        }
+        return values;
+    }
+    
     /**
      * Constructor privado para prevenir instanciación.
      */
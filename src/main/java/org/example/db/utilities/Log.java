@@ -0,0 +1,153 @@
+package org.example.db.utilities;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Fachada de logging del middleware.
+ *
+ * Sustituye a las llamadas directas a {@code System.out}/{@code System.err}
+ * en el camino caliente de las consultas. Características:
+ * - Niveles ({@link LogLevel}) configurables con LOG_LEVEL (por defecto INFO).
+ * - Escritura asíncrona mediante {@link AsyncLogAppender}: el hilo que loguea
+ *   no espera a la consola.
+ * - Muestreo por etiqueta ({@link #sampled}) para las líneas que se emiten una
+ *   vez por consulta: como máximo LOG_SAMPLE_PER_SECOND líneas por segundo,
+ *   etiqueta y nivel; el resto se cuenta y se resume en la siguiente línea emitida.
+ * - Truncado de SQL ({@link #truncateSql}) a LOG_SQL_MAX_CHARS caracteres.
+ *
+ * Formato de salida: {@code [etiqueta] mensaje}, igual que los mensajes previos.
+ */
+public final class Log {
+
+    private static final LogLevel LEVEL = LogLevel.parse(
+            ConnectionConfig.getConfigValue("LOG_LEVEL", "LOG_LEVEL", "INFO"), LogLevel.INFO);
+    private static final int SQL_MAX_CHARS =
+            ConnectionConfig.getConfigValueAsInt("LOG_SQL_MAX_CHARS", "LOG_SQL_MAX_CHARS", 200);
+    private static final int SAMPLE_PER_SECOND =
+            ConnectionConfig.getConfigValueAsInt("LOG_SAMPLE_PER_SECOND", "LOG_SAMPLE_PER_SECOND", 20);
+    private static final AsyncLogAppender APPENDER = new AsyncLogAppender(
+            ConnectionConfig.getConfigValueAsInt("LOG_BUFFER_SIZE", "LOG_BUFFER_SIZE", 8192));
+
+    /** Muestreadores por nivel y etiqueta: un aluvión de INFO no gasta el cupo de WARN/ERROR. */
+    private static final Map<LogLevel, ConcurrentHashMap<String, Sampler>> SAMPLERS = new EnumMap<>(LogLevel.class);
+
+    static {
+        for (LogLevel level : LogLevel.values()) SAMPLERS.put(level, new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Indica si un nivel está habilitado. Útil para no construir mensajes caros.
+     *
+     * @param level Nivel a comprobar
+     * @return true si los mensajes de ese nivel se emiten
+     */
+    public static boolean isEnabled(LogLevel level) {
+        return level != LogLevel.OFF && level.compareTo(LEVEL) >= 0;
+    }
+
+    public static void debug(String tag, String msg) { log(LogLevel.DEBUG, tag, msg); }
+
+    public static void info(String tag, String msg) { log(LogLevel.INFO, tag, msg); }
+
+    public static void warn(String tag, String msg) { log(LogLevel.WARN, tag, msg); }
+
+    public static void error(String tag, String msg) { log(LogLevel.ERROR, tag, msg); }
+
+    /**
+     * Registra un error con la traza de la excepción.
+     *
+     * @param tag Etiqueta (por ejemplo "postgres-socket")
+     * @param msg Mensaje
+     * @param t Excepción asociada
+     */
+    public static void error(String tag, String msg, Throwable t) {
+        if (!isEnabled(LogLevel.ERROR)) return;
+        StringWriter sw = new StringWriter();
+        t.printStackTrace(new PrintWriter(sw));
+        APPENDER.append("[" + tag + "] " + msg + System.lineSeparator() + sw, true);
+    }
+
+    /**
+     * Registra un mensaje en el nivel indicado.
+     *
+     * @param level Nivel del mensaje
+     * @param tag Etiqueta
+     * @param msg Mensaje ya construido
+     */
+    public static void log(LogLevel level, String tag, String msg) {
+        if (!isEnabled(level)) return;
+        APPENDER.append("[" + tag + "] " + msg, level.compareTo(LogLevel.WARN) >= 0);
+    }
+
+    /**
+     * Registra una línea "por consulta" sujeta a muestreo por etiqueta.
+     *
+     * El mensaje se construye sólo si el nivel está habilitado y el muestreo
+     * deja pasar la línea, de modo que el coste en el camino caliente es un
+     * par de operaciones atómicas.
+     *
+     * @param level Nivel del mensaje
+     * @param tag Etiqueta (con el nivel, clave del muestreo)
+     * @param msg Proveedor perezoso del mensaje
+     */
+    public static void sampled(LogLevel level, String tag, Supplier<String> msg) {
+        if (!isEnabled(level)) return;
+        Sampler sampler = SAMPLERS.get(level).computeIfAbsent(tag, k -> new Sampler());
+        long suppressed = sampler.tryAcquire(System.nanoTime());
+        if (suppressed < 0) return;
+        String line = "[" + tag + "] " + msg.get();
+        if (suppressed > 0) line += " (" + suppressed + " similar lines suppressed)";
+        APPENDER.append(line, level.compareTo(LogLevel.WARN) >= 0);
+    }
+
+    /**
+     * Trunca una sentencia SQL para el log, indicando cuántos caracteres se omiten.
+     *
+     * @param sql Sentencia SQL (puede ser null)
+     * @return SQL truncada a LOG_SQL_MAX_CHARS caracteres
+     */
+    public static String truncateSql(String sql) {
+        if (sql == null) return "null";
+        if (SQL_MAX_CHARS <= 0 || sql.length() <= SQL_MAX_CHARS) return sql;
+        return sql.substring(0, SQL_MAX_CHARS) + "...(+" + (sql.length() - SQL_MAX_CHARS) + " chars)";
+    }
+
+    /**
+     * Ventana de un segundo con contador de líneas emitidas y suprimidas.
+     */
+    private static final class Sampler {
+        private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+        private final AtomicInteger emitted = new AtomicInteger();
+        private final AtomicLong suppressed = new AtomicLong();
+
+        /**
+         * @return -1 si la línea debe suprimirse; en otro caso el número de
+         *         líneas suprimidas desde la última emitida
+         */
+        long tryAcquire(long now) {
+            long start = windowStart.get();
+            if (now - start >= 1_000_000_000L && windowStart.compareAndSet(start, now)) {
+                emitted.set(0);
+            }
+            if (SAMPLE_PER_SECOND > 0 && emitted.incrementAndGet() > SAMPLE_PER_SECOND) {
+                suppressed.incrementAndGet();
+                return -1;
+            }
+            return suppressed.getAndSet(0);
+        }
+    }
+
+    /**
+     * Constructor privado para prevenir instanciación.
+     */
+    private Log() {
+        throw new UnsupportedOperationException("Utility class - do not instantiate");
+    }
+}
@@ -0,0 +1,31 @@
+package org.example.db.utilities;
+
+/**
+ * Niveles de log soportados por {@link Log}.
+ *
+ * El orden de declaración define la severidad: un mensaje se emite si su
+ * nivel es mayor o igual que el nivel configurado (LOG_LEVEL).
+ */
+public enum LogLevel {
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR,
+    OFF;
+
+    /**
+     * Convierte un texto de configuración en nivel, ignorando mayúsculas.
+     *
+     * @param value Texto (por ejemplo "debug", "INFO")
+     * @param defaultLevel Nivel a usar si el texto no es válido
+     * @return Nivel correspondiente
+     */
+    public static LogLevel parse(String value, LogLevel defaultLevel) {
+        if (value == null) return defaultLevel;
+        try {
+            return LogLevel.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return defaultLevel;
+        }
+    }
+}
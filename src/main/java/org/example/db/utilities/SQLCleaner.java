@@ -1,5 +1,7 @@
 package org.example.db.utilities;
 
+import java.util.regex.Pattern;
+
 /**
  * Utilidad para limpiar y normalizar consultas SQL.
  * 
@@ -8,6 +10,9 @@ package org.example.db.utilities;
  * y otros caracteres que puedan causar problemas de sintaxis.
  */
 public class SQLCleaner {
+    /** Palabras de escritura en la huella (sin literales); "for update" sólo bloquea. */
+    private static final Pattern DATA_MODIFYING = Pattern.compile(
+            "\\b(?:insert|delete|merge|truncate|into)\\b|(?<!for |for no key )\\bupdate\\b");
     
     /**
      * Limpia y normaliza una consulta SQL.
@@ -58,6 +63,88 @@ public class SQLCleaner {
                sqlUpper.startsWith("WITH");    // CTEs que pueden devolver resultados
     }
     
+    /**
+     * Indica si una sentencia de lectura puede modificar datos: un CTE con
+     * INSERT/UPDATE/DELETE/MERGE ({@code WITH d AS (DELETE ...) SELECT ...})
+     * o un {@code SELECT ... INTO} que crea una tabla. Es conservadora: los
+     * literales de texto y los comentarios no cuentan, pero una de esas
+     * palabras como identificador sí; {@code FOR UPDATE} no cuenta.
+     *
+     * @param sql La consulta SQL
+     * @param backslashEscapes dialecto MySQL (ver {@link SqlParameters})
+     * @return true si puede escribir
+     */
+    public static boolean modifiesData(String sql, boolean backslashEscapes) {
+        if (sql == null || sql.isEmpty()) {
+            return false;
+        }
+        return DATA_MODIFYING.matcher(fingerprint(sql, backslashEscapes)).find();
+    }
+
+    /**
+     * Calcula la "huella" (fingerprint) de una consulta: la misma sentencia
+     * con los literales sustituidos por {@code ?}, sin comentarios, espacios
+     * colapsados y en minúsculas. Dos consultas que sólo difieren en sus
+     * valores comparten huella.
+     *
+     * Ejemplo: {@code SELECT * FROM t WHERE id = 42 AND name='x'} →
+     * {@code select * from t where id = ? and name=?}
+     *
+     * @param sql La consulta SQL
+     * @param backslashEscapes dialecto MySQL: delimita literales y comentarios
+     *                         como el servidor (ver {@link SqlParameters})
+     * @return La huella normalizada, o cadena vacía si el input es null
+     */
+    public static String fingerprint(String sql, boolean backslashEscapes) {
+        if (sql == null || sql.isEmpty()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(sql.length());
+        int n = sql.length();
+        int i = 0;
+        boolean lastSpace = true;
+        while (i < n) {
+            char c = sql.charAt(i);
+            int end = SqlParameters.skipComment(sql, i, backslashEscapes);
+            if (end > i) {
+                if (!lastSpace) sb.append(' ');
+                lastSpace = true;
+                i = end;
+                continue;
+            }
+            end = SqlParameters.skipQuoted(sql, i, backslashEscapes);
+            if (end > i) {
+                if (SqlParameters.isQuotedIdentifier(c, backslashEscapes)) {
+                    sb.append(sql.substring(i, end).toLowerCase());
+                } else {
+                    sb.append('?'); // literal de texto o bloque dollar-quoted
+                }
+                lastSpace = false;
+                i = end;
+            } else if (Character.isDigit(c) && (sb.length() == 0 || !isIdentifierChar(sb.charAt(sb.length() - 1)))) {
+                // Literal numérico (no forma parte de un identificador como t1)
+                while (i < n && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '.')) i++;
+                sb.append('?');
+                lastSpace = false;
+            } else if (Character.isWhitespace(c)) {
+                if (!lastSpace) sb.append(' ');
+                lastSpace = true;
+                i++;
+            } else {
+                sb.append(Character.toLowerCase(c));
+                lastSpace = false;
+                i++;
+            }
+        }
+        int len = sb.length();
+        if (len > 0 && sb.charAt(len - 1) == ' ') sb.setLength(len - 1);
+        return sb.toString();
+    }
+
+    private static boolean isIdentifierChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
     /**
      * Constructor privado para prevenir instanciación.
      * Esta es una clase de utilidades con métodos estáticos.
@@ -0,0 +1,58 @@
+package org.example.db.utilities;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Flujo que descarta las primeras líneas (terminadas en '\n') de otro flujo.
+ *
+ * Se usa para ignorar la cabecera de una carga masiva cuando el formato
+ * nativo del servidor no permite indicarlo (COPY en formato text de Postgres
+ * anterior a la versión 15). El descarte se hace al leer, sin copiar el flujo.
+ */
+public class SkipLinesInputStream extends FilterInputStream {
+    private int linesToSkip;
+
+    /**
+     * @param in flujo original
+     * @param lines número de líneas a descartar
+     */
+    public SkipLinesInputStream(InputStream in, int lines) {
+        super(in);
+        this.linesToSkip = lines;
+    }
+
+    @Override
+    public int read() throws IOException {
+        skipPending();
+        return super.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (linesToSkip == 0) return in.read(b, off, len);
+        int n;
+        while ((n = in.read(b, off, len)) > 0) {
+            int i = off;
+            int end = off + n;
+            while (linesToSkip > 0 && i < end) {
+                if (b[i++] == '\n') linesToSkip--;
+            }
+            if (linesToSkip == 0 && i < end) {
+                System.arraycopy(b, i, b, off, end - i);
+                return end - i;
+            }
+            if (linesToSkip == 0) return read(b, off, len);
+        }
+        return n;
+    }
+
+    private void skipPending() throws IOException {
+        while (linesToSkip > 0) {
+            int c = in.read();
+            if (c == -1) return;
+            if (c == '\n') linesToSkip--;
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package org.example.db.utilities;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Utilidad para sentencias con parámetros posicionales ({@code ?}).
+ *
+ * Localiza los marcadores {@code ?} y los separadores {@code ;} que están
+ * fuera de literales ('...'), identificadores entrecomillados ("..." y `...`),
+ * comentarios (-- y /* *&#47;) y bloques dollar-quoted de Postgres ($tag$...$tag$),
+ * y a partir de ahí:
+ * - numera los marcadores ($1, $2, ...) para el protocolo extendido de Postgres,
+ * - sustituye los marcadores por literales SQL cuando el protocolo sólo
+ *   admite texto (multi-statements de MySQL, ejecución secuencial),
+ * - convierte valores a su representación de texto del protocolo Postgres.
+ *
+ * El recorrido depende del dialecto (parámetro {@code backslashEscapes}, ver
+ * {@link #backslashEscapes(String)}), porque un literal mal delimitado deja
+ * fuera de él un {@code ;} que el servidor sí ve:
+ * - Postgres (standard_conforming_strings, por defecto desde 9.1): '\' sólo
+ *   escapa dentro de E'...'; "..." es un identificador; hay dollar-quoting.
+ * - MySQL: '\' escapa en '...' y "..." (ambos literales); "--" sólo abre
+ *   comentario seguido de un espacio, "#" también lo abre y el contenido de
+ *   /*! ... *&#47; es código que el servidor ejecuta; no hay dollar-quoting.
+ */
+public class SqlParameters {
+
+    /**
+     * @param provider nombre del proveedor ({@code DBFactory#getName()})
+     * @return valor de {@code backslashEscapes} para su dialecto: true sólo para MySQL
+     */
+    public static boolean backslashEscapes(String provider) {
+        return "mysql".equals(provider);
+    }
+
+    /**
+     * Cuenta los marcadores de parámetro de una sentencia.
+     *
+     * @param sql sentencia
+     * @param backslashEscapes dialecto MySQL (ver la descripción de la clase)
+     * @return número de {@code ?} fuera de literales y comentarios
+     */
+    public static int countPlaceholders(String sql, boolean backslashEscapes) {
+        List<Integer> marks = new ArrayList<>();
+        scan(sql, backslashEscapes, marks, null, null);
+        return marks.size();
+    }
+
+    /**
+     * Indica si la sentencia contiene más de una instrucción (un {@code ;}
+     * fuera de literales que no sea el final).
+     *
+     * @param sql sentencia
+     * @param backslashEscapes dialecto MySQL (ver la descripción de la clase)
+     * @return true si hay varias instrucciones
+     */
+    public static boolean hasMultipleStatements(String sql, boolean backslashEscapes) {
+        List<Integer> semis = new ArrayList<>();
+        scan(sql, backslashEscapes, null, semis, null);
+        for (int pos : semis) {
+            if (!onlySemicolons(sql, pos + 1)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Indica si la sentencia puede encerrarse entre paréntesis (subconsulta
+     * de COPY, por ejemplo) sin alterar el texto que la rodea: sin {@code ;},
+     * sin comentarios y con los paréntesis equilibrados fuera de literales.
+     *
+     * @param sql sentencia
+     * @param backslashEscapes dialecto MySQL (ver la descripción de la clase)
+     * @return true si es autocontenida
+     */
+    public static boolean isSelfContained(String sql, boolean backslashEscapes) {
+        List<Integer> structure = new ArrayList<>();
+        scan(sql, backslashEscapes, null, null, structure);
+        int depth = 0;
+        for (int pos : structure) {
+            char c = sql.charAt(pos);
+            if (c == '(') depth++;
+            else if (c == ')' && --depth < 0) return false;
+            else if (c != ')') return false; // ';' o inicio de comentario
+        }
+        return depth == 0;
+    }
+
+    /**
+     * Elimina los {@code ;} y espacios finales de una sentencia.
+     *
+     * @param sql sentencia
+     * @return sentencia sin terminador
+     */
+    public static String stripTrailingSemicolons(String sql) {
+        int end = sql.length();
+        while (end > 0 && (sql.charAt(end - 1) == ';' || Character.isWhitespace(sql.charAt(end - 1)))) end--;
+        return sql.substring(0, end);
+    }
+
+    /**
+     * Sustituye los {@code ?} por {@code $1, $2, ...} (sintaxis de Postgres).
+     *
+     * @param sql sentencia con marcadores {@code ?}
+     * @return sentencia con marcadores numerados
+     */
+    public static String toNumbered(String sql) {
+        List<Integer> marks = new ArrayList<>();
+        scan(sql, false, marks, null, null);
+        if (marks.isEmpty()) return sql;
+        StringBuilder sb = new StringBuilder(sql.length() + marks.size() * 2);
+        int last = 0;
+        for (int i = 0; i < marks.size(); i++) {
+            int pos = marks.get(i);
+            sb.append(sql, last, pos).append('$').append(i + 1);
+            last = pos + 1;
+        }
+        return sb.append(sql, last, sql.length()).toString();
+    }
+
+    /**
+     * Sustituye cada {@code ?} por el literal SQL del parámetro correspondiente.
+     *
+     * @param sql sentencia con marcadores
+     * @param params valores en orden
+     * @param backslashEscapes true si el servidor interpreta '\' dentro de
+     *                         literales (MySQL por defecto); false para SQL estándar
+     *                         (también decide cómo se recorre {@code sql}, ver la
+     *                         descripción de la clase)
+     * @return sentencia sin marcadores
+     * @throws IllegalArgumentException si el número de parámetros no coincide
+     */
+    public static String inline(String sql, List<?> params, boolean backslashEscapes) {
+        List<Integer> marks = new ArrayList<>();
+        scan(sql, backslashEscapes, marks, null, null);
+        int given = params == null ? 0 : params.size();
+        if (marks.size() != given) {
+            throw new IllegalArgumentException("statement expects " + marks.size() + " parameters but " + given + " were given");
+        }
+        if (given == 0) return sql;
+        StringBuilder sb = new StringBuilder(sql.length() + given * 8);
+        int last = 0;
+        for (int i = 0; i < given; i++) {
+            int pos = marks.get(i);
+            sb.append(sql, last, pos).append(literal(params.get(i), backslashEscapes));
+            last = pos + 1;
+        }
+        return sb.append(sql, last, sql.length()).toString();
+    }
+
+    /**
+     * Literal SQL para un valor.
+     *
+     * @param v valor (puede ser null)
+     * @param backslashEscapes ver {@link #inline}
+     * @return literal listo para insertar en la sentencia
+     */
+    public static String literal(Object v, boolean backslashEscapes) {
+        if (v == null) return "NULL";
+        if (v instanceof Boolean) return (Boolean) v ? "TRUE" : "FALSE";
+        if (v instanceof Integer || v instanceof Long || v instanceof Short || v instanceof Byte
+                || v instanceof java.math.BigInteger) {
+            return v.toString();
+        }
+        if (v instanceof BigDecimal) return ((BigDecimal) v).toPlainString();
+        if (v instanceof Double || v instanceof Float) {
+            double d = ((Number) v).doubleValue();
+            return Double.isNaN(d) || Double.isInfinite(d) ? quote(v.toString(), backslashEscapes) : v.toString();
+        }
+        if (v instanceof byte[]) {
+            String hex = toHex((byte[]) v);
+            return backslashEscapes ? "X'" + hex + "'" : "'\\x" + hex + "'";
+        }
+        return quote(v.toString(), backslashEscapes);
+    }
+
+    /**
+     * Representación de texto de un valor para el protocolo de Postgres
+     * (mensaje Bind en formato texto).
+     *
+     * @param v valor
+     * @return bytes UTF-8 del valor, o null para SQL NULL
+     */
+    public static byte[] toPostgresText(Object v) {
+        if (v == null) return null;
+        String s;
+        if (v instanceof Boolean) s = (Boolean) v ? "t" : "f";
+        else if (v instanceof byte[]) s = "\\x" + toHex((byte[]) v);
+        else if (v instanceof BigDecimal) s = ((BigDecimal) v).toPlainString();
+        else s = v.toString();
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Entrecomilla un identificador (admite "esquema.tabla").
+     *
+     * @param name identificador recibido del cliente
+     * @param quote carácter de comillas: '"' (SQL estándar, Postgres) o '`' (MySQL)
+     * @return identificador entrecomillado, con las comillas internas duplicadas
+     * @throws IllegalArgumentException si el nombre está vacío
+     */
+    public static String quoteIdentifier(String name, char quote) {
+        if (name == null || name.trim().isEmpty()) throw new IllegalArgumentException("empty identifier");
+        StringBuilder sb = new StringBuilder(name.length() + 4);
+        for (String part : name.trim().split("\\.", -1)) {
+            if (part.isEmpty()) throw new IllegalArgumentException("invalid identifier: " + name);
+            if (sb.length() > 0) sb.append('.');
+            sb.append(quote);
+            for (int i = 0; i < part.length(); i++) {
+                char c = part.charAt(i);
+                if (c == quote) sb.append(quote);
+                sb.append(c);
+            }
+            sb.append(quote);
+        }
+        return sb.toString();
+    }
+
+    private static String quote(String s, boolean backslashEscapes) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('\'');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\'') sb.append("''");
+            else if (c == '\\' && backslashEscapes) sb.append("\\\\");
+            else sb.append(c);
+        }
+        return sb.append('\'').toString();
+    }
+
+    private static String toHex(byte[] b) {
+        char[] digits = "0123456789abcdef".toCharArray();
+        char[] out = new char[b.length * 2];
+        for (int i = 0; i < b.length; i++) {
+            out[2 * i] = digits[(b[i] >> 4) & 0xF];
+            out[2 * i + 1] = digits[b[i] & 0xF];
+        }
+        return new String(out);
+    }
+
+    private static boolean onlySemicolons(String sql, int from) {
+        for (int i = from; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c != ';' && !Character.isWhitespace(c)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Recorre la sentencia anotando las posiciones de {@code ?} y {@code ;}
+     * que están fuera de literales, identificadores y comentarios. En
+     * {@code structure} se anotan los paréntesis, los {@code ;} y el inicio
+     * de cada comentario.
+     */
+    private static void scan(String sql, boolean backslashEscapes, List<Integer> marks, List<Integer> semicolons,
+                             List<Integer> structure) {
+        int n = sql.length();
+        int i = 0;
+        while (i < n) {
+            int end = skipComment(sql, i, backslashEscapes);
+            if (end > i) {
+                if (structure != null) structure.add(i);
+                i = end;
+                continue;
+            }
+            end = skipQuoted(sql, i, backslashEscapes);
+            if (end > i) {
+                i = end;
+                continue;
+            }
+            char c = sql.charAt(i);
+            if (c == '?' && marks != null) marks.add(i);
+            if (c == ';' && semicolons != null) semicolons.add(i);
+            if ((c == '(' || c == ')' || c == ';') && structure != null) structure.add(i);
+            i++;
+        }
+    }
+
+    /**
+     * Si en {@code i} empieza un comentario devuelve la posición siguiente a
+     * su final; si no, {@code i}. De un /*! ... *&#47; de MySQL sólo se salta la
+     * marca (y la versión), porque el resto es código.
+     *
+     * @param backslashEscapes dialecto MySQL (ver la descripción de la clase)
+     */
+    static int skipComment(String sql, int i, boolean backslashEscapes) {
+        int n = sql.length();
+        char c = sql.charAt(i);
+        if (c == '-' && i + 1 < n && sql.charAt(i + 1) == '-'
+                && (!backslashEscapes || i + 2 == n || Character.isWhitespace(sql.charAt(i + 2)))) {
+            int end = sql.indexOf('\n', i);
+            return end < 0 ? n : end;
+        }
+        if (c == '#' && backslashEscapes) {
+            int end = sql.indexOf('\n', i);
+            return end < 0 ? n : end;
+        }
+        if (c == '/' && i + 1 < n && sql.charAt(i + 1) == '*') {
+            if (backslashEscapes && i + 2 < n && sql.charAt(i + 2) == '!') {
+                int j = i + 3;
+                while (j < n && Character.isDigit(sql.charAt(j))) j++;
+                return j;
+            }
+            int end = sql.indexOf("*/", i + 2);
+            return end < 0 ? n : end + 2;
+        }
+        return i;
+    }
+
+    /**
+     * Si en {@code i} empieza un literal o un identificador entrecomillado
+     * devuelve la posición siguiente a su cierre (o el final del texto si no
+     * se cierra); si no, {@code i}.
+     *
+     * @param backslashEscapes dialecto MySQL (ver la descripción de la clase)
+     */
+    static int skipQuoted(String sql, int i, boolean backslashEscapes) {
+        int n = sql.length();
+        char c = sql.charAt(i);
+        if (c == '\'' || c == '"' || c == '`') {
+            boolean escapes = backslashEscapes ? c != '`' : c == '\'' && isEscapeStringPrefix(sql, i);
+            int j = i + 1;
+            while (j < n) {
+                char d = sql.charAt(j++);
+                if (d == '\\' && escapes && j < n) { j++; continue; }
+                if (d == c) {
+                    if (j < n && sql.charAt(j) == c) { j++; continue; } // comilla duplicada
+                    return j;
+                }
+            }
+            return n;
+        }
+        if (c == '$' && !backslashEscapes && (i == 0 || !isIdentifierChar(sql.charAt(i - 1)))) {
+            // Posible dollar-quote: $$ o $tag$
+            int tagEnd = i + 1;
+            while (tagEnd < n && isIdentifierChar(sql.charAt(tagEnd)) && sql.charAt(tagEnd) != '$') tagEnd++;
+            if (tagEnd < n && sql.charAt(tagEnd) == '$' && (tagEnd == i + 1 || !Character.isDigit(sql.charAt(i + 1)))) {
+                String tag = sql.substring(i, tagEnd + 1);
+                int end = sql.indexOf(tag, tagEnd + 1);
+                return end < 0 ? n : end + tag.length();
+            }
+        }
+        return i;
+    }
+
+    /**
+     * @return true si lo que {@link #skipQuoted} salta a partir de la comilla
+     *         {@code quote} es un identificador y no un literal
+     */
+    static boolean isQuotedIdentifier(char quote, boolean backslashEscapes) {
+        return quote == '`' || (quote == '"' && !backslashEscapes);
+    }
+
+    private static boolean isIdentifierChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    /** true si la comilla de la posición {@code quote} abre un literal E'...' (la E no es final de un identificador). */
+    private static boolean isEscapeStringPrefix(String sql, int quote) {
+        if (quote == 0) return false;
+        char e = sql.charAt(quote - 1);
+        return (e == 'E' || e == 'e') && (quote == 1 || !isIdentifierChar(sql.charAt(quote - 2)));
+    }
+
+    /**
+     * Constructor privado para prevenir instanciación.
+     */
+    private SqlParameters() {
+        throw new UnsupportedOperationException("Utility class - do not instantiate");
+    }
+}
@@ -0,0 +1,58 @@
+package org.example.web.api;
+
+import org.example.db.memory.AggregateSpec;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @file AggregateRequest.java
+ * @brief Etapa opcional de agregación de /query a partir del campo JSON
+ *        "aggregate".
+ *
+ * Ejemplo: {"db":"postgres","sql":"SELECT region, amount FROM sales",
+ * "aggregate":{"group_by":["region"],"metrics":["sum(amount) as total","count(*)"]}}.
+ * El resultado de la consulta se agrega en el servidor
+ * ({@link AggregateSpec#apply}) antes de codificarlo, con cualquier
+ * proveedor de base de datos.
+ */
+public final class AggregateRequest {
+    /** Campo del cuerpo JSON con la agregación. */
+    public static final String FIELD = "aggregate";
+
+    private AggregateRequest() {
+        throw new UnsupportedOperationException("Utility class - do not instantiate");
+    }
+
+    /**
+     * Lee la agregación pedida por el cliente.
+     *
+     * @param body cuerpo JSON ya leído (puede ser null)
+     * @return agregación, o null si la petición no la pide
+     * @throws IllegalArgumentException si el campo no tiene la forma esperada
+     */
+    public static AggregateSpec parse(Map<String, Object> body) {
+        if (body == null || body.get(FIELD) == null) return null;
+        Object value = body.get(FIELD);
+        if (!(value instanceof Map)) throw new IllegalArgumentException(FIELD + " must be an object");
+        @SuppressWarnings("unchecked")
+        Map<String, Object> spec = (Map<String, Object>) value;
+        List<String> groupBy = strings(spec, "group_by");
+        List<AggregateSpec.Metric> metrics = new ArrayList<>();
+        for (String m : strings(spec, "metrics")) metrics.add(AggregateSpec.Metric.parse(m));
+        return new AggregateSpec(groupBy, metrics);
+    }
+
+    private static List<String> strings(Map<String, Object> spec, String key) {
+        Object value = spec.get(key);
+        List<String> out = new ArrayList<>();
+        if (value == null) return out;
+        if (!(value instanceof List)) throw new IllegalArgumentException(FIELD + "." + key + " must be an array of strings");
+        for (Object item : (List<?>) value) {
+            if (!(item instanceof String)) throw new IllegalArgumentException(FIELD + "." + key + " must be an array of strings");
+            out.add((String) item);
+        }
+        return out;
+    }
+}
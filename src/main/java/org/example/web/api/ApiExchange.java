@@ -0,0 +1,109 @@
+package org.example.web.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @file ApiExchange.java
+ * @brief Vista mínima de una petición/respuesta HTTP independiente del servidor.
+ *
+ * Los endpoints del middleware que no son /query se escriben una sola vez
+ * contra esta interfaz ({@link ApiHandler}) y cada servidor aporta su
+ * adaptador: {@code org.example.web.servlet.ApiServlet} para Jetty y
+ * {@code org.example.web.impl.ApiHttpHandler} para el HttpServer del JDK.
+ *
+ * Orden de uso: leer petición, fijar cabeceras con {@link #setResponseHeader}
+ * y por último {@link #sendResponse} para obtener el cuerpo de la respuesta.
+ */
+public interface ApiExchange {
+    /**
+     * @return método HTTP (GET, POST, ...)
+     */
+    String getMethod();
+
+    /**
+     * @return ruta de la petición sin query string (por ejemplo "/admin/slow-queries")
+     */
+    String getPath();
+
+    /**
+     * @param name nombre del parámetro de la query string
+     * @return valor decodificado o null si no existe
+     */
+    String getQueryParameter(String name);
+
+    /**
+     * @param name nombre de la cabecera (insensible a mayúsculas)
+     * @return valor de la cabecera o null si no existe
+     */
+    String getRequestHeader(String name);
+
+    /**
+     * @return dirección IP del cliente
+     */
+    String getRemoteAddress();
+
+    /**
+     * Clave de sesión para el enrutado "read-your-writes" de
+     * {@link org.example.db.DBClient#setSession(String)}: la cabecera
+     * X-Session-Id o, si no viene, la dirección del cliente.
+     *
+     * @return clave de sesión
+     */
+    default String getSessionKey() {
+        String session = getRequestHeader("X-Session-Id");
+        return session != null && !session.isEmpty() ? session : getRemoteAddress();
+    }
+
+    /**
+     * @return cuerpo de la petición como flujo (no se bufferiza en memoria)
+     * @throws IOException si falla la lectura
+     */
+    InputStream getRequestBody() throws IOException;
+
+    /**
+     * Añade una cabecera a la respuesta. Debe llamarse antes de {@link #sendResponse}.
+     *
+     * @param name nombre de la cabecera
+     * @param value valor
+     */
+    void setResponseHeader(String name, String value);
+
+    /**
+     * Envía el código de estado y las cabeceras, y devuelve el flujo del cuerpo.
+     * La longitud no se conoce de antemano: la respuesta se envía en streaming.
+     *
+     * @param status código HTTP
+     * @param contentType tipo de contenido
+     * @return flujo de salida del cuerpo (el adaptador lo cierra al terminar)
+     * @throws IOException si falla el envío
+     */
+    OutputStream sendResponse(int status, String contentType) throws IOException;
+
+    /**
+     * Atajo para responder con un cuerpo JSON ya construido.
+     *
+     * @param status código HTTP
+     * @param json cuerpo JSON
+     * @throws IOException si falla el envío
+     */
+    default void sendJson(int status, String json) throws IOException {
+        OutputStream out = sendResponse(status, "application/json; charset=utf-8");
+        out.write(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Separa la respuesta de la petición para seguir escribiéndola desde otro
+     * hilo (Server-Sent Events): el adaptador ya no la cierra al volver de
+     * {@link ApiHandler#handle} y el hilo del servidor queda libre. Debe
+     * llamarse después de {@link #sendResponse}.
+     *
+     * @return acción que cierra la respuesta cuando el emisor termina
+     * @throws UnsupportedOperationException si el servidor no lo admite
+     */
+    default Runnable detach() {
+        throw new UnsupportedOperationException("detached responses are not supported");
+    }
+}
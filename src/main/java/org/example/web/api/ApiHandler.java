@@ -0,0 +1,19 @@
+package org.example.web.api;
+
+import java.io.IOException;
+
+/**
+ * @file ApiHandler.java
+ * @brief Endpoint HTTP escrito contra {@link ApiExchange}, reutilizable por
+ *        ambos servidores (Jetty y HttpServer del JDK).
+ */
+@FunctionalInterface
+public interface ApiHandler {
+    /**
+     * Atiende una petición.
+     *
+     * @param exchange petición/respuesta
+     * @throws IOException si falla la E/S con el cliente
+     */
+    void handle(ApiExchange exchange) throws IOException;
+}
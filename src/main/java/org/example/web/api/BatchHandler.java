@@ -0,0 +1,151 @@
+package org.example.web.api;
+
+import org.example.db.AdmissionRejectedException;
+import org.example.db.BatchErrorMode;
+import org.example.db.BatchResult;
+import org.example.db.BatchStatement;
+import org.example.db.DBClient;
+import org.example.db.DBFactories;
+import org.example.db.Tenant;
+import org.example.db.utilities.ConnectionConfig;
+import org.example.web.json.JsonParseException;
+import org.example.web.json.JsonReader;
+import org.example.web.json.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @file BatchHandler.java
+ * @brief Endpoint POST /batch: ejecuta muchas sentencias en una petición,
+ *        con una sola conexión y en una sola transacción.
+ *
+ * Cuerpo:
+ * <pre>
+ * {"db":"postgres|mysql",
+ *  "on_error":"rollback|stop|continue",          (opcional, por defecto rollback)
+ *  "timeout_ms":5000,                            (opcional, ver {@link RequestDeadline})
+ *  "statements":["DELETE FROM t WHERE id = 1",
+ *                {"sql":"INSERT INTO t VALUES (?, ?)","params":[2,"b"]}]}
+ * </pre>
+ * Respuesta (200):
+ * <pre>
+ * {"committed":true,"results":[{"index":0,"status":"ok","update_count":1},
+ *                              {"index":1,"status":"ok","rows":[...]}, ...]}
+ * </pre>
+ * Estados: ok, rolled_back, error (con "error") y skipped; ver
+ * {@link BatchErrorMode} para la semántica de cada modo. Una petición mal
+ * formada devuelve 400, un plazo vencido 504, un rechazo del control de
+ * admisión 503 (con Retry-After) y un fallo de conexión o de la transacción, 500.
+ */
+public class BatchHandler implements ApiHandler {
+    private static final int MAX_STATEMENTS =
+            ConnectionConfig.getConfigValueAsInt("BATCH_MAX_STATEMENTS", "BATCH_MAX_STATEMENTS", 10000);
+
+    @Override
+    public void handle(ApiExchange exchange) throws IOException {
+        if (!"POST".equalsIgnoreCase(exchange.getMethod())) {
+            exchange.sendJson(405, "{\"error\":\"method not allowed\"}");
+            return;
+        }
+        String db;
+        BatchErrorMode mode;
+        List<BatchStatement> statements;
+        long timeout;
+        try {
+            Map<String, Object> body = JsonReader.parseObject(exchange.getRequestBody(), JsonReader.DEFAULT_MAX_BYTES);
+            db = JsonReader.getString(body, "db");
+            mode = BatchErrorMode.parse(JsonReader.getString(body, "on_error"));
+            statements = parseStatements(body.get("statements"));
+            timeout = RequestDeadline.timeoutMillis(body, exchange.getRequestHeader(RequestDeadline.HEADER));
+        } catch (JsonParseException e) {
+            sendError(exchange, e.isTooLarge() ? 413 : 400, e.getMessage());
+            return;
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+            return;
+        }
+        if (db == null) {
+            sendError(exchange, 400, "invalid request");
+            return;
+        }
+
+        DBClient client = new DBClient(DBFactories.forName(db), "web-batch");
+        client.setSession(exchange.getSessionKey());
+        if (timeout > 0) client.setTimeout(timeout);
+        Tenant tenant = Tenant.resolve(exchange.getRequestHeader("X-Api-Key"), exchange.getRequestHeader("X-Tenant-Id"));
+        client.setTenant(tenant, tenant.priority(exchange.getRequestHeader("X-Priority")));
+        List<BatchResult> results;
+        try {
+            client.connect();
+            results = client.executeBatch(statements, mode);
+        } catch (AdmissionRejectedException e) {
+            exchange.setResponseHeader("Retry-After", String.valueOf(e.getRetryAfterSeconds()));
+            sendError(exchange, 503, e.getMessage());
+            return;
+        } catch (Exception e) {
+            sendError(exchange, RequestDeadline.errorStatus(e), String.valueOf(e.getMessage()));
+            return;
+        } finally {
+            try { client.disconnect(); } catch (Exception ignored) {}
+        }
+
+        boolean committed = true;
+        for (BatchResult r : results) {
+            if (r.getStatus() == BatchResult.Status.ROLLED_BACK
+                    || (mode == BatchErrorMode.ROLLBACK && r.getStatus() == BatchResult.Status.ERROR)) {
+                committed = false;
+                break;
+            }
+        }
+        try (JsonWriter w = new JsonWriter(exchange.sendResponse(200, "application/json; charset=utf-8"))) {
+            w.beginObject().name("committed").value(committed).name("results").beginArray();
+            for (BatchResult r : results) {
+                w.beginObject()
+                        .name("index").value(r.getIndex())
+                        .name("status").value(r.getStatus().name().toLowerCase());
+                if (r.getRows() != null) {
+                    w.name("rows").value(r.getRows());
+                } else if (r.getUpdateCount() >= 0) {
+                    w.name("update_count").value(r.getUpdateCount());
+                }
+                if (r.getError() != null) w.name("error").value(r.getError());
+                w.endObject();
+            }
+            w.endArray().endObject();
+        }
+    }
+
+    private static List<BatchStatement> parseStatements(Object value) {
+        if (!(value instanceof List) || ((List<?>) value).isEmpty()) {
+            throw new IllegalArgumentException("statements must be a non-empty array");
+        }
+        List<?> list = (List<?>) value;
+        if (list.size() > MAX_STATEMENTS) {
+            throw new IllegalArgumentException("too many statements (max " + MAX_STATEMENTS + ")");
+        }
+        List<BatchStatement> statements = new ArrayList<>(list.size());
+        for (Object item : list) {
+            if (item instanceof String) {
+                statements.add(new BatchStatement((String) item));
+            } else if (item instanceof Map) {
+                Map<?, ?> m = (Map<?, ?>) item;
+                Object sql = m.get("sql");
+                Object params = m.get("params");
+                if (!(sql instanceof String)) throw new IllegalArgumentException("statement without sql");
+                if (params != null && !(params instanceof List)) throw new IllegalArgumentException("params must be an array");
+                statements.add(new BatchStatement((String) sql, (List<?>) params));
+            } else {
+                throw new IllegalArgumentException("statements must be strings or {sql, params} objects");
+            }
+        }
+        return statements;
+    }
+
+    private static void sendError(ApiExchange exchange, int status, String message) throws IOException {
+        exchange.sendJson(status, JsonWriter.toJson(Collections.singletonMap("error", message)));
+    }
+}
@@ -0,0 +1,184 @@
+package org.example.web.api;
+
+import org.example.db.utilities.ConnectionConfig;
+import org.example.db.utilities.Log;
+import org.example.db.utilities.LogLevel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * @file EventHub.java
+ * @brief Reparto de eventos a los clientes conectados por Server-Sent Events.
+ *
+ * Cada cliente es la respuesta abierta de una petición (ver
+ * {@link ApiExchange#detach()}) con un filtro de temas, una cola acotada
+ * (EVENTS_CLIENT_QUEUE eventos) y un hilo propio ("sse-client-N") que la
+ * escribe en orden. Quien publica ({@link #publish}, {@link #send}) sólo
+ * encola, así que nunca espera a la red, y un cliente lento sólo se retrasa
+ * a sí mismo: si su cola se llena se le da de baja (el navegador reconecta
+ * y vuelve a empezar) y su respuesta se cierra en otro hilo, lo que además
+ * desbloquea una escritura detenida. Un cliente que falla al escribir (se
+ * desconectó) también se da de baja.
+ *
+ * Cada EVENTS_HEARTBEAT_MS sin eventos para un cliente se le envía un
+ * comentario para que los proxies no corten la conexión y para detectar
+ * clientes caídos. Como máximo hay EVENTS_MAX_CLIENTS clientes a la vez.
+ *
+ * Formato de cada evento: {@code event: <nombre>\ndata: <json>\n\n}.
+ */
+public final class EventHub {
+    private static final int MAX_CLIENTS =
+            ConnectionConfig.getConfigValueAsInt("EVENTS_MAX_CLIENTS", "EVENTS_MAX_CLIENTS", 256);
+    private static final long HEARTBEAT_MS =
+            ConnectionConfig.getConfigValueAsInt("EVENTS_HEARTBEAT_MS", "EVENTS_HEARTBEAT_MS", 15000);
+    private static final int CLIENT_QUEUE = Math.max(1,
+            ConnectionConfig.getConfigValueAsInt("EVENTS_CLIENT_QUEUE", "EVENTS_CLIENT_QUEUE", 256));
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.US_ASCII);
+    private static final EventHub INSTANCE = new EventHub();
+
+    /** Cliente suscrito: respuesta abierta, temas que le interesan y eventos pendientes. */
+    public static final class Client {
+        private final OutputStream out;
+        private final Predicate<String> topics;
+        private final Runnable onClose;
+        private final BlockingQueue<byte[]> pending = new ArrayBlockingQueue<>(CLIENT_QUEUE);
+        private volatile boolean open = true;
+
+        private Client(OutputStream out, Predicate<String> topics, Runnable onClose) {
+            this.out = out;
+            this.topics = topics;
+            this.onClose = onClose;
+        }
+
+        /** @return false cuando el cliente se dio de baja */
+        public boolean isOpen() {
+            return open;
+        }
+    }
+
+    private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger threadIds = new AtomicInteger();
+    /** Cierra las respuestas de los clientes que se quedan atrás sin bloquear a quien publica. */
+    private final ExecutorService closer = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "sse-close");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private EventHub() {
+    }
+
+    /** @return instancia del proceso */
+    public static EventHub getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param out cuerpo de la respuesta, con las cabeceras ya enviadas
+     * @param topics temas que recibe el cliente
+     * @param onClose cierra la respuesta al darse de baja
+     * @return cliente, o null si ya hay EVENTS_MAX_CLIENTS
+     */
+    public Client register(OutputStream out, Predicate<String> topics, Runnable onClose) {
+        if (clients.size() >= MAX_CLIENTS) return null;
+        Client client = new Client(out, topics, onClose);
+        clients.add(client);
+        Thread t = new Thread(() -> drain(client), "sse-client-" + threadIds.incrementAndGet());
+        t.setDaemon(true);
+        t.start();
+        Log.sampled(LogLevel.DEBUG, "sse", () -> "Client registered (" + clients.size() + " open)");
+        return client;
+    }
+
+    /**
+     * Encola un evento para los clientes suscritos al tema.
+     *
+     * @param topic tema
+     * @param event nombre del evento
+     * @param json datos (JSON en una línea)
+     */
+    public void publish(String topic, String event, String json) {
+        byte[] frame = null;
+        for (Client c : clients) {
+            if (!c.topics.test(topic)) continue;
+            if (frame == null) frame = frame(event, json);
+            offer(c, frame);
+        }
+    }
+
+    /**
+     * Encola un evento sólo para un cliente, en orden con los publicados.
+     *
+     * @param client destinatario
+     * @param event nombre del evento
+     * @param json datos (JSON en una línea)
+     */
+    public void send(Client client, String event, String json) {
+        if (client.open) offer(client, frame(event, json));
+    }
+
+    /** Encola para el cliente; si su cola está llena, se le da de baja. */
+    private void offer(Client c, byte[] frame) {
+        if (c.pending.offer(frame) || !c.open) return;
+        c.open = false;
+        Log.sampled(LogLevel.WARN, "sse", () -> "Client fell " + CLIENT_QUEUE + " events behind; disconnecting it");
+        closer.execute(() -> close(c));
+    }
+
+    /**
+     * Da de baja un cliente y cierra su respuesta.
+     *
+     * @param client cliente
+     */
+    public void close(Client client) {
+        if (!clients.remove(client)) return;
+        client.open = false;
+        try {
+            client.onClose.run();
+        } catch (RuntimeException e) {
+            Log.sampled(LogLevel.DEBUG, "sse", () -> "Close failed: " + e.getMessage());
+        }
+    }
+
+    /** @return máximo de clientes a la vez (EVENTS_MAX_CLIENTS) */
+    public static int maxClients() {
+        return MAX_CLIENTS;
+    }
+
+    /** @return clientes conectados */
+    public int clientCount() {
+        return clients.size();
+    }
+
+    /** Hilo del cliente: escribe su cola en orden y un latido si no hay eventos. */
+    private void drain(Client c) {
+        try {
+            while (c.open) {
+                byte[] frame = c.pending.poll(HEARTBEAT_MS, TimeUnit.MILLISECONDS);
+                if (!c.open) break;
+                c.out.write(frame == null ? HEARTBEAT : frame);
+                c.out.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            Log.sampled(LogLevel.DEBUG, "sse", () -> "Write failed, dropping client: " + e.getMessage());
+        }
+        close(c);
+    }
+
+    private static byte[] frame(String event, String json) {
+        return ("event: " + event + "\ndata: " + json + "\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.web.api;
+
+import org.example.db.postgres.PgNotification;
+import org.example.db.postgres.PgNotificationListener;
+import org.example.web.json.JsonWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+/**
+ * @file EventsHandler.java
+ * @brief Endpoint GET /events: Server-Sent Events con las notificaciones
+ *        LISTEN/NOTIFY de Postgres ({@link PgNotificationListener}).
+ *
+ * - GET /events: todas las notificaciones.
+ * - GET /events?channel=a,b: sólo las de esos canales.
+ *
+ * Eventos:
+ * - {@code notify}: {"channel":..,"payload":..,"pid":..}
+ * - {@code resync}: el listener se reconectó y pudieron perderse
+ *   notificaciones; el cliente debe volver a consultar lo que muestre.
+ *
+ * La respuesta queda abierta y la escribe {@link EventHub}; el hilo del
+ * servidor se libera en cuanto el cliente queda registrado. Responde 503 si
+ * ya hay EVENTS_MAX_CLIENTS clientes.
+ */
+public class EventsHandler implements ApiHandler {
+    private static final AtomicBoolean BRIDGED = new AtomicBoolean();
+    private static final byte[] PREAMBLE = ": connected\n\nretry: 3000\n\n".getBytes(StandardCharsets.US_ASCII);
+
+    public EventsHandler() {
+        PgNotificationListener listener = PgNotificationListener.start();
+        if (listener != null && BRIDGED.compareAndSet(false, true)) {
+            EventHub hub = EventHub.getInstance();
+            listener.addListener(new PgNotificationListener.Listener() {
+                @Override
+                public void onNotification(PgNotification n) {
+                    Map<String, Object> data = new LinkedHashMap<>();
+                    data.put("channel", n.getChannel());
+                    data.put("payload", n.getPayload());
+                    data.put("pid", n.getPid());
+                    hub.publish("notify:" + n.getChannel(), "notify", JsonWriter.toJson(data));
+                }
+
+                @Override
+                public void onResync() {
+                    hub.publish("resync", "resync", "{}");
+                }
+            });
+        }
+    }
+
+    @Override
+    public void handle(ApiExchange exchange) throws IOException {
+        if (!"GET".equalsIgnoreCase(exchange.getMethod())) {
+            exchange.sendJson(405, "{\"error\":\"method not allowed\"}");
+            return;
+        }
+        EventHub hub = EventHub.getInstance();
+        if (hub.clientCount() >= EventHub.maxClients()) {
+            exchange.sendJson(503, "{\"error\":\"too many event subscribers\"}");
+            return;
+        }
+        String channel = exchange.getQueryParameter("channel");
+        Set<String> channels = channel == null || channel.isEmpty() ? null : new HashSet<>(Arrays.asList(channel.split(",")));
+        Predicate<String> topics = t -> t.equals("resync")
+                || t.startsWith("notify:") && (channels == null || channels.contains(t.substring("notify:".length())));
+
+        exchange.setResponseHeader("Cache-Control", "no-cache");
+        exchange.setResponseHeader("X-Accel-Buffering", "no");
+        OutputStream out = exchange.sendResponse(200, "text/event-stream; charset=utf-8");
+        out.write(PREAMBLE);
+        out.flush();
+        Runnable closer = exchange.detach();
+        if (hub.register(out, topics, closer) == null) closer.run();
+    }
+}
@@ -0,0 +1,168 @@
+package org.example.web.api;
+
+import org.example.db.BulkExporter;
+import org.example.db.BulkFormat;
+import org.example.db.DBClient;
+import org.example.db.DBConnection;
+import org.example.db.DBFactories;
+import org.example.db.utilities.Log;
+import org.example.web.json.JsonWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * @file ExportHandler.java
+ * @brief Endpoint GET /export: exportación masiva de una tabla o consulta
+ *        en CSV/TSV directamente desde el servidor de base de datos.
+ *
+ * Parámetros (query string):
+ * - db: postgres (el único proveedor con {@link BulkExporter} por ahora)
+ * - table: tabla a exportar, o bien
+ * - sql: consulta SELECT a exportar (una sola sentencia de lectura, sin comentarios)
+ * - format: csv (por defecto) | tsv
+ * - header: true para incluir la línea de cabecera
+ * - gzip: true/false; si no se indica, se comprime cuando Accept-Encoding incluye gzip
+ *
+ * Las filas no se interpretan: los bytes que envía el servidor se copian a la
+ * respuesta a medida que llegan. La respuesta se abre con el primer byte, así
+ * que un error antes de recibir datos (tabla inexistente, SQL inválido) se
+ * devuelve como 500 con JSON; un error a mitad de exportación sólo puede
+ * cortar la respuesta.
+ *
+ * Si el cliente HTTP se desconecta a mitad de exportación, la sentencia se
+ * cancela en el servidor ({@link DBConnection#cancel()}) en lugar de dejar
+ * que termine de generar datos que nadie va a leer.
+ */
+public class ExportHandler implements ApiHandler {
+    @Override
+    public void handle(ApiExchange exchange) throws IOException {
+        if (!"GET".equalsIgnoreCase(exchange.getMethod())) {
+            exchange.sendJson(405, "{\"error\":\"method not allowed\"}");
+            return;
+        }
+        String db = exchange.getQueryParameter("db");
+        String table = exchange.getQueryParameter("table");
+        String sql = exchange.getQueryParameter("sql");
+        BulkFormat format;
+        try {
+            format = BulkFormat.parse(exchange.getQueryParameter("format"));
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+            return;
+        }
+        if (db == null || (table == null && sql == null)) {
+            sendError(exchange, 400, "db and table or sql are required");
+            return;
+        }
+        boolean header = Boolean.parseBoolean(exchange.getQueryParameter("header"));
+        String gzipParam = exchange.getQueryParameter("gzip");
+        String acceptEncoding = exchange.getRequestHeader("Accept-Encoding");
+        boolean gzip = gzipParam != null
+                ? Boolean.parseBoolean(gzipParam)
+                : acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+
+        DBClient client = new DBClient(DBFactories.forName(db), "web-export");
+        LazyResponse response = new LazyResponse(exchange, format, gzip);
+        DBConnection conn = null;
+        try {
+            client.connect();
+            conn = client.getConnection();
+            if (!(conn instanceof BulkExporter)) {
+                sendError(exchange, 501, "bulk export not supported for " + db);
+                return;
+            }
+            ((BulkExporter) conn).bulkExport(table, sql, format, header, response);
+            response.finish();
+        } catch (IllegalArgumentException e) {
+            if (!response.isOpen()) sendError(exchange, 400, e.getMessage());
+        } catch (Exception e) {
+            if (!response.isOpen()) {
+                sendError(exchange, 500, String.valueOf(e.getMessage()));
+            } else if (response.isClientGone()) {
+                Log.info("export", "Client disconnected during export; cancelling query");
+                conn.cancel();
+            } else {
+                // Cabeceras ya enviadas: sólo se puede cortar la respuesta
+                Log.warn("export", "Export aborted after headers were sent: " + e.getMessage());
+            }
+        } finally {
+            try { client.disconnect(); } catch (Exception ignored) {}
+        }
+    }
+
+    private static void sendError(ApiExchange exchange, int status, String message) throws IOException {
+        exchange.sendJson(status, JsonWriter.toJson(Collections.singletonMap("error", message)));
+    }
+
+    /**
+     * Flujo que abre la respuesta HTTP (200 + cabeceras) en la primera
+     * escritura, para poder responder con un error mientras no haya datos.
+     */
+    private static final class LazyResponse extends OutputStream {
+        private final ApiExchange exchange;
+        private final BulkFormat format;
+        private final boolean gzip;
+        private OutputStream target;
+        private boolean clientGone;
+
+        LazyResponse(ApiExchange exchange, BulkFormat format, boolean gzip) {
+            this.exchange = exchange;
+            this.format = format;
+            this.gzip = gzip;
+        }
+
+        boolean isOpen() {
+            return target != null;
+        }
+
+        /** @return true si falló una escritura en la respuesta ya abierta */
+        boolean isClientGone() {
+            return clientGone;
+        }
+
+        private OutputStream open() throws IOException {
+            if (target == null) {
+                if (gzip) exchange.setResponseHeader("Content-Encoding", "gzip");
+                String extension = format == BulkFormat.CSV ? "csv" : "tsv";
+                exchange.setResponseHeader("Content-Disposition", "attachment; filename=\"export." + extension + (gzip ? ".gz" : "") + "\"");
+                OutputStream body = exchange.sendResponse(200, format == BulkFormat.CSV
+                        ? "text/csv; charset=utf-8"
+                        : "text/tab-separated-values; charset=utf-8");
+                target = gzip ? new GZIPOutputStream(body, 64 * 1024) : body;
+            }
+            return target;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            OutputStream o = open();
+            try {
+                o.write(b);
+            } catch (IOException e) {
+                clientGone = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            OutputStream o = open();
+            try {
+                o.write(b, off, len);
+            } catch (IOException e) {
+                clientGone = true;
+                throw e;
+            }
+        }
+
+        /** Abre la respuesta aunque no haya datos y completa el gzip. */
+        void finish() throws IOException {
+            OutputStream o = open();
+            if (o instanceof GZIPOutputStream) ((GZIPOutputStream) o).finish();
+            o.flush();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.web.api;
+
+import org.example.db.BulkFormat;
+import org.example.db.BulkLoader;
+import org.example.db.DBClient;
+import org.example.db.DBConnection;
+import org.example.db.DBFactories;
+import org.example.web.json.JsonWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @file IngestHandler.java
+ * @brief Endpoint POST /ingest: carga masiva de un cuerpo CSV/TSV en una tabla.
+ *
+ * Parámetros (query string):
+ * - db: postgres | mysql
+ * - table: tabla de destino (admite "esquema.tabla")
+ * - format: csv (por defecto) | tsv
+ * - header: true si la primera línea es una cabecera (por defecto false)
+ * - columns: lista de columnas separadas por comas (opcional)
+ *
+ * El cuerpo de la petición se pasa directamente a {@link BulkLoader#bulkLoad}
+ * según se recibe, sin leerlo entero en memoria (COPY FROM STDIN en Postgres,
+ * LOAD DATA LOCAL INFILE en MySQL). Respuesta:
+ * {"table":"...","rows":N}. 400 si faltan parámetros, 501 si el proveedor no
+ * admite carga masiva y 500 si la carga falla (la tabla queda sin cambios).
+ * Una carga correcta invalida la copia en memoria de la tabla y se avisa a
+ * las consultas en vivo que la leen (ver {@link DBClient#markWrite(String)}).
+ */
+public class IngestHandler implements ApiHandler {
+    @Override
+    public void handle(ApiExchange exchange) throws IOException {
+        if (!"POST".equalsIgnoreCase(exchange.getMethod())) {
+            exchange.sendJson(405, "{\"error\":\"method not allowed\"}");
+            return;
+        }
+        String db = exchange.getQueryParameter("db");
+        String table = exchange.getQueryParameter("table");
+        BulkFormat format;
+        try {
+            format = BulkFormat.parse(exchange.getQueryParameter("format"));
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+            return;
+        }
+        if (db == null || table == null || table.trim().isEmpty()) {
+            sendError(exchange, 400, "db and table are required");
+            return;
+        }
+        boolean header = Boolean.parseBoolean(exchange.getQueryParameter("header"));
+        List<String> columns = parseColumns(exchange.getQueryParameter("columns"));
+
+        DBClient client = new DBClient(DBFactories.forName(db), "web-ingest");
+        client.setSession(exchange.getSessionKey());
+        long rows;
+        try {
+            client.connect();
+            DBConnection conn = client.getConnection();
+            if (!(conn instanceof BulkLoader)) {
+                sendError(exchange, 501, "bulk load not supported for " + db);
+                return;
+            }
+            try (InputStream body = exchange.getRequestBody()) {
+                rows = ((BulkLoader) conn).bulkLoad(table, columns, format, header, body);
+            }
+            client.markWrite(table);
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+            return;
+        } catch (Exception e) {
+            sendError(exchange, 500, String.valueOf(e.getMessage()));
+            return;
+        } finally {
+            try { client.disconnect(); } catch (Exception ignored) {}
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("table", table);
+        body.put("rows", rows);
+        exchange.sendJson(200, JsonWriter.toJson(body));
+    }
+
+    private static List<String> parseColumns(String value) {
+        List<String> columns = new ArrayList<>();
+        if (value == null) return columns;
+        for (String c : value.split(",")) {
+            if (!c.trim().isEmpty()) columns.add(c.trim());
+        }
+        return columns;
+    }
+
+    private static void sendError(ApiExchange exchange, int status, String message) throws IOException {
+        exchange.sendJson(status, JsonWriter.toJson(Collections.singletonMap("error", message)));
+    }
+}
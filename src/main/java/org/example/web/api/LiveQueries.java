@@ -0,0 +1,363 @@
+package org.example.web.api;
+
+import org.example.db.DBClient;
+import org.example.db.DBFactories;
+import org.example.db.DBFactory;
+import org.example.db.Tenant;
+import org.example.db.WriteEvents;
+import org.example.db.postgres.PgNotification;
+import org.example.db.postgres.PgNotificationListener;
+import org.example.db.utilities.ConnectionConfig;
+import org.example.db.utilities.Log;
+import org.example.db.utilities.LogLevel;
+import org.example.web.json.JsonWriter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @file LiveQueries.java
+ * @brief Consultas en vivo: un SELECT que se recalcula en el servidor y del
+ *        que los clientes reciben sólo las filas que cambian.
+ *
+ * Cada consulta registrada guarda en memoria su último resultado como JSON
+ * por fila, indexado por la clave (columnas de la clave primaria). Al
+ * recalcularla se compara fila a fila con el resultado anterior y se publica
+ * en {@link EventHub} (tema "query:&lt;id&gt;") un evento {@code diff} con las
+ * filas insertadas, las modificadas y las claves de las borradas; si nada
+ * cambió no se envía nada. Los suscriptores de la misma consulta (mismo
+ * proveedor, SQL y clave) la comparten: se ejecuta una vez por recálculo
+ * sea cual sea el número de clientes.
+ *
+ * Se recalcula:
+ * - cada intervalo (el que pidió el primer suscriptor; 0 = sólo al invalidar),
+ * - al escribir a través del middleware en una tabla que lee ({@link WriteEvents}),
+ * - con un NOTIFY de Postgres que nombra una de sus tablas en el canal o en
+ *   la carga, y tras reconectar el listener ({@link PgNotificationListener}).
+ *
+ * Las tablas que lee se toman de las cláusulas FROM/JOIN del SQL. Los
+ * recálculos de una consulta no se solapan y las peticiones que llegan
+ * mientras hay uno pendiente se funden en él. La consulta se da de baja con
+ * su último suscriptor. Cada ejecución corre en el primario dentro de una
+ * transacción READ ONLY ({@link DBClient#executeReadOnly}), así que una
+ * escritura que pasara los filtros de /live fallaría en el servidor.
+ *
+ * Configuración (ENV > db.properties > defecto):
+ * - LIVE_QUERY_INTERVAL_MS: intervalo por defecto (5000)
+ * - LIVE_QUERY_MIN_INTERVAL_MS: intervalo mínimo que se puede pedir (500)
+ * - LIVE_QUERY_MAX_ROWS: filas máximas del resultado (50000)
+ * - LIVE_QUERY_MAX: consultas distintas a la vez (64)
+ * - LIVE_QUERY_THREADS: hilos que recalculan (2)
+ */
+public final class LiveQueries {
+    static final long DEFAULT_INTERVAL_MS =
+            ConnectionConfig.getConfigValueAsInt("LIVE_QUERY_INTERVAL_MS", "LIVE_QUERY_INTERVAL_MS", 5000);
+    private static final long MIN_INTERVAL_MS =
+            ConnectionConfig.getConfigValueAsInt("LIVE_QUERY_MIN_INTERVAL_MS", "LIVE_QUERY_MIN_INTERVAL_MS", 500);
+    private static final int MAX_ROWS =
+            ConnectionConfig.getConfigValueAsInt("LIVE_QUERY_MAX_ROWS", "LIVE_QUERY_MAX_ROWS", 50000);
+    private static final int MAX_QUERIES =
+            ConnectionConfig.getConfigValueAsInt("LIVE_QUERY_MAX", "LIVE_QUERY_MAX", 64);
+    private static final int THREADS = Math.max(1,
+            ConnectionConfig.getConfigValueAsInt("LIVE_QUERY_THREADS", "LIVE_QUERY_THREADS", 2));
+    private static final Pattern TABLE_REF = Pattern.compile(
+            "\\b(?:from|join)\\s+((?:\"[^\"]+\"|[\\w$]+)(?:\\.(?:\"[^\"]+\"|[\\w$]+))?)",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern WORD = Pattern.compile("[\\p{L}_][\\w$]*(?:\\.[\\p{L}_][\\w$]*)?");
+    private static final LiveQueries INSTANCE = new LiveQueries();
+
+    /** Consulta registrada y su último resultado. */
+    public static final class Query {
+        private final long id;
+        private final String registryKey;
+        private final String provider;
+        private final String sql;
+        private final List<String> key;
+        private final Set<String> tables;
+        private final String topic;
+        private final AtomicInteger subscribers = new AtomicInteger();
+        private final AtomicBoolean queued = new AtomicBoolean();
+        private final Object refreshLock = new Object();
+        private volatile ScheduledFuture<?> periodic;
+        // Protegidos por this
+        private Map<String, String> snapshot; // JSON de la clave → JSON de la fila, en el orden del resultado
+        private long version;
+        private RuntimeException loadError;
+
+        private Query(long id, String registryKey, String provider, String sql, List<String> key) {
+            this.id = id;
+            this.registryKey = registryKey;
+            this.provider = provider;
+            this.sql = sql;
+            this.key = key;
+            this.tables = tablesRead(sql);
+            this.topic = "query:" + id;
+        }
+
+        /** @return identificador (el tema de sus eventos es "query:&lt;id&gt;") */
+        public long getId() { return id; }
+
+        /** @return tema de sus eventos en {@link EventHub} */
+        public String getTopic() { return topic; }
+
+        /**
+         * @return evento {@code snapshot} con el resultado actual:
+         *         {"id":..,"version":..,"key":[..],"rows":[..]}
+         */
+        public synchronized String snapshotJson() {
+            StringBuilder sb = new StringBuilder(64 + snapshot.size() * 64);
+            sb.append("{\"id\":").append(id).append(",\"version\":").append(version)
+                    .append(",\"key\":").append(JsonWriter.toJson(key)).append(",\"rows\":[");
+            boolean first = true;
+            for (String row : snapshot.values()) {
+                if (!first) sb.append(',');
+                sb.append(row);
+                first = false;
+            }
+            return sb.append("]}").toString();
+        }
+
+        /** Primera carga, en el hilo del primer suscriptor; los demás esperan a que termine. */
+        private synchronized void ensureLoaded() {
+            if (loadError != null) throw loadError;
+            if (snapshot != null) return;
+            try {
+                snapshot = index(fetch());
+            } catch (RuntimeException e) {
+                loadError = e;
+                throw e;
+            }
+        }
+
+        private List<Map<String, Object>> fetch() {
+            DBClient client = new DBClient(DBFactories.forName(provider), "live-query");
+            // Los recálculos no deben quitar huecos a las consultas interactivas
+            client.setTenant(Tenant.DEFAULT, Tenant.Priority.BATCH);
+            try {
+                client.connect();
+                List<Map<String, Object>> rows = client.executeReadOnly(sql);
+                if (rows.size() > MAX_ROWS) {
+                    throw new IllegalArgumentException("live query returned more than " + MAX_ROWS + " rows");
+                }
+                return rows;
+            } finally {
+                try { client.disconnect(); } catch (Exception ignored) {}
+            }
+        }
+
+        /** Resultado como JSON por fila, indexado por el JSON de la clave. */
+        private Map<String, String> index(List<Map<String, Object>> rows) {
+            Map<String, String> result = new LinkedHashMap<>(rows.size() * 4 / 3 + 1);
+            String[] columns = null;
+            for (Map<String, Object> row : rows) {
+                if (columns == null) columns = keyColumns(row);
+                Map<String, Object> k = new LinkedHashMap<>();
+                for (int i = 0; i < columns.length; i++) k.put(key.get(i), row.get(columns[i]));
+                String rowKey = JsonWriter.toJson(k);
+                if (result.put(rowKey, JsonWriter.toJson(row)) != null) {
+                    throw new IllegalArgumentException("key " + rowKey + " is not unique in the result");
+                }
+            }
+            return result;
+        }
+
+        private String[] keyColumns(Map<String, Object> row) {
+            String[] columns = new String[key.size()];
+            for (int i = 0; i < columns.length; i++) {
+                String col = key.get(i);
+                if (!row.containsKey(col)) {
+                    for (String k : row.keySet()) if (k.equalsIgnoreCase(col)) col = k;
+                }
+                if (!row.containsKey(col)) throw new IllegalArgumentException("key column \"" + key.get(i) + "\" is not in the result");
+                columns[i] = col;
+            }
+            return columns;
+        }
+
+        /** Pide un recálculo; si ya hay uno pendiente, se funde con él. */
+        private void requestRefresh() {
+            if (queued.compareAndSet(false, true)) INSTANCE.scheduler.execute(this::refresh);
+        }
+
+        private void refresh() {
+            queued.set(false);
+            if (subscribers.get() == 0) return;
+            synchronized (refreshLock) {
+                Map<String, String> next;
+                try {
+                    next = index(fetch());
+                } catch (RuntimeException e) {
+                    Log.sampled(LogLevel.WARN, "live-query", () -> "Refresh of query " + id + " failed: " + e.getMessage());
+                    EventHub.getInstance().publish(topic, "query-error",
+                            JsonWriter.toJson(Collections.singletonMap("error", String.valueOf(e.getMessage()))));
+                    return;
+                }
+                synchronized (this) {
+                    if (snapshot == null) return; // la primera carga falló
+                    String diff = diff(snapshot, next, version + 1);
+                    snapshot = next;
+                    if (diff == null) return;
+                    version++;
+                    // Bajo el cerrojo: un suscriptor nuevo recibe su snapshot antes o después de este diff, nunca en medio
+                    EventHub.getInstance().publish(topic, "diff", diff);
+                }
+            }
+        }
+
+        /** @return evento {@code diff}, o null si no cambió nada */
+        private String diff(Map<String, String> before, Map<String, String> after, long newVersion) {
+            StringBuilder inserted = new StringBuilder();
+            StringBuilder updated = new StringBuilder();
+            StringBuilder deleted = new StringBuilder();
+            for (Map.Entry<String, String> e : after.entrySet()) {
+                String old = before.get(e.getKey());
+                if (old == null) append(inserted, e.getValue());
+                else if (!old.equals(e.getValue())) append(updated, e.getValue());
+            }
+            for (String k : before.keySet()) if (!after.containsKey(k)) append(deleted, k);
+            if (inserted.length() == 0 && updated.length() == 0 && deleted.length() == 0) return null;
+            return "{\"id\":" + id + ",\"version\":" + newVersion
+                    + ",\"inserted\":[" + inserted + "],\"updated\":[" + updated + "],\"deleted\":[" + deleted + "]}";
+        }
+
+        private static void append(StringBuilder sb, String json) {
+            if (sb.length() > 0) sb.append(',');
+            sb.append(json);
+        }
+
+        /** @return true si el texto (SQL de una escritura, canal o carga de un NOTIFY) nombra una tabla que lee */
+        private boolean mentionedIn(String text) {
+            Matcher m = WORD.matcher(text);
+            while (m.find()) {
+                String word = m.group().toLowerCase(Locale.ROOT);
+                if (tables.contains(word) || tables.contains(word.substring(word.lastIndexOf('.') + 1))) return true;
+            }
+            return false;
+        }
+    }
+
+    private final Map<String, Query> queries = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    private LiveQueries() {
+        AtomicInteger n = new AtomicInteger();
+        scheduler = new ScheduledThreadPoolExecutor(THREADS, r -> {
+            Thread t = new Thread(r, "live-query-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        WriteEvents.addListener(this::changed);
+        PgNotificationListener listener = PgNotificationListener.start();
+        if (listener != null) {
+            listener.addListener(new PgNotificationListener.Listener() {
+                @Override
+                public void onNotification(PgNotification n) {
+                    changed("postgres", n.getChannel() + " " + n.getPayload());
+                }
+
+                @Override
+                public void onResync() {
+                    for (Query q : queries.values()) if (q.provider.equals("postgres")) q.requestRefresh();
+                }
+            });
+        }
+    }
+
+    /** @return registro del proceso */
+    public static LiveQueries getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Suscribe a una consulta, registrándola y ejecutándola si es nueva. Cada
+     * llamada que termina bien debe emparejarse con {@link #release(Query)}.
+     *
+     * @param db proveedor ("postgres", "mysql" o "memory")
+     * @param sql SELECT
+     * @param key columnas de la clave de cada fila
+     * @param intervalMs periodo de recálculo (0 = sólo al invalidar); se sube a LIVE_QUERY_MIN_INTERVAL_MS
+     * @return consulta con su resultado inicial ya cargado
+     * @throws IllegalStateException si ya hay LIVE_QUERY_MAX consultas
+     * @throws IllegalArgumentException si el resultado es demasiado grande o la clave no vale
+     * @throws RuntimeException si la consulta falla
+     */
+    public Query subscribe(String db, String sql, List<String> key, long intervalMs) {
+        DBFactory factory = DBFactories.forName(db);
+        String provider = factory.getName();
+        String registryKey = provider + '\n' + key + '\n' + sql;
+        Query q;
+        synchronized (this) {
+            q = queries.get(registryKey);
+            if (q == null) {
+                if (queries.size() >= MAX_QUERIES) throw new IllegalStateException("too many live queries");
+                q = new Query(ids.incrementAndGet(), registryKey, provider, sql, Collections.unmodifiableList(new ArrayList<>(key)));
+                queries.put(registryKey, q);
+                if (intervalMs > 0) {
+                    long every = Math.max(MIN_INTERVAL_MS, intervalMs);
+                    Query query = q;
+                    q.periodic = scheduler.scheduleWithFixedDelay(query::requestRefresh, every, every, TimeUnit.MILLISECONDS);
+                }
+            }
+            q.subscribers.incrementAndGet();
+        }
+        try {
+            q.ensureLoaded();
+        } catch (RuntimeException e) {
+            release(q);
+            throw e;
+        }
+        return q;
+    }
+
+    /**
+     * Da de baja un suscriptor; con el último se olvida la consulta.
+     *
+     * @param q consulta devuelta por {@link #subscribe}
+     */
+    public synchronized void release(Query q) {
+        if (q.subscribers.decrementAndGet() > 0) return;
+        queries.remove(q.registryKey, q);
+        ScheduledFuture<?> periodic = q.periodic;
+        if (periodic != null) periodic.cancel(false);
+    }
+
+    /** @return consultas registradas */
+    public int size() {
+        return queries.size();
+    }
+
+    private void changed(String provider, String text) {
+        for (Query q : queries.values()) {
+            if (q.provider.equals(provider) && q.mentionedIn(text)) q.requestRefresh();
+        }
+    }
+
+    /** Tablas de las cláusulas FROM/JOIN, en minúsculas y sin comillas, con y sin esquema. */
+    private static Set<String> tablesRead(String sql) {
+        Set<String> tables = new HashSet<>();
+        Matcher m = TABLE_REF.matcher(sql);
+        while (m.find()) {
+            String name = m.group(1).replace("\"", "").toLowerCase(Locale.ROOT);
+            tables.add(name);
+            tables.add(name.substring(name.lastIndexOf('.') + 1));
+        }
+        return tables;
+    }
+}
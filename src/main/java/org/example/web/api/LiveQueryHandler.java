@@ -0,0 +1,142 @@
+package org.example.web.api;
+
+import org.example.db.DBFactories;
+import org.example.db.utilities.SQLCleaner;
+import org.example.db.utilities.SqlParameters;
+import org.example.web.json.JsonWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @file LiveQueryHandler.java
+ * @brief Endpoint GET /live: suscripción a una consulta en vivo por
+ *        Server-Sent Events ({@link LiveQueries}).
+ *
+ * Parámetros: {@code db}, {@code sql} (un SELECT), {@code key} (columnas de
+ * la clave primaria separadas por comas, por defecto "id") e
+ * {@code interval_ms} (periodo de recálculo; 0 = sólo al invalidar).
+ *
+ * Eventos:
+ * - {@code snapshot}: {"id":..,"version":..,"key":[..],"rows":[..]}, el
+ *   resultado completo, una vez al suscribirse.
+ * - {@code diff}: {"id":..,"version":..,"inserted":[filas],"updated":[filas],
+ *   "deleted":[claves]}, sólo cuando algo cambia. Un diff con versión menor
+ *   o igual que la del snapshot ya está incluido en él y se descarta.
+ * - {@code query-error}: {"error":..} si un recálculo falla (se conserva el
+ *   último resultado y se reintenta en el siguiente).
+ *
+ * Como la consulta se recalcula una y otra vez, un SQL que no es un único
+ * SELECT o que modifica datos (un WITH con INSERT/UPDATE/DELETE, SELECT ...
+ * INTO) responde 400 sin ejecutarse; los literales se delimitan con las
+ * reglas del dialecto del proveedor, y cada recálculo corre además en una
+ * transacción READ ONLY ({@link org.example.db.DBClient#executeReadOnly}). La primera ejecución se hace antes de
+ * abrir el flujo, así que una clave que no está en el resultado o repetida,
+ * o un resultado de más de LIVE_QUERY_MAX_ROWS filas responden 400, y un
+ * fallo de la consulta, 500. Con LIVE_QUERY_MAX consultas o EVENTS_MAX_CLIENTS
+ * clientes ya abiertos, 503.
+ */
+public class LiveQueryHandler implements ApiHandler {
+    private static final byte[] PREAMBLE = ": connected\n\nretry: 3000\n\n".getBytes(StandardCharsets.US_ASCII);
+
+    public LiveQueryHandler() {
+        // Registra los avisos de escrituras y de NOTIFY al arrancar el servidor
+        LiveQueries.getInstance();
+    }
+
+    @Override
+    public void handle(ApiExchange exchange) throws IOException {
+        if (!"GET".equalsIgnoreCase(exchange.getMethod())) {
+            exchange.sendJson(405, "{\"error\":\"method not allowed\"}");
+            return;
+        }
+        String db = exchange.getQueryParameter("db");
+        String sql = exchange.getQueryParameter("sql");
+        List<String> key = new ArrayList<>();
+        String keyParam = exchange.getQueryParameter("key");
+        for (String k : (keyParam == null || keyParam.isEmpty() ? "id" : keyParam).split(",")) {
+            if (!k.trim().isEmpty()) key.add(k.trim());
+        }
+        long interval;
+        try {
+            String param = exchange.getQueryParameter("interval_ms");
+            interval = param == null || param.isEmpty() ? LiveQueries.DEFAULT_INTERVAL_MS : Long.parseLong(param);
+        } catch (NumberFormatException e) {
+            sendError(exchange, 400, "interval_ms must be a number");
+            return;
+        }
+        if (db == null || sql == null || sql.trim().isEmpty() || key.isEmpty() || interval < 0) {
+            sendError(exchange, 400, "invalid request");
+            return;
+        }
+        if (!SQLCleaner.isSelectQuery(sql)) {
+            sendError(exchange, 400, "live queries must be SELECT statements");
+            return;
+        }
+        boolean mysql = SqlParameters.backslashEscapes(DBFactories.forName(db).getName());
+        if (SqlParameters.hasMultipleStatements(sql, mysql)) {
+            sendError(exchange, 400, "live queries must be a single statement");
+            return;
+        }
+        if (SQLCleaner.modifiesData(sql, mysql)) {
+            sendError(exchange, 400, "live queries must not modify data");
+            return;
+        }
+        EventHub hub = EventHub.getInstance();
+        if (hub.clientCount() >= EventHub.maxClients()) {
+            sendError(exchange, 503, "too many event subscribers");
+            return;
+        }
+
+        LiveQueries live = LiveQueries.getInstance();
+        LiveQueries.Query query;
+        try {
+            query = live.subscribe(db, sql, key, interval);
+        } catch (IllegalStateException e) {
+            sendError(exchange, 503, e.getMessage());
+            return;
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+            return;
+        } catch (Exception e) {
+            sendError(exchange, RequestDeadline.errorStatus(e), String.valueOf(e.getMessage()));
+            return;
+        }
+
+        OutputStream out;
+        Runnable closer;
+        try {
+            exchange.setResponseHeader("Cache-Control", "no-cache");
+            exchange.setResponseHeader("X-Accel-Buffering", "no");
+            out = exchange.sendResponse(200, "text/event-stream; charset=utf-8");
+            out.write(PREAMBLE);
+            out.flush();
+            closer = exchange.detach();
+        } catch (IOException | RuntimeException e) {
+            live.release(query);
+            throw e;
+        }
+        String topic = query.getTopic();
+        Runnable close = () -> {
+            closer.run();
+            live.release(query);
+        };
+        // Bajo el cerrojo de la consulta: ningún diff se publica entre el registro y el snapshot
+        synchronized (query) {
+            EventHub.Client client = hub.register(out, topic::equals, close);
+            if (client == null) {
+                close.run();
+                return;
+            }
+            hub.send(client, "snapshot", query.snapshotJson());
+        }
+    }
+
+    private static void sendError(ApiExchange exchange, int status, String message) throws IOException {
+        exchange.sendJson(status, JsonWriter.toJson(Collections.singletonMap("error", message)));
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.web.api;
+
+import org.example.db.memory.TableMirror;
+import org.example.web.json.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @file MirrorHandler.java
+ * @brief Endpoint de administración /admin/mirror.
+ *
+ * - GET: devuelve {"tables":[..]} con el estado y las métricas de cada tabla
+ *   replicada ({@link TableMirror#snapshot()}): aciertos, fallos, tasa de
+ *   aciertos y antigüedad de la copia. Las copias se crean con la primera
+ *   consulta a cada proveedor.
+ * - POST ?table=t[&amp;db=proveedor]: invalida la tabla y la recarga; sin
+ *   "table", todas. Responde 404 si ninguna copia replica esa tabla.
+ */
+public class MirrorHandler implements ApiHandler {
+    @Override
+    public void handle(ApiExchange exchange) throws IOException {
+        String method = exchange.getMethod();
+        if ("POST".equalsIgnoreCase(method)) {
+            String table = exchange.getQueryParameter("table");
+            String db = exchange.getQueryParameter("db");
+            boolean found = false;
+            for (TableMirror mirror : TableMirror.all()) {
+                if (db != null && !db.equalsIgnoreCase(mirror.getProvider())) continue;
+                if (table == null) {
+                    mirror.invalidateAll();
+                    found = true;
+                } else if (mirror.invalidate(table)) {
+                    found = true;
+                }
+            }
+            if (!found) {
+                exchange.sendJson(404, JsonWriter.toJson(Collections.singletonMap("error", "table is not mirrored")));
+                return;
+            }
+            exchange.sendJson(202, "{\"status\":\"refreshing\"}");
+            return;
+        }
+        if (!"GET".equalsIgnoreCase(method)) {
+            exchange.sendJson(405, "{\"error\":\"method not allowed\"}");
+            return;
+        }
+        List<Map<String, Object>> tables = new ArrayList<>();
+        for (TableMirror mirror : TableMirror.all()) tables.addAll(mirror.snapshot());
+        exchange.sendJson(200, JsonWriter.toJson(Collections.singletonMap("tables", tables)));
+    }
+}
@@ -0,0 +1,141 @@
+package org.example.web.api;
+
+import org.example.db.AdmissionRejectedException;
+import org.example.db.DBClient;
+import org.example.db.DBFactories;
+import org.example.db.Tenant;
+import org.example.db.memory.AggregateSpec;
+import org.example.db.utilities.Log;
+import org.example.db.utilities.LogLevel;
+import org.example.web.capture.TrafficCapture;
+import org.example.web.encoding.ResultEncoder;
+import org.example.web.encoding.ResultEncoders;
+import org.example.web.json.JsonParseException;
+import org.example.web.json.JsonReader;
+import org.example.web.json.JsonWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @file QueryHandler.java
+ * @brief Endpoint POST /query: cuerpo JSON {"db":"...","sql":"..."} y
+ *        respuesta con las filas resultantes.
+ *
+ * El formato de la respuesta se negocia con la cabecera Accept (JSON por
+ * defecto; ver {@link ResultEncoders}). Si no se acepta ningún formato
+ * soportado se responde 406 sin ejecutar la consulta.
+ *
+ * El plazo de la consulta se toma de "timeout_ms" o de la cabecera
+ * X-Request-Timeout-Ms ({@link RequestDeadline}); si vence se responde 504.
+ * Si el control de admisión rechaza la consulta se responde 503 con
+ * Retry-After. Con CAPTURE_FILE configurado, cada petición válida se
+ * registra para reproducirla después ({@link TrafficCapture}). El campo
+ * opcional "aggregate" agrega el resultado antes de devolverlo
+ * ({@link AggregateRequest}). Con "page_size" se devuelve sólo la primera
+ * página y el resto se pide con "cursor" ({@link ResultCursors}); si el
+ * resultado supera QUERY_CURSOR_MAX_ROWS se pagina recortado, con la
+ * cabecera X-Result-Truncated.
+ */
+public class QueryHandler implements ApiHandler {
+
+    @Override
+    public void handle(ApiExchange exchange) throws IOException {
+        if (!"POST".equalsIgnoreCase(exchange.getMethod())) {
+            exchange.sendJson(405, "{\"error\":\"method not allowed\"}");
+            return;
+        }
+        ResultEncoder encoder = ResultEncoders.forAccept(exchange.getRequestHeader("Accept"));
+        if (encoder == null) {
+            sendError(exchange, 406, "no acceptable response format");
+            return;
+        }
+        String db;
+        String sql;
+        long timeout;
+        AggregateSpec aggregate;
+        int pageSize;
+        String cursor;
+        try {
+            Map<String, Object> body = JsonReader.parseObject(exchange.getRequestBody(), JsonReader.DEFAULT_MAX_BYTES);
+            db = JsonReader.getString(body, "db");
+            sql = JsonReader.getString(body, "sql");
+            timeout = RequestDeadline.timeoutMillis(body, exchange.getRequestHeader(RequestDeadline.HEADER));
+            aggregate = AggregateRequest.parse(body);
+            pageSize = ResultCursors.pageSize(body);
+            cursor = JsonReader.getString(body, ResultCursors.CURSOR_FIELD);
+        } catch (JsonParseException e) {
+            sendError(exchange, e.isTooLarge() ? 413 : 400, e.getMessage());
+            return;
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+            return;
+        }
+        if (cursor != null) {
+            // Página siguiente de un resultado ya obtenido: no vuelve a la base de datos
+            ResultCursors.Page page = ResultCursors.next(cursor, pageSize > 0 ? pageSize : Integer.MAX_VALUE);
+            if (page == null) {
+                sendError(exchange, 404, "cursor not found or expired");
+                return;
+            }
+            sendPage(exchange, encoder, page);
+            return;
+        }
+        if (db == null || sql == null) {
+            sendError(exchange, 400, "invalid request");
+            return;
+        }
+        Log.sampled(LogLevel.DEBUG, "web", () -> "Received query: db=" + db + " sql=" + Log.truncateSql(sql));
+
+        DBClient client = new DBClient(DBFactories.forName(db), "web-query");
+        client.setSession(exchange.getSessionKey());
+        if (timeout > 0) client.setTimeout(timeout);
+        Tenant tenant = Tenant.resolve(exchange.getRequestHeader("X-Api-Key"), exchange.getRequestHeader("X-Tenant-Id"));
+        Tenant.Priority priority = tenant.priority(exchange.getRequestHeader("X-Priority"));
+        client.setTenant(tenant, priority);
+        TrafficCapture.record(db, sql, timeout, tenant, priority, exchange.getRequestHeader("X-Session-Id"));
+        List<Map<String, Object>> rows;
+        try {
+            client.connect();
+            rows = client.executeText(sql);
+        } catch (AdmissionRejectedException e) {
+            exchange.setResponseHeader("Retry-After", String.valueOf(e.getRetryAfterSeconds()));
+            sendError(exchange, 503, e.getMessage());
+            return;
+        } catch (Exception e) {
+            sendError(exchange, RequestDeadline.errorStatus(e), String.valueOf(e.getMessage()));
+            return;
+        } finally {
+            try { client.disconnect(); } catch (Exception ignored) {}
+        }
+        if (aggregate != null) {
+            try {
+                rows = aggregate.apply(rows);
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, e.getMessage());
+                return;
+            }
+        }
+        if (pageSize > 0) {
+            sendPage(exchange, encoder, ResultCursors.first(rows, pageSize));
+            return;
+        }
+        // Serializar directamente sobre el cuerpo de la respuesta, sin String intermedio
+        encoder.encode(rows, exchange.sendResponse(200, encoder.getContentType()));
+    }
+
+    private static void sendPage(ApiExchange exchange, ResultEncoder encoder, ResultCursors.Page page) throws IOException {
+        exchange.setResponseHeader(ResultCursors.TOTAL_HEADER, String.valueOf(page.getTotal()));
+        if (page.getNext() != null) exchange.setResponseHeader(ResultCursors.NEXT_HEADER, page.getNext());
+        if (page.isTruncated()) exchange.setResponseHeader(ResultCursors.TRUNCATED_HEADER, "true");
+        OutputStream out = exchange.sendResponse(200, encoder.getContentType());
+        encoder.encode(page.getRows(), out);
+    }
+
+    private static void sendError(ApiExchange exchange, int status, String message) throws IOException {
+        exchange.sendJson(status, JsonWriter.toJson(Collections.singletonMap("error", message)));
+    }
+}
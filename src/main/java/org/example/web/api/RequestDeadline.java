@@ -0,0 +1,64 @@
+package org.example.web.api;
+
+import org.example.db.QueryCancelledException;
+import org.example.web.json.JsonReader;
+
+import java.util.Map;
+
+/**
+ * @file RequestDeadline.java
+ * @brief Plazo de ejecución de una petición a partir del campo JSON
+ *        "timeout_ms" o de la cabecera X-Request-Timeout-Ms.
+ *
+ * El campo del cuerpo tiene prioridad sobre la cabecera. Sin ninguno de los
+ * dos se usa el plazo por defecto del {@code DBClient} (QUERY_TIMEOUT_MS).
+ */
+public final class RequestDeadline {
+    /** Cabecera con el plazo en milisegundos. */
+    public static final String HEADER = "X-Request-Timeout-Ms";
+    /** Campo del cuerpo JSON con el plazo en milisegundos. */
+    public static final String FIELD = "timeout_ms";
+
+    private RequestDeadline() {
+        throw new UnsupportedOperationException("Utility class - do not instantiate");
+    }
+
+    /**
+     * Lee el plazo pedido por el cliente.
+     *
+     * @param body cuerpo JSON ya leído (puede ser null)
+     * @param header valor de la cabecera {@link #HEADER} (puede ser null)
+     * @return milisegundos, o -1 si la petición no fija plazo
+     * @throws IllegalArgumentException si el valor no es un entero positivo
+     */
+    public static long timeoutMillis(Map<String, Object> body, String header) {
+        if (body != null && body.containsKey(FIELD)) {
+            Long v = JsonReader.getLong(body, FIELD);
+            if (v == null || v <= 0) throw new IllegalArgumentException(FIELD + " must be a positive integer");
+            return v;
+        }
+        if (header == null || header.isEmpty()) return -1;
+        try {
+            long v = Long.parseLong(header.trim());
+            if (v > 0) return v;
+        } catch (NumberFormatException ignored) {
+            // cae al error de abajo
+        }
+        throw new IllegalArgumentException(HEADER + " must be a positive integer");
+    }
+
+    /**
+     * Estado HTTP para un fallo al ejecutar la petición: 504 si venció el
+     * plazo y 500 en cualquier otro caso.
+     *
+     * @param e excepción lanzada por el cliente de base de datos
+     * @return código de estado
+     */
+    public static int errorStatus(Exception e) {
+        if (e instanceof QueryCancelledException
+                && ((QueryCancelledException) e).getReason() == QueryCancelledException.Reason.TIMEOUT) {
+            return 504;
+        }
+        return 500;
+    }
+}
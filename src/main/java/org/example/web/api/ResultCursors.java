@@ -0,0 +1,192 @@
+package org.example.web.api;
+
+import org.example.db.utilities.ConnectionConfig;
+import org.example.web.json.JsonReader;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @file ResultCursors.java
+ * @brief Paginación de /query con cursor ("cargar más").
+ *
+ * Con el campo "page_size" la respuesta trae sólo las primeras filas. Si
+ * hay más, el resto del resultado ya obtenido se guarda en memoria y la
+ * respuesta lleva la cabecera X-Next-Cursor. Para pedir la página siguiente
+ * se envía {"cursor":"...","page_size":N} (sin db ni sql): se sirve de la
+ * copia guardada, sin volver a la base de datos, así que todas las páginas
+ * salen del mismo resultado. X-Total-Rows lleva el total de filas.
+ *
+ * Cada cursor lleva su posición, por lo que repetir una petición devuelve
+ * la misma página. El resultado se olvida al servir la última página, a los
+ * QUERY_CURSOR_TTL_MS sin usarse o, si al abrir uno nuevo hay ya
+ * QUERY_CURSOR_MAX abiertos o se superaría QUERY_CURSOR_TOTAL_ROWS filas
+ * guardadas entre todos, los menos usados recientemente. De un resultado de
+ * más de QUERY_CURSOR_MAX_ROWS filas (o QUERY_CURSOR_TOTAL_ROWS) que no cabe
+ * en una página sólo se guardan las primeras: X-Total-Rows cuenta las
+ * guardadas y todas sus páginas llevan X-Result-Truncated; para el resto hay
+ * que acotarlo (LIMIT/OFFSET) o usar /export.
+ */
+public final class ResultCursors {
+    /** Campo del cuerpo JSON con el tamaño de página. */
+    public static final String PAGE_SIZE_FIELD = "page_size";
+    /** Campo del cuerpo JSON con el cursor de la página siguiente. */
+    public static final String CURSOR_FIELD = "cursor";
+    /** Cabecera de respuesta con el cursor de la página siguiente. */
+    public static final String NEXT_HEADER = "X-Next-Cursor";
+    /** Cabecera de respuesta con el total de filas del resultado. */
+    public static final String TOTAL_HEADER = "X-Total-Rows";
+    /** Cabecera de respuesta presente si el resultado se recortó a QUERY_CURSOR_MAX_ROWS filas. */
+    public static final String TRUNCATED_HEADER = "X-Result-Truncated";
+
+    private static final int MAX_CURSORS =
+            ConnectionConfig.getConfigValueAsInt("QUERY_CURSOR_MAX", "QUERY_CURSOR_MAX", 64);
+    private static final long TTL_MS =
+            ConnectionConfig.getConfigValueAsInt("QUERY_CURSOR_TTL_MS", "QUERY_CURSOR_TTL_MS", 300000);
+    private static final int MAX_ROWS =
+            ConnectionConfig.getConfigValueAsInt("QUERY_CURSOR_MAX_ROWS", "QUERY_CURSOR_MAX_ROWS", 100000);
+    private static final long TOTAL_ROWS =
+            ConnectionConfig.getConfigValueAsInt("QUERY_CURSOR_TOTAL_ROWS", "QUERY_CURSOR_TOTAL_ROWS", 1000000);
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Map<String, Stored> STORED = new ConcurrentHashMap<>();
+
+    private static final class Stored {
+        final List<Map<String, Object>> rows;
+        final boolean truncated;
+        volatile long lastUsed = System.currentTimeMillis();
+
+        Stored(List<Map<String, Object>> rows, boolean truncated) {
+            this.rows = rows;
+            this.truncated = truncated;
+        }
+    }
+
+    /** Página del resultado y cursor de la siguiente (null si es la última). */
+    public static final class Page {
+        private final List<Map<String, Object>> rows;
+        private final String next;
+        private final int total;
+        private final boolean truncated;
+
+        private Page(List<Map<String, Object>> rows, String next, int total, boolean truncated) {
+            this.rows = rows;
+            this.next = next;
+            this.total = total;
+            this.truncated = truncated;
+        }
+
+        public List<Map<String, Object>> getRows() { return rows; }
+        public String getNext() { return next; }
+        public int getTotal() { return total; }
+        public boolean isTruncated() { return truncated; }
+    }
+
+    private ResultCursors() {
+        throw new UnsupportedOperationException("Utility class - do not instantiate");
+    }
+
+    /**
+     * @param body cuerpo JSON ya leído
+     * @return tamaño de página pedido, o 0 si la petición no pagina
+     * @throws IllegalArgumentException si no es un entero positivo
+     */
+    public static int pageSize(Map<String, Object> body) {
+        if (body == null || !body.containsKey(PAGE_SIZE_FIELD)) return 0;
+        Long v = JsonReader.getLong(body, PAGE_SIZE_FIELD);
+        if (v == null || v <= 0 || v > Integer.MAX_VALUE) throw new IllegalArgumentException(PAGE_SIZE_FIELD + " must be a positive integer");
+        return v.intValue();
+    }
+
+    /**
+     * Primera página de un resultado; guarda el resto si no cabe. Si además
+     * tiene más de QUERY_CURSOR_MAX_ROWS (o QUERY_CURSOR_TOTAL_ROWS) filas,
+     * sólo se pagina ese número de filas y la página queda marcada como
+     * recortada.
+     *
+     * @param rows resultado completo
+     * @param pageSize filas por página (mayor que 0)
+     * @return primera página
+     */
+    public static Page first(List<Map<String, Object>> rows, int pageSize) {
+        if (rows.size() <= pageSize) return new Page(rows, null, rows.size(), false);
+        int limit = (int) Math.min(MAX_ROWS, TOTAL_ROWS);
+        boolean truncated = rows.size() > limit;
+        // Copia: una subList retendría el resultado entero mientras viva el cursor
+        List<Map<String, Object>> kept = truncated ? new ArrayList<>(rows.subList(0, limit)) : rows;
+        if (kept.size() <= pageSize) return new Page(kept, null, kept.size(), truncated);
+        String id = newId();
+        synchronized (STORED) {
+            purge(kept.size());
+            STORED.put(id, new Stored(kept, truncated));
+        }
+        return new Page(kept.subList(0, pageSize), id + ":" + pageSize, kept.size(), truncated);
+    }
+
+    /**
+     * Página siguiente de un cursor.
+     *
+     * @param cursor valor de X-Next-Cursor de la respuesta anterior
+     * @param pageSize filas por página (mayor que 0)
+     * @return página, o null si el cursor no existe o caducó
+     */
+    public static Page next(String cursor, int pageSize) {
+        int sep = cursor.lastIndexOf(':');
+        if (sep < 0) return null;
+        int offset;
+        try {
+            offset = Integer.parseInt(cursor.substring(sep + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        String id = cursor.substring(0, sep);
+        Stored stored = STORED.get(id);
+        if (stored == null || offset < 0 || offset > stored.rows.size()) return null;
+        if (System.currentTimeMillis() - stored.lastUsed > TTL_MS) {
+            STORED.remove(id, stored);
+            return null;
+        }
+        stored.lastUsed = System.currentTimeMillis();
+        int end = (int) Math.min(stored.rows.size(), (long) offset + pageSize);
+        String next = end < stored.rows.size() ? id + ":" + end : null;
+        if (next == null) STORED.remove(id, stored);
+        return new Page(stored.rows.subList(offset, end), next, stored.rows.size(), stored.truncated);
+    }
+
+    /**
+     * Quita los caducados y, mientras no quepa un resultado más de
+     * {@code incoming} filas, el menos usado recientemente.
+     */
+    private static void purge(int incoming) {
+        long now = System.currentTimeMillis();
+        STORED.entrySet().removeIf(e -> now - e.getValue().lastUsed > TTL_MS);
+        while (STORED.size() >= MAX_CURSORS || storedRows() + incoming > TOTAL_ROWS) {
+            String oldest = null;
+            long oldestUse = Long.MAX_VALUE;
+            for (Map.Entry<String, Stored> e : STORED.entrySet()) {
+                if (e.getValue().lastUsed < oldestUse) {
+                    oldest = e.getKey();
+                    oldestUse = e.getValue().lastUsed;
+                }
+            }
+            if (oldest == null) break;
+            STORED.remove(oldest);
+        }
+    }
+
+    private static long storedRows() {
+        long total = 0;
+        for (Stored s : STORED.values()) total += s.rows.size();
+        return total;
+    }
+
+    private static String newId() {
+        byte[] bytes = new byte[12];
+        RANDOM.nextBytes(bytes);
+        StringBuilder sb = new StringBuilder(24);
+        for (byte b : bytes) sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.web.api;
+
+import org.example.db.SlowQueryLog;
+import org.example.web.json.JsonWriter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @file SlowQueryHandler.java
+ * @brief Endpoint de administración /admin/slow-queries.
+ *
+ * - GET: devuelve {"threshold_ms":..,"queries":[..]} con las huellas más
+ *   lentas registradas por {@link SlowQueryLog}, sus peores muestras y el plan
+ *   capturado (null mientras el EXPLAIN está pendiente).
+ * - DELETE: vacía el registro.
+ */
+public class SlowQueryHandler implements ApiHandler {
+    private final SlowQueryLog log;
+
+    public SlowQueryHandler() {
+        this(SlowQueryLog.getInstance());
+    }
+
+    public SlowQueryHandler(SlowQueryLog log) {
+        this.log = log;
+    }
+
+    @Override
+    public void handle(ApiExchange exchange) throws IOException {
+        String method = exchange.getMethod();
+        if ("DELETE".equalsIgnoreCase(method)) {
+            log.clear();
+            exchange.sendJson(200, "{\"status\":\"cleared\"}");
+            return;
+        }
+        if (!"GET".equalsIgnoreCase(method)) {
+            exchange.sendJson(405, "{\"error\":\"method not allowed\"}");
+            return;
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("threshold_ms", log.getThresholdMs());
+        body.put("queries", log.snapshot());
+        exchange.sendJson(200, JsonWriter.toJson(body));
+    }
+}
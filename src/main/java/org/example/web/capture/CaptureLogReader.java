@@ -0,0 +1,99 @@
+package org.example.web.capture;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * @file CaptureLogReader.java
+ * @brief Lectura secuencial de un registro de captura mediante E/S mapeada
+ *        en memoria.
+ *
+ * El fichero se recorre por ventanas mapeadas de hasta {@link #WINDOW_BYTES}
+ * (un MappedByteBuffer no puede pasar de 2 GB): cuando el siguiente registro
+ * no cabe en la ventana actual se mapea otra que empieza en él. Un último
+ * registro incompleto (captura interrumpida a mitad de escritura) se ignora
+ * y se informa en {@link #getTruncatedBytes()}.
+ */
+public final class CaptureLogReader implements Closeable {
+    private static final long WINDOW_BYTES = 256L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long truncatedBytes;
+
+    /**
+     * @param path registro de captura
+     * @throws IOException si no se puede abrir o no es un registro de captura
+     */
+    public CaptureLogReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        int headerLen = CapturedQuery.MAGIC.length;
+        if (size < headerLen) {
+            channel.close();
+            throw new IOException(path + " is not a capture log (too short)");
+        }
+        map(0, headerLen);
+        byte[] magic = new byte[headerLen];
+        window.get(magic);
+        if (!Arrays.equals(magic, CapturedQuery.MAGIC)) {
+            channel.close();
+            throw new IOException(path + " is not a capture log (bad header)");
+        }
+    }
+
+    /**
+     * @return siguiente petición, o null al final del registro
+     */
+    public CapturedQuery next() throws IOException {
+        long pos = windowStart + window.position();
+        if (size - pos < 4) {
+            truncatedBytes = size - pos;
+            return null;
+        }
+        if (window.remaining() < 4) map(pos, 4);
+        int len = window.getInt();
+        if (len < 0 || size - pos - 4 < len) {
+            truncatedBytes = size - pos;
+            window.position(window.position() - 4);
+            return null;
+        }
+        if (window.remaining() < len) {
+            map(pos + 4, len);
+        }
+        int end = window.position() + len;
+        CapturedQuery q = CapturedQuery.decode(window);
+        window.position(end);
+        return q;
+    }
+
+    /** @return bytes al final del fichero que no forman un registro completo */
+    public long getTruncatedBytes() {
+        return truncatedBytes;
+    }
+
+    /** @return tamaño del fichero */
+    public long getSize() {
+        return size;
+    }
+
+    /** Mapea una ventana que empieza en {@code start} y contiene al menos {@code minBytes}. */
+    private void map(long start, int minBytes) throws IOException {
+        long len = Math.min(size - start, Math.max(WINDOW_BYTES, minBytes));
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, len);
+        windowStart = start;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,136 @@
+package org.example.web.capture;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @file CapturedQuery.java
+ * @brief Petición /query capturada y su codificación en el registro binario.
+ *
+ * Formato del fichero (big-endian): cabecera {@link #MAGIC} de 8 bytes y a
+ * continuación registros consecutivos:
+ * <pre>
+ *   int32  longitud del resto del registro
+ *   int64  instante de llegada (microsegundos desde epoch)
+ *   int32  plazo en ms (-1 = sin plazo)
+ *   uint8  prioridad (0 = interactiva, 1 = batch)
+ *   uint16 + bytes  db
+ *   uint16 + bytes  tenant (nombre resuelto; nunca la clave de API)
+ *   uint16 + bytes  sesión (X-Session-Id; vacío si no se envió)
+ *   int32  + bytes  SQL (UTF-8)
+ * </pre>
+ * /query no admite parámetros de enlace: se capturan los atributos de la
+ * petición que cambian cómo se ejecuta (plazo, tenant, prioridad y sesión).
+ */
+public final class CapturedQuery {
+    /** Cabecera del fichero: "DAPCAP" y versión 1. */
+    static final byte[] MAGIC = {'D', 'A', 'P', 'C', 'A', 'P', 0, 1};
+
+    private static final int MAX_SHORT_STRING = 0xFFFF;
+
+    private final long timestampMicros;
+    private final String db;
+    private final String sql;
+    private final long timeoutMillis;
+    private final String tenant;
+    private final boolean batchPriority;
+    private final String session;
+
+    /**
+     * @param timestampMicros instante de llegada (µs desde epoch)
+     * @param db proveedor ("postgres", "mysql")
+     * @param sql sentencia
+     * @param timeoutMillis plazo pedido, o -1
+     * @param tenant nombre del tenant resuelto
+     * @param batchPriority true si la petición tenía prioridad batch
+     * @param session X-Session-Id, o null
+     */
+    public CapturedQuery(long timestampMicros, String db, String sql, long timeoutMillis,
+                         String tenant, boolean batchPriority, String session) {
+        this.timestampMicros = timestampMicros;
+        this.db = db;
+        this.sql = sql;
+        this.timeoutMillis = timeoutMillis;
+        this.tenant = tenant == null ? "" : tenant;
+        this.batchPriority = batchPriority;
+        this.session = session == null ? "" : session;
+    }
+
+    /** @return instante de llegada (µs desde epoch) */
+    public long getTimestampMicros() { return timestampMicros; }
+
+    /** @return proveedor */
+    public String getDb() { return db; }
+
+    /** @return sentencia */
+    public String getSql() { return sql; }
+
+    /** @return plazo pedido en ms, o -1 */
+    public long getTimeoutMillis() { return timeoutMillis; }
+
+    /** @return nombre del tenant (vacío si no se conoce) */
+    public String getTenant() { return tenant; }
+
+    /** @return true si la petición tenía prioridad batch */
+    public boolean isBatchPriority() { return batchPriority; }
+
+    /** @return X-Session-Id (vacío si no se envió) */
+    public String getSession() { return session; }
+
+    /**
+     * @return registro completo, con su longitud delante
+     */
+    byte[] encode() {
+        byte[] dbBytes = shortString(db);
+        byte[] tenantBytes = shortString(tenant);
+        byte[] sessionBytes = shortString(session);
+        byte[] sqlBytes = sql.getBytes(StandardCharsets.UTF_8);
+        int bodyLen = 8 + 4 + 1 + 2 + dbBytes.length + 2 + tenantBytes.length + 2 + sessionBytes.length + 4 + sqlBytes.length;
+        ByteBuffer b = ByteBuffer.allocate(4 + bodyLen);
+        b.putInt(bodyLen);
+        b.putLong(timestampMicros);
+        b.putInt((int) Math.max(-1, Math.min(Integer.MAX_VALUE, timeoutMillis)));
+        b.put((byte) (batchPriority ? 1 : 0));
+        b.putShort((short) dbBytes.length).put(dbBytes);
+        b.putShort((short) tenantBytes.length).put(tenantBytes);
+        b.putShort((short) sessionBytes.length).put(sessionBytes);
+        b.putInt(sqlBytes.length).put(sqlBytes);
+        return b.array();
+    }
+
+    /**
+     * Decodifica el cuerpo de un registro (sin el campo de longitud).
+     *
+     * @param b buffer posicionado al principio del cuerpo; se avanza hasta su final
+     * @return petición
+     */
+    static CapturedQuery decode(ByteBuffer b) {
+        long ts = b.getLong();
+        int timeout = b.getInt();
+        boolean batch = b.get() != 0;
+        String db = string(b, b.getShort() & 0xFFFF);
+        String tenant = string(b, b.getShort() & 0xFFFF);
+        String session = string(b, b.getShort() & 0xFFFF);
+        String sql = string(b, b.getInt());
+        return new CapturedQuery(ts, db, sql, timeout, tenant, batch, session);
+    }
+
+    private static byte[] shortString(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= MAX_SHORT_STRING) return bytes;
+        byte[] cut = new byte[MAX_SHORT_STRING];
+        System.arraycopy(bytes, 0, cut, 0, cut.length);
+        return cut;
+    }
+
+    private static String string(ByteBuffer b, int len) {
+        if (b.hasArray()) {
+            String s = new String(b.array(), b.arrayOffset() + b.position(), len, StandardCharsets.UTF_8);
+            b.position(b.position() + len);
+            return s;
+        }
+        byte[] bytes = new byte[len];
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,202 @@
+package org.example.web.capture;
+
+import org.example.web.json.JsonWriter;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @file Replay.java
+ * @brief CLI que reproduce un registro de {@link TrafficCapture} contra una
+ *        instancia del middleware.
+ *
+ * Modos de velocidad:
+ * - original: respeta los intervalos capturados.
+ * - speed: intervalos capturados divididos por {@code --speed} (2 = el doble de rápido).
+ * - rate: bucle abierto a {@code --rate} peticiones por segundo, sin tener en
+ *   cuenta los instantes capturados.
+ *
+ * En los tres modos el envío es de bucle abierto: cada petición sale en su
+ * instante previsto aunque las anteriores no hayan terminado, y la latencia
+ * se mide desde ese instante previsto. Así un servidor lento acumula cola y
+ * se ve en los percentiles en lugar de frenar el ritmo de envío. Sólo
+ * {@code --max-in-flight} limita las peticiones en curso; si se alcanza, el
+ * retraso de envío aparece como "dispatch lag".
+ *
+ * Uso:
+ * <pre>
+ *   mvn -q exec:java -Dexec.mainClass=org.example.web.capture.Replay \
+ *       -Dexec.args="--file capture.bin --target http://staging:8000 --mode speed --speed 2"
+ * </pre>
+ * Opciones: --file (obligatoria), --target (http://localhost:8000), --mode
+ * (original|speed|rate), --speed (1), --rate (100), --max-in-flight (1024),
+ * --limit (todas).
+ */
+public final class Replay {
+    private Replay() {
+        throw new UnsupportedOperationException("Utility class - do not instantiate");
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = parseArgs(args);
+        String file = opts.get("file");
+        if (file == null) {
+            System.err.println("usage: Replay --file capture.bin [--target http://localhost:8000] "
+                    + "[--mode original|speed|rate] [--speed N] [--rate R] [--max-in-flight N] [--limit N]");
+            System.exit(2);
+        }
+        String target = opts.getOrDefault("target", "http://localhost:8000");
+        String mode = opts.getOrDefault("mode", "original");
+        double speed = "original".equals(mode) ? 1.0 : Double.parseDouble(opts.getOrDefault("speed", "1"));
+        double rate = Double.parseDouble(opts.getOrDefault("rate", "100"));
+        int maxInFlight = Integer.parseInt(opts.getOrDefault("max-in-flight", "1024"));
+        long limit = Long.parseLong(opts.getOrDefault("limit", Long.toString(Long.MAX_VALUE)));
+        if (!"original".equals(mode) && !"speed".equals(mode) && !"rate".equals(mode)) {
+            throw new IllegalArgumentException("--mode must be original, speed or rate");
+        }
+        if (speed <= 0 || rate <= 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("--speed, --rate and --max-in-flight must be positive");
+        }
+
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        URI uri = URI.create(target.replaceAll("/+$", "") + "/query");
+        Stats stats = new Stats();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+
+        long start = System.nanoTime();
+        long firstCaptured = Long.MIN_VALUE;
+        long sent = 0;
+        try (CaptureLogReader reader = new CaptureLogReader(Paths.get(file))) {
+            System.out.printf("replaying %s (%d bytes) against %s, mode=%s%s%n", file, reader.getSize(), uri, mode,
+                    "rate".equals(mode) ? " rate=" + rate + "/s" : " speed=" + speed + "x");
+            long lastProgress = start;
+            CapturedQuery q;
+            while (sent < limit && (q = reader.next()) != null) {
+                if (firstCaptured == Long.MIN_VALUE) firstCaptured = q.getTimestampMicros();
+                long offsetNanos = "rate".equals(mode)
+                        ? (long) (sent * 1_000_000_000.0 / rate)
+                        : (long) ((q.getTimestampMicros() - firstCaptured) * 1_000.0 / speed);
+                long scheduled = start + Math.max(0, offsetNanos);
+                long wait;
+                while ((wait = scheduled - System.nanoTime()) > 0) LockSupport.parkNanos(wait);
+
+                inFlight.acquire();
+                stats.recordLag(System.nanoTime() - scheduled);
+                sent++;
+                http.sendAsync(request(uri, q), HttpResponse.BodyHandlers.discarding())
+                        .whenComplete((resp, err) -> {
+                            stats.record(err != null ? -1 : resp.statusCode(), System.nanoTime() - scheduled);
+                            inFlight.release();
+                        });
+
+                long now = System.nanoTime();
+                if (now - lastProgress >= 5_000_000_000L) {
+                    lastProgress = now;
+                    System.out.printf("  %.0fs: sent=%d completed=%d in-flight=%d%n",
+                            (now - start) / 1e9, sent, stats.completed(), maxInFlight - inFlight.availablePermits());
+                }
+            }
+            if (reader.getTruncatedBytes() > 0) {
+                System.out.println("ignored " + reader.getTruncatedBytes() + " trailing bytes (incomplete record)");
+            }
+        }
+        if (!inFlight.tryAcquire(maxInFlight, 60, TimeUnit.SECONDS)) {
+            System.out.println("gave up waiting for " + (maxInFlight - inFlight.availablePermits()) + " requests");
+        }
+        stats.print(sent, (System.nanoTime() - start) / 1e9);
+        System.exit(0);
+    }
+
+    private static HttpRequest request(URI uri, CapturedQuery q) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("db", q.getDb());
+        body.put("sql", q.getSql());
+        if (q.getTimeoutMillis() > 0) body.put("timeout_ms", q.getTimeoutMillis());
+        HttpRequest.Builder b = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(60))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(JsonWriter.toJson(body)));
+        if (!q.getTenant().isEmpty() && !"default".equals(q.getTenant())) b.header("X-Tenant-Id", q.getTenant());
+        if (q.isBatchPriority()) b.header("X-Priority", "batch");
+        if (!q.getSession().isEmpty()) b.header("X-Session-Id", q.getSession());
+        return b.build();
+    }
+
+    /** Latencias, códigos de estado y retraso de envío. */
+    private static final class Stats {
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        private final AtomicLong maxLag = new AtomicLong();
+        private final LongAdder lagged = new LongAdder();
+        private long[] latencies = new long[4096];
+        private int count;
+
+        void recordLag(long lagNanos) {
+            if (lagNanos > 1_000_000L) lagged.increment();
+            maxLag.accumulateAndGet(lagNanos, Math::max);
+        }
+
+        void record(int status, long latencyNanos) {
+            statuses.computeIfAbsent(status, k -> new LongAdder()).increment();
+            synchronized (this) {
+                if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+                latencies[count++] = latencyNanos;
+            }
+        }
+
+        synchronized int completed() {
+            return count;
+        }
+
+        void print(long sent, double seconds) {
+            long[] sorted;
+            synchronized (this) {
+                sorted = Arrays.copyOf(latencies, count);
+            }
+            Arrays.sort(sorted);
+            System.out.printf("sent=%d completed=%d in %.1fs (%.1f req/s)%n", sent, sorted.length, seconds, sent / seconds);
+            Map<Integer, Long> byStatus = new TreeMap<>();
+            statuses.forEach((k, v) -> byStatus.put(k, v.sum()));
+            StringBuilder sb = new StringBuilder("status:");
+            byStatus.forEach((k, v) -> sb.append(' ').append(k < 0 ? "io-error" : String.valueOf(k)).append('=').append(v));
+            System.out.println(sb);
+            System.out.printf("latency from scheduled start (ms): p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f%n",
+                    pct(sorted, 50), pct(sorted, 90), pct(sorted, 99), pct(sorted, 99.9), pct(sorted, 100));
+            System.out.printf("dispatch lag: %d requests sent >1ms late, max %.2f ms%n", lagged.sum(), maxLag.get() / 1e6);
+        }
+
+        private static double pct(long[] sorted, double p) {
+            if (sorted.length == 0) return 0;
+            int idx = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, idx))] / 1e6;
+        }
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> opts = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("expected --option value, got: " + args[i]);
+            }
+            opts.put(args[i].substring(2), args[++i]);
+        }
+        return opts;
+    }
+}
@@ -0,0 +1,220 @@
+package org.example.web.capture;
+
+import org.example.db.Tenant;
+import org.example.db.utilities.ConnectionConfig;
+import org.example.db.utilities.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @file TrafficCapture.java
+ * @brief Modo captura de la capa web: guarda cada petición /query en un
+ *        registro binario de sólo anexado para reproducirla después con
+ *        {@link Replay}.
+ *
+ * El hilo de la petición sólo codifica el registro y lo deja en una cola
+ * acotada; un hilo daemon lo escribe por lotes en el fichero. Si la cola está
+ * llena el registro se descarta y se cuenta (la captura nunca frena el
+ * servicio), igual que hace el log asíncrono.
+ *
+ * Configuración (ENV > -D > db.properties):
+ * - CAPTURE_FILE: ruta del registro; vacío = captura desactivada. Si el
+ *   fichero existe se anexa (debe ser un registro de captura).
+ * - CAPTURE_MAX_MB: tamaño a partir del cual se deja de capturar (1024).
+ * - CAPTURE_QUEUE_SIZE: registros pendientes de escribir como máximo (8192).
+ */
+public final class TrafficCapture {
+    private static final String FILE = ConnectionConfig.getConfigValue("CAPTURE_FILE", "CAPTURE_FILE", "");
+    private static final long MAX_BYTES =
+            ConnectionConfig.getConfigValueAsInt("CAPTURE_MAX_MB", "CAPTURE_MAX_MB", 1024) * 1024L * 1024L;
+    private static final int QUEUE_SIZE =
+            ConnectionConfig.getConfigValueAsInt("CAPTURE_QUEUE_SIZE", "CAPTURE_QUEUE_SIZE", 8192);
+    private static final int WRITE_BUFFER_BYTES = 256 * 1024;
+
+    private static final Writer WRITER = FILE.trim().isEmpty() ? null : Writer.open(Paths.get(FILE.trim()));
+
+    private TrafficCapture() {
+        throw new UnsupportedOperationException("Utility class - do not instantiate");
+    }
+
+    /** @return true si la captura está activa */
+    public static boolean isEnabled() {
+        return WRITER != null && !WRITER.full;
+    }
+
+    /**
+     * Registra una petición /query ya validada. No bloquea nunca.
+     *
+     * @param db proveedor
+     * @param sql sentencia
+     * @param timeoutMillis plazo pedido, o -1
+     * @param tenant tenant resuelto
+     * @param priority prioridad efectiva
+     * @param session X-Session-Id, o null
+     */
+    public static void record(String db, String sql, long timeoutMillis, Tenant tenant, Tenant.Priority priority, String session) {
+        if (!isEnabled()) return;
+        Instant now = Instant.now();
+        long micros = now.getEpochSecond() * 1_000_000L + now.getNano() / 1_000;
+        WRITER.offer(new CapturedQuery(micros, db, sql, timeoutMillis, tenant.getName(),
+                priority == Tenant.Priority.BATCH, session).encode());
+    }
+
+    /** @return registros escritos desde el arranque */
+    public static long getWritten() {
+        return WRITER == null ? 0 : WRITER.written.get();
+    }
+
+    /** @return registros descartados (cola llena o límite de tamaño) */
+    public static long getDropped() {
+        return WRITER == null ? 0 : WRITER.dropped.get();
+    }
+
+    /** Hilo escritor y fichero abierto. */
+    private static final class Writer {
+        private final FileChannel channel;
+        private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(Math.max(16, QUEUE_SIZE));
+        private final AtomicLong written = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+        private long size;
+        private volatile boolean full;
+        private volatile boolean running = true;
+        private final Thread thread;
+
+        private Writer(FileChannel channel, long size) {
+            this.channel = channel;
+            this.size = size;
+            this.thread = new Thread(this::drainLoop, "traffic-capture");
+            this.thread.setDaemon(true);
+            this.thread.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "traffic-capture-flush"));
+        }
+
+        static Writer open(Path path) {
+            try {
+                // Sin APPEND (incompatible con READ): el único escritor es el hilo de captura y escribe al final
+                FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+                long size = ch.size();
+                if (size == 0) {
+                    ch.write(ByteBuffer.wrap(CapturedQuery.MAGIC));
+                    size = CapturedQuery.MAGIC.length;
+                } else {
+                    ByteBuffer magic = ByteBuffer.allocate(CapturedQuery.MAGIC.length);
+                    ch.read(magic, 0);
+                    if (!Arrays.equals(magic.array(), CapturedQuery.MAGIC)) {
+                        ch.close();
+                        Log.warn("capture", "CAPTURE_FILE " + path + " exists and is not a capture log; capture disabled");
+                        return null;
+                    }
+                    // Un último registro a medias (parada brusca) desalinearía todo lo que se anexe detrás
+                    long valid = completeLength(path);
+                    if (valid < size) {
+                        Log.warn("capture", "Discarding " + (size - valid) + " trailing bytes of an incomplete record in " + path);
+                        ch.truncate(valid);
+                        size = valid;
+                    }
+                    ch.position(size);
+                }
+                Log.info("capture", "Capturing /query traffic to " + path.toAbsolutePath());
+                return new Writer(ch, size);
+            } catch (IOException e) {
+                Log.warn("capture", "Cannot open CAPTURE_FILE " + path + ": " + e.getMessage() + "; capture disabled");
+                return null;
+            }
+        }
+
+        /** @return bytes del fichero que forman registros completos */
+        private static long completeLength(Path path) throws IOException {
+            try (CaptureLogReader reader = new CaptureLogReader(path)) {
+                while (reader.next() != null) {
+                    // sólo interesa dónde acaba el último registro completo
+                }
+                return reader.getSize() - reader.getTruncatedBytes();
+            }
+        }
+
+        void offer(byte[] record) {
+            if (!queue.offer(record)) dropped.incrementAndGet();
+        }
+
+        private void drainLoop() {
+            List<byte[]> batch = new ArrayList<>();
+            while (running || !queue.isEmpty()) {
+                try {
+                    byte[] first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) continue;
+                    batch.add(first);
+                    queue.drainTo(batch);
+                    write(batch);
+                } catch (InterruptedException e) {
+                    running = false;
+                } catch (IOException e) {
+                    Log.warn("capture", "Write to capture log failed: " + e.getMessage() + "; capture disabled");
+                    full = true;
+                    return;
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+
+        private void write(List<byte[]> batch) throws IOException {
+            for (byte[] record : batch) {
+                if (full) {
+                    dropped.incrementAndGet();
+                    continue;
+                }
+                if (size + record.length > MAX_BYTES) {
+                    full = true;
+                    dropped.incrementAndGet();
+                    Log.warn("capture", "Capture log reached CAPTURE_MAX_MB; capture stopped after " + written.get() + " records");
+                    continue;
+                }
+                if (buffer.remaining() < record.length) flush();
+                if (record.length > buffer.capacity()) {
+                    ByteBuffer big = ByteBuffer.wrap(record);
+                    while (big.hasRemaining()) channel.write(big);
+                } else {
+                    buffer.put(record);
+                }
+                size += record.length;
+                written.incrementAndGet();
+            }
+            flush();
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+
+        private void shutdown() {
+            running = false;
+            try {
+                thread.join(2000);
+                channel.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException ignored) {
+                // cierre en la parada: nada más que hacer
+            }
+            if (dropped.get() > 0) Log.warn("capture", dropped.get() + " /query records were not captured");
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.web.encoding;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codificador CBOR (RFC 8949, application/cbor): array de mapas con longitudes
+ * definidas. Enteros en su forma más corta, decimales como float64, booleanos
+ * y null como valores simples, {@code byte[]} como byte string y fechas como
+ * texto ISO-8601 (con la etiqueta 0 cuando incluyen zona horaria).
+ */
+public class CborResultEncoder implements ResultEncoder {
+    private static final int MAJOR_UINT = 0;
+    private static final int MAJOR_NEGINT = 1;
+    private static final int MAJOR_BYTES = 2;
+    private static final int MAJOR_TEXT = 3;
+    private static final int MAJOR_ARRAY = 4;
+    private static final int MAJOR_MAP = 5;
+    private static final int MAJOR_TAG = 6;
+
+    @Override
+    public String getContentType() {
+        return "application/cbor";
+    }
+
+    @Override
+    public void encode(List<Map<String, Object>> rows, OutputStream out) throws IOException {
+        DataOutputStream d = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+        writeHeader(d, MAJOR_ARRAY, rows.size());
+        for (Map<String, Object> row : rows) writeValue(d, row);
+        d.flush();
+    }
+
+    private static void writeValue(DataOutputStream d, Object v) throws IOException {
+        if (v == null) {
+            d.write(0xF6);
+        } else if (v instanceof Boolean) {
+            d.write((Boolean) v ? 0xF5 : 0xF4);
+        } else if (ValueFormats.isIntegral(v)) {
+            long l = ((Number) v).longValue();
+            if (l >= 0) writeHeader(d, MAJOR_UINT, l);
+            else writeHeader(d, MAJOR_NEGINT, -1 - l);
+        } else if (v instanceof Double || v instanceof Float) {
+            d.write(0xFB);
+            d.writeDouble(((Number) v).doubleValue());
+        } else if (v instanceof String) {
+            writeText(d, (String) v);
+        } else if (v instanceof byte[]) {
+            byte[] b = (byte[]) v;
+            writeHeader(d, MAJOR_BYTES, b.length);
+            d.write(b);
+        } else if (v instanceof Map) {
+            Map<?, ?> m = (Map<?, ?>) v;
+            writeHeader(d, MAJOR_MAP, m.size());
+            for (Map.Entry<?, ?> e : m.entrySet()) {
+                writeText(d, String.valueOf(e.getKey()));
+                writeValue(d, e.getValue());
+            }
+        } else if (v instanceof Collection) {
+            Collection<?> c = (Collection<?>) v;
+            writeHeader(d, MAJOR_ARRAY, c.size());
+            for (Object o : c) writeValue(d, o);
+        } else {
+            String iso = ValueFormats.toIsoString(v);
+            if (iso != null && (v instanceof java.time.OffsetDateTime || v instanceof java.time.Instant
+                    || v instanceof java.time.ZonedDateTime)) {
+                writeHeader(d, MAJOR_TAG, 0); // tag 0: date/time string RFC 3339
+            }
+            writeText(d, iso != null ? iso : v.toString()); // BigDecimal y otros: texto sin pérdida
+        }
+    }
+
+    private static void writeText(DataOutputStream d, String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        writeHeader(d, MAJOR_TEXT, b.length);
+        d.write(b);
+    }
+
+    /** Cabecera CBOR: tipo mayor en los 3 bits altos y argumento en su forma más corta. */
+    private static void writeHeader(DataOutputStream d, int major, long arg) throws IOException {
+        int mt = major << 5;
+        if (arg < 24) {
+            d.write(mt | (int) arg);
+        } else if (arg < 0x100) {
+            d.write(mt | 24);
+            d.write((int) arg);
+        } else if (arg < 0x10000) {
+            d.write(mt | 25);
+            d.writeShort((int) arg);
+        } else if (arg < 0x1_0000_0000L) {
+            d.write(mt | 26);
+            d.writeInt((int) arg);
+        } else {
+            d.write(mt | 27);
+            d.writeLong(arg);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package org.example.web.encoding;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codificador columnar binario (application/vnd.dap.columnar), inspirado en
+ * el formato Arrow IPC: esquema una vez y después lotes de hasta
+ * {@value #BATCH_ROWS} filas en los que cada columna se envía como buffers
+ * contiguos. Un cliente analítico puede mapear cada columna directamente a un
+ * array primitivo sin parsear fila a fila.
+ *
+ * Formato (little-endian):
+ * <pre>
+ * "DAPCOL01"                                  magia (8 bytes)
+ * int32 numColumnas
+ *   por columna: int32 lenNombre, nombre UTF-8, int8 tipo
+ *     tipos: 1=INT64 2=FLOAT64 3=BOOL 4=UTF8 5=BINARY
+ * lotes: int32 numFilas (0 = fin del flujo)
+ *   por columna:
+ *     bitmap de validez ceil(n/8) bytes (bit a 1 = no nulo, LSB primero)
+ *     INT64/FLOAT64: n * 8 bytes
+ *     BOOL: bitmap ceil(n/8) bytes
+ *     UTF8/BINARY: int32 offsets[n+1] y a continuación offsets[n] bytes de datos
+ * </pre>
+ * El tipo de cada columna se infiere de sus valores no nulos: enteros → INT64,
+ * números con decimales → FLOAT64, booleanos → BOOL, {@code byte[]} → BINARY
+ * y el resto (incluidos BigDecimal y fechas ISO-8601) → UTF8.
+ */
+public class ColumnarResultEncoder implements ResultEncoder {
+    static final byte[] MAGIC = "DAPCOL01".getBytes(StandardCharsets.US_ASCII);
+    static final byte INT64 = 1;
+    static final byte FLOAT64 = 2;
+    static final byte BOOL = 3;
+    static final byte UTF8 = 4;
+    static final byte BINARY = 5;
+    private static final int BATCH_ROWS = 65536;
+
+    @Override
+    public String getContentType() {
+        return "application/vnd.dap.columnar";
+    }
+
+    @Override
+    public void encode(List<Map<String, Object>> rows, OutputStream rawOut) throws IOException {
+        BufferedOutputStream out = new BufferedOutputStream(rawOut, 64 * 1024);
+        List<String> cols = ResultEncoder.columnsOf(rows);
+        byte[] types = new byte[cols.size()];
+        for (int c = 0; c < types.length; c++) types[c] = inferType(rows, cols.get(c));
+
+        out.write(MAGIC);
+        writeInt(out, cols.size());
+        for (int c = 0; c < types.length; c++) {
+            byte[] name = cols.get(c).getBytes(StandardCharsets.UTF_8);
+            writeInt(out, name.length);
+            out.write(name);
+            out.write(types[c]);
+        }
+
+        for (int start = 0; start < rows.size(); start += BATCH_ROWS) {
+            int n = Math.min(BATCH_ROWS, rows.size() - start);
+            writeInt(out, n);
+            List<Map<String, Object>> batch = rows.subList(start, start + n);
+            for (int c = 0; c < types.length; c++) writeColumn(out, batch, cols.get(c), types[c]);
+        }
+        writeInt(out, 0);
+        out.flush();
+    }
+
+    private static byte inferType(List<Map<String, Object>> rows, String col) {
+        boolean allIntegral = true;
+        boolean allNumeric = true;
+        boolean allBool = true;
+        boolean allBinary = true;
+        boolean any = false;
+        for (Map<String, Object> row : rows) {
+            Object v = row.get(col);
+            if (v == null) continue;
+            any = true;
+            boolean integral = ValueFormats.isIntegral(v);
+            allIntegral &= integral;
+            allNumeric &= integral || v instanceof Double || v instanceof Float;
+            allBool &= v instanceof Boolean;
+            allBinary &= v instanceof byte[];
+            if (!allIntegral && !allNumeric && !allBool && !allBinary) return UTF8;
+        }
+        if (!any) return UTF8;
+        if (allIntegral) return INT64;
+        if (allNumeric) return FLOAT64;
+        if (allBool) return BOOL;
+        return allBinary ? BINARY : UTF8;
+    }
+
+    private static void writeColumn(OutputStream out, List<Map<String, Object>> batch, String col, byte type) throws IOException {
+        int n = batch.size();
+        byte[] validity = new byte[(n + 7) >>> 3];
+        switch (type) {
+            case INT64:
+            case FLOAT64: {
+                ByteBuffer data = ByteBuffer.allocate(n * 8).order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = 0; i < n; i++) {
+                    Object v = batch.get(i).get(col);
+                    if (v != null) {
+                        validity[i >>> 3] |= (byte) (1 << (i & 7));
+                        if (type == INT64) data.putLong(i * 8, ((Number) v).longValue());
+                        else data.putDouble(i * 8, ((Number) v).doubleValue());
+                    }
+                }
+                out.write(validity);
+                out.write(data.array());
+                break;
+            }
+            case BOOL: {
+                byte[] bits = new byte[validity.length];
+                for (int i = 0; i < n; i++) {
+                    Object v = batch.get(i).get(col);
+                    if (v != null) {
+                        validity[i >>> 3] |= (byte) (1 << (i & 7));
+                        if ((Boolean) v) bits[i >>> 3] |= (byte) (1 << (i & 7));
+                    }
+                }
+                out.write(validity);
+                out.write(bits);
+                break;
+            }
+            default: {
+                ByteBuffer offsets = ByteBuffer.allocate((n + 1) * 4).order(ByteOrder.LITTLE_ENDIAN);
+                ByteArrayOutputStream data = new ByteArrayOutputStream();
+                offsets.putInt(0);
+                for (int i = 0; i < n; i++) {
+                    Object v = batch.get(i).get(col);
+                    if (v != null) {
+                        validity[i >>> 3] |= (byte) (1 << (i & 7));
+                        byte[] b;
+                        if (v instanceof byte[]) {
+                            b = (byte[]) v;
+                        } else {
+                            String iso = ValueFormats.toIsoString(v);
+                            b = (iso != null ? iso : v.toString()).getBytes(StandardCharsets.UTF_8);
+                        }
+                        data.write(b, 0, b.length);
+                    }
+                    offsets.putInt(data.size());
+                }
+                out.write(validity);
+                out.write(offsets.array());
+                data.writeTo(out);
+                break;
+            }
+        }
+    }
+
+    private static void writeInt(OutputStream out, int v) throws IOException {
+        out.write(v);
+        out.write(v >>> 8);
+        out.write(v >>> 16);
+        out.write(v >>> 24);
+    }
+}
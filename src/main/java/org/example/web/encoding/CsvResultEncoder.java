@@ -0,0 +1,68 @@
+package org.example.web.encoding;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codificador CSV (RFC 4180): cabecera con los nombres de columna y una línea
+ * por fila. Los campos con coma, comillas o saltos de línea se entrecomillan;
+ * NULL se representa como campo vacío y {@code byte[]} en Base64.
+ */
+public class CsvResultEncoder implements ResultEncoder {
+    @Override
+    public String getContentType() {
+        return "text/csv";
+    }
+
+    @Override
+    public void encode(List<Map<String, Object>> rows, OutputStream out) throws IOException {
+        List<String> cols = ResultEncoder.columnsOf(rows);
+        Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 16 * 1024);
+        for (int i = 0; i < cols.size(); i++) {
+            if (i > 0) w.write(',');
+            writeField(w, cols.get(i));
+        }
+        w.write("\r\n");
+        for (Map<String, Object> row : rows) {
+            for (int i = 0; i < cols.size(); i++) {
+                if (i > 0) w.write(',');
+                Object v = row.get(cols.get(i));
+                if (v == null) continue;
+                String iso = ValueFormats.toIsoString(v);
+                if (v instanceof byte[]) writeField(w, Base64.getEncoder().encodeToString((byte[]) v));
+                else writeField(w, iso != null ? iso : v.toString());
+            }
+            w.write("\r\n");
+        }
+        w.flush();
+    }
+
+    private static void writeField(Writer w, String s) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                quote = true;
+                break;
+            }
+        }
+        if (!quote) {
+            w.write(s);
+            return;
+        }
+        w.write('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') w.write('"');
+            w.write(c);
+        }
+        w.write('"');
+    }
+}
@@ -0,0 +1,25 @@
+package org.example.web.encoding;
+
+import org.example.web.json.JsonWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codificador JSON (formato por defecto): array de objetos, uno por fila.
+ */
+public class JsonResultEncoder implements ResultEncoder {
+    @Override
+    public String getContentType() {
+        return "application/json";
+    }
+
+    @Override
+    public void encode(List<Map<String, Object>> rows, OutputStream out) throws IOException {
+        JsonWriter w = new JsonWriter(out);
+        w.writeRows(rows);
+        w.flush();
+    }
+}
@@ -0,0 +1,145 @@
+package org.example.web.encoding;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codificador MessagePack (application/x-msgpack): array de mapas. Enteros en
+ * la forma más compacta (fixint, int8..int64/uint64), decimales como float64,
+ * {@code byte[]} como bin y fechas/BigDecimal como str (ISO-8601 / texto exacto).
+ */
+public class MessagePackResultEncoder implements ResultEncoder {
+    @Override
+    public String getContentType() {
+        return "application/x-msgpack";
+    }
+
+    @Override
+    public void encode(List<Map<String, Object>> rows, OutputStream out) throws IOException {
+        DataOutputStream d = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+        writeArrayHeader(d, rows.size());
+        for (Map<String, Object> row : rows) writeValue(d, row);
+        d.flush();
+    }
+
+    private static void writeValue(DataOutputStream d, Object v) throws IOException {
+        if (v == null) {
+            d.write(0xC0);
+        } else if (v instanceof Boolean) {
+            d.write((Boolean) v ? 0xC3 : 0xC2);
+        } else if (ValueFormats.isIntegral(v)) {
+            writeLong(d, ((Number) v).longValue());
+        } else if (v instanceof Double || v instanceof Float) {
+            d.write(0xCB);
+            d.writeDouble(((Number) v).doubleValue());
+        } else if (v instanceof String) {
+            writeString(d, (String) v);
+        } else if (v instanceof byte[]) {
+            byte[] b = (byte[]) v;
+            if (b.length < 0x100) {
+                d.write(0xC4);
+                d.write(b.length);
+            } else if (b.length < 0x10000) {
+                d.write(0xC5);
+                d.writeShort(b.length);
+            } else {
+                d.write(0xC6);
+                d.writeInt(b.length);
+            }
+            d.write(b);
+        } else if (v instanceof Map) {
+            Map<?, ?> m = (Map<?, ?>) v;
+            int n = m.size();
+            if (n < 16) {
+                d.write(0x80 | n);
+            } else if (n < 0x10000) {
+                d.write(0xDE);
+                d.writeShort(n);
+            } else {
+                d.write(0xDF);
+                d.writeInt(n);
+            }
+            for (Map.Entry<?, ?> e : m.entrySet()) {
+                writeString(d, String.valueOf(e.getKey()));
+                writeValue(d, e.getValue());
+            }
+        } else if (v instanceof Collection) {
+            Collection<?> c = (Collection<?>) v;
+            writeArrayHeader(d, c.size());
+            for (Object o : c) writeValue(d, o);
+        } else {
+            String iso = ValueFormats.toIsoString(v);
+            writeString(d, iso != null ? iso : v.toString());
+        }
+    }
+
+    private static void writeArrayHeader(DataOutputStream d, int n) throws IOException {
+        if (n < 16) {
+            d.write(0x90 | n);
+        } else if (n < 0x10000) {
+            d.write(0xDC);
+            d.writeShort(n);
+        } else {
+            d.write(0xDD);
+            d.writeInt(n);
+        }
+    }
+
+    private static void writeLong(DataOutputStream d, long l) throws IOException {
+        if (l >= 0) {
+            if (l < 0x80) {
+                d.write((int) l); // positive fixint
+            } else if (l < 0x100) {
+                d.write(0xCC);
+                d.write((int) l);
+            } else if (l < 0x10000) {
+                d.write(0xCD);
+                d.writeShort((int) l);
+            } else if (l < 0x1_0000_0000L) {
+                d.write(0xCE);
+                d.writeInt((int) l);
+            } else {
+                d.write(0xCF);
+                d.writeLong(l);
+            }
+        } else if (l >= -32) {
+            d.write((int) l & 0xFF); // negative fixint
+        } else if (l >= Byte.MIN_VALUE) {
+            d.write(0xD0);
+            d.write((int) l);
+        } else if (l >= Short.MIN_VALUE) {
+            d.write(0xD1);
+            d.writeShort((int) l);
+        } else if (l >= Integer.MIN_VALUE) {
+            d.write(0xD2);
+            d.writeInt((int) l);
+        } else {
+            d.write(0xD3);
+            d.writeLong(l);
+        }
+    }
+
+    private static void writeString(DataOutputStream d, String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        int n = b.length;
+        if (n < 32) {
+            d.write(0xA0 | n);
+        } else if (n < 0x100) {
+            d.write(0xD9);
+            d.write(n);
+        } else if (n < 0x10000) {
+            d.write(0xDA);
+            d.writeShort(n);
+        } else {
+            d.write(0xDB);
+            d.writeInt(n);
+        }
+        d.write(b);
+    }
+}
@@ -0,0 +1,29 @@
+package org.example.web.encoding;
+
+import org.example.web.json.JsonWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codificador NDJSON (application/x-ndjson): un objeto JSON por línea. El
+ * cliente puede procesar cada fila según llega sin parsear el documento entero.
+ */
+public class NdjsonResultEncoder implements ResultEncoder {
+    @Override
+    public String getContentType() {
+        return "application/x-ndjson";
+    }
+
+    @Override
+    public void encode(List<Map<String, Object>> rows, OutputStream out) throws IOException {
+        JsonWriter w = new JsonWriter(out);
+        for (Map<String, Object> row : rows) {
+            w.value(row);
+            w.newline();
+        }
+        w.flush();
+    }
+}
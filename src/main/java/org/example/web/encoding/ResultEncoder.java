@@ -0,0 +1,54 @@
+package org.example.web.encoding;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @file ResultEncoder.java
+ * @brief Codificador de un resultado de consulta a un formato de respuesta.
+ *
+ * Cada implementación declara su tipo MIME; {@link ResultEncoders} elige la
+ * adecuada a partir de la cabecera Accept de la petición /query.
+ * {@link org.example.web.api.QueryHandler} delega en esta interfaz en
+ * ambos servidores.
+ */
+public interface ResultEncoder {
+    /**
+     * @return tipo MIME principal producido (por ejemplo "text/csv")
+     */
+    String getContentType();
+
+    /**
+     * Escribe las filas en el flujo. No cierra el flujo.
+     *
+     * @param rows filas (columna → valor)
+     * @param out flujo de salida de la respuesta
+     * @throws IOException si falla la escritura
+     */
+    void encode(List<Map<String, Object>> rows, OutputStream out) throws IOException;
+
+    /**
+     * Calcula la lista ordenada de columnas del resultado (unión de las claves
+     * de todas las filas, en orden de aparición).
+     *
+     * @param rows filas
+     * @return nombres de columna
+     */
+    static List<String> columnsOf(List<Map<String, Object>> rows) {
+        if (rows.isEmpty()) return new ArrayList<>();
+        Set<String> cols = new LinkedHashSet<>(rows.get(0).keySet());
+        int expected = cols.size();
+        for (Map<String, Object> row : rows) {
+            if (row.size() != expected || !cols.containsAll(row.keySet())) {
+                cols.addAll(row.keySet());
+                expected = cols.size();
+            }
+        }
+        return new ArrayList<>(cols);
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.web.encoding;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * @file ResultEncoders.java
+ * @brief Registro de codificadores y negociación por cabecera Accept.
+ *
+ * Tipos soportados:
+ * - application/json (por defecto)
+ * - application/x-ndjson (también application/ndjson)
+ * - text/csv
+ * - application/cbor
+ * - application/x-msgpack (también application/msgpack)
+ * - application/vnd.dap.columnar
+ *
+ * Sin cabecera Accept, o con comodines, se responde en JSON. Si la cabecera
+ * sólo contiene tipos no soportados, {@link #forAccept(String)} devuelve null
+ * y el llamador debe responder 406.
+ */
+public final class ResultEncoders {
+    private static final ResultEncoder JSON = new JsonResultEncoder();
+    private static final Map<String, ResultEncoder> BY_TYPE = new LinkedHashMap<>();
+
+    static {
+        register(JSON);
+        register(new NdjsonResultEncoder());
+        register(new CsvResultEncoder());
+        register(new CborResultEncoder());
+        register(new MessagePackResultEncoder());
+        register(new ColumnarResultEncoder());
+        BY_TYPE.put("application/ndjson", BY_TYPE.get("application/x-ndjson"));
+        BY_TYPE.put("application/msgpack", BY_TYPE.get("application/x-msgpack"));
+    }
+
+    private ResultEncoders() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    private static void register(ResultEncoder encoder) {
+        BY_TYPE.put(encoder.getContentType(), encoder);
+    }
+
+    /**
+     * @return el codificador JSON por defecto
+     */
+    public static ResultEncoder defaultEncoder() {
+        return JSON;
+    }
+
+    /**
+     * Elige el codificador para una cabecera Accept, respetando los valores q
+     * (a igual q gana el primero de la lista).
+     *
+     * @param accept valor de la cabecera Accept (puede ser null)
+     * @return codificador elegido, o null si ninguno de los tipos aceptados está soportado
+     */
+    public static ResultEncoder forAccept(String accept) {
+        if (accept == null || accept.trim().isEmpty()) return JSON;
+        ResultEncoder best = null;
+        double bestQ = 0;
+        for (String part : accept.split(",")) {
+            String[] params = part.split(";");
+            String type = params[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1.0;
+            for (int i = 1; i < params.length; i++) {
+                String p = params[i].trim();
+                if (p.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(p.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (q <= bestQ) continue;
+            ResultEncoder enc = "*/*".equals(type) || "application/*".equals(type) ? JSON : BY_TYPE.get(type);
+            if (enc == null && "text/*".equals(type)) enc = BY_TYPE.get("text/csv");
+            if (enc != null) {
+                best = enc;
+                bestQ = q;
+            }
+        }
+        return best;
+    }
+}
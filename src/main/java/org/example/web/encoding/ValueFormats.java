@@ -0,0 +1,33 @@
+package org.example.web.encoding;
+
+import java.time.temporal.TemporalAccessor;
+
+/**
+ * Conversiones de valores comunes a los codificadores de resultados.
+ */
+final class ValueFormats {
+    private ValueFormats() {
+    }
+
+    /**
+     * Representación ISO-8601 de un valor temporal (JDBC o java.time).
+     *
+     * @param v valor
+     * @return texto ISO, o null si el valor no es temporal
+     */
+    static String toIsoString(Object v) {
+        if (v instanceof java.sql.Timestamp) return ((java.sql.Timestamp) v).toLocalDateTime().toString();
+        if (v instanceof java.sql.Date) return ((java.sql.Date) v).toLocalDate().toString();
+        if (v instanceof java.sql.Time) return ((java.sql.Time) v).toLocalTime().toString();
+        if (v instanceof java.util.Date) return ((java.util.Date) v).toInstant().toString();
+        if (v instanceof TemporalAccessor) return v.toString();
+        return null;
+    }
+
+    /**
+     * @return true si el valor es un entero representable en 64 bits
+     */
+    static boolean isIntegral(Object v) {
+        return v instanceof Long || v instanceof Integer || v instanceof Short || v instanceof Byte;
+    }
+}
@@ -0,0 +1,98 @@
+package org.example.web.impl;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.example.web.api.ApiExchange;
+import org.example.web.api.ApiHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @file ApiHttpHandler.java
+ * @brief Adaptador que publica un {@link ApiHandler} en el HttpServer del JDK.
+ */
+public class ApiHttpHandler implements HttpHandler {
+    private final ApiHandler handler;
+
+    public ApiHttpHandler(ApiHandler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        HttpServerApiExchange api = new HttpServerApiExchange(exchange);
+        try {
+            handler.handle(api);
+        } finally {
+            if (!api.detached) exchange.close();
+        }
+    }
+
+    /**
+     * Implementación de {@link ApiExchange} sobre {@link HttpExchange}.
+     */
+    static class HttpServerApiExchange implements ApiExchange {
+        private final HttpExchange exchange;
+        private Map<String, String> query;
+        private boolean detached;
+
+        HttpServerApiExchange(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        @Override
+        public String getMethod() { return exchange.getRequestMethod(); }
+
+        @Override
+        public String getPath() { return exchange.getRequestURI().getPath(); }
+
+        @Override
+        public String getQueryParameter(String name) {
+            if (query == null) query = parseQuery(exchange.getRequestURI().getRawQuery());
+            return query.get(name);
+        }
+
+        @Override
+        public String getRequestHeader(String name) { return exchange.getRequestHeaders().getFirst(name); }
+
+        @Override
+        public String getRemoteAddress() { return exchange.getRemoteAddress().getAddress().getHostAddress(); }
+
+        @Override
+        public InputStream getRequestBody() { return exchange.getRequestBody(); }
+
+        @Override
+        public void setResponseHeader(String name, String value) { exchange.getResponseHeaders().add(name, value); }
+
+        @Override
+        public OutputStream sendResponse(int status, String contentType) throws IOException {
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.sendResponseHeaders(status, 0); // 0 = chunked
+            return exchange.getResponseBody();
+        }
+
+        @Override
+        public Runnable detach() {
+            detached = true;
+            return exchange::close;
+        }
+
+        static Map<String, String> parseQuery(String raw) {
+            Map<String, String> m = new HashMap<>();
+            if (raw == null || raw.isEmpty()) return m;
+            for (String pair : raw.split("&")) {
+                int eq = pair.indexOf('=');
+                String k = eq < 0 ? pair : pair.substring(0, eq);
+                String v = eq < 0 ? "" : pair.substring(eq + 1);
+                m.putIfAbsent(URLDecoder.decode(k, StandardCharsets.UTF_8), URLDecoder.decode(v, StandardCharsets.UTF_8));
+            }
+            return m;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.web.json;
+
+import java.io.IOException;
+
+/**
+ * @file JsonParseException.java
+ * @brief Error de sintaxis JSON o cuerpo de petición demasiado grande.
+ *
+ * Los servidores la traducen a 400 Bad Request, o a 413 Payload Too Large
+ * cuando {@link #isTooLarge()} es true.
+ */
+public class JsonParseException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final boolean tooLarge;
+
+    public JsonParseException(String message) {
+        this(message, false);
+    }
+
+    public JsonParseException(String message, boolean tooLarge) {
+        super(message);
+        this.tooLarge = tooLarge;
+    }
+
+    /**
+     * @return true si el error se debe a superar el tamaño máximo permitido
+     */
+    public boolean isTooLarge() {
+        return tooLarge;
+    }
+}
@@ -0,0 +1,314 @@
+package org.example.web.json;
+
+import org.example.db.utilities.ConnectionConfig;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @file JsonReader.java
+ * @brief Lector JSON en streaming para los cuerpos de petición.
+ *
+ * Sustituye a la extracción por expresiones regulares (un Pattern.compile por
+ * clave y petición, sin soporte de comillas escapadas). Lee el cuerpo una sola
+ * vez directamente del InputStream, byte a byte sobre un buffer propio, y
+ * construye valores Java:
+ * - objeto → {@code LinkedHashMap<String,Object>} (orden preservado)
+ * - array → {@code ArrayList<Object>}
+ * - string → {@code String} (escapes \" \\ \/ \b \f \n \r \t \\uXXXX)
+ * - número → {@code Long} si es entero, {@code Double} si tiene decimales o
+ *   exponente, {@code BigDecimal} si es entero y no cabe en un long
+ * - true/false/null → {@code Boolean}/null
+ *
+ * El número de bytes leídos se limita a {@code maxBytes} (por defecto
+ * MAX_REQUEST_BODY_BYTES, 16 MB) y la anidación a {@value #MAX_DEPTH} niveles.
+ */
+public final class JsonReader {
+    /** Tamaño máximo por defecto del cuerpo de una petición. */
+    public static final long DEFAULT_MAX_BYTES =
+            ConnectionConfig.getConfigValueAsInt("MAX_REQUEST_BODY_BYTES", "MAX_REQUEST_BODY_BYTES", 16 * 1024 * 1024);
+    private static final int MAX_DEPTH = 64;
+
+    private final InputStream in;
+    private final long maxBytes;
+    private final byte[] buf = new byte[8192];
+    private int pos = 0;
+    private int limit = 0;
+    private long consumed = 0;
+    /** Buffer reutilizable para el contenido (UTF-8) de strings y números. */
+    private byte[] scratch = new byte[256];
+    private int scratchLen;
+
+    /**
+     * Constructor.
+     *
+     * @param in flujo con el documento JSON
+     * @param maxBytes número máximo de bytes a leer
+     */
+    public JsonReader(InputStream in, long maxBytes) {
+        this.in = in;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Lee un documento JSON completo (un valor y, después, sólo espacios).
+     *
+     * @param in flujo con el documento
+     * @param maxBytes número máximo de bytes a leer
+     * @return valor leído
+     * @throws JsonParseException si el documento no es válido o es demasiado grande
+     * @throws IOException si falla la lectura del flujo
+     */
+    public static Object parse(InputStream in, long maxBytes) throws IOException {
+        JsonReader r = new JsonReader(in, maxBytes);
+        Object v = r.readValue(0);
+        if (r.peekNonWhitespace() != -1) throw r.error("unexpected trailing data");
+        return v;
+    }
+
+    /**
+     * Lee un documento cuyo valor raíz debe ser un objeto.
+     *
+     * @param in flujo con el documento
+     * @param maxBytes número máximo de bytes a leer
+     * @return el objeto como mapa ordenado
+     * @throws JsonParseException si no es un objeto JSON válido
+     * @throws IOException si falla la lectura
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> parseObject(InputStream in, long maxBytes) throws IOException {
+        Object v = parse(in, maxBytes);
+        if (!(v instanceof Map)) throw new JsonParseException("expected a JSON object");
+        return (Map<String, Object>) v;
+    }
+
+    /**
+     * Obtiene un campo de tipo string de un objeto ya leído.
+     *
+     * @param obj objeto JSON
+     * @param key nombre del campo
+     * @return el valor si existe y es un string; null en otro caso
+     */
+    public static String getString(Map<String, Object> obj, String key) {
+        Object v = obj.get(key);
+        return v instanceof String ? (String) v : null;
+    }
+
+    /**
+     * Obtiene un campo numérico entero de un objeto ya leído.
+     *
+     * @param obj objeto JSON
+     * @param key nombre del campo
+     * @return el valor si existe y es un número entero; null en otro caso
+     */
+    public static Long getLong(Map<String, Object> obj, String key) {
+        Object v = obj.get(key);
+        return v instanceof Long ? (Long) v : null;
+    }
+
+    // ----------------- Parser -----------------
+
+    private Object readValue(int depth) throws IOException {
+        if (depth > MAX_DEPTH) throw error("nesting too deep");
+        int c = peekNonWhitespace();
+        switch (c) {
+            case '{': pos++; return readObject(depth);
+            case '[': pos++; return readArray(depth);
+            case '"': pos++; return readString();
+            case 't': expectLiteral("true"); return Boolean.TRUE;
+            case 'f': expectLiteral("false"); return Boolean.FALSE;
+            case 'n': expectLiteral("null"); return null;
+            case -1: throw error("unexpected end of input");
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) return readNumber();
+                throw error("unexpected character '" + (char) c + "'");
+        }
+    }
+
+    private Map<String, Object> readObject(int depth) throws IOException {
+        Map<String, Object> m = new LinkedHashMap<>();
+        int c = peekNonWhitespace();
+        if (c == '}') { pos++; return m; }
+        while (true) {
+            if (peekNonWhitespace() != '"') throw error("expected field name");
+            pos++;
+            String key = readString();
+            if (peekNonWhitespace() != ':') throw error("expected ':'");
+            pos++;
+            m.put(key, readValue(depth + 1));
+            c = peekNonWhitespace();
+            pos++;
+            if (c == '}') return m;
+            if (c != ',') throw error("expected ',' or '}'");
+        }
+    }
+
+    private List<Object> readArray(int depth) throws IOException {
+        List<Object> list = new ArrayList<>();
+        int c = peekNonWhitespace();
+        if (c == ']') { pos++; return list; }
+        while (true) {
+            list.add(readValue(depth + 1));
+            c = peekNonWhitespace();
+            pos++;
+            if (c == ']') return list;
+            if (c != ',') throw error("expected ',' or ']'");
+        }
+    }
+
+    /** Lee un string; la comilla de apertura ya se consumió. */
+    private String readString() throws IOException {
+        scratchLen = 0;
+        while (true) {
+            int b = next();
+            if (b == '"') break;
+            if (b == -1) throw error("unterminated string");
+            if (b == '\\') {
+                int e = next();
+                switch (e) {
+                    case '"': append('"'); break;
+                    case '\\': append('\\'); break;
+                    case '/': append('/'); break;
+                    case 'b': append('\b'); break;
+                    case 'f': append('\f'); break;
+                    case 'n': append('\n'); break;
+                    case 'r': append('\r'); break;
+                    case 't': append('\t'); break;
+                    case 'u': appendCodePoint(readUnicodeEscape()); break;
+                    default: throw error("invalid escape");
+                }
+            } else if (b < 0x20) {
+                throw error("control character in string");
+            } else {
+                append(b); // bytes UTF-8 tal cual: se decodifican al final
+            }
+        }
+        return new String(scratch, 0, scratchLen, StandardCharsets.UTF_8);
+    }
+
+    private int readUnicodeEscape() throws IOException {
+        int cp = readHex4();
+        if (Character.isHighSurrogate((char) cp)) {
+            // Par sustituto: debe seguir \\uDC00-\\uDFFF
+            if (next() != '\\' || next() != 'u') throw error("invalid surrogate pair");
+            int low = readHex4();
+            if (!Character.isLowSurrogate((char) low)) throw error("invalid surrogate pair");
+            cp = Character.toCodePoint((char) cp, (char) low);
+        }
+        return cp;
+    }
+
+    private int readHex4() throws IOException {
+        int v = 0;
+        for (int i = 0; i < 4; i++) {
+            int h = Character.digit(next(), 16);
+            if (h < 0) throw error("invalid \\u escape");
+            v = (v << 4) | h;
+        }
+        return v;
+    }
+
+    private Object readNumber() throws IOException {
+        scratchLen = 0;
+        boolean integral = true;
+        while (true) {
+            int c = peek();
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+') {
+                append(c);
+            } else if (c == '.' || c == 'e' || c == 'E') {
+                integral = false;
+                append(c);
+            } else {
+                break;
+            }
+            pos++;
+        }
+        String s = new String(scratch, 0, scratchLen, StandardCharsets.US_ASCII);
+        try {
+            if (!integral) return Double.parseDouble(s);
+            if (scratchLen <= 18) return Long.parseLong(s);
+            BigDecimal bd = new BigDecimal(s);
+            try {
+                return bd.longValueExact();
+            } catch (ArithmeticException overflow) {
+                return bd;
+            }
+        } catch (NumberFormatException e) {
+            throw error("invalid number '" + s + "'");
+        }
+    }
+
+    private void expectLiteral(String word) throws IOException {
+        for (int i = 0; i < word.length(); i++) {
+            if (next() != word.charAt(i)) throw error("invalid literal, expected " + word);
+        }
+    }
+
+    // ----------------- Buffer -----------------
+
+    private int peek() throws IOException {
+        if (pos < limit) return buf[pos] & 0xFF;
+        return fill() ? buf[pos] & 0xFF : -1;
+    }
+
+    private int next() throws IOException {
+        int c = peek();
+        if (c != -1) pos++;
+        return c;
+    }
+
+    private int peekNonWhitespace() throws IOException {
+        while (true) {
+            int c = peek();
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') return c;
+            pos++;
+        }
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buf, 0, buf.length);
+        if (n <= 0) return false;
+        consumed += n;
+        if (consumed > maxBytes) throw new JsonParseException("request body exceeds " + maxBytes + " bytes", true);
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    private void append(int b) {
+        if (scratchLen == scratch.length) {
+            byte[] bigger = new byte[scratch.length * 2];
+            System.arraycopy(scratch, 0, bigger, 0, scratchLen);
+            scratch = bigger;
+        }
+        scratch[scratchLen++] = (byte) b;
+    }
+
+    private void appendCodePoint(int cp) {
+        if (cp < 0x80) {
+            append(cp);
+        } else if (cp < 0x800) {
+            append(0xC0 | (cp >> 6));
+            append(0x80 | (cp & 0x3F));
+        } else if (cp < 0x10000) {
+            append(0xE0 | (cp >> 12));
+            append(0x80 | ((cp >> 6) & 0x3F));
+            append(0x80 | (cp & 0x3F));
+        } else {
+            append(0xF0 | (cp >> 18));
+            append(0x80 | ((cp >> 12) & 0x3F));
+            append(0x80 | ((cp >> 6) & 0x3F));
+            append(0x80 | (cp & 0x3F));
+        }
+    }
+
+    private JsonParseException error(String msg) {
+        return new JsonParseException("Invalid JSON at byte " + (consumed - limit + pos) + ": " + msg);
+    }
+}
@@ -0,0 +1,383 @@
+package org.example.web.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.temporal.TemporalAccessor;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @file JsonWriter.java
+ * @brief Escritor JSON tipado que codifica UTF-8 directamente sobre el
+ *        OutputStream de la respuesta.
+ *
+ * Sustituye a las copias duplicadas de {@code toJson}/{@code escape} de
+ * QueryServlet y SimpleWebServer, que construían un String intermedio con
+ * cuatro {@code String.replace} por valor y entrecomillaban todos los valores.
+ *
+ * - Los caracteres se codifican a UTF-8 a mano sobre un buffer de bytes
+ *   reutilizado por hilo; sólo se toca el OutputStream cuando el buffer se llena.
+ * - El escapado usa una tabla de búsqueda para los 128 caracteres ASCII.
+ * - Los valores se emiten con su tipo JSON: números y booleanos sin comillas,
+ *   fechas/horas en ISO-8601, {@code byte[]} (bytea/BLOB) en Base64, mapas
+ *   como objetos y colecciones/arrays como arrays.
+ *
+ * No es thread-safe: una instancia por respuesta.
+ */
+public final class JsonWriter implements Closeable, Flushable {
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    /** Secuencia de escape por carácter ASCII; null si no necesita escape. */
+    private static final byte[][] ESCAPES = new byte[128][];
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            ESCAPES[c] = new byte[]{'\\', 'u', '0', '0', HEX[c >> 4], HEX[c & 0xF]};
+        }
+        ESCAPES['"'] = new byte[]{'\\', '"'};
+        ESCAPES['\\'] = new byte[]{'\\', '\\'};
+        ESCAPES['\n'] = new byte[]{'\\', 'n'};
+        ESCAPES['\r'] = new byte[]{'\\', 'r'};
+        ESCAPES['\t'] = new byte[]{'\\', 't'};
+        ESCAPES['\b'] = new byte[]{'\\', 'b'};
+        ESCAPES['\f'] = new byte[]{'\\', 'f'};
+    }
+
+    private final OutputStream out;
+    private final byte[] buf;
+    private int pos = 0;
+
+    /** Pila de "primer elemento" por nivel para decidir cuándo escribir comas. */
+    private boolean[] first = new boolean[16];
+    private int depth = 0;
+    private boolean afterName = false;
+
+    /**
+     * Constructor.
+     *
+     * @param out flujo de destino (normalmente el cuerpo de la respuesta HTTP)
+     */
+    public JsonWriter(OutputStream out) {
+        this(out, BUFFERS.get());
+    }
+
+    private JsonWriter(OutputStream out, byte[] buf) {
+        this.out = out;
+        this.buf = buf;
+    }
+
+    /**
+     * Serializa un valor completo a String. Pensado para respuestas pequeñas
+     * (errores, endpoints de administración).
+     *
+     * @param value valor a serializar
+     * @return documento JSON
+     */
+    public static String toJson(Object value) {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        // Buffer propio: puede llamarse mientras otro JsonWriter del mismo hilo usa el buffer compartido
+        try (JsonWriter w = new JsonWriter(bout, new byte[256])) {
+            w.value(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // imposible con ByteArrayOutputStream
+        }
+        return bout.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Escribe las filas de una consulta como array de objetos.
+     *
+     * @param rows filas (columna → valor)
+     * @throws IOException si falla la escritura
+     */
+    public void writeRows(List<Map<String, Object>> rows) throws IOException {
+        beginArray();
+        for (Map<String, Object> row : rows) {
+            beginObject();
+            for (Map.Entry<String, Object> e : row.entrySet()) {
+                name(e.getKey());
+                value(e.getValue());
+            }
+            endObject();
+        }
+        endArray();
+    }
+
+    // ----------------- Estructura -----------------
+
+    public JsonWriter beginObject() throws IOException {
+        separator();
+        writeByte('{');
+        push();
+        return this;
+    }
+
+    public JsonWriter endObject() throws IOException {
+        depth--;
+        writeByte('}');
+        return this;
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        separator();
+        writeByte('[');
+        push();
+        return this;
+    }
+
+    public JsonWriter endArray() throws IOException {
+        depth--;
+        writeByte(']');
+        return this;
+    }
+
+    /**
+     * Escribe el nombre de un campo; debe seguirle un valor.
+     *
+     * @param name nombre del campo
+     * @return this
+     * @throws IOException si falla la escritura
+     */
+    public JsonWriter name(String name) throws IOException {
+        separator();
+        writeQuoted(name);
+        writeByte(':');
+        afterName = true;
+        return this;
+    }
+
+    // ----------------- Valores -----------------
+
+    /**
+     * Escribe un valor eligiendo la representación JSON según su tipo Java.
+     *
+     * @param v valor (puede ser null)
+     * @return this
+     * @throws IOException si falla la escritura
+     */
+    public JsonWriter value(Object v) throws IOException {
+        if (v == null) {
+            separator();
+            writeRaw(NULL);
+        } else if (v instanceof String) {
+            value((String) v);
+        } else if (v instanceof Integer || v instanceof Long || v instanceof Short || v instanceof Byte) {
+            value(((Number) v).longValue());
+        } else if (v instanceof Double || v instanceof Float) {
+            value(((Number) v).doubleValue());
+        } else if (v instanceof BigDecimal) {
+            separator();
+            writeAscii(((BigDecimal) v).toPlainString());
+        } else if (v instanceof BigInteger) {
+            separator();
+            writeAscii(v.toString());
+        } else if (v instanceof Boolean) {
+            value(((Boolean) v).booleanValue());
+        } else if (v instanceof byte[]) {
+            separator();
+            writeByte('"');
+            writeAscii(Base64.getEncoder().encodeToString((byte[]) v));
+            writeByte('"');
+        } else if (v instanceof java.sql.Timestamp) {
+            value(((java.sql.Timestamp) v).toLocalDateTime().toString());
+        } else if (v instanceof java.sql.Date) {
+            value(((java.sql.Date) v).toLocalDate().toString());
+        } else if (v instanceof java.sql.Time) {
+            value(((java.sql.Time) v).toLocalTime().toString());
+        } else if (v instanceof java.util.Date) {
+            value(((java.util.Date) v).toInstant().toString());
+        } else if (v instanceof TemporalAccessor) {
+            value(v.toString()); // java.time: toString() ya es ISO-8601
+        } else if (v instanceof Map) {
+            beginObject();
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) v).entrySet()) {
+                name(String.valueOf(e.getKey()));
+                value(e.getValue());
+            }
+            endObject();
+        } else if (v instanceof Collection) {
+            beginArray();
+            for (Object o : (Collection<?>) v) value(o);
+            endArray();
+        } else if (v instanceof Object[]) {
+            beginArray();
+            for (Object o : (Object[]) v) value(o);
+            endArray();
+        } else {
+            value(String.valueOf(v));
+        }
+        return this;
+    }
+
+    public JsonWriter value(String s) throws IOException {
+        separator();
+        if (s == null) writeRaw(NULL); else writeQuoted(s);
+        return this;
+    }
+
+    public JsonWriter value(long v) throws IOException {
+        separator();
+        if (v == Long.MIN_VALUE) {
+            writeAscii(Long.toString(v));
+            return this;
+        }
+        if (v < 0) {
+            writeByte('-');
+            v = -v;
+        }
+        // Dígitos en orden inverso directamente en el buffer y luego se invierten: sin String intermedio
+        ensure(20);
+        int start = pos;
+        do {
+            buf[pos++] = (byte) ('0' + (v % 10));
+            v /= 10;
+        } while (v != 0);
+        for (int i = start, j = pos - 1; i < j; i++, j--) {
+            byte t = buf[i];
+            buf[i] = buf[j];
+            buf[j] = t;
+        }
+        return this;
+    }
+
+    public JsonWriter value(double v) throws IOException {
+        separator();
+        if (Double.isNaN(v) || Double.isInfinite(v)) writeRaw(NULL); // JSON no admite NaN/Infinity
+        else writeAscii(Double.toString(v));
+        return this;
+    }
+
+    public JsonWriter value(boolean v) throws IOException {
+        separator();
+        writeRaw(v ? TRUE : FALSE);
+        return this;
+    }
+
+    /**
+     * Escribe un salto de línea fuera de cualquier estructura. Permite emitir
+     * documentos consecutivos (NDJSON) con el mismo escritor.
+     *
+     * @return this
+     * @throws IOException si falla la escritura
+     */
+    public JsonWriter newline() throws IOException {
+        writeByte('\n');
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    /**
+     * Vacía el buffer sobre el flujo. No cierra el flujo subyacente: su ciclo
+     * de vida lo gestiona el servidor HTTP.
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    // ----------------- Internos -----------------
+
+    private void push() {
+        if (++depth == first.length) {
+            boolean[] bigger = new boolean[first.length * 2];
+            System.arraycopy(first, 0, bigger, 0, first.length);
+            first = bigger;
+        }
+        first[depth] = true;
+    }
+
+    private void separator() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            if (first[depth]) first[depth] = false;
+            else writeByte(',');
+        }
+    }
+
+    private void writeQuoted(String s) throws IOException {
+        writeByte('"');
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                byte[] esc = ESCAPES[c];
+                if (esc == null) {
+                    if (pos == buf.length) flushBuffer();
+                    buf[pos++] = (byte) c;
+                } else {
+                    writeRaw(esc);
+                }
+            } else if (c < 0x800) {
+                ensure(2);
+                buf[pos++] = (byte) (0xC0 | (c >> 6));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                ensure(4);
+                buf[pos++] = (byte) (0xF0 | (cp >> 18));
+                buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                writeByte('?'); // sustituto huérfano: no representable en UTF-8
+            } else {
+                ensure(3);
+                buf[pos++] = (byte) (0xE0 | (c >> 12));
+                buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        writeByte('"');
+    }
+
+    private void writeAscii(String s) throws IOException {
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            if (pos == buf.length) flushBuffer();
+            buf[pos++] = (byte) s.charAt(i);
+        }
+    }
+
+    private void writeRaw(byte[] b) throws IOException {
+        ensure(b.length);
+        System.arraycopy(b, 0, buf, pos, b.length);
+        pos += b.length;
+    }
+
+    private void writeByte(int b) throws IOException {
+        if (pos == buf.length) flushBuffer();
+        buf[pos++] = (byte) b;
+    }
+
+    private void ensure(int n) throws IOException {
+        if (pos + n > buf.length) flushBuffer();
+    }
+
+    private void flushBuffer() throws IOException {
+        if (pos > 0) {
+            out.write(buf, 0, pos);
+            pos = 0;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.web.servlet;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.web.api.ApiExchange;
+import org.example.web.api.ApiHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * @file ApiServlet.java
+ * @brief Adaptador que publica un {@link ApiHandler} como servlet de Jetty.
+ */
+public class ApiServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+
+    private final transient ApiHandler handler;
+
+    public ApiServlet(ApiHandler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        handler.handle(new ServletApiExchange(req, resp));
+    }
+
+    /**
+     * Implementación de {@link ApiExchange} sobre la API de servlets.
+     */
+    static class ServletApiExchange implements ApiExchange {
+        private final HttpServletRequest req;
+        private final HttpServletResponse resp;
+
+        ServletApiExchange(HttpServletRequest req, HttpServletResponse resp) {
+            this.req = req;
+            this.resp = resp;
+        }
+
+        @Override
+        public String getMethod() { return req.getMethod(); }
+
+        @Override
+        public String getPath() { return req.getRequestURI(); }
+
+        @Override
+        public String getQueryParameter(String name) { return req.getParameter(name); }
+
+        @Override
+        public String getRequestHeader(String name) { return req.getHeader(name); }
+
+        @Override
+        public String getRemoteAddress() { return req.getRemoteAddr(); }
+
+        @Override
+        public InputStream getRequestBody() throws IOException { return req.getInputStream(); }
+
+        @Override
+        public void setResponseHeader(String name, String value) { resp.addHeader(name, value); }
+
+        @Override
+        public OutputStream sendResponse(int status, String contentType) throws IOException {
+            resp.setStatus(status);
+            resp.setContentType(contentType);
+            return resp.getOutputStream();
+        }
+
+        @Override
+        public Runnable detach() {
+            // Requiere setAsyncSupported(true) en el ServletHolder
+            AsyncContext ctx = req.startAsync();
+            ctx.setTimeout(0);
+            return ctx::complete;
+        }
+    }
+}
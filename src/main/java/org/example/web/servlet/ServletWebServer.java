@@ -5,6 +5,14 @@ import org.eclipse.jetty.servlet.DefaultServlet;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
 import org.eclipse.jetty.util.resource.Resource;
+import org.example.web.api.BatchHandler;
+import org.example.web.api.ExportHandler;
+import org.example.web.api.IngestHandler;
+import org.example.web.api.EventsHandler;
+import org.example.web.api.LiveQueryHandler;
+import org.example.web.api.MirrorHandler;
+import org.example.web.api.QueryHandler;
+import org.example.web.api.SlowQueryHandler;
 
 /**
  * @file ServletWebServer.java
@@ -12,7 +20,14 @@ import org.eclipse.jetty.util.resource.Resource;
  *        recursos estáticos desde `src/main/resources/static`.
  *
  * Usa Jetty 11 (Jakarta Servlet API). Registra:
- * - {@link QueryServlet} en /query
+ * - {@link QueryHandler} en /query (vía {@link ApiServlet})
+ * - {@link BatchHandler} en /batch (vía {@link ApiServlet})
+ * - {@link IngestHandler} en /ingest (vía {@link ApiServlet})
+ * - {@link ExportHandler} en /export (vía {@link ApiServlet})
+ * - {@link SlowQueryHandler} en /admin/slow-queries (vía {@link ApiServlet})
+ * - {@link MirrorHandler} en /admin/mirror (vía {@link ApiServlet})
+ * - {@link EventsHandler} en /events (vía {@link ApiServlet}, asíncrono)
+ * - {@link LiveQueryHandler} en /live (vía {@link ApiServlet}, asíncrono)
  * - {@link DefaultServlet} para servir contenido estático en /
  */
 public class ServletWebServer {
@@ -46,7 +61,26 @@ public class ServletWebServer {
         context.setWelcomeFiles(new String[]{"index.html"});
 
         // Registrar el servlet de consulta en /query
-        context.addServlet(new ServletHolder(new QueryServlet()), "/query");
+        context.addServlet(new ServletHolder(new ApiServlet(new QueryHandler())), "/query");
+
+        // Lotes de sentencias en una transacción
+        context.addServlet(new ServletHolder(new ApiServlet(new BatchHandler())), "/batch");
+
+        // Carga masiva en streaming (COPY / LOAD DATA)
+        context.addServlet(new ServletHolder(new ApiServlet(new IngestHandler())), "/ingest");
+        context.addServlet(new ServletHolder(new ApiServlet(new ExportHandler())), "/export");
+
+        // Endpoints de administración (compartidos con SimpleWebServer vía ApiHandler)
+        context.addServlet(new ServletHolder(new ApiServlet(new SlowQueryHandler())), "/admin/slow-queries");
+        context.addServlet(new ServletHolder(new ApiServlet(new MirrorHandler())), "/admin/mirror");
+
+        // Server-Sent Events: la respuesta sigue abierta tras service() (AsyncContext)
+        ServletHolder events = new ServletHolder(new ApiServlet(new EventsHandler()));
+        events.setAsyncSupported(true);
+        context.addServlet(events, "/events");
+        ServletHolder live = new ServletHolder(new ApiServlet(new LiveQueryHandler()));
+        live.setAsyncSupported(true);
+        context.addServlet(live, "/live");
 
         // Registrar DefaultServlet para servir archivos estáticos
     ServletHolder defaultHolder = new ServletHolder("default", DefaultServlet.class);
@@ -1,52 +1,221 @@
+// Tabla virtualizada: sólo existen en el DOM las filas visibles (más un margen),
+// así que el coste de pintar no depende del tamaño del resultado.
+const ROW_HEIGHT = 30;        // px; fijo (ver CSS) para saber qué filas se ven
+const OVERSCAN = 10;          // filas extra por arriba y por abajo
+const PAGE_SIZE = 5000;       // filas por página de /query ("Cargar más")
+const JSON_PREVIEW_ROWS = 200;
+
+const grid = { rows: [], cols: [], colSet: new Set(), start: -1, end: -1, frame: 0, viewport: null, table: null, thead: null, tbody: null };
+
 function renderTable(rows) {
   const container = document.getElementById('tableContainer');
   container.innerHTML = '';
-  if (!rows || rows.length === 0) {
-    const p = document.createElement('div'); p.className = 'no-rows'; p.textContent = 'No hay filas.'; container.appendChild(p); return;
-  }
-  // Collect all column names
-  const cols = Array.from(rows.reduce((set, r) => { Object.keys(r).forEach(k => set.add(k)); return set; }, new Set()));
+  grid.rows = []; grid.cols = []; grid.colSet = new Set(); grid.start = grid.end = -1;
+  const viewport = document.createElement('div'); viewport.className = 'grid-viewport';
   const table = document.createElement('table'); table.className = 'query-result';
-  const thead = document.createElement('thead'); const thr = document.createElement('tr');
-  cols.forEach(c => { const th = document.createElement('th'); th.textContent = c; thr.appendChild(th); });
-  thead.appendChild(thr); table.appendChild(thead);
-  const tbody = document.createElement('tbody');
-  rows.forEach(r => {
+  grid.thead = document.createElement('thead'); grid.tbody = document.createElement('tbody');
+  table.appendChild(grid.thead); table.appendChild(grid.tbody); viewport.appendChild(table);
+  const empty = document.createElement('div'); empty.className = 'no-rows'; empty.textContent = 'No hay filas.';
+  container.appendChild(viewport); container.appendChild(empty);
+  grid.viewport = viewport; grid.table = table; grid.empty = empty;
+  viewport.addEventListener('scroll', scheduleRender);
+  appendRows(rows || []);
+}
+
+// Añade filas al final (llegan por trozos mientras se lee la respuesta)
+function appendRows(rows) {
+  for (const r of rows) grid.rows.push(r);
+  addColumns(rows);
+  scheduleRender();
+}
+
+// Sustituye todas las filas conservando el scroll (consulta en vivo); sólo
+// las filas cambiadas pueden traer columnas nuevas
+function replaceRows(rows, changed) {
+  grid.rows = rows;
+  addColumns(changed);
+  grid.start = grid.end = -1;
+  scheduleRender();
+}
+
+function addColumns(rows) {
+  const before = grid.cols.length;
+  for (const r of rows) {
+    for (const k in r) if (!grid.colSet.has(k)) { grid.colSet.add(k); grid.cols.push(k); }
+  }
+  if (grid.cols.length !== before) {
     const tr = document.createElement('tr');
-    cols.forEach(c => { const td = document.createElement('td'); const v = r[c]; td.textContent = v === null || v === undefined ? '' : String(v); tr.appendChild(td); });
-    tbody.appendChild(tr);
-  });
-  table.appendChild(tbody); container.appendChild(table);
+    grid.cols.forEach(c => { const th = document.createElement('th'); th.textContent = c; th.title = c; tr.appendChild(th); });
+    grid.thead.replaceChildren(tr);
+    grid.start = grid.end = -1;
+  }
 }
 
-document.getElementById('run').addEventListener('click', async () => {
-  const db = document.getElementById('db').value;
-  const sql = document.getElementById('sql').value;
-  const body = JSON.stringify({ db, sql });
+function scheduleRender() {
+  if (!grid.frame) grid.frame = requestAnimationFrame(renderWindow);
+}
+
+function spacer(height) {
+  const tr = document.createElement('tr'); tr.className = 'spacer';
+  const td = document.createElement('td'); td.colSpan = Math.max(1, grid.cols.length); td.style.height = height + 'px';
+  tr.appendChild(td); return tr;
+}
+
+function renderWindow() {
+  grid.frame = 0;
+  const vp = grid.viewport; if (!vp) return;
+  const total = grid.rows.length;
+  grid.empty.style.display = total === 0 ? '' : 'none';
+  vp.style.display = total === 0 ? 'none' : '';
+  const first = Math.max(0, Math.floor(vp.scrollTop / ROW_HEIGHT) - OVERSCAN);
+  const last = Math.min(total, first + Math.ceil(vp.clientHeight / ROW_HEIGHT) + 2 * OVERSCAN);
+  if (first === grid.start && last === grid.end && grid.tbody.lastChild) {
+    // Mismas filas visibles: sólo crece el hueco de abajo
+    grid.tbody.lastChild.firstChild.style.height = (total - last) * ROW_HEIGHT + 'px';
+    return;
+  }
+  grid.start = first; grid.end = last;
+  const frag = document.createDocumentFragment();
+  frag.appendChild(spacer(first * ROW_HEIGHT));
+  for (let i = first; i < last; i++) {
+    const r = grid.rows[i];
+    const tr = document.createElement('tr');
+    grid.cols.forEach(c => { const td = document.createElement('td'); const v = r[c]; td.textContent = v === null || v === undefined ? '' : String(v); tr.appendChild(td); });
+    frag.appendChild(tr);
+  }
+  frag.appendChild(spacer((total - last) * ROW_HEIGHT));
+  grid.tbody.replaceChildren(frag);
+}
+
+// Sólo las primeras filas: formatear el resultado entero bloquea el navegador
+function showJsonPreview() {
+  const rows = grid.rows;
+  const extra = rows.length > JSON_PREVIEW_ROWS ? '\n... (' + (rows.length - JSON_PREVIEW_ROWS) + ' filas más)' : '';
+  document.getElementById('json').textContent = JSON.stringify(rows.slice(0, JSON_PREVIEW_ROWS), null, 2) + extra;
+}
+
+// Consulta paginada en NDJSON: cada línea es una fila y se pinta según llega
+let current = null;
+
+async function readNdjson(resp, onRows) {
+  const reader = resp.body.getReader();
+  const decoder = new TextDecoder();
+  let buf = '';
+  for (;;) {
+    const { done, value } = await reader.read();
+    if (done) break;
+    buf += decoder.decode(value, { stream: true });
+    const lines = buf.split('\n');
+    buf = lines.pop();
+    onRows(lines.filter(l => l.trim()).map(l => JSON.parse(l)));
+  }
+  buf += decoder.decode();
+  if (buf.trim()) onRows([JSON.parse(buf)]);
+}
+
+async function fetchPage(run, body) {
   const msg = document.getElementById('message');
-  msg.textContent = 'Executing...';
-  try {
-    const resp = await fetch('/query', { method: 'POST', headers: { 'Content-Type':'application/json' }, body });
+  const more = document.getElementById('more');
+  more.hidden = true;
+  const resp = await fetch('/query', {
+    method: 'POST', signal: run.abort.signal, body: JSON.stringify(body),
+    headers: { 'Content-Type': 'application/json', 'Accept': 'application/x-ndjson' }
+  });
+  if (!resp.ok) {
     const text = await resp.text();
-    // Try parse JSON
-    try {
-      const json = JSON.parse(text);
-      // normalize to array
-      const rows = Array.isArray(json) ? json : (json === null ? [] : [json]);
-      renderTable(rows);
-      document.getElementById('json').textContent = JSON.stringify(json, null, 2);
-      // open details automatically when result is large
-      const details = document.getElementById('jsonDetails'); if (details && rows.length > 0) details.open = false;
-      msg.textContent = 'OK';
-    } catch (e) {
-      // Not JSON, show raw text
-      document.getElementById('tableContainer').innerHTML = '';
-      document.getElementById('json').textContent = text;
-      msg.textContent = 'Respuesta no-JSON';
-    }
+    let error = text; try { error = JSON.parse(text).error || text; } catch (e) { /* texto tal cual */ }
+    throw new Error(resp.status + ' ' + error);
+  }
+  const total = resp.headers.get('X-Total-Rows');
+  // Resultado recortado a QUERY_CURSOR_MAX_ROWS filas: el resto no se puede paginar
+  const truncated = resp.headers.get('X-Result-Truncated') ? ' (resultado recortado: acótalo con LIMIT/OFFSET o usa /export)' : '';
+  run.cursor = resp.headers.get('X-Next-Cursor');
+  await readNdjson(resp, rows => {
+    if (current !== run) return;
+    appendRows(rows);
+    msg.textContent = 'Cargando... ' + grid.rows.length + (total ? ' de ' + total : '') + ' filas';
+  });
+  if (current !== run) return;
+  msg.textContent = 'OK: ' + grid.rows.length + (total ? ' de ' + total : '') + ' filas' + truncated;
+  more.hidden = !run.cursor;
+  showJsonPreview();
+}
+
+async function runQuery(db, sql) {
+  if (current) current.abort.abort();
+  const run = { abort: new AbortController(), cursor: null };
+  current = run;
+  renderTable([]);
+  document.getElementById('json').textContent = '';
+  document.getElementById('message').textContent = 'Executing...';
+  try {
+    await fetchPage(run, { db, sql, page_size: PAGE_SIZE });
+  } catch (e) {
+    if (current === run && e.name !== 'AbortError') document.getElementById('message').textContent = 'Error: ' + e.message;
+  }
+}
+
+document.getElementById('more').addEventListener('click', async () => {
+  const run = current;
+  if (!run || !run.cursor) return;
+  try {
+    await fetchPage(run, { cursor: run.cursor, page_size: PAGE_SIZE });
   } catch (e) {
-    msg.textContent = 'Error: ' + e;
-    document.getElementById('tableContainer').innerHTML = '';
-    document.getElementById('json').textContent = '';
+    if (current === run && e.name !== 'AbortError') document.getElementById('message').textContent = 'Error: ' + e.message;
+  }
+});
+
+// Consulta en vivo (/live): snapshot inicial y después sólo las filas que cambian
+let live = null;
+
+function stopLive() {
+  if (live) { live.source.close(); live = null; }
+}
+
+function startLive(db, sql, key) {
+  stopLive();
+  if (current) { current.abort.abort(); current = null; }
+  document.getElementById('more').hidden = true;
+  const msg = document.getElementById('message');
+  const params = new URLSearchParams({ db, sql, key });
+  const source = new EventSource('/live?' + params.toString());
+  const state = { source, version: -1, key: [], rows: new Map() };
+  live = state;
+  const keyOf = r => JSON.stringify(state.key.map(c => r[c]));
+  source.addEventListener('snapshot', ev => {
+    const data = JSON.parse(ev.data);
+    state.version = data.version; state.key = data.key;
+    state.rows = new Map(data.rows.map(r => [keyOf(r), r]));
+    renderTable(data.rows);
+    showJsonPreview();
+    msg.textContent = 'En vivo: ' + data.rows.length + ' filas';
+  });
+  source.addEventListener('diff', ev => {
+    const data = JSON.parse(ev.data);
+    if (data.version <= state.version) return; // ya incluido en el snapshot
+    state.version = data.version;
+    data.deleted.forEach(k => state.rows.delete(keyOf(k)));
+    // Las modificadas conservan su posición; las nuevas van al final
+    const changed = data.updated.concat(data.inserted);
+    changed.forEach(r => state.rows.set(keyOf(r), r));
+    replaceRows(Array.from(state.rows.values()), changed);
+    msg.textContent = 'En vivo: ' + state.rows.size + ' filas (+' + data.inserted.length + ' ~' + data.updated.length + ' -' + data.deleted.length + ')';
+  });
+  source.addEventListener('query-error', ev => { msg.textContent = 'Error al recalcular: ' + JSON.parse(ev.data).error; });
+  source.onerror = () => {
+    // Si la suscripción se rechazó (400/500) el navegador no reintenta: se consulta con /query para ver el error
+    if (source.readyState === EventSource.CLOSED && live === state) { stopLive(); msg.textContent = 'La consulta en vivo se cerró'; }
+  };
+}
+
+document.getElementById('run').addEventListener('click', () => {
+  const db = document.getElementById('db').value;
+  const sql = document.getElementById('sql').value;
+  if (document.getElementById('live').checked) {
+    document.getElementById('message').textContent = 'Suscribiendo...';
+    startLive(db, sql, document.getElementById('key').value || 'id');
+    return;
   }
+  stopLive();
+  runQuery(db, sql);
 });
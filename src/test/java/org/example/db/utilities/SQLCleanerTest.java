@@ -0,0 +1,47 @@
+package org.example.db.utilities;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Huellas y detección de escrituras de {@link SQLCleaner}: los literales,
+ * identificadores y comentarios se delimitan como en el servidor.
+ */
+class SQLCleanerTest {
+    private static final boolean POSTGRES = false;
+    private static final boolean MYSQL = true;
+
+    @Test
+    void fingerprintReplacesLiteralsAndDropsComments() {
+        assertEquals("select * from t where id = ? and name=?",
+                SQLCleaner.fingerprint("SELECT *  FROM t\nWHERE id = 42 AND name='x' -- fin", POSTGRES));
+        assertEquals("select ? from t", SQLCleaner.fingerprint("SELECT /* a */ $$x$$ FROM t", POSTGRES));
+        assertEquals("select ? from t", SQLCleaner.fingerprint("SELECT \"x\" FROM t", MYSQL));
+        assertEquals("select \"x\" from t", SQLCleaner.fingerprint("SELECT \"X\" FROM t", POSTGRES));
+    }
+
+    @Test
+    void postgresBackslashDoesNotHideWrites() {
+        String sql = "WITH a AS (SELECT '\\'), d AS (DELETE FROM orders RETURNING 1) SELECT '\\' FROM d";
+        assertTrue(SQLCleaner.modifiesData(sql, POSTGRES));
+    }
+
+    @Test
+    void quotesInsideIdentifiersAndCommentsDoNotHideWrites() {
+        assertTrue(SQLCleaner.modifiesData(
+                "WITH \"a'\" AS (DELETE FROM orders RETURNING *), \"b'\" AS (SELECT 1) SELECT * FROM \"a'\"", POSTGRES));
+        assertTrue(SQLCleaner.modifiesData(
+                "WITH x AS (SELECT 1) -- it's\n, d AS (DELETE FROM t RETURNING 1) SELECT 1 -- '", POSTGRES));
+        assertTrue(SQLCleaner.modifiesData("SELECT 1 # it's\n INTO OUTFILE '/tmp/x'", MYSQL));
+    }
+
+    @Test
+    void literalsCommentsAndForUpdateAreNotWrites() {
+        assertFalse(SQLCleaner.modifiesData("SELECT 'delete from t' FROM t", POSTGRES));
+        assertFalse(SQLCleaner.modifiesData("SELECT 1 /* insert */ FROM t", POSTGRES));
+        assertFalse(SQLCleaner.modifiesData("SELECT * FROM t FOR UPDATE", MYSQL));
+    }
+}
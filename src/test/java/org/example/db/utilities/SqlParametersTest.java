@@ -0,0 +1,88 @@
+package org.example.db.utilities;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Recorrido de sentencias de {@link SqlParameters} según el dialecto: un
+ * literal mal delimitado esconde (o inventa) un {@code ;} que el servidor sí ve.
+ */
+class SqlParametersTest {
+    private static final boolean POSTGRES = false;
+    private static final boolean MYSQL = true;
+
+    @Test
+    void postgresBackslashDoesNotEscapeOutsideEscapeStrings() {
+        String sql = "SELECT '\\' AS x; DELETE FROM orders; SELECT '\\'";
+        assertTrue(SqlParameters.hasMultipleStatements(sql, POSTGRES));
+    }
+
+    @Test
+    void postgresBackslashEscapesInsideEscapeStrings() {
+        assertFalse(SqlParameters.hasMultipleStatements("SELECT E'\\'; DELETE FROM orders'", POSTGRES));
+        assertFalse(SqlParameters.hasMultipleStatements("SELECT e'\\'; x'", POSTGRES));
+        // La E final de un identificador no abre un literal E'...'
+        assertTrue(SqlParameters.hasMultipleStatements("SELECT name'\\'; DELETE FROM orders; SELECT '\\'", POSTGRES));
+    }
+
+    @Test
+    void mysqlBackslashEscapesInAnyLiteral() {
+        assertFalse(SqlParameters.hasMultipleStatements("SELECT '\\'; DELETE FROM orders'", MYSQL));
+        assertFalse(SqlParameters.hasMultipleStatements("SELECT \"\\\"; DELETE FROM orders\"", MYSQL));
+        assertTrue(SqlParameters.hasMultipleStatements("SELECT '\\\\'; DELETE FROM orders", MYSQL));
+    }
+
+    @Test
+    void doubledQuotesStayInsideTheLiteral() {
+        assertFalse(SqlParameters.hasMultipleStatements("SELECT 'it''s; fine'", POSTGRES));
+        assertFalse(SqlParameters.hasMultipleStatements("SELECT 'it''s; fine'", MYSQL));
+    }
+
+    @Test
+    void dollarQuotesOnlyInPostgres() {
+        assertFalse(SqlParameters.hasMultipleStatements("SELECT $$; DELETE FROM orders$$", POSTGRES));
+        assertFalse(SqlParameters.hasMultipleStatements("SELECT $tag$ ; $tag$", POSTGRES));
+        assertTrue(SqlParameters.hasMultipleStatements("SELECT $a$; DELETE FROM orders; SELECT $a$", MYSQL));
+    }
+
+    @Test
+    void mysqlCommentRules() {
+        // "--" sin espacio detrás no es un comentario en MySQL: 1--1 es una resta
+        assertTrue(SqlParameters.hasMultipleStatements("SELECT 1--1; DELETE FROM orders", MYSQL));
+        assertFalse(SqlParameters.hasMultipleStatements("SELECT 1 -- ; DELETE FROM orders", MYSQL));
+        // "#" abre un comentario: una comilla dentro no abre un literal
+        assertTrue(SqlParameters.hasMultipleStatements("SELECT 1 # it's\n; DELETE FROM orders", MYSQL));
+        // El contenido de /*! ... */ se ejecuta
+        assertTrue(SqlParameters.hasMultipleStatements("SELECT 1 /*!; DELETE FROM orders */", MYSQL));
+        assertFalse(SqlParameters.hasMultipleStatements("SELECT 1 /* ; DELETE FROM orders */", MYSQL));
+    }
+
+    @Test
+    void trailingSemicolonsAreASingleStatement() {
+        assertFalse(SqlParameters.hasMultipleStatements("SELECT 1;", POSTGRES));
+        assertFalse(SqlParameters.hasMultipleStatements("SELECT 1 ; ;  ", MYSQL));
+    }
+
+    @Test
+    void placeholdersFollowTheDialect() {
+        assertEquals(1, SqlParameters.countPlaceholders("SELECT '\\' , ?", POSTGRES));
+        assertEquals(0, SqlParameters.countPlaceholders("SELECT '\\' , ?", MYSQL));
+        assertEquals("SELECT '\\', $1 WHERE a = $2", SqlParameters.toNumbered("SELECT '\\', ? WHERE a = ?"));
+        assertEquals("SELECT '\\', 'x'", SqlParameters.inline("SELECT '\\', ?", Arrays.asList("x"), POSTGRES));
+    }
+
+    @Test
+    void selfContainedRejectsEscapesFromTheParentheses() {
+        assertTrue(SqlParameters.isSelfContained("SELECT (1), '(' FROM t", POSTGRES));
+        assertFalse(SqlParameters.isSelfContained("SELECT 1) TO '/tmp/x' --", POSTGRES));
+        assertFalse(SqlParameters.isSelfContained("SELECT '\\') TO '/tmp/x' --'", POSTGRES));
+        assertFalse(SqlParameters.isSelfContained("SELECT (1", POSTGRES));
+        assertFalse(SqlParameters.isSelfContained("SELECT 1 /* x */", POSTGRES));
+        assertFalse(SqlParameters.isSelfContained("SELECT 1; SELECT 2", POSTGRES));
+    }
+}